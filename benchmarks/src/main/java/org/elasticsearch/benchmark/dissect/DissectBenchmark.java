@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.grok;
+package org.elasticsearch.benchmark.dissect;
+
+import org.elasticsearch.dissect.DissectParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dissects Apache access log lines, from strings as ingest pipelines do and from UTF-8 bytes as ES|QL does.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class DissectBenchmark {
+
+    private static final String PATTERN = "%{clientip} %{ident} %{auth} [%{@timestamp}] \"%{verb} %{request} HTTP/%{httpversion}\" "
+        + "%{status} %{size} \"%{referrer}\" \"%{agent}\"";
+
+    private static final String[] LINES = new String[] {
+        "83.149.9.216 - - [17/May/2015:10:05:03 +0000] \"GET /presentations/logstash-monitorama-2013/images/kibana-search.png HTTP/1.1\" "
+            + "200 203023 \"http://semicomplete.com/presentations/logstash-monitorama-2013/\" \"Mozilla/5.0 (Macintosh; Intel Mac OS X "
+            + "10_9_1) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/32.0.1700.77 Safari/537.36\"",
+        "10.0.0.153 - - [12/Mar/2004:12:23:41 -0800] \"GET /dccstats/stats-hashes.1year.png HTTP/1.1\" 200 1582 "
+            + "\"http://www.example.com/dccstats/index.html\" \"Mozilla/5.0 (X11; U; Linux i686; en-US; rv:1.6) Gecko/20040113\"",
+        "66.249.73.135 - - [17/May/2015:10:05:40 +0000] \"GET /blog/tags/ipv6 HTTP/1.1\" 200 12251 \"-\" "
+            + "\"Mozilla/5.0 (iPhone; CPU iPhone OS 6_0 like Mac OS X) AppleWebKit/536.26 (KHTML, like Gecko) Version/6.0 Mobile/10A5376e "
+            + "Safari/8536.25 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)\"",
+        "2001:db8::1 - frank [10/Oct/2000:13:55:36 -0700] \"POST /api/v1/items?id=42&sort=desc HTTP/2.0\" 404 - \"-\" \"curl/7.68.0\"" };
+
+    private DissectParser parser;
+
+    private byte[][] utf8Lines;
+
+    @Setup
+    public void setup() {
+        parser = new DissectParser(PATTERN, null);
+        utf8Lines = new byte[LINES.length][];
+        for (int i = 0; i < LINES.length; i++) {
+            utf8Lines[i] = LINES[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void strings(Blackhole blackhole) {
+        for (String line : LINES) {
+            blackhole.consume(parser.parse(line));
+        }
+    }
+
+    @Benchmark
+    public void utf8Bytes(Blackhole blackhole) {
+        for (byte[] line : utf8Lines) {
+            blackhole.consume(parser.parse(line, 0, line.length));
+        }
+    }
+}
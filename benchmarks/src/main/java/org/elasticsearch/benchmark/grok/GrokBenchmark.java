@@ -0,0 +1,85 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.benchmark.grok;
+
+import org.elasticsearch.grok.Grok;
+import org.elasticsearch.grok.GrokBuiltinPatterns;
+import org.elasticsearch.grok.MatcherWatchdog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches the lines of two common log formats, Apache combined logs and syslog, against the grok patterns of both formats, so
+ * that each pattern sees the lines that it matches as well as lines that it doesn't match, as it would in an ingest pipeline
+ * that tries several patterns in turn.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class GrokBenchmark {
+
+    private static final String[] APACHE_LINES = new String[] {
+        "83.149.9.216 - - [17/May/2015:10:05:03 +0000] \"GET /presentations/logstash-monitorama-2013/images/kibana-search.png HTTP/1.1\" "
+            + "200 203023 \"http://semicomplete.com/presentations/logstash-monitorama-2013/\" \"Mozilla/5.0 (Macintosh; Intel Mac OS X "
+            + "10_9_1) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/32.0.1700.77 Safari/537.36\"",
+        "10.0.0.153 - - [12/Mar/2004:12:23:41 -0800] \"GET /dccstats/stats-hashes.1year.png HTTP/1.1\" 200 1582 "
+            + "\"http://www.example.com/dccstats/index.html\" \"Mozilla/5.0 (X11; U; Linux i686; en-US; rv:1.6) Gecko/20040113\"",
+        "66.249.73.135 - - [17/May/2015:10:05:40 +0000] \"GET /blog/tags/ipv6 HTTP/1.1\" 200 12251 \"-\" "
+            + "\"Mozilla/5.0 (iPhone; CPU iPhone OS 6_0 like Mac OS X) AppleWebKit/536.26 (KHTML, like Gecko) Version/6.0 Mobile/10A5376e "
+            + "Safari/8536.25 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)\"",
+        "2001:db8::1 - frank [10/Oct/2000:13:55:36 -0700] \"POST /api/v1/items?id=42&sort=desc HTTP/2.0\" 404 - \"-\" \"curl/7.68.0\"" };
+
+    private static final String[] SYSLOG_LINES = new String[] {
+        "Jan 14 06:25:01 myhost CRON[12345]: (root) CMD (command -v debian-sa1 > /dev/null && debian-sa1 1 1)",
+        "Mar  7 11:24:17 web-01 sshd[27456]: Accepted publickey for deploy from 192.168.1.20 port 53422 ssh2: RSA SHA256:abcdef",
+        "2024-03-07T11:24:17.123+01:00 db-02 kernel: [12345.678901] EXT4-fs (sda1): mounted filesystem with ordered data mode",
+        "Dec 31 23:59:59 gateway dhclient: DHCPREQUEST for 10.0.0.12 on eth0 to 10.0.0.1 port 67" };
+
+    @Param({ "%{COMBINEDAPACHELOG}", "%{SYSLOGLINE}" })
+    public String pattern;
+
+    @Param({ "REGEX", "AUTOMATON" })
+    public Grok.CompileMode compileMode;
+
+    private Grok grok;
+
+    @Setup
+    public void setup() {
+        grok = new Grok(GrokBuiltinPatterns.legacyPatterns(), pattern, MatcherWatchdog.noop(), compileMode, message -> {});
+    }
+
+    @Benchmark
+    public void apacheLines(Blackhole blackhole) {
+        for (String line : APACHE_LINES) {
+            blackhole.consume(grok.captures(line));
+        }
+    }
+
+    @Benchmark
+    public void syslogLines(Blackhole blackhole) {
+        for (String line : SYSLOG_LINES) {
+            blackhole.consume(grok.captures(line));
+        }
+    }
+}
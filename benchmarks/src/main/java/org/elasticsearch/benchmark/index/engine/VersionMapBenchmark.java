@@ -0,0 +1,89 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.engine.CompactVersionTable;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of concurrent updates to the table that tracks the versions of a refresh cycle in the live version map,
+ * against the {@link java.util.concurrent.ConcurrentHashMap} it replaced. The map holds a value with the same fields as the
+ * package-private {@code IndexVersionValue}.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 7)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Fork(1)
+public class VersionMapBenchmark {
+
+    @Param({ "compact", "concurrent_hash_map" })
+    private String type;
+
+    @Param({ "10000", "1000000" })
+    private int uidCount;
+
+    private BytesRef[] uids;
+
+    private CompactVersionTable table;
+
+    private Map<BytesRef, Version> map;
+
+    private record Version(long version, long seqNo, long term, Object location) {}
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        uids = new BytesRef[uidCount];
+        for (int i = 0; i < uidCount; i++) {
+            uids[i] = new Term(IdFieldMapper.NAME, Uid.encodeId(UUIDs.base64UUID())).bytes();
+        }
+        switch (type) {
+            case "compact" -> table = new CompactVersionTable();
+            case "concurrent_hash_map" -> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+            default -> throw new IllegalArgumentException("unknown type [" + type + "]");
+        }
+    }
+
+    @Benchmark
+    public Object update() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final BytesRef uid = uids[random.nextInt(uidCount)];
+        final long seqNo = random.nextLong(Long.MAX_VALUE);
+        if (table != null) {
+            return table.put(uid, seqNo, seqNo, 1, null);
+        } else {
+            return map.put(uid, new Version(seqNo, seqNo, 1, null));
+        }
+    }
+}
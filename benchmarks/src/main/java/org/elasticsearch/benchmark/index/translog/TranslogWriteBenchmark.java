@@ -0,0 +1,118 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.index.translog;
+
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.DiskIoBufferPool;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.TragicExceptionHolder;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogConfig;
+import org.elasticsearch.index.translog.TranslogWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to add a batch of operations to a translog file and fsync it, with and without starting the writeback of the
+ * operations as they are written. The writeback only starts once more than the translog buffer is written between two syncs, so it
+ * only makes a difference for the larger batches.
+ */
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+public class TranslogWriteBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean writeBehind;
+
+    @Param({ "1024" })
+    private int operationSize;
+
+    @Param({ "100", "10000" })
+    private int operationsPerSync;
+
+    private Path directory;
+
+    private TranslogWriter writer;
+
+    private BytesArray operation;
+
+    private long seqNo;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("translogWriteBench");
+        Files.createFile(directory.resolve(Translog.CHECKPOINT_FILE_NAME));
+        byte[] bytes = new byte[operationSize];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        operation = new BytesArray(bytes);
+        seqNo = 0;
+        writer = TranslogWriter.create(
+            new ShardId("index", UUIDs.randomBase64UUID(), 0),
+            UUIDs.randomBase64UUID(),
+            1L,
+            directory.resolve(Translog.getFilename(1L)),
+            FileChannel::open,
+            TranslogConfig.DEFAULT_BUFFER_SIZE,
+            1L,
+            0L,
+            () -> 0L,
+            () -> 1L,
+            1L,
+            new TragicExceptionHolder(),
+            s -> {},
+            BigArrays.NON_RECYCLING_INSTANCE,
+            DiskIoBufferPool.INSTANCE,
+            TranslogConfig.NOOP_OPERATION_LISTENER,
+            true,
+            writeBehind
+        );
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        writer.close();
+        IOUtils.rm(directory);
+    }
+
+    @Benchmark
+    public Translog.Location addAndSync() throws IOException {
+        Translog.Location location = null;
+        for (int i = 0; i < operationsPerSync; i++) {
+            location = writer.add(operation, seqNo++);
+        }
+        writer.sync();
+        return location;
+    }
+}
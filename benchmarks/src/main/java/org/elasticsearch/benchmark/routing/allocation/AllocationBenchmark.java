@@ -10,6 +10,7 @@ package org.elasticsearch.benchmark.routing.allocation;
 
 import org.elasticsearch.TransportVersion;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.ClusterInfo;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
@@ -18,9 +19,20 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalance;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalanceComputer;
+import org.elasticsearch.cluster.routing.allocation.allocator.DesiredBalanceInput;
+import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.version.CompatibilityVersions;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexVersion;
+import org.elasticsearch.snapshots.SnapshotShardSizeInfo;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+import org.elasticsearch.threadpool.DefaultBuiltInExecutorBuilders;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -31,10 +43,12 @@ import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -104,15 +118,34 @@ public class AllocationBenchmark {
             "       10|     10|        2|    50",
             "      100|      1|        2|    50",
             "      100|      3|        2|    50",
-            "      100|     10|        2|    50" }
+            "      100|     10|        2|    50",
+
+            // large clusters, where the desired balance computation dominates
+            "     1000|      3|        1|   100",
+            "     1000|     10|        1|   100",
+            "     5000|      1|        1|   200",
+            "     2000|      5|        1|   300" }
     )
     public String indicesShardsReplicasNodes = "10|1|0|1";
 
+    /**
+     * Value of {@link DesiredBalanceComputer#PARALLELISM_SETTING} for the desired balance benchmarks, e.g. run with
+     * {@code -p desiredBalanceParallelism=1,4,8} to compare.
+     */
+    @Param({ "1" })
+    public int desiredBalanceParallelism = 1;
+
     public int numTags = 2;
 
     private AllocationService strategy;
     private ClusterState initialClusterState;
 
+    private ThreadPool threadPool;
+    private AllocationDeciders deciders;
+    private DesiredBalanceComputer desiredBalanceComputer;
+    private DesiredBalance initialDesiredBalance;
+    private ClusterState clusterStateWithNewIndex;
+
     @Setup
     public void setUp() throws Exception {
         final String[] params = indicesShardsReplicasNodes.split("\\|");
@@ -155,6 +188,35 @@ public class AllocationBenchmark {
             .nodes(nb)
             .nodeIdsToCompatibilityVersions(compatibilityVersions)
             .build();
+
+        threadPool = new ThreadPool(
+            Settings.builder().put("node.name", AllocationBenchmark.class.getSimpleName()).build(),
+            MeterRegistry.NOOP,
+            new DefaultBuiltInExecutorBuilders()
+        );
+        final ClusterSettings clusterSettings = new ClusterSettings(
+            Settings.builder().put(DesiredBalanceComputer.PARALLELISM_SETTING.getKey(), desiredBalanceParallelism).build(),
+            ClusterSettings.BUILT_IN_CLUSTER_SETTINGS
+        );
+        deciders = Allocators.defaultAllocationDeciders(Settings.EMPTY, clusterSettings);
+        desiredBalanceComputer = new DesiredBalanceComputer(clusterSettings, threadPool, new BalancedShardsAllocator(Settings.EMPTY));
+        initialDesiredBalance = computeDesiredBalance(DesiredBalance.INITIAL, initialClusterState);
+
+        // the incremental benchmark resumes from the balance above after a single new index was created
+        final IndexMetadata newIndex = IndexMetadata.builder("test_new")
+            .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, IndexVersion.current()))
+            .numberOfShards(numShards)
+            .numberOfReplicas(numReplicas)
+            .build();
+        clusterStateWithNewIndex = ClusterState.builder(initialClusterState)
+            .metadata(Metadata.builder(metadata).put(newIndex, false))
+            .routingTable(RoutingTable.builder(TestShardRoutingRoleStrategies.DEFAULT_ROLE_ONLY, routingTable).addAsNew(newIndex))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
     }
 
     private int toInt(String v) {
@@ -180,4 +242,36 @@ public class AllocationBenchmark {
         }
         return clusterState;
     }
+
+    /**
+     * Measures the computation of the desired balance of the whole cluster from scratch.
+     */
+    @Benchmark
+    public DesiredBalance measureDesiredBalanceComputation() {
+        return computeDesiredBalance(DesiredBalance.INITIAL, initialClusterState);
+    }
+
+    /**
+     * Measures the computation of the desired balance when resuming from the previous balance after a single new index was created.
+     */
+    @Benchmark
+    public DesiredBalance measureIncrementalDesiredBalanceComputation() {
+        return computeDesiredBalance(initialDesiredBalance, clusterStateWithNewIndex);
+    }
+
+    private DesiredBalance computeDesiredBalance(DesiredBalance previousDesiredBalance, ClusterState clusterState) {
+        final RoutingAllocation allocation = new RoutingAllocation(
+            deciders,
+            clusterState,
+            ClusterInfo.EMPTY,
+            SnapshotShardSizeInfo.EMPTY,
+            System.nanoTime()
+        );
+        return desiredBalanceComputer.compute(
+            previousDesiredBalance,
+            DesiredBalanceInput.create(previousDesiredBalance.lastConvergedIndex() + 1, allocation),
+            new LinkedList<>(),
+            input -> true
+        );
+    }
 }
@@ -53,7 +53,7 @@ final class DissectMatch {
     /**
      * Add the key/value that was found as result of the parsing
      * @param key the {@link DissectKey}
-     * @param value the discovered value for the key
+     * @param value the discovered value for the key, may be {@code null} if the key is skipped
      */
     void add(DissectKey key, String value) {
         matches++;
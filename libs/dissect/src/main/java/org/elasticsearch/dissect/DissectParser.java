@@ -9,14 +9,17 @@
 
 package org.elasticsearch.dissect;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -95,9 +98,16 @@ public final class DissectParser {
         DissectKey.Modifier.APPEND_WITH_ORDER
     );
     private static final Function<DissectPair, String> KEY_NAME = val -> val.key().getName();
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
     private final List<DissectPair> matchPairs;
     private final String pattern;
     private String leadingDelimiter = "";
+    // the plan that the input is matched against: the encoded delimiters, and the keys the values before them are assigned to
+    private final byte[] leadingDelimiterBytes;
+    private final DissectKey[] keys;
+    private final byte[][] delimiters;
     private final int maxMatches;
     private final int maxResults;
     private final int appendCount;
@@ -161,6 +171,13 @@ public final class DissectParser {
 
         referenceCount = referenceGroupings.size() * 2;
         this.matchPairs = List.copyOf(dissectPairs);
+        this.leadingDelimiterBytes = leadingDelimiter.getBytes(StandardCharsets.UTF_8);
+        this.keys = new DissectKey[matchPairs.size()];
+        this.delimiters = new byte[matchPairs.size()][];
+        for (int i = 0; i < matchPairs.size(); i++) {
+            keys[i] = matchPairs.get(i).key();
+            delimiters[i] = matchPairs.get(i).delimiter().getBytes(StandardCharsets.UTF_8);
+        }
     }
 
     /**
@@ -171,18 +188,37 @@ public final class DissectParser {
      * @throws DissectException if unable to dissect a pair into its parts.
      */
     public Map<String, String> parse(String inputString) {
+        if (inputString == null) {
+            return null;
+        }
+        byte[] input = inputString.getBytes(StandardCharsets.UTF_8);
+        return parse(input, 0, input.length);
+    }
+
+    /**
+     * Entry point to dissect UTF-8 encoded bytes into their parts. This saves encoding the input when it is already available as
+     * UTF-8, and the values are decoded straight from the input.
+     *
+     * @param input  the bytes holding the UTF-8 encoded input
+     * @param offset the offset of the input in the bytes
+     * @param length the length of the input in the bytes
+     * @return the key/value Map of the results, or {@code null} if the input doesn't match
+     * @throws DissectException if unable to dissect a pair into its parts.
+     */
+    public Map<String, String> parse(byte[] input, int offset, int length) {
         /**
          *
-         * This implements a naive string matching algorithm. The string is walked left to right, comparing each byte against
-         * another string's bytes looking for matches. If the bytes match, then a second cursor looks ahead to see if all the bytes
-         * of the other string matches. If they all match, record it and advances the primary cursor to the match point. If it can not match
-         * all of the bytes then progress the main cursor. Repeat till the end of the input string. Since the string being searching for
-         * (the delimiter) is generally small and rare the naive approach is efficient.
+         * This implements a naive string matching algorithm. The string is walked left to right, looking for the first byte of the
+         * delimiter. When it is found, the following bytes are compared with the rest of the delimiter. If they all match, record it
+         * and advance the cursor past the match point. If they don't match then progress the cursor. Repeat till the end of the input
+         * string. Since the string being searching for (the delimiter) is generally small and rare the naive approach is efficient.
+         * The search for the first byte of the delimiter looks at 8 bytes at a time, see {@link #indexOf}.
          *
          * In this case the string that is walked is the input string, and the string being searched for is the current delimiter.
          * For example for a dissect pattern of {@code %{a},%{b}:%{c}} the delimiters (comma then colon) are searched for in the
-         * input string. At class construction the list of keys+delimiters are found (dissectPairs), which allows the use of that ordered
-         * list to know which delimiter to use for the search. The delimiters is progressed once the current delimiter is matched.
+         * input string. At class construction the list of keys+delimiters are found (dissectPairs) and the delimiters are encoded,
+         * which allows the use of that ordered list to know which delimiter to use for the search. The delimiters is progressed once
+         * the current delimiter is matched.
          *
          * There are two special cases that requires additional parsing beyond the standard naive algorithm. Consecutive delimiters should
          * results in a empty matches unless the {@code ->} is provided. For example given the dissect pattern of
@@ -192,88 +228,60 @@ public final class DissectParser {
          * b=bar.
          *
          */
+        Objects.checkFromIndexSize(offset, length, input.length);
         DissectMatch dissectMatch = new DissectMatch(appendSeparator, maxMatches, maxResults, appendCount, referenceCount);
-        Iterator<DissectPair> it = matchPairs.iterator();
+        final int end = offset + length;
         // ensure leading delimiter matches
-        if (inputString != null
-            && inputString.length() > leadingDelimiter.length()
-            && leadingDelimiter.equals(inputString.substring(0, leadingDelimiter.length()))) {
-            byte[] input = inputString.getBytes(StandardCharsets.UTF_8);
+        if (length > leadingDelimiterBytes.length && delimiterAt(input, offset, end, leadingDelimiterBytes)) {
             // grab the first key/delimiter pair
-            DissectPair dissectPair = it.next();
-            DissectKey key = dissectPair.key();
-            byte[] delimiter = dissectPair.delimiter().getBytes(StandardCharsets.UTF_8);
+            int pair = 0;
+            DissectKey key = keys[pair];
+            byte[] delimiter = delimiters[pair];
             // start dissection after the first delimiter
-            int i = leadingDelimiter.getBytes(StandardCharsets.UTF_8).length;
+            int i = offset + leadingDelimiterBytes.length;
             int valueStart = i;
-            int lookAheadMatches;
-            // start walking the input string byte by byte, look ahead for matches where needed
+            // walk the input string to the next potential match, look ahead for the rest of the delimiter
             // if a match is found jump forward to the end of the match
-            while (i < input.length) {
-                lookAheadMatches = 0;
-                // potential match between delimiter and input string
-                if (delimiter.length > 0 && input[i] == delimiter[0]) {
-                    // look ahead to see if the entire delimiter matches the input string
-                    for (int j = 0; j < delimiter.length; j++) {
-                        if (i + j < input.length && input[i + j] == delimiter[j]) {
-                            lookAheadMatches++;
-                        }
-                    }
-                    // found a full delimiter match
-                    if (lookAheadMatches == delimiter.length) {
-                        // record the key/value tuple
-                        byte[] value = Arrays.copyOfRange(input, valueStart, i);
-                        dissectMatch.add(key, new String(value, StandardCharsets.UTF_8));
-                        // jump to the end of the match
-                        i += lookAheadMatches;
-                        // look for consecutive delimiters (e.g. a,,,,d,e)
-                        while (i < input.length) {
-                            lookAheadMatches = 0;
-                            for (int j = 0; j < delimiter.length; j++) {
-                                if (i + j < input.length && input[i + j] == delimiter[j]) {
-                                    lookAheadMatches++;
-                                }
-                            }
-                            // found consecutive delimiters
-                            if (lookAheadMatches == delimiter.length) {
-                                // jump to the end of the match
-                                i += lookAheadMatches;
-                                if (key.skipRightPadding() == false) {
-                                    // progress the keys/delimiter if possible
-                                    if (it.hasNext() == false) {
-                                        break; // the while loop
-                                    }
-                                    dissectPair = it.next();
-                                    key = dissectPair.key();
-                                    // add the key with an empty value for the empty delimiter
-                                    dissectMatch.add(key, "");
-                                }
-                            } else {
-                                break; // the while loop
-                            }
-                        }
+            while (i < end && delimiter.length > 0) {
+                i = indexOf(input, i, end, delimiter[0]);
+                if (i < 0) {
+                    break;
+                }
+                if (delimiterAt(input, i, end, delimiter) == false) {
+                    i++;
+                    continue;
+                }
+                // record the key/value tuple
+                dissectMatch.add(key, value(key, input, valueStart, i));
+                // jump to the end of the match
+                i += delimiter.length;
+                // look for consecutive delimiters (e.g. a,,,,d,e)
+                while (i < end && delimiterAt(input, i, end, delimiter)) {
+                    // jump to the end of the match
+                    i += delimiter.length;
+                    if (key.skipRightPadding() == false) {
                         // progress the keys/delimiter if possible
-                        if (it.hasNext() == false) {
-                            break; // the for loop
+                        if (pair + 1 == keys.length) {
+                            break; // the while loop
                         }
-                        dissectPair = it.next();
-                        key = dissectPair.key();
-                        delimiter = dissectPair.delimiter().getBytes(StandardCharsets.UTF_8);
-                        // i is always one byte after the last found delimiter, aka the start of the next value
-                        valueStart = i;
-                    } else {
-                        i++;
+                        key = keys[++pair];
+                        // add the key with an empty value for the empty delimiter
+                        dissectMatch.add(key, "");
                     }
-                } else {
-                    i++;
                 }
+                // progress the keys/delimiter if possible
+                if (pair + 1 == keys.length) {
+                    break; // the for loop
+                }
+                key = keys[++pair];
+                delimiter = delimiters[pair];
+                // i is always one byte after the last found delimiter, aka the start of the next value
+                valueStart = i;
             }
             // the last key, grab the rest of the input (unless consecutive delimiters already grabbed the last key)
             // and there is no trailing delimiter
             if (dissectMatch.fullyMatched() == false && delimiter.length == 0) {
-                byte[] value = Arrays.copyOfRange(input, valueStart, input.length);
-                String valueString = new String(value, StandardCharsets.UTF_8);
-                dissectMatch.add(key, valueString);
+                dissectMatch.add(key, value(key, input, valueStart, end));
             }
         }
         Map<String, String> results = dissectMatch.getResults();
@@ -281,6 +289,42 @@ public final class DissectParser {
         return dissectMatch.isValid(results) ? results : null;
     }
 
+    /**
+     * Decodes the value of a key, unless the key is skipped and its value is not needed.
+     */
+    private static String value(DissectKey key, byte[] input, int from, int to) {
+        return key.skip() ? null : new String(input, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static boolean delimiterAt(byte[] input, int i, int end, byte[] delimiter) {
+        return end - i >= delimiter.length && Arrays.equals(input, i, i + delimiter.length, delimiter, 0, delimiter.length);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the given byte in the given range, or {@code -1} if there is none. The range is
+     * searched a long at a time, using the bit twiddling hack to find a zero byte in a word, on the bytes xor'ed with the byte to find.
+     */
+    static int indexOf(byte[] input, int from, int to, byte b) {
+        int i = from;
+        if (to - from >= Long.BYTES) {
+            final long pattern = (b & 0xFFL) * LOW_BITS;
+            for (; i <= to - Long.BYTES; i += Long.BYTES) {
+                final long word = (long) LONG_HANDLE.get(input, i) ^ pattern;
+                // the lowest high bit that is set is the one of the first zero byte, the higher ones may be false positives
+                final long zeros = (word - LOW_BITS) & ~word & HIGH_BITS;
+                if (zeros != 0) {
+                    return i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+                }
+            }
+        }
+        for (; i < to; i++) {
+            if (input[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Entry point to dissect a string into its parts.
      *
@@ -16,6 +16,7 @@ import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
 import org.mockito.internal.util.collections.Sets;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -458,6 +459,26 @@ public class DissectParserTests extends ESTestCase {
         }
     }
 
+    public void testIndexOf() {
+        byte[] input = randomByteArrayOfLength(between(0, 100));
+        int from = between(0, input.length);
+        int to = between(from, input.length);
+        byte b = randomByte();
+        int expected = -1;
+        for (int i = from; i < to; i++) {
+            if (input[i] == b) {
+                expected = i;
+                break;
+            }
+        }
+        assertThat(DissectParser.indexOf(input, from, to, b), Matchers.equalTo(expected));
+        if (to > from) {
+            int at = between(from, to - 1);
+            input[at] = b;
+            assertThat(DissectParser.indexOf(input, from, to, b), Matchers.equalTo(expected == -1 ? at : Math.min(at, expected)));
+        }
+    }
+
     public void testOutputKeys() {
         assertThat(new DissectParser("%{a} %{b}", "").outputKeys(), contains("a", "b"));
         assertThat(new DissectParser("%{a->} %{b}", "").outputKeys(), contains("a", "b"));
@@ -482,6 +503,9 @@ public class DissectParserTests extends ESTestCase {
 
     private void assertMiss(String pattern, String input) {
         assertNull(new DissectParser(pattern, null).parse(input));
+        if (input != null) {
+            assertNull(parseBytes(new DissectParser(pattern, null), input));
+        }
         DissectException e = assertFail(pattern, input);
         assertThat(e.getMessage(), Matchers.containsString("Unable to find match for dissect pattern"));
         assertThat(e.getMessage(), Matchers.containsString(pattern));
@@ -509,7 +533,9 @@ public class DissectParserTests extends ESTestCase {
     }
 
     private void assertMatch(String pattern, String input, List<String> expectedKeys, List<String> expectedValues, String appendSeperator) {
-        Map<String, String> results = new DissectParser(pattern, appendSeperator).parse(input);
+        DissectParser parser = new DissectParser(pattern, appendSeperator);
+        Map<String, String> results = parser.parse(input);
+        assertThat(parseBytes(parser, input), Matchers.equalTo(results));
         assertThat(results.size(), Matchers.equalTo(expectedKeys.size()));
         assertThat(results.size(), Matchers.equalTo(expectedValues.size()));
         for (int i = 0; i < results.size(); i++) {
@@ -517,4 +543,19 @@ public class DissectParserTests extends ESTestCase {
             assertThat(results.get(key), Matchers.equalTo(expectedValues.get(i)));
         }
     }
+
+    /**
+     * Parses the input from the middle of a larger array, to check that the bytes around it are ignored.
+     */
+    private Map<String, String> parseBytes(DissectParser parser, String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        byte[] prefix = randomByteArrayOfLength(between(0, 10));
+        byte[] padded = new byte[prefix.length + bytes.length + between(0, 10)];
+        System.arraycopy(prefix, 0, padded, 0, prefix.length);
+        System.arraycopy(bytes, 0, padded, prefix.length, bytes.length);
+        for (int i = prefix.length + bytes.length; i < padded.length; i++) {
+            padded[i] = randomByte();
+        }
+        return parser.parse(padded, prefix.length, bytes.length);
+    }
 }
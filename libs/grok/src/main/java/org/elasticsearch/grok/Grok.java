@@ -28,6 +28,23 @@ import java.util.function.Function;
 
 public final class Grok {
 
+    /**
+     * How the regular expression that a grok pattern expands to is matched.
+     */
+    public enum CompileMode {
+        /**
+         * Always match with Joni's backtracking matcher.
+         */
+        REGEX,
+        /**
+         * Also compile the expression into a deterministic automaton, if it only uses constructs that the automaton supports, and
+         * run it first. The automaton rejects the inputs that can't match in a single pass, without backtracking. It is only a
+         * prefilter: Joni still extracts the captures of the inputs that match, and checks the inputs that the automaton can't decide
+         * on, so the inputs that match pay for an extra pass over their bytes. This only pays off when many inputs don't match.
+         */
+        AUTOMATON
+    }
+
     private static final String NAME_GROUP = "name";
     private static final String SUBNAME_GROUP = "subname";
     private static final String PATTERN_GROUP = "pattern";
@@ -57,17 +74,28 @@ public final class Grok {
     private final Regex compiledExpression;
     private final MatcherWatchdog matcherWatchdog;
     private final List<GrokCaptureConfig> captureConfig;
+    private final GrokAutomaton automaton;
 
     public Grok(PatternBank patternBank, String grokPattern, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, true, MatcherWatchdog.noop(), logCallBack);
+        this(patternBank, grokPattern, true, MatcherWatchdog.noop(), CompileMode.REGEX, logCallBack);
     }
 
     public Grok(PatternBank patternBank, String grokPattern, MatcherWatchdog matcherWatchdog, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, true, matcherWatchdog, logCallBack);
+        this(patternBank, grokPattern, true, matcherWatchdog, CompileMode.REGEX, logCallBack);
+    }
+
+    public Grok(
+        PatternBank patternBank,
+        String grokPattern,
+        MatcherWatchdog matcherWatchdog,
+        CompileMode compileMode,
+        Consumer<String> logCallBack
+    ) {
+        this(patternBank, grokPattern, true, matcherWatchdog, compileMode, logCallBack);
     }
 
     Grok(PatternBank patternBank, String grokPattern, boolean namedCaptures, Consumer<String> logCallBack) {
-        this(patternBank, grokPattern, namedCaptures, MatcherWatchdog.noop(), logCallBack);
+        this(patternBank, grokPattern, namedCaptures, MatcherWatchdog.noop(), CompileMode.REGEX, logCallBack);
     }
 
     private Grok(
@@ -75,6 +103,7 @@ public final class Grok {
         String grokPattern,
         boolean namedCaptures,
         MatcherWatchdog matcherWatchdog,
+        CompileMode compileMode,
         Consumer<String> logCallBack
     ) {
         this.namedCaptures = namedCaptures;
@@ -96,6 +125,7 @@ public final class Grok {
             grokCaptureConfigs.add(new GrokCaptureConfig(entry.next()));
         }
         this.captureConfig = List.copyOf(grokCaptureConfigs);
+        this.automaton = compileMode == CompileMode.AUTOMATON ? GrokAutomatonCompiler.compile(expression) : null;
     }
 
     private static String groupMatch(String name, Region region, String pattern) {
@@ -173,7 +203,14 @@ public final class Grok {
      * @return true if grok expression matches text or there is a timeout, false otherwise.
      */
     public boolean match(String text) {
-        Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
+        byte[] utf8Bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (automaton != null) {
+            int automatonResult = automaton.matches(utf8Bytes, 0, utf8Bytes.length);
+            if (automatonResult != GrokAutomaton.MAYBE) {
+                return automatonResult == GrokAutomaton.MATCH;
+            }
+        }
+        Matcher matcher = compiledExpression.matcher(utf8Bytes);
         int result;
         try {
             matcherWatchdog.register(matcher);
@@ -226,6 +263,9 @@ public final class Grok {
      * @throws RuntimeException if there was a timeout
      */
     public boolean match(byte[] utf8Bytes, int offset, int length, GrokCaptureExtracter extracter) {
+        if (automaton != null && automaton.matches(utf8Bytes, offset, offset + length) == GrokAutomaton.NO_MATCH) {
+            return false;
+        }
         Matcher matcher = compiledExpression.matcher(utf8Bytes, offset, offset + length);
         int result;
         try {
@@ -246,6 +286,13 @@ public final class Grok {
         return true;
     }
 
+    /**
+     * Whether this {@linkplain Grok} runs an automaton before Joni.
+     */
+    boolean usesAutomaton() {
+        return automaton != null;
+    }
+
     /**
      * The list of values that this {@linkplain Grok} can capture.
      */
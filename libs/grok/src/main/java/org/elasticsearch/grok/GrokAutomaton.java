@@ -0,0 +1,275 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A deterministic automaton, compiled by {@link GrokAutomatonCompiler}, that tells whether a grok expression can match anywhere
+ * in its input with a single table lookup per byte and without ever backtracking.
+ * <p>
+ * The automaton is built from a relaxed version of the expression that ignores anchors, word boundaries, lookaround and atomicity.
+ * It matches a superset of what the expression matches so {@link #NO_MATCH} is always definitive, but a match is only
+ * {@link #MATCH} if the expression uses none of these constructs. Otherwise it is {@link #MAYBE} and Joni has to confirm it.
+ * Capturing groups make no difference to whether the expression matches so the automaton ignores them too: Joni extracts the
+ * captures of the inputs that match.
+ * <p>
+ * States are built lazily, the first time an input needs them, and building stops at {@link #MAX_STATES}. The automaton only
+ * deals with ASCII, which is all that most logs contain: it answers {@link #MAYBE} when it runs into anything else. Lookups don't
+ * lock, only building new states does, so instances are cheap to share between threads.
+ */
+final class GrokAutomaton {
+
+    static final int NO_MATCH = 0;
+    static final int MATCH = 1;
+    static final int MAYBE = 2;
+
+    /**
+     * Upper bound on the number of states of an automaton, which bounds the size of its transition table to
+     * {@code MAX_STATES * 128} integers.
+     */
+    static final int MAX_STATES = 1024;
+
+    // instructions of the relaxed program
+    static final int BYTE = 0;
+    static final int SET = 1;
+    static final int SPLIT = 2;
+    static final int JUMP = 3;
+    static final int ACCEPT = 4;
+
+    /**
+     * The instructions of the relaxed expression. {@code args} holds the byte or the index of the set that an instruction
+     * consumes, or the preferred target of a {@link #SPLIT}. {@code args2} holds the other target of a split.
+     */
+    record Program(int[] ops, int[] args, int[] args2) {
+        int size() {
+            return ops.length;
+        }
+    }
+
+    // special transitions, the others hold the index of the target state plus one
+    private static final int TO_BE_BUILT = 0;
+    private static final int TO_ACCEPT = -1;
+    private static final int TOO_MANY_STATES = -2;
+
+    private final Program program;
+    private final long[][] sets;
+    private final boolean exact;
+    private final byte[] classes;
+    private final int[] representatives;
+    private final int classCount;
+
+    private volatile int[] transitions;
+    private final List<int[]> states = new ArrayList<>();
+    private final Map<StateKey, Integer> stateIds = new HashMap<>();
+
+    private GrokAutomaton(Program program, long[][] sets, boolean exact, byte[] classes, int[] representatives) {
+        this.program = program;
+        this.sets = sets;
+        this.exact = exact;
+        this.classes = classes;
+        this.representatives = representatives;
+        this.classCount = representatives.length;
+    }
+
+    /**
+     * Builds the automaton of a relaxed program.
+     *
+     * @param exact whether the program matches exactly what the expression matches rather than a superset of it
+     * @return the automaton or {@code null} if the program matches the empty string, in which case every input may match
+     */
+    static GrokAutomaton build(Program program, long[][] sets, boolean exact) {
+        byte[] classes = new byte[0x80];
+        int[] representatives = byteClasses(program, sets, classes);
+        GrokAutomaton automaton = new GrokAutomaton(program, sets, exact, classes, representatives);
+        BitSet start = new BitSet(program.size());
+        if (automaton.closure(0, start)) {
+            return null;
+        }
+        automaton.states.add(toArray(start));
+        automaton.stateIds.put(new StateKey(automaton.states.get(0)), 0);
+        automaton.transitions = new int[16 * automaton.classCount];
+        return automaton;
+    }
+
+    /**
+     * Checks whether the expression matches anywhere in the given bytes.
+     *
+     * @return {@link #NO_MATCH}, {@link #MATCH} or {@link #MAYBE} if Joni has to tell
+     */
+    int matches(byte[] bytes, int start, int end) {
+        int[] table = transitions;
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            int b = bytes[i];
+            if (b < 0) {
+                return MAYBE;
+            }
+            int cls = classes[b] & 0xFF;
+            int index = state * classCount + cls;
+            int next = index < table.length ? table[index] : TO_BE_BUILT;
+            if (next <= 0) {
+                if (next == TO_BE_BUILT) {
+                    next = buildTransition(state, cls);
+                    table = transitions;
+                }
+                if (next == TO_ACCEPT) {
+                    return exact ? MATCH : MAYBE;
+                }
+                if (next == TOO_MANY_STATES) {
+                    return MAYBE;
+                }
+            }
+            state = next - 1;
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * The number of states built so far.
+     */
+    synchronized int stateCount() {
+        return states.size();
+    }
+
+    private synchronized int buildTransition(int state, int cls) {
+        int index = state * classCount + cls;
+        int existing = transitions[index];
+        if (existing != TO_BE_BUILT) {
+            return existing;
+        }
+        int b = representatives[cls];
+        BitSet next = new BitSet(program.size());
+        // the search is unanchored so a match may also start at the next byte
+        boolean accept = closure(0, next);
+        for (int pc : states.get(state)) {
+            boolean consumes = program.ops()[pc] == BYTE
+                ? b == program.args()[pc]
+                : GrokAutomatonCompiler.contains(sets[program.args()[pc]], b);
+            if (consumes) {
+                accept |= closure(pc + 1, next);
+            }
+        }
+        int transition;
+        if (accept) {
+            transition = TO_ACCEPT;
+        } else {
+            int[] members = toArray(next);
+            StateKey key = new StateKey(members);
+            Integer id = stateIds.get(key);
+            if (id == null) {
+                if (states.size() >= MAX_STATES) {
+                    transitions[index] = TOO_MANY_STATES;
+                    return TOO_MANY_STATES;
+                }
+                id = states.size();
+                states.add(members);
+                stateIds.put(key, id);
+                if ((id + 1) * classCount > transitions.length) {
+                    transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                }
+            }
+            transition = id + 1;
+        }
+        transitions[index] = transition;
+        return transition;
+    }
+
+    /**
+     * Adds the instructions that consume input reachable from {@code pc} without consuming input.
+     *
+     * @return whether the {@link #ACCEPT} instruction is reachable too
+     */
+    private boolean closure(int pc, BitSet consuming) {
+        BitSet visited = new BitSet(program.size());
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = pc;
+        boolean match = false;
+        while (top > 0) {
+            int current = stack[--top];
+            if (visited.get(current)) {
+                continue;
+            }
+            visited.set(current);
+            switch (program.ops()[current]) {
+                case BYTE, SET -> consuming.set(current);
+                case ACCEPT -> match = true;
+                case JUMP, SPLIT -> {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = program.args()[current];
+                    if (program.ops()[current] == SPLIT) {
+                        stack[top++] = program.args2()[current];
+                    }
+                }
+                default -> throw new IllegalStateException("unexpected instruction [" + program.ops()[current] + "]");
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Partitions the ASCII bytes into classes of bytes that no instruction of the program tells apart, so that the transition
+     * table needs one column per class rather than per byte.
+     *
+     * @return a representative byte of each class
+     */
+    private static int[] byteClasses(Program program, long[][] sets, byte[] classes) {
+        List<long[]> distinctions = new ArrayList<>();
+        for (int pc = 0; pc < program.size(); pc++) {
+            if (program.ops()[pc] == BYTE) {
+                distinctions.add(GrokAutomatonCompiler.set(program.args()[pc]));
+            } else if (program.ops()[pc] == SET) {
+                distinctions.add(sets[program.args()[pc]]);
+            }
+        }
+        Map<BitSet, Integer> signatures = new HashMap<>();
+        List<Integer> representatives = new ArrayList<>();
+        for (int b = 0; b < 0x80; b++) {
+            BitSet signature = new BitSet(distinctions.size());
+            for (int i = 0; i < distinctions.size(); i++) {
+                if (GrokAutomatonCompiler.contains(distinctions.get(i), b)) {
+                    signature.set(i);
+                }
+            }
+            Integer cls = signatures.get(signature);
+            if (cls == null) {
+                cls = representatives.size();
+                signatures.put(signature, cls);
+                representatives.add(b);
+            }
+            classes[b] = (byte) (int) cls;
+        }
+        return representatives.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] toArray(BitSet bits) {
+        return bits.stream().toArray();
+    }
+
+    private record StateKey(int[] members) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey other && Arrays.equals(members, other.members);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(members);
+        }
+    }
+}
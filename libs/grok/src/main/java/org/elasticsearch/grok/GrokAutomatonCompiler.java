@@ -0,0 +1,726 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles the regular expression that a grok pattern expands to into a {@link GrokAutomaton}. Only a subset of the Oniguruma
+ * (Ruby) syntax is supported: literals, character classes, groups, alternation, greedy, lazy and possessive quantifiers, anchors,
+ * word boundaries, lookaround and atomic groups. Expressions using anything else, such as backreferences, conditionals or inline
+ * options, can't be compiled and are only ever matched with Joni.
+ */
+final class GrokAutomatonCompiler {
+
+    /**
+     * Upper bound on the number of instructions of the relaxed program, protects against huge counted repetitions.
+     */
+    static final int MAX_PROGRAM_SIZE = 100_000;
+
+    private static final int MAX_REPEAT = 1000;
+
+    private final byte[] expression;
+    private int pos;
+    private final List<long[]> sets = new ArrayList<>();
+    private int[] ops = new int[16];
+    private int[] args = new int[16];
+    private int[] args2 = new int[16];
+    private int size;
+
+    private GrokAutomatonCompiler(String expression) {
+        this.expression = expression.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compiles the given expression, which Joni must already have compiled so that it is known to be valid.
+     *
+     * @return the automaton or {@code null} if the expression uses constructs that the automaton doesn't support or if it matches
+     *         the empty string, and so every input
+     */
+    static GrokAutomaton compile(String expression) {
+        GrokAutomatonCompiler compiler = new GrokAutomatonCompiler(expression);
+        try {
+            return compiler.compile();
+        } catch (UnsupportedExpressionException e) {
+            return null;
+        }
+    }
+
+    private GrokAutomaton compile() {
+        Node root = parseAlternation();
+        if (pos != expression.length) {
+            throw new UnsupportedExpressionException();
+        }
+        emitNode(root);
+        emit(GrokAutomaton.ACCEPT, 0, 0);
+        GrokAutomaton.Program program = new GrokAutomaton.Program(
+            Arrays.copyOf(ops, size),
+            Arrays.copyOf(args, size),
+            Arrays.copyOf(args2, size)
+        );
+        return GrokAutomaton.build(program, sets.toArray(new long[0][]), isExactWhenRelaxed(root));
+    }
+
+    // ---- parsing ----
+
+    private Node parseAlternation() {
+        List<Node> alternatives = new ArrayList<>();
+        alternatives.add(parseConcatenation());
+        while (pos < expression.length && expression[pos] == '|') {
+            pos++;
+            alternatives.add(parseConcatenation());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseConcatenation() {
+        List<Node> items = new ArrayList<>();
+        while (pos < expression.length && expression[pos] != '|' && expression[pos] != ')') {
+            items.add(parseQuantified(parseAtom()));
+        }
+        return items.size() == 1 ? items.get(0) : new Concatenation(items);
+    }
+
+    private Node parseQuantified(Node atom) {
+        if (pos >= expression.length) {
+            return atom;
+        }
+        int min;
+        int max;
+        boolean interval = false;
+        byte c = expression[pos];
+        if (c == '*') {
+            min = 0;
+            max = -1;
+            pos++;
+        } else if (c == '+') {
+            min = 1;
+            max = -1;
+            pos++;
+        } else if (c == '?') {
+            min = 0;
+            max = 1;
+            pos++;
+        } else if (c == '{' && parseInterval()) {
+            min = intervalMin;
+            max = intervalMax;
+            interval = true;
+        } else {
+            return atom;
+        }
+        boolean possessive = false;
+        if (pos < expression.length) {
+            if (expression[pos] == '?') {
+                if (interval && min == max) {
+                    // in Ruby syntax "a{n}?" is an optional "a{n}", not a lazy quantifier
+                    throw new UnsupportedExpressionException();
+                }
+                // lazy quantifiers match the same inputs as greedy ones
+                pos++;
+            } else if (expression[pos] == '+') {
+                if (interval) {
+                    // in Ruby syntax "a{n,m}+" is a repetition of "a{n,m}", not a possessive quantifier
+                    throw new UnsupportedExpressionException();
+                }
+                possessive = true;
+                pos++;
+            }
+        }
+        if (pos < expression.length && isQuantifierStart()) {
+            throw new UnsupportedExpressionException();
+        }
+        if (min > MAX_REPEAT || max > MAX_REPEAT) {
+            throw new UnsupportedExpressionException();
+        }
+        Node repeat = new Repeat(atom, min, max);
+        return possessive ? new Atomic(repeat) : repeat;
+    }
+
+    private boolean isQuantifierStart() {
+        byte c = expression[pos];
+        if (c == '*' || c == '+' || c == '?') {
+            return true;
+        }
+        if (c == '{') {
+            int saved = pos;
+            boolean isInterval = parseInterval();
+            pos = saved;
+            return isInterval;
+        }
+        return false;
+    }
+
+    private int intervalMin;
+    private int intervalMax;
+
+    /**
+     * Parses {@code {n}}, {@code {n,}}, {@code {,m}} or {@code {n,m}}. Leaves the position untouched and returns {@code false} if
+     * the brace doesn't start a valid interval, in which case it is a literal.
+     */
+    private boolean parseInterval() {
+        int p = pos + 1;
+        int min = -1;
+        int start = p;
+        while (p < expression.length && isDigit(expression[p])) {
+            p++;
+        }
+        if (p > start) {
+            min = parseNumber(start, p);
+        }
+        int max;
+        if (p < expression.length && expression[p] == ',') {
+            p++;
+            int maxStart = p;
+            while (p < expression.length && isDigit(expression[p])) {
+                p++;
+            }
+            if (p > maxStart) {
+                max = parseNumber(maxStart, p);
+            } else if (min == -1) {
+                return false;
+            } else {
+                max = -1;
+            }
+            if (min == -1) {
+                min = 0;
+            }
+        } else if (min == -1) {
+            return false;
+        } else {
+            max = min;
+        }
+        if (p >= expression.length || expression[p] != '}') {
+            return false;
+        }
+        if (max != -1 && max < min) {
+            throw new UnsupportedExpressionException();
+        }
+        pos = p + 1;
+        intervalMin = min;
+        intervalMax = max;
+        return true;
+    }
+
+    private int parseNumber(int from, int to) {
+        if (to - from > 6) {
+            throw new UnsupportedExpressionException();
+        }
+        return Integer.parseInt(new String(expression, from, to - from, StandardCharsets.US_ASCII));
+    }
+
+    private Node parseAtom() {
+        byte c = expression[pos];
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                pos++;
+                return parseClass();
+            case '.':
+                pos++;
+                return new ByteSet(complement(set('\n')));
+            case '^':
+                pos++;
+                return new Assertion();
+            case '$':
+                pos++;
+                return new Assertion();
+            case '\\':
+                pos++;
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+                throw new UnsupportedExpressionException();
+            case '{':
+                if (isQuantifierStart()) {
+                    throw new UnsupportedExpressionException();
+                }
+                pos++;
+                return new Literal('{');
+            default:
+                return parseLiteralCharacter();
+        }
+    }
+
+    /**
+     * A literal character, which spans several bytes if it isn't ASCII so that quantifiers apply to the whole of it.
+     */
+    private Node parseLiteralCharacter() {
+        int lead = expression[pos] & 0xFF;
+        int length = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : 2;
+        if (pos + length > expression.length) {
+            throw new UnsupportedExpressionException();
+        }
+        if (length == 1) {
+            pos++;
+            return new Literal(lead);
+        }
+        List<Node> bytes = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            bytes.add(new Literal(expression[pos++] & 0xFF));
+        }
+        return new Concatenation(bytes);
+    }
+
+    private Node parseGroup() {
+        pos++;
+        Node group;
+        if (pos < expression.length && expression[pos] == '?') {
+            pos++;
+            if (pos >= expression.length) {
+                throw new UnsupportedExpressionException();
+            }
+            byte kind = expression[pos++];
+            switch (kind) {
+                case ':' -> group = parseAlternation();
+                case '>' -> group = new Atomic(parseAlternation());
+                case '=', '!' -> group = new Look(parseAlternation());
+                case '#' -> {
+                    while (pos < expression.length && expression[pos] != ')') {
+                        pos++;
+                    }
+                    group = new Empty();
+                }
+                case '<' -> {
+                    if (pos < expression.length && (expression[pos] == '=' || expression[pos] == '!')) {
+                        pos++;
+                        group = new Look(parseAlternation());
+                    } else {
+                        group = parseNamedGroup('>');
+                    }
+                }
+                case '\'' -> group = parseNamedGroup('\'');
+                default -> throw new UnsupportedExpressionException();
+            }
+        } else {
+            group = parseAlternation();
+        }
+        if (pos >= expression.length || expression[pos] != ')') {
+            throw new UnsupportedExpressionException();
+        }
+        pos++;
+        return group;
+    }
+
+    private Node parseNamedGroup(char terminator) {
+        int start = pos;
+        while (pos < expression.length && expression[pos] != terminator) {
+            pos++;
+        }
+        if (pos >= expression.length || pos == start) {
+            throw new UnsupportedExpressionException();
+        }
+        pos++;
+        // whether a group captures makes no difference to what the expression matches
+        return parseAlternation();
+    }
+
+    private Node parseEscape() {
+        if (pos >= expression.length) {
+            throw new UnsupportedExpressionException();
+        }
+        byte c = expression[pos++];
+        switch (c) {
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'z':
+            case 'Z':
+                return new Assertion();
+            default:
+                long[] shorthand = shorthandClass(c);
+                if (shorthand != null) {
+                    return new ByteSet(shorthand);
+                }
+                return new Literal(escapedByte(c));
+        }
+    }
+
+    /**
+     * @return the byte that an escape other than a shorthand class stands for
+     */
+    private int escapedByte(byte c) {
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'v':
+                return 0x0B;
+            case 'a':
+                return 0x07;
+            case 'e':
+                return 0x1B;
+            case 'x':
+                return parseHexEscape();
+            default:
+                if (c < 0 || Character.isLetterOrDigit(c)) {
+                    // backreferences, octal escapes, unicode properties, \G, \K and friends
+                    throw new UnsupportedExpressionException();
+                }
+                return c;
+        }
+    }
+
+    private int parseHexEscape() {
+        int start = pos;
+        int value = 0;
+        while (pos < expression.length && pos - start < 2 && Character.digit(expression[pos], 16) >= 0) {
+            value = value * 16 + Character.digit(expression[pos], 16);
+            pos++;
+        }
+        if (pos == start) {
+            throw new UnsupportedExpressionException();
+        }
+        return value;
+    }
+
+    private static long[] shorthandClass(byte c) {
+        return switch (c) {
+            case 'd' -> digit();
+            case 'D' -> complement(digit());
+            case 'w' -> word();
+            case 'W' -> complement(word());
+            case 's' -> space();
+            case 'S' -> complement(space());
+            case 'h' -> hexDigit();
+            case 'H' -> complement(hexDigit());
+            default -> null;
+        };
+    }
+
+    private Node parseClass() {
+        boolean negate = false;
+        if (pos < expression.length && expression[pos] == '^') {
+            negate = true;
+            pos++;
+        }
+        if (pos < expression.length && expression[pos] == ']') {
+            throw new UnsupportedExpressionException();
+        }
+        long[] members = new long[2];
+        boolean first = true;
+        while (true) {
+            if (pos >= expression.length) {
+                throw new UnsupportedExpressionException();
+            }
+            byte c = expression[pos];
+            if (c == ']') {
+                pos++;
+                break;
+            }
+            if (c == '[') {
+                if (pos + 1 < expression.length && expression[pos + 1] == ':') {
+                    or(members, parsePosixBracket());
+                    first = false;
+                    continue;
+                }
+                // nested classes
+                throw new UnsupportedExpressionException();
+            }
+            if (c == '&' && pos + 1 < expression.length && expression[pos + 1] == '&') {
+                throw new UnsupportedExpressionException();
+            }
+            int from;
+            if (c == '\\') {
+                pos++;
+                if (pos >= expression.length) {
+                    throw new UnsupportedExpressionException();
+                }
+                byte escaped = expression[pos++];
+                long[] shorthand = shorthandClass(escaped);
+                if (shorthand != null) {
+                    or(members, shorthand);
+                    if (pos < expression.length && expression[pos] == '-' && pos + 1 < expression.length && expression[pos + 1] != ']') {
+                        throw new UnsupportedExpressionException();
+                    }
+                    first = false;
+                    continue;
+                }
+                from = escaped == 'b' ? 0x08 : escapedByte(escaped);
+            } else if (c == '-' && first == false && pos + 1 < expression.length && expression[pos + 1] != ']') {
+                // a dash right after a range, like in [a-c-e]
+                throw new UnsupportedExpressionException();
+            } else {
+                from = c;
+                pos++;
+            }
+            if (from < 0 || from >= 0x80) {
+                throw new UnsupportedExpressionException();
+            }
+            first = false;
+            if (pos + 1 < expression.length && expression[pos] == '-' && expression[pos + 1] != ']') {
+                pos++;
+                int to;
+                byte end = expression[pos];
+                if (end == '\\') {
+                    pos++;
+                    if (pos >= expression.length || shorthandClass(expression[pos]) != null) {
+                        throw new UnsupportedExpressionException();
+                    }
+                    byte escaped = expression[pos++];
+                    to = escaped == 'b' ? 0x08 : escapedByte(escaped);
+                } else if (end == '[') {
+                    throw new UnsupportedExpressionException();
+                } else {
+                    to = end;
+                    pos++;
+                }
+                if (to < from || to >= 0x80) {
+                    throw new UnsupportedExpressionException();
+                }
+                or(members, range(from, to));
+                // the character after a range can't start another one
+                if (pos + 1 < expression.length && expression[pos] == '-' && expression[pos + 1] != ']') {
+                    throw new UnsupportedExpressionException();
+                }
+            } else {
+                or(members, set(from));
+            }
+        }
+        return new ByteSet(negate ? complement(members) : members);
+    }
+
+    private long[] parsePosixBracket() {
+        int start = pos + 2;
+        boolean negate = start < expression.length && expression[start] == '^';
+        if (negate) {
+            start++;
+        }
+        int end = start;
+        while (end < expression.length && Character.isLetter(expression[end])) {
+            end++;
+        }
+        if (end + 1 >= expression.length || expression[end] != ':' || expression[end + 1] != ']') {
+            throw new UnsupportedExpressionException();
+        }
+        String name = new String(expression, start, end - start, StandardCharsets.US_ASCII);
+        long[] members = switch (name) {
+            case "alnum" -> or(or(range('a', 'z'), range('A', 'Z')), digit());
+            case "alpha" -> or(range('a', 'z'), range('A', 'Z'));
+            case "ascii" -> range(0, 0x7F);
+            case "blank" -> or(set(' '), set('\t'));
+            case "cntrl" -> or(range(0, 0x1F), set(0x7F));
+            case "digit" -> digit();
+            case "graph" -> range(0x21, 0x7E);
+            case "lower" -> range('a', 'z');
+            case "print" -> range(0x20, 0x7E);
+            case "punct" -> or(or(range(0x21, 0x2F), range(0x3A, 0x40)), or(range(0x5B, 0x60), range(0x7B, 0x7E)));
+            case "space" -> space();
+            case "upper" -> range('A', 'Z');
+            case "xdigit" -> hexDigit();
+            case "word" -> word();
+            default -> throw new UnsupportedExpressionException();
+        };
+        pos = end + 2;
+        return negate ? complement(members) : members;
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // ---- ASCII sets, as two 64 bit words ----
+
+    static long[] set(int b) {
+        return range(b, b);
+    }
+
+    static long[] range(int from, int to) {
+        long[] members = new long[2];
+        for (int b = from; b <= to; b++) {
+            members[b >> 6] |= 1L << (b & 63);
+        }
+        return members;
+    }
+
+    static boolean contains(long[] members, int b) {
+        return (members[b >> 6] & (1L << (b & 63))) != 0;
+    }
+
+    private static long[] or(long[] target, long[] other) {
+        target[0] |= other[0];
+        target[1] |= other[1];
+        return target;
+    }
+
+    private static long[] complement(long[] members) {
+        return new long[] { ~members[0], ~members[1] };
+    }
+
+    private static long[] digit() {
+        return range('0', '9');
+    }
+
+    private static long[] word() {
+        return or(or(range('a', 'z'), range('A', 'Z')), or(digit(), set('_')));
+    }
+
+    private static long[] space() {
+        return or(range('\t', '\r'), set(' '));
+    }
+
+    private static long[] hexDigit() {
+        return or(digit(), or(range('a', 'f'), range('A', 'F')));
+    }
+
+    // ---- analysis ----
+
+    /**
+     * Whether the relaxed program, which ignores anchors, lookaround and atomicity, matches exactly the same inputs as the expression.
+     */
+    private static boolean isExactWhenRelaxed(Node node) {
+        if (node instanceof Assertion || node instanceof Look || node instanceof Atomic) {
+            return false;
+        } else if (node instanceof Concatenation concatenation) {
+            return concatenation.items().stream().allMatch(GrokAutomatonCompiler::isExactWhenRelaxed);
+        } else if (node instanceof Alternation alternation) {
+            return alternation.alternatives().stream().allMatch(GrokAutomatonCompiler::isExactWhenRelaxed);
+        } else if (node instanceof Repeat repeat) {
+            return isExactWhenRelaxed(repeat.body());
+        }
+        return true;
+    }
+
+    // ---- code generation ----
+
+    /**
+     * Emits the relaxed program of a node: only the instructions that consume input, which makes it match a superset of what the
+     * expression matches.
+     */
+    private void emitNode(Node node) {
+        if (node instanceof Empty || node instanceof Assertion || node instanceof Look) {
+            return;
+        } else if (node instanceof Literal literal) {
+            if (literal.value() < 0x80) {
+                emit(GrokAutomaton.BYTE, literal.value(), 0);
+            } else {
+                // the automaton gives up on input that isn't ASCII so this never matches
+                emit(GrokAutomaton.SET, setIndex(new long[2]), 0);
+            }
+        } else if (node instanceof ByteSet byteSet) {
+            emit(GrokAutomaton.SET, setIndex(byteSet.members()), 0);
+        } else if (node instanceof Concatenation concatenation) {
+            for (Node item : concatenation.items()) {
+                emitNode(item);
+            }
+        } else if (node instanceof Alternation alternation) {
+            emitAlternation(alternation.alternatives());
+        } else if (node instanceof Repeat repeat) {
+            emitRepeat(repeat);
+        } else if (node instanceof Atomic atomic) {
+            emitNode(atomic.body());
+        } else {
+            throw new AssertionError("unexpected node " + node);
+        }
+    }
+
+    private void emitAlternation(List<Node> alternatives) {
+        int[] jumps = new int[alternatives.size() - 1];
+        for (int i = 0; i < alternatives.size() - 1; i++) {
+            int split = emit(GrokAutomaton.SPLIT, size + 1, 0);
+            emitNode(alternatives.get(i));
+            jumps[i] = emit(GrokAutomaton.JUMP, 0, 0);
+            args2[split] = size;
+        }
+        emitNode(alternatives.get(alternatives.size() - 1));
+        for (int jump : jumps) {
+            args[jump] = size;
+        }
+    }
+
+    /**
+     * Emits a repetition. Whether it is greedy or not makes no difference to what the expression matches.
+     */
+    private void emitRepeat(Repeat repeat) {
+        for (int i = 0; i < repeat.min(); i++) {
+            emitNode(repeat.body());
+        }
+        if (repeat.max() == -1) {
+            int loop = emit(GrokAutomaton.SPLIT, 0, 0);
+            emitNode(repeat.body());
+            emit(GrokAutomaton.JUMP, loop, 0);
+            args[loop] = loop + 1;
+            args2[loop] = size;
+        } else {
+            int optional = repeat.max() - repeat.min();
+            int[] splits = new int[optional];
+            for (int i = 0; i < optional; i++) {
+                splits[i] = emit(GrokAutomaton.SPLIT, 0, 0);
+                emitNode(repeat.body());
+            }
+            for (int split : splits) {
+                args[split] = split + 1;
+                args2[split] = size;
+            }
+        }
+    }
+
+    private int emit(int op, int arg, int arg2) {
+        if (size == MAX_PROGRAM_SIZE) {
+            throw new UnsupportedExpressionException();
+        }
+        if (size == ops.length) {
+            ops = Arrays.copyOf(ops, size * 2);
+            args = Arrays.copyOf(args, size * 2);
+            args2 = Arrays.copyOf(args2, size * 2);
+        }
+        ops[size] = op;
+        args[size] = arg;
+        args2[size] = arg2;
+        return size++;
+    }
+
+    private int setIndex(long[] members) {
+        for (int i = 0; i < sets.size(); i++) {
+            if (Arrays.equals(sets.get(i), members)) {
+                return i;
+            }
+        }
+        sets.add(members);
+        return sets.size() - 1;
+    }
+
+    // ---- syntax tree ----
+
+    private interface Node {}
+
+    private record Empty() implements Node {}
+
+    private record Literal(int value) implements Node {}
+
+    private record ByteSet(long[] members) implements Node {}
+
+    private record Concatenation(List<Node> items) implements Node {}
+
+    private record Alternation(List<Node> alternatives) implements Node {}
+
+    private record Repeat(Node body, int min, int max) implements Node {}
+
+    private record Assertion() implements Node {}
+
+    private record Look(Node body) implements Node {}
+
+    private record Atomic(Node body) implements Node {}
+
+    private static final class UnsupportedExpressionException extends RuntimeException {
+        UnsupportedExpressionException() {
+            super(null, null, false, false);
+        }
+    }
+}
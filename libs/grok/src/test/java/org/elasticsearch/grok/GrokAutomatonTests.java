@@ -0,0 +1,165 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GrokAutomatonTests extends ESTestCase {
+
+    private static final List<String> APACHE_LINES = List.of(
+        "83.149.9.216 - - [17/May/2015:10:05:03 +0000] \"GET /presentations/logstash-monitorama-2013/images/kibana-search.png HTTP/1.1\" "
+            + "200 203023 \"http://semicomplete.com/presentations/logstash-monitorama-2013/\" \"Mozilla/5.0 (Macintosh; Intel Mac OS X "
+            + "10_9_1) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/32.0.1700.77 Safari/537.36\"",
+        "2001:db8::1 - frank [10/Oct/2000:13:55:36 -0700] \"POST /api/v1/items?id=42&sort=desc HTTP/2.0\" 404 - \"-\" \"curl/7.68.0\"",
+        "83.149.9.216 - - [17/May/2015:10:05:03 +0000] \"GET /ünïcödé HTTP/1.1\" 200 203023 \"-\" \"-\""
+    );
+
+    private static final List<String> SYSLOG_LINES = List.of(
+        "Jan 14 06:25:01 myhost CRON[12345]: (root) CMD (command -v debian-sa1 > /dev/null && debian-sa1 1 1)",
+        "2024-03-07T11:24:17.123+01:00 db-02 kernel: [12345.678901] EXT4-fs (sda1): mounted filesystem with ordered data mode",
+        "Dec 31 23:59:59 gateway dhclient: DHCPREQUEST for 10.0.0.12 on eth0 to 10.0.0.1 port 67"
+    );
+
+    public void testBuiltinPatternsUseAutomaton() {
+        for (boolean ecsCompatibility : new boolean[] { false, true }) {
+            PatternBank patternBank = GrokBuiltinPatterns.get(ecsCompatibility);
+            for (String pattern : List.of("%{COMBINEDAPACHELOG}", "%{SYSLOGLINE}", "%{IP:ip} %{WORD:verb}", "%{HTTPDATE:date}")) {
+                assertTrue(pattern, automatonGrok(patternBank, pattern).usesAutomaton());
+            }
+        }
+    }
+
+    public void testSameCapturesAsRegex() {
+        for (boolean ecsCompatibility : new boolean[] { false, true }) {
+            PatternBank patternBank = GrokBuiltinPatterns.get(ecsCompatibility);
+            for (String pattern : List.of("%{COMBINEDAPACHELOG}", "%{SYSLOGLINE}")) {
+                Grok regex = regexGrok(patternBank, pattern);
+                Grok automaton = automatonGrok(patternBank, pattern);
+                for (String line : APACHE_LINES) {
+                    assertSameResults(regex, automaton, line);
+                }
+                for (String line : SYSLOG_LINES) {
+                    assertSameResults(regex, automaton, line);
+                }
+            }
+        }
+        Grok automaton = automatonGrok(GrokBuiltinPatterns.legacyPatterns(), "%{COMBINEDAPACHELOG}");
+        assertThat(automaton.captures(APACHE_LINES.get(0)), notNullValue());
+        assertThat(automaton.captures(SYSLOG_LINES.get(0)), nullValue());
+    }
+
+    public void testSameResultsAsRegexOnRandomInput() {
+        List<String> patterns = List.of(
+            "%{WORD:word} %{INT:number}",
+            "^%{IP:ip}$",
+            "%{NUMBER:n}\\s+%{USERNAME:user}",
+            "a(?:b|cd)*e",
+            "(?<x>[a-c]+?)\\b",
+            "x{2,4}y",
+            "(?>a+)b",
+            "(?<!1)2"
+        );
+        for (String pattern : patterns) {
+            Grok regex = regexGrok(GrokBuiltinPatterns.legacyPatterns(), pattern);
+            Grok automaton = automatonGrok(GrokBuiltinPatterns.legacyPatterns(), pattern);
+            assertTrue(pattern, automaton.usesAutomaton());
+            for (int i = 0; i < 200; i++) {
+                String input = randomFrom(
+                    randomAlphaOfLengthBetween(0, 20),
+                    randomAsciiAlphanumOfLengthBetween(0, 20),
+                    randomFrom("a", "b", "1", "2", ".", " ", "x", "y", "é") + randomUnicodeOfLengthBetween(0, 5),
+                    randomIntBetween(0, 255) + "." + randomIntBetween(0, 255) + "." + randomIntBetween(0, 255) + ".1",
+                    randomAlphaOfLength(4) + " " + randomIntBetween(-100, 100)
+                );
+                assertSameResults(regex, automaton, input);
+            }
+        }
+    }
+
+    public void testUnsupportedExpressionsFallBackToRegex() {
+        // backreferences
+        assertUnsupported("(?<a>x)\\k<a>", "xx", "xy");
+        assertUnsupported("(x)\\1", "xx", "xy");
+        // inline options
+        assertUnsupported("(?i)abc", "ABC", "abd");
+        // unicode properties
+        assertUnsupported("\\p{Alpha}+", "abc", "123");
+        // matches the empty string, and so everything
+        assertFalse(automatonGrok(GrokBuiltinPatterns.legacyPatterns(), "%{GREEDYDATA:message}").usesAutomaton());
+    }
+
+    public void testMatchWithoutJoni() {
+        // no anchors, lookaround or atomic groups so the automaton alone decides
+        GrokAutomaton automaton = GrokAutomatonCompiler.compile("(?<a>ab|cd)+[0-9]{2}");
+        assertThat(automaton, notNullValue());
+        assertThat(matches(automaton, "xxabcd12"), equalTo(GrokAutomaton.MATCH));
+        assertThat(matches(automaton, "xxabcd1"), equalTo(GrokAutomaton.NO_MATCH));
+        assertThat(matches(automaton, "ab1é"), equalTo(GrokAutomaton.MAYBE));
+
+        // the automaton matches a superset of what the expression matches
+        automaton = GrokAutomatonCompiler.compile("\\bab(?!c)");
+        assertThat(automaton, notNullValue());
+        assertThat(matches(automaton, "xab"), equalTo(GrokAutomaton.MAYBE));
+        assertThat(matches(automaton, "xb"), equalTo(GrokAutomaton.NO_MATCH));
+    }
+
+    public void testTooManyStates() {
+        // the automaton of this expression needs a state per combination of the last 12 bytes
+        String pattern = "(?:a|b)*a(?:a|b){12}";
+        Grok regex = regexGrok(GrokBuiltinPatterns.legacyPatterns(), pattern);
+        Grok automaton = automatonGrok(GrokBuiltinPatterns.legacyPatterns(), pattern);
+        GrokAutomaton compiled = GrokAutomatonCompiler.compile(pattern);
+        for (int i = 0; i < 100; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int j = 0; j < 100; j++) {
+                input.append(randomBoolean() ? 'a' : 'b');
+            }
+            assertSameResults(regex, automaton, input.toString());
+            matches(compiled, input.toString());
+        }
+        assertThat(compiled.stateCount(), lessThanOrEqualTo(GrokAutomaton.MAX_STATES));
+    }
+
+    private void assertUnsupported(String pattern, String matching, String notMatching) {
+        Grok automaton = automatonGrok(GrokBuiltinPatterns.legacyPatterns(), pattern);
+        assertFalse(pattern, automaton.usesAutomaton());
+        assertTrue(automaton.match(matching));
+        assertFalse(automaton.match(notMatching));
+    }
+
+    private static void assertSameResults(Grok regex, Grok automaton, String input) {
+        assertThat(input, automaton.match(input), equalTo(regex.match(input)));
+        Map<String, Object> expected = regex.captures(input);
+        assertThat(input, automaton.captures(input), equalTo(expected));
+        assertThat(input, automaton.captureRanges(input), equalTo(regex.captureRanges(input)));
+    }
+
+    private static int matches(GrokAutomaton automaton, String input) {
+        byte[] utf8Bytes = input.getBytes(StandardCharsets.UTF_8);
+        return automaton.matches(utf8Bytes, 0, utf8Bytes.length);
+    }
+
+    private Grok regexGrok(PatternBank patternBank, String pattern) {
+        return new Grok(patternBank, pattern, MatcherWatchdog.noop(), Grok.CompileMode.REGEX, logger::warn);
+    }
+
+    private Grok automatonGrok(PatternBank patternBank, String pattern) {
+        return new Grok(patternBank, pattern, MatcherWatchdog.noop(), Grok.CompileMode.AUTOMATON, logger::warn);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.nativeaccess;
+
+import org.elasticsearch.logging.LogManager;
+import org.elasticsearch.logging.Logger;
+import org.elasticsearch.nativeaccess.lib.LinuxCLibrary;
+import org.elasticsearch.nativeaccess.lib.PosixCLibrary;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+
+/**
+ * Starts writing the dirty pages of a file back to disk without waiting for them to be written.
+ * <p>
+ * Written bytes sit in the page cache until the file is fsynced, so the fsync has to write all of them and the thread calling it
+ * waits for the whole write. Starting the writeback of each range as soon as it is written, with {@code sync_file_range(2)}, lets
+ * the disk work in the background, and the fsync only has to wait for what is still in flight and to flush the metadata.
+ * <p>
+ * This is Linux only. It gives no durability guarantee on its own, a file must still be fsynced.
+ */
+public final class FileWriteback implements Closeable {
+    private static final Logger logger = LogManager.getLogger(FileWriteback.class);
+
+    // see linux/fs.h
+    static final int SYNC_FILE_RANGE_WRITE = 2;
+
+    private final PosixCLibrary libc;
+    private final LinuxCLibrary linuxLibc;
+    private final Path file;
+    private final int fd;
+    private boolean closed;
+
+    FileWriteback(PosixCLibrary libc, LinuxCLibrary linuxLibc, Path file, int fd) {
+        this.libc = libc;
+        this.linuxLibc = linuxLibc;
+        this.file = file;
+        this.fd = fd;
+    }
+
+    /**
+     * Starts writing back the dirty pages of the given range of the file, without waiting for them to be written.
+     *
+     * @return whether the writeback was started
+     */
+    public synchronized boolean start(long offset, long length) {
+        if (closed) {
+            return false;
+        }
+        if (linuxLibc.sync_file_range(fd, offset, length, SYNC_FILE_RANGE_WRITE) != 0) {
+            logger.debug("Could not start writeback of file [{}]: {}", file, libc.strerror(libc.errno()));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed == false) {
+            closed = true;
+            if (libc.close(fd) != 0) {
+                logger.warn("Could not close file [" + file + "] after writeback: " + libc.strerror(libc.errno()));
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import org.elasticsearch.nativeaccess.lib.LinuxCLibrary.SockFilter;
 import org.elasticsearch.nativeaccess.lib.NativeLibraryProvider;
 import org.elasticsearch.nativeaccess.lib.PosixCLibrary;
 
+import java.nio.file.Path;
 import java.util.Map;
 
 class LinuxNativeAccess extends PosixNativeAccess {
@@ -140,6 +141,16 @@ class LinuxNativeAccess extends PosixNativeAccess {
         return true;
     }
 
+    @Override
+    public FileWriteback openWriteback(Path file) {
+        int fd = libc.open(file.toAbsolutePath().toString(), O_WRONLY);
+        if (fd == -1) {
+            logger.warn("Could not open file [" + file + "] for writeback: " + libc.strerror(libc.errno()));
+            return null;
+        }
+        return new FileWriteback(libc, linuxLibc, file, fd);
+    }
+
     /**
      * Installs exec system call filtering for Linux.
      * <p>
@@ -75,6 +75,16 @@ public interface NativeAccess {
 
     void tryPreallocate(Path file, long size);
 
+    /**
+     * Opens the given file to start writing back its dirty pages ahead of an fsync, see {@link FileWriteback}.
+     *
+     * @param file the path to an existing file
+     * @return the writeback of the file, or {@code null} if not supported on this platform or the file could not be opened
+     */
+    default FileWriteback openWriteback(Path file) {
+        return null;
+    }
+
     /**
      * Returns an accessor for native functions only available on Windows, or {@code null} if not on Windows.
      */
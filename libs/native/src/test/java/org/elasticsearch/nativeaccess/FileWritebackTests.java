@@ -0,0 +1,41 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.nativeaccess;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FileWritebackTests extends ESTestCase {
+
+    public void testWriteback() throws IOException {
+        assumeTrue("writeback is only supported on linux", System.getProperty("os.name").startsWith("Linux"));
+        Path file = createTempFile();
+        byte[] bytes = randomByteArrayOfLength(between(1, 1 << 16));
+        Files.write(file, bytes);
+        try (FileWriteback writeback = NativeAccess.instance().openWriteback(file)) {
+            assertThat(writeback, notNullValue());
+            assertTrue(writeback.start(0, bytes.length));
+            writeback.close();
+            assertFalse(writeback.start(0, bytes.length));
+        }
+        assertArrayEquals(bytes, Files.readAllBytes(file));
+    }
+
+    public void testWritebackOfMissingFile() {
+        Path file = createTempDir().resolve("missing");
+        assertThat(NativeAccess.instance().openWriteback(file), nullValue());
+    }
+}
@@ -50,11 +50,31 @@ public final class GrokProcessor extends AbstractProcessor {
         boolean traceMatch,
         boolean ignoreMissing,
         MatcherWatchdog matcherWatchdog
+    ) {
+        this(tag, description, patternBank, matchPatterns, matchField, traceMatch, ignoreMissing, false, matcherWatchdog);
+    }
+
+    GrokProcessor(
+        String tag,
+        String description,
+        PatternBank patternBank,
+        List<String> matchPatterns,
+        String matchField,
+        boolean traceMatch,
+        boolean ignoreMissing,
+        boolean automatonPrefilter,
+        MatcherWatchdog matcherWatchdog
     ) {
         super(tag, description);
         this.matchField = matchField;
         this.matchPatterns = matchPatterns;
-        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch), matcherWatchdog, logger::debug);
+        this.grok = new Grok(
+            patternBank,
+            combinePatterns(matchPatterns, traceMatch),
+            matcherWatchdog,
+            automatonPrefilter ? Grok.CompileMode.AUTOMATON : Grok.CompileMode.REGEX,
+            logger::debug
+        );
         this.traceMatch = traceMatch;
         this.ignoreMissing = ignoreMissing;
         // Joni warnings are only emitted on an attempt to match, and the warning emitted for every call to match which is too verbose
@@ -156,6 +176,13 @@ public final class GrokProcessor extends AbstractProcessor {
             List<String> matchPatterns = ConfigurationUtils.readList(TYPE, processorTag, config, "patterns");
             boolean traceMatch = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "trace_match", false);
             boolean ignoreMissing = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "ignore_missing", false);
+            boolean automatonPrefilter = ConfigurationUtils.readBooleanProperty(
+                TYPE,
+                processorTag,
+                config,
+                "automaton_prefilter",
+                false
+            );
             String ecsCompatibility = ConfigurationUtils.readStringProperty(
                 TYPE,
                 processorTag,
@@ -181,6 +208,7 @@ public final class GrokProcessor extends AbstractProcessor {
                     matchField,
                     traceMatch,
                     ignoreMissing,
+                    automatonPrefilter,
                     matcherWatchdog
                 );
             } catch (Exception e) {
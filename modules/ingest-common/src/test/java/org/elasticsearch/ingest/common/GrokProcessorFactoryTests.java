@@ -52,6 +52,19 @@ public class GrokProcessorFactoryTests extends ESTestCase {
         assertThat(processor.isIgnoreMissing(), is(true));
     }
 
+    public void testBuildWithAutomatonPrefilter() throws Exception {
+        GrokProcessor.Factory factory = new GrokProcessor.Factory(MatcherWatchdog.noop());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "_field");
+        config.put("patterns", List.of("(?<foo>\\w+)"));
+        config.put("automaton_prefilter", true);
+        GrokProcessor processor = factory.create(null, randomAlphaOfLength(10), null, config);
+        assertThat(processor.getGrok(), notNullValue());
+        assertThat(processor.getGrok().match("bar"), is(true));
+        assertThat(config.isEmpty(), is(true));
+    }
+
     public void testBuildMissingField() throws Exception {
         GrokProcessor.Factory factory = new GrokProcessor.Factory(MatcherWatchdog.noop());
         Map<String, Object> config = new HashMap<>();
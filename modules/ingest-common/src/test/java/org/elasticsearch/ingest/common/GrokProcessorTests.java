@@ -79,6 +79,32 @@ public class GrokProcessorTests extends ESTestCase {
         assertThat(e.getMessage(), equalTo("Provided Grok expressions do not match field value: [23]"));
     }
 
+    public void testAutomatonPrefilter() throws Exception {
+        String fieldName = RandomDocumentPicks.randomFieldName(random());
+        GrokProcessor processor = new GrokProcessor(
+            randomAlphaOfLength(10),
+            null,
+            new PatternBank(Map.of("ONE", "1", "TWO", "2")),
+            List.of("%{ONE:one}-%{TWO:two}", "%{TWO:two}"),
+            fieldName,
+            false,
+            false,
+            true,
+            MatcherWatchdog.noop()
+        );
+
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue(fieldName, "1-2");
+        processor.execute(doc);
+        assertThat(doc.getFieldValue("one", String.class), equalTo("1"));
+        assertThat(doc.getFieldValue("two", String.class), equalTo("2"));
+
+        IngestDocument noMatch = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        noMatch.setFieldValue(fieldName, "3");
+        Exception e = expectThrows(Exception.class, () -> processor.execute(noMatch));
+        assertThat(e.getMessage(), equalTo("Provided Grok expressions do not match field value: [3]"));
+    }
+
     public void testNoMatchingPatternName() {
         String fieldName = RandomDocumentPicks.randomFieldName(random());
         IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
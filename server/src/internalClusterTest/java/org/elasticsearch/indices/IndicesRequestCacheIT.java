@@ -15,12 +15,15 @@ import org.elasticsearch.action.support.broadcast.BroadcastResponse;
 import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.cache.request.RequestCacheStats;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation.Bucket;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
 
@@ -29,11 +32,14 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateRange;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailuresAndResponse;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertResponse;
@@ -605,6 +611,44 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         }
     }
 
+    public void testCachePerSegment() {
+        Client client = client();
+        assertAcked(
+            indicesAdmin().prepareCreate("index")
+                .setMapping("k", "type=keyword")
+                .setSettings(
+                    indexSettings(1, 0).put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+                        .put(IndicesRequestCache.INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING.getKey(), true)
+                        // each refresh adds a single segment, and the segments stay around
+                        .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1)
+                        .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false)
+                )
+        );
+        assertCacheState(client, "index", 0, 0);
+
+        final Map<String, Long> expected = new HashMap<>();
+        long expectedMisses = 0;
+        for (int segments = 1; segments <= 3; segments++) {
+            for (int i = 0; i < 10; i++) {
+                String k = randomFrom("a", "b", "c");
+                client.prepareIndex("index").setSource("k", k).get();
+                expected.merge(k, 1L, Long::sum);
+            }
+            refresh("index");
+            assertNoFailuresAndResponse(client.prepareSearch("index").setSize(0).addAggregation(terms("k").field("k")), r -> {
+                Terms terms = r.getAggregations().get("k");
+                Map<String, Long> counts = new HashMap<>();
+                for (Terms.Bucket bucket : terms.getBuckets()) {
+                    counts.put(bucket.getKeyAsString(), bucket.getDocCount());
+                }
+                assertThat(counts, equalTo(expected));
+            });
+            // the shard level result misses, the lookups of the segments don't count as hits or misses of the request
+            expectedMisses++;
+            assertCacheState(client, "index", 0, expectedMisses);
+        }
+    }
+
     private static void assertCacheState(Client client, String index, long expectedHits, long expectedMisses) {
         RequestCacheStats requestCacheStats = client.admin()
             .indices()
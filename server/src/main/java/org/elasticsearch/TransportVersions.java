@@ -234,6 +234,10 @@ public class TransportVersions {
     public static final TransportVersion RRF_QUERY_REWRITE = def(8_758_00_0);
     public static final TransportVersion SEARCH_FAILURE_STATS = def(8_759_00_0);
     public static final TransportVersion INGEST_GEO_DATABASE_PROVIDERS = def(8_760_00_0);
+    public static final TransportVersion ESQL_SPILLING_HASH_AGGREGATION = def(8_761_00_0);
+    public static final TransportVersion ESQL_HASH_JOIN = def(8_762_00_0);
+    public static final TransportVersion VIRTUAL_THREAD_POOL_TYPE = def(8_763_00_0);
+    public static final TransportVersion TRANSPORT_COMPRESSION_ZSTD = def(8_764_00_0);
 
     /*
      * STOP! READ THIS FIRST! No, really,
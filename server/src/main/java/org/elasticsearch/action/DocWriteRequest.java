@@ -244,10 +244,23 @@ public interface DocWriteRequest<T> extends IndicesRequest, Accountable {
      *                that does not have a unique shard id.
      */
     static DocWriteRequest<?> readDocumentRequest(@Nullable ShardId shardId, StreamInput in) throws IOException {
+        return readDocumentRequest(shardId, in, false);
+    }
+
+    /**
+     * Read a document write (index/delete/update) request
+     *
+     * @param shardId shard id of the request. {@code null} when reading as part of a {@link org.elasticsearch.action.bulk.BulkRequest}
+     *                that does not have a unique shard id.
+     * @param pooled  whether the source of an {@link IndexRequest} may be read as a
+     *                {@link org.elasticsearch.common.bytes.ReleasableBytesReference} slice of the stream's buffer, which the caller
+     *                must release
+     */
+    static DocWriteRequest<?> readDocumentRequest(@Nullable ShardId shardId, StreamInput in, boolean pooled) throws IOException {
         byte type = in.readByte();
         DocWriteRequest<?> docWriteRequest;
         if (type == 0) {
-            docWriteRequest = new IndexRequest(shardId, in);
+            docWriteRequest = new IndexRequest(shardId, in, pooled);
         } else if (type == 1) {
             docWriteRequest = new DeleteRequest(shardId, in);
         } else if (type == 2) {
@@ -31,8 +31,12 @@ public class BulkItemRequest implements Writeable, Accountable {
     private volatile BulkItemResponse primaryResponse;
 
     BulkItemRequest(@Nullable ShardId shardId, StreamInput in) throws IOException {
+        this(shardId, in, false);
+    }
+
+    BulkItemRequest(@Nullable ShardId shardId, StreamInput in, boolean pooled) throws IOException {
         id = in.readVInt();
-        request = DocWriteRequest.readDocumentRequest(shardId, in);
+        request = DocWriteRequest.readDocumentRequest(shardId, in, pooled);
         if (in.readBoolean()) {
             if (shardId == null) {
                 primaryResponse = new BulkItemResponse(in);
@@ -18,13 +18,20 @@ import org.elasticsearch.action.support.replication.ReplicatedWriteRequest;
 import org.elasticsearch.action.support.replication.ReplicationRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.cluster.metadata.InferenceFieldMetadata;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.RefCounted;
+import org.elasticsearch.core.Releasables;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.transport.LeakTracker;
 import org.elasticsearch.transport.RawIndexingDataTransportRequest;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,17 +44,55 @@ public final class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequ
 
     private final BulkItemRequest[] items;
     private final boolean isSimulated;
+    private final RefCounted refCounted;
 
     private transient Map<String, InferenceFieldMetadata> inferenceFieldMap = null;
 
     public BulkShardRequest(StreamInput in) throws IOException {
+        this(in, false);
+    }
+
+    /**
+     * Reads a request whose index request sources are slices of the buffer that the request is read from rather than copies. The
+     * sources are released once the request is no longer referenced.
+     */
+    public static BulkShardRequest readPooled(StreamInput in) throws IOException {
+        return new BulkShardRequest(in, true);
+    }
+
+    private BulkShardRequest(StreamInput in, boolean pooled) throws IOException {
         super(in);
-        items = in.readArray(i -> i.readOptionalWriteable(inpt -> new BulkItemRequest(shardId, inpt)), BulkItemRequest[]::new);
-        if (in.getTransportVersion().onOrAfter(TransportVersions.SIMULATE_VALIDATES_MAPPINGS)) {
-            isSimulated = in.readBoolean();
-        } else {
-            isSimulated = false;
+        items = new BulkItemRequest[in.readArraySize()];
+        boolean success = false;
+        try {
+            for (int i = 0; i < items.length; i++) {
+                items[i] = in.readOptionalWriteable(inpt -> new BulkItemRequest(shardId, inpt, pooled));
+            }
+            if (in.getTransportVersion().onOrAfter(TransportVersions.SIMULATE_VALIDATES_MAPPINGS)) {
+                isSimulated = in.readBoolean();
+            } else {
+                isSimulated = false;
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(pooledSources(items));
+            }
         }
+        final List<ReleasableBytesReference> sources = pooled ? pooledSources(items) : List.of();
+        refCounted = sources.isEmpty() ? ALWAYS_REFERENCED : LeakTracker.wrap(AbstractRefCounted.of(() -> Releasables.close(sources)));
+    }
+
+    private static List<ReleasableBytesReference> pooledSources(BulkItemRequest[] items) {
+        final List<ReleasableBytesReference> sources = new ArrayList<>();
+        for (BulkItemRequest item : items) {
+            if (item != null
+                && item.request() instanceof IndexRequest indexRequest
+                && indexRequest.source() instanceof ReleasableBytesReference source) {
+                sources.add(source);
+            }
+        }
+        return sources;
     }
 
     public BulkShardRequest(ShardId shardId, RefreshPolicy refreshPolicy, BulkItemRequest[] items) {
@@ -59,6 +104,7 @@ public final class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequ
         this.items = items;
         setRefreshPolicy(refreshPolicy);
         this.isSimulated = isSimulated;
+        this.refCounted = ALWAYS_REFERENCED;
     }
 
     /**
@@ -202,4 +248,24 @@ public final class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequ
     public boolean isSimulated() {
         return isSimulated;
     }
+
+    @Override
+    public void incRef() {
+        refCounted.incRef();
+    }
+
+    @Override
+    public boolean tryIncRef() {
+        return refCounted.tryIncRef();
+    }
+
+    @Override
+    public boolean decRef() {
+        return refCounted.decRef();
+    }
+
+    @Override
+    public boolean hasReferences() {
+        return refCounted.hasReferences();
+    }
 }
@@ -13,7 +13,9 @@ import org.apache.lucene.util.Accountable;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.common.BackoffPolicy;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
@@ -23,9 +25,11 @@ import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.rest.RestStatus;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
@@ -93,6 +97,12 @@ public class IncrementalBulkService {
 
         public static final BulkRequest.IncrementalState EMPTY_STATE = new BulkRequest.IncrementalState(Collections.emptyMap(), true);
 
+        /**
+         * How long to wait before retrying the items that the shards rejected because of indexing pressure. The eight retries wait
+         * about 5 seconds in total, after which the rejections are returned to the client.
+         */
+        static final BackoffPolicy REJECTION_BACKOFF = BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(50), 8);
+
         private final Client client;
         private final ThreadContext threadContext;
         private final IndexingPressure indexingPressure;
@@ -143,7 +153,7 @@ public class IncrementalBulkService {
                             requestContext.restore();
                             final ArrayList<Releasable> toRelease = new ArrayList<>(releasables);
                             releasables.clear();
-                            client.bulk(bulkRequest, ActionListener.runAfter(new ActionListener<>() {
+                            client.bulk(bulkRequest, new RejectedItemsRetry(bulkRequest, ActionListener.runAfter(new ActionListener<>() {
 
                                 @Override
                                 public void onResponse(BulkResponse bulkResponse) {
@@ -161,7 +171,7 @@ public class IncrementalBulkService {
                                 requestContext = threadContext.newStoredContext();
                                 toRelease.forEach(Releasable::close);
                                 nextItems.run();
-                            }));
+                            })));
                         }
                     } else {
                         nextItems.run();
@@ -187,7 +197,7 @@ public class IncrementalBulkService {
                         requestContext.restore();
                         final ArrayList<Releasable> toRelease = new ArrayList<>(releasables);
                         releasables.clear();
-                        client.bulk(bulkRequest, ActionListener.runBefore(new ActionListener<>() {
+                        client.bulk(bulkRequest, new RejectedItemsRetry(bulkRequest, ActionListener.runBefore(new ActionListener<>() {
 
                             private final boolean isFirstRequest = incrementalRequestSubmitted == false;
 
@@ -202,7 +212,7 @@ public class IncrementalBulkService {
                                 handleBulkFailure(isFirstRequest, e);
                                 errorResponse(listener);
                             }
-                        }, () -> toRelease.forEach(Releasable::close)));
+                        }, () -> toRelease.forEach(Releasable::close))));
                     }
                 } else {
                     errorResponse(listener);
@@ -279,18 +289,23 @@ public class IncrementalBulkService {
         private void createNewBulkRequest(BulkRequest.IncrementalState incrementalState) {
             assert currentBulkSize == 0L;
             assert bulkRequest == null;
-            bulkRequest = new BulkRequest();
-            bulkRequest.incrementalState(incrementalState);
+            bulkRequest = newBulkRequest(incrementalState);
+        }
+
+        private BulkRequest newBulkRequest(BulkRequest.IncrementalState incrementalState) {
+            BulkRequest request = new BulkRequest();
+            request.incrementalState(incrementalState);
 
             if (waitForActiveShards != null) {
-                bulkRequest.waitForActiveShards(waitForActiveShards);
+                request.waitForActiveShards(waitForActiveShards);
             }
             if (timeout != null) {
-                bulkRequest.timeout(timeout);
+                request.timeout(timeout);
             }
             if (refresh != null) {
-                bulkRequest.setRefreshPolicy(refresh);
+                request.setRefreshPolicy(refresh);
             }
+            return request;
         }
 
         private BulkResponse combineResponses() {
@@ -312,5 +327,95 @@ public class IncrementalBulkService {
 
             return new BulkResponse(bulkItemResponses, tookInMillis, ingestTookInMillis);
         }
+
+        /**
+         * Retries, with {@link #REJECTION_BACKOFF}, the items of a bulk request that the shards rejected because primary or replica
+         * indexing pressure was exceeded. The retried items keep their place in the response, and since the next items of the bulk are
+         * only read once the response is complete, the rate at which an incremental bulk is read follows the rate at which its target
+         * shards can index it rather than the rate at which the coordinating node can forward it.
+         */
+        private final class RejectedItemsRetry implements ActionListener<BulkResponse> {
+
+            private final BulkRequest request;
+            private final ActionListener<BulkResponse> listener;
+            private final Iterator<TimeValue> backoff = REJECTION_BACKOFF.iterator();
+            private BulkItemResponse[] items;
+            private int[] retriedSlots;
+            private long tookInMillis = 0;
+            private long ingestTookInMillis = 0;
+            private BulkRequest.IncrementalState incrementalState;
+
+            private RejectedItemsRetry(BulkRequest request, ActionListener<BulkResponse> listener) {
+                this.request = request;
+                this.listener = listener;
+            }
+
+            @Override
+            public void onResponse(BulkResponse response) {
+                if (items == null) {
+                    items = response.getItems();
+                } else {
+                    BulkItemResponse[] retried = response.getItems();
+                    for (int i = 0; i < retried.length; i++) {
+                        items[retriedSlots[i]] = withItemId(retried[i], retriedSlots[i]);
+                    }
+                }
+                tookInMillis += response.getTookInMillis();
+                ingestTookInMillis += response.getIngestTookInMillis();
+                incrementalState = response.getIncrementalState();
+
+                int rejected = 0;
+                for (BulkItemResponse item : items) {
+                    if (isRejected(item)) {
+                        rejected++;
+                    }
+                }
+                if (rejected == 0 || backoff.hasNext() == false) {
+                    listener.onResponse(new BulkResponse(items, tookInMillis, ingestTookInMillis, incrementalState));
+                    return;
+                }
+
+                BulkRequest retryRequest = newBulkRequest(new BulkRequest.IncrementalState(incrementalState.shardLevelFailures(), true));
+                retriedSlots = new int[rejected];
+                int slot = 0;
+                for (int i = 0; i < items.length; i++) {
+                    if (isRejected(items[i])) {
+                        DocWriteRequest<?> item = request.requests().get(i);
+                        if (item instanceof IndexRequest indexRequest) {
+                            indexRequest.reset();
+                        }
+                        retryRequest.add(item);
+                        retriedSlots[slot++] = i;
+                    }
+                }
+                client.threadPool().schedule(() -> client.bulk(retryRequest, this), backoff.next(), client.threadPool().generic());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (items == null) {
+                    listener.onFailure(e);
+                } else {
+                    // only the retried items failed, the others keep their responses
+                    for (int slot : retriedSlots) {
+                        DocWriteRequest<?> item = request.requests().get(slot);
+                        BulkItemResponse.Failure failure = new BulkItemResponse.Failure(item.index(), item.id(), e);
+                        items[slot] = BulkItemResponse.failure(slot, item.opType(), failure);
+                    }
+                    listener.onResponse(new BulkResponse(items, tookInMillis, ingestTookInMillis, incrementalState));
+                }
+            }
+
+            private static boolean isRejected(BulkItemResponse item) {
+                return item.isFailed() && item.status() == RestStatus.TOO_MANY_REQUESTS;
+            }
+
+            private static BulkItemResponse withItemId(BulkItemResponse item, int itemId) {
+                if (item.isFailed()) {
+                    return BulkItemResponse.failure(itemId, item.getOpType(), item.getFailure());
+                }
+                return BulkItemResponse.success(itemId, item.getOpType(), item.getResponse());
+            }
+        }
     }
 }
@@ -114,8 +114,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             threadPool,
             shardStateAction,
             actionFilters,
-            BulkShardRequest::new,
-            BulkShardRequest::new,
+            BulkShardRequest::readPooled,
+            BulkShardRequest::readPooled,
             ExecutorSelector.getWriteExecutorForShard(threadPool),
             PrimaryActionExecution.RejectOnOverload,
             indexingPressure,
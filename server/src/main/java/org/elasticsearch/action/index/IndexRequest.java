@@ -155,6 +155,14 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
     }
 
     public IndexRequest(@Nullable ShardId shardId, StreamInput in) throws IOException {
+        this(shardId, in, false);
+    }
+
+    /**
+     * @param pooled whether the source may be read as a {@link org.elasticsearch.common.bytes.ReleasableBytesReference} slice of
+     *               the stream's buffer instead of being copied, in which case the caller must release it
+     */
+    public IndexRequest(@Nullable ShardId shardId, StreamInput in, boolean pooled) throws IOException {
         super(shardId, in);
         if (in.getTransportVersion().before(TransportVersions.V_8_0_0)) {
             String type = in.readOptionalString();
@@ -162,7 +170,7 @@ public class IndexRequest extends ReplicatedWriteRequest<IndexRequest> implement
         }
         id = in.readOptionalString();
         routing = in.readOptionalString();
-        source = in.readBytesReference();
+        source = pooled ? in.readReleasableBytesReference() : in.readBytesReference();
         opType = OpType.fromId(in.readByte());
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
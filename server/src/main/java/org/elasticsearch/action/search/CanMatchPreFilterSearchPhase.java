@@ -18,6 +18,7 @@ import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.query.CoordinatorRewriteContext;
 import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
 import org.elasticsearch.search.CanMatchShardResponse;
@@ -151,6 +152,7 @@ final class CanMatchPreFilterSearchPhase extends SearchPhase {
         // TODO: the index filter (i.e, `_index:patten`) should be prefiltered on the coordinator
         assert assertSearchCoordinationThread();
         final List<SearchShardIterator> matchedShardLevelRequests = new ArrayList<>();
+        final Map<Index, Boolean> canMatchByIndex = new HashMap<>();
         for (SearchShardIterator searchShardIterator : shardsIts) {
             final CanMatchNodeRequest canMatchNodeRequest = new CanMatchNodeRequest(
                 request,
@@ -165,17 +167,12 @@ final class CanMatchPreFilterSearchPhase extends SearchPhase {
                 consumeResult(searchShardIterator.skip() == false, request);
                 continue;
             }
-            boolean canMatch = true;
-            CoordinatorRewriteContext coordinatorRewriteContext = coordinatorRewriteContextProvider.getCoordinatorRewriteContext(
-                request.shardId().getIndex()
+            // the coordinator rewrite only depends on the index metadata and the alias filter of the index, which are the same
+            // for all of its shards, so it only runs once per index
+            final boolean canMatch = canMatchByIndex.computeIfAbsent(
+                request.shardId().getIndex(),
+                index -> canMatchOnCoordinator(request)
             );
-            if (coordinatorRewriteContext != null) {
-                try {
-                    canMatch = SearchService.queryStillMatchesAfterRewrite(request, coordinatorRewriteContext);
-                } catch (Exception e) {
-                    // treat as if shard is still a potential match
-                }
-            }
             if (canMatch) {
                 matchedShardLevelRequests.add(searchShardIterator);
             } else {
@@ -189,6 +186,20 @@ final class CanMatchPreFilterSearchPhase extends SearchPhase {
         }
     }
 
+    private boolean canMatchOnCoordinator(ShardSearchRequest request) {
+        CoordinatorRewriteContext coordinatorRewriteContext = coordinatorRewriteContextProvider.getCoordinatorRewriteContext(
+            request.shardId().getIndex()
+        );
+        if (coordinatorRewriteContext != null) {
+            try {
+                return SearchService.queryStillMatchesAfterRewrite(request, coordinatorRewriteContext);
+            } catch (Exception e) {
+                // treat as if shard is still a potential match
+            }
+        }
+        return true;
+    }
+
     private void consumeResult(boolean canMatch, ShardSearchRequest request) {
         CanMatchShardResponse result = new CanMatchShardResponse(canMatch, null);
         result.setShardIndex(request.shardRequestIndex());
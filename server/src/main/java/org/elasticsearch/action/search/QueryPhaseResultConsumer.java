@@ -51,6 +51,10 @@ import static org.elasticsearch.action.search.SearchPhaseController.setShardInde
  * in the {@link CircuitBreaker#REQUEST} circuit breaker. Before any partial or final reduce, the memory
  * needed to reduce the aggregations is estimated and a {@link CircuitBreakingException} is thrown if it
  * exceeds the maximum memory allowed in this breaker.
+ *
+ * The callback passed to {@link #consumeResult} for the shard result that fills the buffer only runs once
+ * the buffer is reduced. So a caller that waits for it never has more than
+ * {@link SearchRequest#getBatchedReduceSize()} shard aggregations buffered at once.
  */
 public class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> {
     private static final Logger logger = LogManager.getLogger(QueryPhaseResultConsumer.class);
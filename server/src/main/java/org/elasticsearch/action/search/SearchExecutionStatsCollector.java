@@ -13,6 +13,7 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DelegatingActionListener;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
@@ -58,6 +59,10 @@ public final class SearchExecutionStatsCollector extends DelegatingActionListene
             // EWMA/queue size may be -1 if the query node doesn't support capturing it
             if (serviceTimeEWMA > 0 && queueSize >= 0) {
                 collector.addNodeStatistics(nodeId, queueSize, responseDuration, serviceTimeEWMA);
+                final SearchShardTarget shardTarget = queryResult.getSearchShardTarget();
+                if (shardTarget != null) {
+                    collector.addShardResponseTime(shardTarget.getShardId(), nodeId, responseDuration);
+                }
             }
         }
         delegate.onResponse(response);
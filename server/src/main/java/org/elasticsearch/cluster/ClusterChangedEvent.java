@@ -14,6 +14,7 @@ import org.elasticsearch.cluster.metadata.IndexGraveyard.IndexGraveyardDiff;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.gateway.GatewayService;
 import org.elasticsearch.index.Index;
 
@@ -38,6 +39,9 @@ public class ClusterChangedEvent {
 
     private final DiscoveryNodes.Delta nodesDelta;
 
+    // computed lazily, see #indicesDelta()
+    private IndicesDelta indicesDelta;
+
     public ClusterChangedEvent(String source, ClusterState state, ClusterState previousState) {
         Objects.requireNonNull(source, "source must not be null");
         Objects.requireNonNull(state, "state must not be null");
@@ -177,6 +181,20 @@ public class ClusterChangedEvent {
         return this.nodesDelta;
     }
 
+    /**
+     * Returns the {@link IndicesDelta} between the previous cluster state and the new cluster state. The delta is computed the
+     * first time it is requested and then shared by all the appliers and listeners that handle this event, so that they can
+     * visit only the indices that changed rather than walking the whole metadata and routing table.
+     */
+    public IndicesDelta indicesDelta() {
+        IndicesDelta delta = indicesDelta;
+        if (delta == null) {
+            delta = IndicesDelta.compute(previousState, state);
+            indicesDelta = delta;
+        }
+        return delta;
+    }
+
     /**
      * Returns <code>true</code> iff nodes have been removed from the cluster since the last cluster state.
      */
@@ -264,6 +282,94 @@ public class ClusterChangedEvent {
         return deleted == null ? Collections.<Index>emptyList() : new ArrayList<>(deleted);
     }
 
+    /**
+     * The indices that were added, removed or changed between two cluster states. Like the rest of this class it relies on object
+     * reference equality: applying a cluster state diff reuses the {@link IndexMetadata} and {@link IndexRoutingTable} instances of
+     * the indices that the diff does not touch, so only the indices that are part of the diff show up here.
+     *
+     * @param added           indices that exist in the new cluster state but not in the previous one
+     * @param removed         indices that exist in the previous cluster state but not in the new one
+     * @param metadataChanged indices that exist in both cluster states whose {@link IndexMetadata} changed
+     * @param routingChanged  indices whose {@link IndexRoutingTable} was added, removed or changed
+     */
+    public record IndicesDelta(Set<Index> added, Set<Index> removed, Set<Index> metadataChanged, Set<Index> routingChanged) {
+
+        public static final IndicesDelta EMPTY = new IndicesDelta(Set.of(), Set.of(), Set.of(), Set.of());
+
+        public IndicesDelta {
+            added = Set.copyOf(added);
+            removed = Set.copyOf(removed);
+            metadataChanged = Set.copyOf(metadataChanged);
+            routingChanged = Set.copyOf(routingChanged);
+        }
+
+        /**
+         * Returns <code>true</code> iff no index was added, removed or changed.
+         */
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && metadataChanged.isEmpty() && routingChanged.isEmpty();
+        }
+
+        /**
+         * Returns <code>true</code> iff the given index was added or removed, or its metadata or routing table changed.
+         */
+        public boolean changed(Index index) {
+            return added.contains(index) || removed.contains(index) || metadataChanged.contains(index) || routingChanged.contains(index);
+        }
+
+        static IndicesDelta compute(ClusterState previousState, ClusterState state) {
+            final Map<String, IndexMetadata> previousIndices = previousState.metadata().indices();
+            final Map<String, IndexMetadata> currentIndices = state.metadata().indices();
+            final Map<String, IndexRoutingTable> previousRouting = previousState.routingTable().indicesRouting();
+            final Map<String, IndexRoutingTable> currentRouting = state.routingTable().indicesRouting();
+            if (previousIndices == currentIndices && previousRouting == currentRouting) {
+                return EMPTY;
+            }
+
+            final Set<Index> added = new HashSet<>();
+            final Set<Index> removed = new HashSet<>();
+            final Set<Index> metadataChanged = new HashSet<>();
+            if (previousIndices != currentIndices) {
+                for (IndexMetadata current : currentIndices.values()) {
+                    final IndexMetadata previous = previousIndices.get(current.getIndex().getName());
+                    if (previous == null) {
+                        added.add(current.getIndex());
+                    } else if (previous.getIndex().equals(current.getIndex()) == false) {
+                        // the index was deleted and then recreated with the same name
+                        removed.add(previous.getIndex());
+                        added.add(current.getIndex());
+                    } else if (indexMetadataChanged(previous, current)) {
+                        metadataChanged.add(current.getIndex());
+                    }
+                }
+                for (IndexMetadata previous : previousIndices.values()) {
+                    if (currentIndices.containsKey(previous.getIndex().getName()) == false) {
+                        removed.add(previous.getIndex());
+                    }
+                }
+            }
+
+            final Set<Index> routingChanged = new HashSet<>();
+            if (previousRouting != currentRouting) {
+                for (IndexRoutingTable current : currentRouting.values()) {
+                    final IndexRoutingTable previous = previousRouting.get(current.getIndex().getName());
+                    if (previous != current) {
+                        routingChanged.add(current.getIndex());
+                        if (previous != null) {
+                            routingChanged.add(previous.getIndex());
+                        }
+                    }
+                }
+                for (IndexRoutingTable previous : previousRouting.values()) {
+                    if (currentRouting.containsKey(previous.getIndex().getName()) == false) {
+                        routingChanged.add(previous.getIndex());
+                    }
+                }
+            }
+            return new IndicesDelta(added, removed, metadataChanged, routingChanged);
+        }
+    }
+
     private List<Index> indicesDeletedFromTombstones() {
         // We look at the full tombstones list to see which indices need to be deleted. In the case of
         // a valid previous cluster state, indicesDeletedFromClusterState() will be used to get the deleted
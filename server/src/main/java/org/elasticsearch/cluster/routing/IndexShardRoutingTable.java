@@ -231,14 +231,24 @@ public class IndexShardRoutingTable {
         if (allInitializingShards.isEmpty()) {
             return new PlainShardIterator(
                 shardId,
-                rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts)
+                rankShardsAndUpdateStats(shardId, shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts)
             );
         }
 
         ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
-        List<ShardRouting> rankedActiveShards = rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts);
+        List<ShardRouting> rankedActiveShards = rankShardsAndUpdateStats(
+            shardId,
+            shuffler.shuffle(activeShards, seed),
+            collector,
+            nodeSearchCounts
+        );
         ordered.addAll(rankedActiveShards);
-        List<ShardRouting> rankedInitializingShards = rankShardsAndUpdateStats(allInitializingShards, collector, nodeSearchCounts);
+        List<ShardRouting> rankedInitializingShards = rankShardsAndUpdateStats(
+            shardId,
+            allInitializingShards,
+            collector,
+            nodeSearchCounts
+        );
         ordered.addAll(rankedInitializingShards);
         return new PlainShardIterator(shardId, ordered);
     }
@@ -264,6 +274,8 @@ public class IndexShardRoutingTable {
     }
 
     private static Map<String, Double> rankNodes(
+        final ShardId shardId,
+        final ResponseCollectorService collector,
         final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
         final Map<String, Long> nodeSearchCounts
     ) {
@@ -272,7 +284,14 @@ public class IndexShardRoutingTable {
             Optional<ResponseCollectorService.ComputedNodeStats> maybeStats = entry.getValue();
             maybeStats.ifPresent(stats -> {
                 final String nodeId = entry.getKey();
-                nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 0L)));
+                final long outstandingRequests = nodeSearchCounts.getOrDefault(nodeId, 0L);
+                // copies that were searched before are ranked by how fast they responded for this shard, which reflects how warm
+                // their caches are for it, the other ones by how fast their node responded for any shard
+                final double shardResponseTime = collector.getShardResponseTime(shardId, nodeId);
+                nodeRanks.put(
+                    nodeId,
+                    shardResponseTime < 0 ? stats.rank(outstandingRequests) : stats.rank(outstandingRequests, shardResponseTime)
+                );
             });
         }
         return nodeRanks;
@@ -287,9 +306,11 @@ public class IndexShardRoutingTable {
      *
      * This adjustment takes the "winning" node's statistics and adds the average of those statistics with each non-winning node. Let's say
      * the winning node had a queue size of 10 and a non-winning node had a queue of 18. The average queue size is (10 + 18) / 2 = 14 so the
-     * non-winning node will have statistics added for a queue size of 14. This is repeated for the response time and service times as well.
+     * non-winning node will have statistics added for a queue size of 14. This is repeated for the response time and service times as well,
+     * and for the response time of the non-winning copies of the shard, so that a cold copy that was searched once gets a chance again.
      */
     private static void adjustStats(
+        final ShardId shardId,
         final ResponseCollectorService collector,
         final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats,
         final String minNodeId,
@@ -312,12 +333,22 @@ public class IndexShardRoutingTable {
                     final long updatedService = (long) avgServiceTime.getAverage();
 
                     collector.addNodeStatistics(nodeId, updatedQueue, updatedResponse, updatedService);
+
+                    final double shardResponseTime = collector.getShardResponseTime(shardId, nodeId);
+                    if (shardResponseTime >= 0) {
+                        double minShardResponseTime = collector.getShardResponseTime(shardId, minNodeId);
+                        if (minShardResponseTime < 0) {
+                            minShardResponseTime = minStats.responseTime;
+                        }
+                        collector.addShardResponseTime(shardId, nodeId, (long) (minShardResponseTime + shardResponseTime) / 2);
+                    }
                 }
             }
         }
     }
 
     private static List<ShardRouting> rankShardsAndUpdateStats(
+        ShardId shardId,
         List<ShardRouting> shards,
         final ResponseCollectorService collector,
         final Map<String, Long> nodeSearchCounts
@@ -331,7 +362,7 @@ public class IndexShardRoutingTable {
         final Map<String, Optional<ResponseCollectorService.ComputedNodeStats>> nodeStats = getNodeStats(nodeIds, collector);
 
         // Retrieve all the nodes the shards exist on
-        final Map<String, Double> nodeRanks = rankNodes(nodeStats, nodeSearchCounts);
+        final Map<String, Double> nodeRanks = rankNodes(shardId, collector, nodeStats, nodeSearchCounts);
 
         // sort all shards based on the shard rank
         ArrayList<ShardRouting> sortedShards = new ArrayList<>(shards);
@@ -346,7 +377,7 @@ public class IndexShardRoutingTable {
                 String minNodeId = minShard.currentNodeId();
                 Optional<ResponseCollectorService.ComputedNodeStats> maybeMinStats = nodeStats.get(minNodeId);
                 if (maybeMinStats.isPresent()) {
-                    adjustStats(collector, nodeStats, minNodeId, maybeMinStats.get());
+                    adjustStats(shardId, collector, nodeStats, minNodeId, maybeMinStats.get());
                     // Increase the number of searches for the "winning" node by one.
                     // Note that this doesn't actually affect the "real" counts, instead
                     // it only affects the captured node search counts, which is
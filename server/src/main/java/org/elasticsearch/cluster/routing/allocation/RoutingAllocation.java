@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import static java.util.Collections.emptySet;
 
@@ -68,6 +69,10 @@ public class RoutingAllocation {
     private final boolean isSimulating;
     private boolean isReconciling;
 
+    @Nullable
+    private Executor simulationExecutor;
+    private int simulationParallelism = 1;
+
     private final IndexMetadataUpdater indexMetadataUpdater = new IndexMetadataUpdater();
     private final RoutingNodesChangedObserver nodesChangedObserver = new RoutingNodesChangedObserver();
     private final RestoreInProgressUpdater restoreInProgressUpdater = new RestoreInProgressUpdater();
@@ -427,6 +432,29 @@ public class RoutingAllocation {
         this.clusterInfo = clusterInfo;
     }
 
+    /**
+     * Allows the simulation to spread the allocation decisions that don't depend on each other over up to {@code parallelism} threads
+     * of the given executor. The deciders must only read the allocation, which is the case while no shard is being moved.
+     */
+    public void setSimulationExecutor(Executor executor, int parallelism) {
+        assert isSimulating : "Should be called only while simulating";
+        assert parallelism >= 1 : parallelism;
+        this.simulationExecutor = executor;
+        this.simulationParallelism = parallelism;
+    }
+
+    /**
+     * @return the executor on which a simulation may make allocation decisions in parallel, or {@code null} if it should not
+     */
+    @Nullable
+    public Executor simulationExecutor() {
+        return simulationExecutor;
+    }
+
+    public int simulationParallelism() {
+        return simulationParallelism;
+    }
+
     public RoutingAllocation immutableClone() {
         return new RoutingAllocation(
             deciders,
@@ -13,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.ClusterInfo;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.Metadata;
@@ -40,6 +41,7 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.set.Sets;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.core.UpdateForV9;
 import org.elasticsearch.gateway.PriorityComparator;
@@ -54,6 +56,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.stream.StreamSupport;
 
@@ -318,6 +324,11 @@ public class BalancedShardsAllocator implements ShardsAllocator {
      * A {@link Balancer}
      */
     public static class Balancer {
+        /**
+         * The minimum number of shards whose canRemain decisions are worth handing to another thread of the simulation executor.
+         */
+        private static final int MIN_SHARDS_PER_PARTITION = 1000;
+
         private final WriteLoadForecaster writeLoadForecaster;
         private final RoutingAllocation allocation;
         private final RoutingNodes routingNodes;
@@ -851,10 +862,20 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             // Iterate over the started shards interleaving between nodes, and check if they can remain. In the presence of throttling
             // shard movements, the goal of this iteration order is to achieve a fairer movement of shards from the nodes that are
             // offloading the shards.
-            for (Iterator<ShardRouting> it = allocation.routingNodes().nodeInterleavedShardIterator(); it.hasNext();) {
-                ShardRouting shardRouting = it.next();
-                final MoveDecision moveDecision = decideMove(shardRouting);
+            final List<ShardRouting> shards = new ArrayList<>();
+            allocation.routingNodes().nodeInterleavedShardIterator().forEachRemaining(shards::add);
+            // The canRemain decisions only depend on the current routing so they can be computed up front, possibly in parallel, and
+            // used until the first shard moves. After that the decisions for the remaining shards are made against the updated routing.
+            final Decision[] canRemainDecisions = decideCanRemainInParallel(shards);
+            boolean shardMoved = false;
+            for (int i = 0; i < shards.size(); i++) {
+                final ShardRouting shardRouting = shards.get(i);
+                final MoveDecision moveDecision = decideMove(
+                    shardRouting,
+                    canRemainDecisions == null || shardMoved ? null : canRemainDecisions[i]
+                );
                 if (moveDecision.isDecisionTaken() && moveDecision.forceMove()) {
+                    shardMoved = true;
                     final ModelNode sourceNode = nodes.get(shardRouting.currentNodeId());
                     final ModelNode targetNode = nodes.get(moveDecision.getTargetNode().getId());
                     sourceNode.removeShard(shardRouting);
@@ -875,6 +896,69 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             }
         }
 
+        /**
+         * Computes the canRemain decisions of the given shards on the simulation executor of the allocation, see
+         * {@link RoutingAllocation#setSimulationExecutor}. Returns {@code null} if the decisions should be made one shard at a time
+         * instead, which is the case outside of simulations, in explain mode, for small clusters, if any of the deciders isn't safe to
+         * call concurrently (see {@link AllocationDeciders#canRemainIsThreadSafe}) or if the executor rejected the work.
+         */
+        @Nullable
+        private Decision[] decideCanRemainInParallel(List<ShardRouting> shards) {
+            final Executor executor = allocation.simulationExecutor();
+            final int partitions = Math.min(allocation.simulationParallelism(), shards.size() / MIN_SHARDS_PER_PARTITION);
+            if (executor == null
+                || partitions <= 1
+                || allocation.debugDecision()
+                || allocation.deciders().canRemainIsThreadSafe() == false) {
+                return null;
+            }
+            final Decision[] decisions = new Decision[shards.size()];
+            final int partitionSize = (shards.size() + partitions - 1) / partitions;
+            final CountDownLatch latch = new CountDownLatch(partitions - 1);
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            for (int partition = 1; partition < partitions; partition++) {
+                final int from = partition * partitionSize;
+                final int to = Math.min(from + partitionSize, shards.size());
+                try {
+                    executor.execute(() -> {
+                        try {
+                            decideCanRemain(shards, decisions, from, to);
+                        } catch (Exception e) {
+                            failure.accumulateAndGet(e, ExceptionsHelper::useOrSuppress);
+                        } finally {
+                            latch.countDown();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    failure.accumulateAndGet(e, ExceptionsHelper::useOrSuppress);
+                    latch.countDown();
+                }
+            }
+            decideCanRemain(shards, decisions, 0, Math.min(partitionSize, shards.size()));
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (failure.get() != null) {
+                // the decisions are side-effect free, so we can safely make them again one at a time and fail there if needed
+                logger.debug("failed to compute canRemain decisions in parallel, falling back to sequential computation", failure.get());
+                return null;
+            }
+            return decisions;
+        }
+
+        private void decideCanRemain(List<ShardRouting> shards, Decision[] decisions, int from, int to) {
+            for (int i = from; i < to; i++) {
+                final ShardRouting shardRouting = shards.get(i);
+                if (shardRouting.started()) {
+                    final RoutingNode routingNode = nodes.get(shardRouting.currentNodeId()).getRoutingNode();
+                    decisions[i] = allocation.deciders().canRemain(shardRouting, routingNode, allocation);
+                }
+            }
+        }
+
         /**
          * Makes a decision on whether to move a started shard to another node. The following rules apply
          * to the {@link MoveDecision} return object:
@@ -888,6 +972,10 @@ public class BalancedShardsAllocator implements ShardsAllocator {
          *      {@link MoveDecision#getNodeDecisions} will have a non-null value.
          */
         public MoveDecision decideMove(final ShardRouting shardRouting) {
+            return decideMove(shardRouting, null);
+        }
+
+        private MoveDecision decideMove(final ShardRouting shardRouting, @Nullable Decision precomputedCanRemain) {
             if (shardRouting.started() == false) {
                 // we can only move started shards
                 return MoveDecision.NOT_TAKEN;
@@ -896,7 +984,9 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final ModelNode sourceNode = nodes.get(shardRouting.currentNodeId());
             assert sourceNode != null && sourceNode.containsShard(shardRouting);
             RoutingNode routingNode = sourceNode.getRoutingNode();
-            Decision canRemain = allocation.deciders().canRemain(shardRouting, routingNode, allocation);
+            Decision canRemain = precomputedCanRemain != null
+                ? precomputedCanRemain
+                : allocation.deciders().canRemain(shardRouting, routingNode, allocation);
             if (canRemain.type() != Decision.Type.NO) {
                 return MoveDecision.remain(canRemain);
             }
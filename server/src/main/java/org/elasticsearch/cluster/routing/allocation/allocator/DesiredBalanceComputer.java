@@ -63,12 +63,27 @@ public class DesiredBalanceComputer {
         Setting.Property.NodeScope
     );
 
+    /**
+     * The number of generic threads that each iteration of the computation may use to make the allocation decisions that don't depend
+     * on each other, such as whether each started shard can remain on its current node. Only worth raising for very large clusters.
+     */
+    public static final Setting<Integer> PARALLELISM_SETTING = Setting.intSetting(
+        "cluster.routing.allocation.desired_balance.parallelism",
+        1,
+        1,
+        64,
+        Setting.Property.Dynamic,
+        Setting.Property.NodeScope
+    );
+
     private TimeValue progressLogInterval;
+    private volatile int parallelism;
 
     public DesiredBalanceComputer(ClusterSettings clusterSettings, ThreadPool threadPool, ShardsAllocator delegateAllocator) {
         this.threadPool = threadPool;
         this.delegateAllocator = delegateAllocator;
         clusterSettings.initializeAndWatch(PROGRESS_LOG_INTERVAL_SETTING, value -> this.progressLogInterval = value);
+        clusterSettings.initializeAndWatch(PARALLELISM_SETTING, value -> this.parallelism = value);
     }
 
     public DesiredBalance compute(
@@ -97,6 +112,10 @@ public class DesiredBalanceComputer {
         final var changes = routingAllocation.changes();
         final var ignoredShards = getIgnoredShardsWithDiscardedAllocationStatus(desiredBalanceInput.ignoredShards());
         final var clusterInfoSimulator = new ClusterInfoSimulator(routingAllocation);
+        final int parallelism = this.parallelism;
+        if (parallelism > 1) {
+            routingAllocation.setSimulationExecutor(threadPool.generic(), parallelism);
+        }
 
         if (routingNodes.size() == 0) {
             return new DesiredBalance(desiredBalanceInput.index(), Map.of());
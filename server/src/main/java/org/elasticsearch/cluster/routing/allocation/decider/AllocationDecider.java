@@ -50,6 +50,17 @@ public abstract class AllocationDecider {
         return Decision.ALWAYS;
     }
 
+    /**
+     * Returns {@code true} if {@link #canRemain} may be called concurrently by several threads against the same
+     * {@link RoutingAllocation}, which is how the desired balance computation decides whether shards must move off their
+     * current nodes. Implementations that return {@code true} must only read the allocation and must not populate any
+     * unsynchronized caches on the way.
+     * Deciders that don't override {@link #canRemain} are always safe to call concurrently. The default is {@code false}.
+     */
+    public boolean canRemainIsThreadSafe() {
+        return false;
+    }
+
     /**
      * Returns a {@link Decision} whether the given shard routing can be allocated at all at this state of the
      * {@link RoutingAllocation}. The default is {@link Decision#ALWAYS}.
@@ -19,6 +19,7 @@ import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.util.set.Sets;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
@@ -39,9 +40,33 @@ public class AllocationDeciders {
     );
 
     private final AllocationDecider[] deciders;
+    private final boolean canRemainIsThreadSafe;
 
     public AllocationDeciders(Collection<? extends AllocationDecider> deciders) {
         this.deciders = deciders.toArray(AllocationDecider[]::new);
+        this.canRemainIsThreadSafe = Arrays.stream(this.deciders).allMatch(AllocationDeciders::canRemainIsThreadSafe);
+    }
+
+    /**
+     * Returns {@code true} if {@link #canRemain} may be called concurrently for the same allocation, which is only the case if every
+     * decider either doesn't override {@link AllocationDecider#canRemain} or declares it thread safe, see
+     * {@link AllocationDecider#canRemainIsThreadSafe}.
+     */
+    public boolean canRemainIsThreadSafe() {
+        return canRemainIsThreadSafe;
+    }
+
+    private static boolean canRemainIsThreadSafe(AllocationDecider decider) {
+        if (decider.canRemainIsThreadSafe()) {
+            return true;
+        }
+        try {
+            return decider.getClass()
+                .getMethod("canRemain", IndexMetadata.class, ShardRouting.class, RoutingNode.class, RoutingAllocation.class)
+                .getDeclaringClass() == AllocationDecider.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
     }
 
     public Decision canAllocate(ShardRouting shardRouting, RoutingAllocation allocation) {
@@ -136,6 +136,11 @@ public class AwarenessAllocationDecider extends AllocationDecider {
         return underCapacity(indexMetadata, shardRouting, node, allocation, false);
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     private static final Decision YES_NOT_ENABLED = Decision.single(
         Decision.Type.YES,
         NAME,
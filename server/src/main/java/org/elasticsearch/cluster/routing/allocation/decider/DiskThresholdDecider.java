@@ -459,6 +459,11 @@ public class DiskThresholdDecider extends AllocationDecider {
         );
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     private static DiskUsageWithRelocations getDiskUsage(
         RoutingNode node,
         RoutingAllocation allocation,
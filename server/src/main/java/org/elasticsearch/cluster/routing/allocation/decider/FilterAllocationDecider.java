@@ -119,6 +119,11 @@ public class FilterAllocationDecider extends AllocationDecider {
         return shouldFilter(indexMetadata, node.node(), allocation);
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     @Override
     public Decision shouldAutoExpandToNode(IndexMetadata indexMetadata, DiscoveryNode node, RoutingAllocation allocation) {
         Decision decision = shouldClusterFilter(node, allocation);
@@ -46,6 +46,11 @@ public class NodeShutdownAllocationDecider extends AllocationDecider {
         return canAllocate(shardRouting, node, allocation);
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     /**
      * Prevents indices from being auto-expanded to nodes which are in the process of shutting down, regardless of whether they're shutting
      * down for restart or removal.
@@ -95,6 +95,11 @@ public class ShardsLimitAllocationDecider extends AllocationDecider {
 
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     private Decision doDecide(
         IndexMetadata indexMd,
         ShardRouting shardRouting,
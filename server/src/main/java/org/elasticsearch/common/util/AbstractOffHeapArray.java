@@ -0,0 +1,133 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.elasticsearch.common.util.PageCacheRecycler.BYTE_PAGE_SIZE;
+
+/**
+ * Common implementation for arrays that slice data into fixed-size pages allocated outside of the heap by
+ * {@link PageCacheRecycler#offHeapPage}. Pages are only allocated when they are first written to, until then
+ * they read as zeros. The pages are still accounted for with the circuit breaker like on-heap pages.
+ */
+abstract class AbstractOffHeapArray extends AbstractBigArray {
+
+    protected static final ByteBuffer ZERO_PAGE = ByteBuffer.allocateDirect(BYTE_PAGE_SIZE).asReadOnlyBuffer();
+
+    protected ByteBuffer[] pages;
+
+    protected AbstractOffHeapArray(int pageSize, BigArrays bigArrays, boolean clearOnResize, long size) {
+        super(pageSize, bigArrays, clearOnResize);
+        assert recycler != null && recycler.offHeap() : "off-heap pages aren't available";
+        this.size = size;
+        pages = new ByteBuffer[numPages(size)];
+        Arrays.fill(pages, ZERO_PAGE);
+    }
+
+    /** Estimates the number of bytes that would be consumed by an array of the given size. */
+    static long estimateRamBytes(final long size, final int bytesPerElement) {
+        // just like ramBytesEstimated, every page is BYTE_PAGE_SIZE bytes
+        final long bytes = size * bytesPerElement;
+        return (bytes + BYTE_PAGE_SIZE - 1) / BYTE_PAGE_SIZE * BYTE_PAGE_SIZE;
+    }
+
+    /** Change the size of this array. Content between indexes <code>0</code> and <code>min(size(), newSize)</code> will be preserved. */
+    @Override
+    public void resize(long newSize) {
+        final int numPages = numPages(newSize);
+        if (numPages > pages.length) {
+            pages = Arrays.copyOf(pages, ArrayUtil.oversize(numPages, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+        }
+        for (int i = numPages - 1; i >= 0 && pages[i] == null; --i) {
+            pages[i] = ZERO_PAGE;
+        }
+        for (int i = numPages; i < pages.length && pages[i] != null; ++i) {
+            if (pages[i] != ZERO_PAGE) {
+                releasePage(i);
+            }
+            pages[i] = null;
+        }
+        this.size = newSize;
+    }
+
+    protected final ByteBuffer getPageForWriting(int pageIndex) {
+        ByteBuffer foundPage = pages[pageIndex];
+        if (foundPage == ZERO_PAGE) {
+            foundPage = registerNewPage(recycler.offHeapPage(clearOnResize), pageIndex, BYTE_PAGE_SIZE);
+            pages[pageIndex] = foundPage;
+        }
+        return foundPage;
+    }
+
+    /**
+     * Fills a page with a value by copying it to itself, increasing copy ranges in each iteration
+     */
+    protected static void fillBySelfCopy(ByteBuffer page, int fromBytes, int toBytes, int initialCopyBytes) {
+        for (int pos = fromBytes + initialCopyBytes; pos < toBytes;) {
+            int sourceBytesLength = pos - fromBytes; // source bytes available to be copied
+            int copyBytesLength = Math.min(sourceBytesLength, toBytes - pos); // number of bytes to actually copy
+            page.put(pos, page, fromBytes, copyBytesLength);
+            pos += copyBytesLength;
+        }
+    }
+
+    /**
+     * Bulk copies array to paged array
+     */
+    protected void set(long index, byte[] buf, int offset, int len, int shift) {
+        assert index + len <= size();
+        int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        if (indexInPage + len <= pageSize()) {
+            getPageForWriting(pageIndex).put(indexInPage << shift, buf, offset << shift, len << shift);
+        } else {
+            int copyLen = pageSize() - indexInPage;
+            getPageForWriting(pageIndex).put(indexInPage << shift, buf, offset << shift, copyLen << shift);
+            do {
+                ++pageIndex;
+                offset += copyLen;
+                len -= copyLen;
+                copyLen = Math.min(len, pageSize());
+                getPageForWriting(pageIndex).put(0, buf, offset << shift, copyLen << shift);
+            } while (len > copyLen);
+        }
+    }
+
+    protected void writePages(StreamOutput out, int bytesPerValue) throws IOException {
+        int remainedBytes = Math.toIntExact(size * bytesPerValue);
+        out.writeVInt(remainedBytes);
+        final byte[] buffer = new byte[Math.min(remainedBytes, BYTE_PAGE_SIZE)];
+        for (int i = 0; i < pages.length && remainedBytes > 0; i++) {
+            int len = Math.min(remainedBytes, BYTE_PAGE_SIZE);
+            pages[i].get(0, buffer, 0, len);
+            out.writeBytes(buffer, 0, len);
+            remainedBytes -= len;
+        }
+    }
+
+    protected void readPages(StreamInput in) throws IOException {
+        int remainedBytes = in.readVInt();
+        final byte[] buffer = new byte[Math.min(remainedBytes, BYTE_PAGE_SIZE)];
+        for (int i = 0; i < pages.length && remainedBytes > 0; i++) {
+            int len = Math.min(remainedBytes, BYTE_PAGE_SIZE);
+            in.readBytes(buffer, 0, len);
+            getPageForWriting(i).put(0, buffer, 0, len);
+            remainedBytes -= len;
+        }
+    }
+}
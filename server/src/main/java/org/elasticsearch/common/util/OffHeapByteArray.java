@@ -0,0 +1,194 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.Streams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.elasticsearch.common.util.PageCacheRecycler.BYTE_PAGE_SIZE;
+
+/**
+ * Byte array abstraction able to support more than 2B values. Like {@link BigByteArray} but the pages live outside of the
+ * heap so reading slices always copies them, into a buffer that is reused when the same {@link BytesRef} is passed back.
+ */
+final class OffHeapByteArray extends AbstractOffHeapArray implements ByteArray {
+
+    /**
+     * The buffer we copied into for the first {@link BytesRef} passed to {@link #get(long, int, BytesRef)}. When that
+     * {@link BytesRef} comes back we copy into it again instead of allocating. Only ever handed to a single
+     * {@link BytesRef} so two references to slices of this array never share a buffer. Never larger than a page.
+     */
+    private byte[] scratch;
+
+    /** Constructor. */
+    OffHeapByteArray(long size, BigArrays bigArrays, boolean clearOnResize) {
+        super(BYTE_PAGE_SIZE, bigArrays, clearOnResize, size);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        writePages(out, Byte.BYTES);
+    }
+
+    @Override
+    public byte get(long index) {
+        final int pageIndex = pageIdx(index);
+        final int indexInPage = idxInPage(index);
+        return pages[pageIndex].get(indexInPage);
+    }
+
+    @Override
+    public void set(long index, byte value) {
+        final int pageIndex = pageIdx(index);
+        final int indexInPage = idxInPage(index);
+        getPageForWriting(pageIndex).put(indexInPage, value);
+    }
+
+    @Override
+    public boolean get(long index, int len, BytesRef ref) {
+        assert index + len <= size();
+        if (len == 0) {
+            ref.length = 0;
+            return false;
+        }
+        int pageIndex = pageIdx(index);
+        final int indexInPage = idxInPage(index);
+        // off-heap pages can't back a BytesRef so even reads within a page have to copy, but like BigByteArray we
+        // only report the slice as materialized when it crosses a page
+        ref.bytes = copyBuffer(ref.bytes, len);
+        ref.offset = 0;
+        ref.length = Math.min(len, BYTE_PAGE_SIZE - indexInPage);
+        pages[pageIndex].get(indexInPage, ref.bytes, 0, ref.length);
+        if (ref.length == len) {
+            return false;
+        }
+        do {
+            ++pageIndex;
+            final int copyLength = Math.min(BYTE_PAGE_SIZE, len - ref.length);
+            pages[pageIndex].get(0, ref.bytes, ref.length, copyLength);
+            ref.length += copyLength;
+        } while (ref.length < len);
+        return true;
+    }
+
+    private byte[] copyBuffer(byte[] current, int len) {
+        if (len > BYTE_PAGE_SIZE) {
+            return new byte[len];
+        }
+        if (current != null && current == scratch) {
+            return scratch;
+        }
+        if (scratch == null) {
+            scratch = new byte[BYTE_PAGE_SIZE];
+            return scratch;
+        }
+        return new byte[len];
+    }
+
+    @Override
+    public void set(long index, byte[] buf, int offset, int len) {
+        set(index, buf, offset, len, 0);
+    }
+
+    @Override
+    public void fill(long fromIndex, long toIndex, byte value) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException();
+        }
+        if (fromIndex == toIndex) {
+            return; // empty range
+        }
+        final int fromPage = pageIdx(fromIndex);
+        final int toPage = pageIdx(toIndex - 1);
+        if (fromPage == toPage) {
+            fill(getPageForWriting(fromPage), idxInPage(fromIndex), idxInPage(toIndex - 1) + 1, value);
+        } else {
+            fill(getPageForWriting(fromPage), idxInPage(fromIndex), BYTE_PAGE_SIZE, value);
+            for (int i = fromPage + 1; i < toPage; ++i) {
+                fill(getPageForWriting(i), 0, BYTE_PAGE_SIZE, value);
+            }
+            fill(getPageForWriting(toPage), 0, idxInPage(toIndex - 1) + 1, value);
+        }
+    }
+
+    private static void fill(ByteBuffer page, int from, int to, byte value) {
+        if (from < to) {
+            page.put(from, value);
+            fillBySelfCopy(page, from, to, Byte.BYTES);
+        }
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public byte[] array() {
+        assert false;
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BytesRefIterator iterator() {
+        return new BytesRefIterator() {
+            int i = 0;
+            long remained = size;
+            // BytesRefIterator allows reusing the returned BytesRef between calls to next
+            final BytesRef spare = new BytesRef(new byte[(int) Math.min(BYTE_PAGE_SIZE, size)]);
+
+            @Override
+            public BytesRef next() {
+                if (remained == 0) {
+                    return null;
+                }
+                ByteBuffer page = pages[i++];
+                int len = Math.toIntExact(Math.min(BYTE_PAGE_SIZE, remained));
+                remained -= len;
+                page.get(0, spare.bytes, 0, len);
+                spare.offset = 0;
+                spare.length = len;
+                return spare;
+            }
+        };
+    }
+
+    @Override
+    public void fillWith(InputStream in) throws IOException {
+        final byte[] buffer = new byte[BYTE_PAGE_SIZE];
+        long remained = size;
+        for (int i = 0; remained > 0; i++) {
+            int len = Math.toIntExact(Math.min(BYTE_PAGE_SIZE, remained));
+            Streams.readFully(in, buffer, 0, len);
+            getPageForWriting(i).put(0, buffer, 0, len);
+            remained -= len;
+        }
+    }
+
+    @Override
+    protected int numBytesPerElement() {
+        return 1;
+    }
+
+    private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(BYTE_PAGE_SIZE);
+
+    private static int pageIdx(long index) {
+        return (int) (index >>> PAGE_SHIFT);
+    }
+
+    private static int idxInPage(long index) {
+        return (int) (index & BYTE_PAGE_SIZE - 1);
+    }
+}
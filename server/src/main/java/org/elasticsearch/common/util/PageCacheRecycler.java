@@ -10,6 +10,8 @@
 package org.elasticsearch.common.util;
 
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.recycler.AbstractRecyclerC;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.Setting;
@@ -17,9 +19,15 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.recycler.Recyclers.concurrent;
 import static org.elasticsearch.common.recycler.Recyclers.concurrentDeque;
@@ -67,6 +75,33 @@ public class PageCacheRecycler {
         0d,
         Property.NodeScope
     );
+    /**
+     * Allocate the pages of large {@link BigArrays} outside of the heap. This keeps the state of
+     * large aggregations out of the old generation at the cost of slower access.
+     */
+    public static final Setting<Boolean> OFF_HEAP_SETTING = Setting.boolSetting(
+        "cache.recycler.page.off_heap",
+        false,
+        Property.NodeScope
+    );
+    public static final Setting<ByteSizeValue> LIMIT_OFF_HEAP_SETTING = Setting.memorySizeSetting(
+        "cache.recycler.page.limit.off_heap",
+        "10%",
+        Property.NodeScope
+    );
+    /**
+     * The most memory that off-heap pages may use at once. Off-heap pages aren't limited by the heap, they
+     * share {@code -XX:MaxDirectMemorySize} with the network layer instead, so they get their own limit. By
+     * default we take a quarter of the direct memory, or 10% of the heap if we can't tell how much that is.
+     */
+    public static final Setting<ByteSizeValue> MAX_OFF_HEAP_SETTING = Setting.memorySizeSetting(
+        "cache.recycler.page.max_off_heap",
+        s -> {
+            final long directMemoryMax = JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes();
+            return directMemoryMax > 0 ? ByteSizeValue.ofBytes(directMemoryMax / 4).getStringRep() : "10%";
+        },
+        Property.NodeScope
+    );
 
     /** Page size in bytes: 16KB */
     public static final int PAGE_SIZE_IN_BYTES = 1 << 14;
@@ -79,6 +114,10 @@ public class PageCacheRecycler {
 
     private final Recycler<byte[]> bytePage;
     private final Recycler<Object[]> objectPage;
+    @Nullable
+    private final Recycler<ByteBuffer> offHeapPage;
+    private final long maxOffHeapBytes;
+    private final AtomicLong offHeapBytesUsed = new AtomicLong();
 
     public static final PageCacheRecycler NON_RECYCLING_INSTANCE;
 
@@ -136,6 +175,49 @@ public class PageCacheRecycler {
         });
 
         assert PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxObjectPageCount) <= limit;
+
+        if (OFF_HEAP_SETTING.get(settings)) {
+            // off-heap pages that we don't keep are only freed once the garbage collector notices their buffer is unreachable,
+            // so it's important to recycle plenty of them
+            final long offHeapLimit = LIMIT_OFF_HEAP_SETTING.get(settings).getBytes();
+            maxOffHeapBytes = MAX_OFF_HEAP_SETTING.get(settings).getBytes();
+            final long directMemoryMax = JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes();
+            if (directMemoryMax > 0 && maxOffHeapBytes + offHeapLimit > directMemoryMax) {
+                throw new IllegalArgumentException(
+                    "["
+                        + MAX_OFF_HEAP_SETTING.getKey()
+                        + "] and ["
+                        + LIMIT_OFF_HEAP_SETTING.getKey()
+                        + "] must add up to at most the maximum direct memory ["
+                        + ByteSizeValue.ofBytes(directMemoryMax)
+                        + "] but were ["
+                        + ByteSizeValue.ofBytes(maxOffHeapBytes)
+                        + "] and ["
+                        + ByteSizeValue.ofBytes(offHeapLimit)
+                        + "]"
+                );
+            }
+            final int maxOffHeapPageCount = (int) Math.min(Integer.MAX_VALUE, offHeapLimit / PAGE_SIZE_IN_BYTES);
+            offHeapPage = build(type, maxOffHeapPageCount, allocatedProcessors, new AbstractRecyclerC<>() {
+                @Override
+                public ByteBuffer newInstance() {
+                    return ByteBuffer.allocateDirect(BYTE_PAGE_SIZE).order(ByteOrder.nativeOrder());
+                }
+
+                @Override
+                public void recycle(ByteBuffer value) {
+                    // nothing to do
+                }
+
+                @Override
+                public int pageSize() {
+                    return BYTE_PAGE_SIZE;
+                }
+            });
+        } else {
+            offHeapPage = null;
+            maxOffHeapBytes = 0;
+        }
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -146,6 +228,80 @@ public class PageCacheRecycler {
         return v;
     }
 
+    /**
+     * Should {@link BigArrays} allocate their pages with {@link #offHeapPage}?
+     */
+    public boolean offHeap() {
+        return offHeapPage != null;
+    }
+
+    /**
+     * Obtain a page of {@link #BYTE_PAGE_SIZE} bytes outside of the heap in native byte order.
+     * Only available if {@link #offHeap()}.
+     *
+     * @throws CircuitBreakingException if the pages in use would take more than {@link #MAX_OFF_HEAP_SETTING}
+     */
+    public Recycler.V<ByteBuffer> offHeapPage(boolean clear) {
+        final long used = offHeapBytesUsed.addAndGet(BYTE_PAGE_SIZE);
+        if (used > maxOffHeapBytes) {
+            offHeapBytesUsed.addAndGet(-BYTE_PAGE_SIZE);
+            throw new CircuitBreakingException(
+                "[off_heap_pages] Data too large, off-heap pages would use ["
+                    + used
+                    + "/"
+                    + ByteSizeValue.ofBytes(used)
+                    + "], which is larger than the limit of ["
+                    + maxOffHeapBytes
+                    + "/"
+                    + ByteSizeValue.ofBytes(maxOffHeapBytes)
+                    + "] set by ["
+                    + MAX_OFF_HEAP_SETTING.getKey()
+                    + "]",
+                BYTE_PAGE_SIZE,
+                maxOffHeapBytes,
+                CircuitBreaker.Durability.TRANSIENT
+            );
+        }
+        final Recycler.V<ByteBuffer> v;
+        try {
+            v = offHeapPage.obtain();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            offHeapBytesUsed.addAndGet(-BYTE_PAGE_SIZE);
+            throw e;
+        }
+        if (v.isRecycled() && clear) {
+            v.v().put(0, AbstractBigByteArray.ZERO_PAGE, 0, BYTE_PAGE_SIZE);
+        }
+        return new Recycler.V<>() {
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            @Override
+            public ByteBuffer v() {
+                return v.v();
+            }
+
+            @Override
+            public boolean isRecycled() {
+                return v.isRecycled();
+            }
+
+            @Override
+            public void close() {
+                if (closed.compareAndSet(false, true)) {
+                    offHeapBytesUsed.addAndGet(-BYTE_PAGE_SIZE);
+                }
+                v.close();
+            }
+        };
+    }
+
+    /**
+     * The number of bytes used by the off-heap pages that are currently in use.
+     */
+    public long offHeapBytesUsed() {
+        return offHeapBytesUsed.get();
+    }
+
     public Recycler.V<Object[]> objectPage() {
         // object pages are cleared on release anyway
         return objectPage.obtain();
@@ -209,6 +209,72 @@ public class EsExecutors {
         }
     }
 
+    /**
+     * Creates an executor that runs each task on a virtual thread. Up to {@code maxConcurrency} tasks run at once and the rest wait
+     * in a queue of {@code queueCapacity} tasks, or an unbounded queue if {@code queueCapacity} is negative. Idle threads are
+     * discarded after {@code keepAliveTime} so the pool holds no threads at all when it has nothing to do.
+     * <p>
+     * This is a regular {@link EsThreadPoolExecutor} so queueing, rejection and stats work the same way as they do for
+     * {@link #newFixed} and {@link #newScaling}. Virtual threads are cheap to create and park, which makes it sensible to allow
+     * thousands of concurrent tasks for pools that spend most of their time blocked on disk or network I/O. They are not a good
+     * fit for CPU-bound work or for work that blocks while holding a monitor, which pins the carrier thread.
+     */
+    public static EsThreadPoolExecutor newVirtual(
+        String name,
+        int maxConcurrency,
+        int queueCapacity,
+        long keepAliveTime,
+        TimeUnit unit,
+        boolean rejectAfterShutdown,
+        ThreadFactory threadFactory,
+        ThreadContext contextHolder,
+        TaskTrackingConfig config
+    ) {
+        final BlockingQueue<Runnable> queue;
+        final EsRejectedExecutionHandler rejectedExecutionHandler;
+        if (queueCapacity < 0) {
+            // with core == max the scaling queue never refuses a task, ForceQueuePolicy only kicks in after shutdown
+            queue = new ExecutorScalingQueue<>();
+            rejectedExecutionHandler = new ForceQueuePolicy(rejectAfterShutdown);
+        } else {
+            queue = new SizeBlockingQueue<>(ConcurrentCollections.<Runnable>newBlockingQueue(), queueCapacity);
+            rejectedExecutionHandler = new EsAbortPolicy();
+        }
+        final EsThreadPoolExecutor executor;
+        if (config.trackExecutionTime()) {
+            executor = new TaskExecutionTimeTrackingEsThreadPoolExecutor(
+                name,
+                maxConcurrency,
+                maxConcurrency,
+                keepAliveTime,
+                unit,
+                queue,
+                TimedRunnable::new,
+                threadFactory,
+                rejectedExecutionHandler,
+                contextHolder,
+                config
+            );
+        } else {
+            executor = new EsThreadPoolExecutor(
+                name,
+                maxConcurrency,
+                maxConcurrency,
+                keepAliveTime,
+                unit,
+                queue,
+                threadFactory,
+                rejectedExecutionHandler,
+                contextHolder
+            );
+        }
+        executor.allowCoreThreadTimeOut(true);
+        if (queue instanceof ExecutorScalingQueue<Runnable> scalingQueue) {
+            scalingQueue.executor = executor;
+        }
+        return executor;
+    }
+
     /**
      * Checks if the runnable arose from asynchronous submission of a task to an executor. If an uncaught exception was thrown
      * during the execution of this task, we need to inspect this runnable and see if it is an error that should be propagated
@@ -338,6 +404,14 @@ public class EsExecutors {
         return new EsThreadFactory(namePrefix);
     }
 
+    /**
+     * A {@link ThreadFactory} for virtual threads. The threads are named like the ones from {@link #daemonThreadFactory} so
+     * {@link #executorName(Thread)} works for them too.
+     */
+    public static ThreadFactory virtualThreadFactory(String namePrefix) {
+        return new EsVirtualThreadFactory(namePrefix);
+    }
+
     static class EsThreadFactory implements ThreadFactory {
 
         final ThreadGroup group;
@@ -361,6 +435,22 @@ public class EsExecutors {
 
     }
 
+    static class EsVirtualThreadFactory implements ThreadFactory {
+
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        final String namePrefix;
+
+        EsVirtualThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return Thread.ofVirtual().name(namePrefix + "[T#" + threadNumber.getAndIncrement() + "]").unstarted(r);
+        }
+
+    }
+
     /**
      * Cannot instantiate.
      */
@@ -107,6 +107,15 @@ public final class IndexSettings {
         Property.Dynamic,
         Property.IndexScope
     );
+    /**
+     * Whether the translog starts writing its operations back to disk as soon as they are written to the file rather than leaving all
+     * of them to the next fsync, see {@link org.elasticsearch.nativeaccess.FileWriteback}. Only supported on Linux.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_WRITE_BEHIND_SETTING = Setting.boolSetting(
+        "index.translog.write_behind",
+        false,
+        Property.IndexScope
+    );
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING = Setting.boolSetting(
         "index.warmer.enabled",
         true,
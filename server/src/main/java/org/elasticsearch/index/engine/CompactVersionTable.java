@@ -0,0 +1,364 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * A concurrent hash table from _uid to the version of the last index operation on it, used by {@link LiveVersionMap} to track the
+ * operations of a refresh cycle. Rather than a {@link BytesRef}, a {@link VersionValue} and a map entry per uid, the uids are copied
+ * into a byte slab and the versions, sequence numbers and terms are packed into primitive arrays, which takes well under half the
+ * heap of a {@link java.util.concurrent.ConcurrentHashMap} for update heavy workloads.
+ * <p>
+ * The table is split into stripes on the hash of the uid, each stripe being an open addressing table guarded by its own lock. Values
+ * are returned as new {@link IndexVersionValue} instances.
+ */
+public final class CompactVersionTable {
+
+    private static final int STRIPE_BITS = 5;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    /**
+     * Bytes used per entry, not counting the uid bytes and the translog location if there is one: the version, sequence number and
+     * term, the hash, offset and length of the uid, the reference to the translog location, and the slots of the open addressing
+     * table, which is between one quarter and one half full.
+     */
+    static final long BYTES_PER_ENTRY = 3 * Long.BYTES + 3 * Integer.BYTES + RamUsageEstimator.NUM_BYTES_OBJECT_REF + 3 * Integer.BYTES;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public CompactVersionTable() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of uids the table is expected to hold, used to size the table up front
+     */
+    public CompactVersionTable(int expectedSize) {
+        final int expectedStripeSize = expectedSize / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(expectedStripeSize);
+        }
+    }
+
+    /**
+     * Returns the version of the given uid, or {@code null} if the table doesn't hold it.
+     */
+    @Nullable
+    public VersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return stripe(hash).get(uid, hash);
+    }
+
+    /**
+     * Sets the version of the given uid.
+     *
+     * @return the previous version of the uid, or {@code null} if the table didn't hold it
+     */
+    @Nullable
+    public VersionValue put(BytesRef uid, long version, long seqNo, long term, @Nullable Translog.Location location) {
+        final int hash = uid.hashCode();
+        return stripe(hash).put(uid, hash, version, seqNo, term, location);
+    }
+
+    /**
+     * Removes the given uid.
+     *
+     * @return the version of the uid, or {@code null} if the table didn't hold it
+     */
+    @Nullable
+    public VersionValue remove(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return stripe(hash).remove(uid, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calls the consumer with a copy of each uid and its version. Each stripe is locked while its entries are visited, so the
+     * consumer must not modify this table.
+     */
+    public void forEach(BiConsumer<BytesRef, VersionValue> consumer) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns the bytes used by an entry of this table.
+     */
+    static long entryBytesUsed(BytesRef uid, @Nullable Translog.Location location) {
+        return BYTES_PER_ENTRY + uid.length + RamUsageEstimator.shallowSizeOf(location);
+    }
+
+    private Stripe stripe(int hash) {
+        // the slots of a stripe are picked with the low bits of the hash
+        return stripes[hash >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    private static final class Stripe {
+
+        private static final int[] EMPTY_INTS = new int[0];
+        private static final long[] EMPTY_LONGS = new long[0];
+
+        /** index of the entry plus one, or zero for an empty slot. Its length is a power of two. */
+        private int[] slots = EMPTY_INTS;
+
+        // entries, the first size of them are used
+        private int[] hashes = EMPTY_INTS;
+        private int[] keyOffsets = EMPTY_INTS;
+        private int[] keyLengths = EMPTY_INTS;
+        private long[] versions = EMPTY_LONGS;
+        private long[] seqNos = EMPTY_LONGS;
+        private long[] terms = EMPTY_LONGS;
+        // only allocated once a translog location is stored
+        private Translog.Location[] locations = null;
+        private int size = 0;
+
+        // the uids, including the ones of removed entries until the slab is compacted
+        private byte[] keys = BytesRef.EMPTY_BYTES;
+        private int keysUsed = 0;
+        private int keysRemoved = 0;
+
+        Stripe(int expectedSize) {
+            if (expectedSize > 0) {
+                slots = new int[slotsFor(expectedSize)];
+                resizeEntries(expectedSize);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            if (size == 0) {
+                return null;
+            }
+            final int slot = findSlot(uid, hash);
+            return slot < 0 ? null : valueOf(slots[slot] - 1);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, long version, long seqNo, long term, Translog.Location location) {
+            if (slots.length == 0) {
+                slots = new int[slotsFor(1)];
+            }
+            int slot = findSlot(uid, hash);
+            final VersionValue previous;
+            final int entry;
+            if (slot >= 0) {
+                entry = slots[slot] - 1;
+                previous = valueOf(entry);
+            } else {
+                previous = null;
+                entry = size;
+                if (entry == versions.length) {
+                    resizeEntries(ArrayUtil.oversize(entry + 1, Long.BYTES));
+                }
+                ensureKeyCapacity(uid.length);
+                System.arraycopy(uid.bytes, uid.offset, keys, keysUsed, uid.length);
+                hashes[entry] = hash;
+                keyOffsets[entry] = keysUsed;
+                keyLengths[entry] = uid.length;
+                keysUsed += uid.length;
+                slots[-slot - 1] = entry + 1;
+                size++;
+            }
+            versions[entry] = version;
+            seqNos[entry] = seqNo;
+            terms[entry] = term;
+            if (location != null && locations == null) {
+                locations = new Translog.Location[versions.length];
+            }
+            if (locations != null) {
+                locations[entry] = location;
+            }
+            if (slots.length < slotsFor(size)) {
+                rehash(slots.length << 1);
+            }
+            return previous;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int hash) {
+            if (size == 0) {
+                return null;
+            }
+            final int slot = findSlot(uid, hash);
+            if (slot < 0) {
+                return null;
+            }
+            final int entry = slots[slot] - 1;
+            final VersionValue previous = valueOf(entry);
+            clearSlot(slot);
+            keysRemoved += keyLengths[entry];
+
+            // move the last entry into the removed one so that entries stay dense
+            final int last = size - 1;
+            if (entry != last) {
+                int lastSlot = hashes[last] & (slots.length - 1);
+                while (slots[lastSlot] != last + 1) {
+                    lastSlot = (lastSlot + 1) & (slots.length - 1);
+                }
+                slots[lastSlot] = entry + 1;
+                hashes[entry] = hashes[last];
+                keyOffsets[entry] = keyOffsets[last];
+                keyLengths[entry] = keyLengths[last];
+                versions[entry] = versions[last];
+                seqNos[entry] = seqNos[last];
+                terms[entry] = terms[last];
+                if (locations != null) {
+                    locations[entry] = locations[last];
+                }
+            }
+            if (locations != null) {
+                locations[last] = null;
+            }
+            size = last;
+            if (size == 0) {
+                keysUsed = 0;
+                keysRemoved = 0;
+            }
+            return previous;
+        }
+
+        synchronized void forEach(BiConsumer<BytesRef, VersionValue> consumer) {
+            for (int entry = 0; entry < size; entry++) {
+                final int offset = keyOffsets[entry];
+                consumer.accept(new BytesRef(Arrays.copyOfRange(keys, offset, offset + keyLengths[entry])), valueOf(entry));
+            }
+        }
+
+        private VersionValue valueOf(int entry) {
+            final Translog.Location location = locations == null ? null : locations[entry];
+            return new IndexVersionValue(location, versions[entry], seqNos[entry], terms[entry]);
+        }
+
+        /**
+         * Returns the slot of the entry of the given uid, or {@code -slot - 1} where {@code slot} is the empty slot where it would be
+         * inserted.
+         */
+        private int findSlot(BytesRef uid, int hash) {
+            final int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (true) {
+                final int entry = slots[slot] - 1;
+                if (entry < 0) {
+                    return -slot - 1;
+                }
+                if (hashes[entry] == hash) {
+                    final int offset = keyOffsets[entry];
+                    if (Arrays.equals(keys, offset, offset + keyLengths[entry], uid.bytes, uid.offset, uid.offset + uid.length)) {
+                        return slot;
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Empties a slot, shifting back the entries that follow it and that can't be found anymore once it's empty.
+         */
+        private void clearSlot(int slot) {
+            final int mask = slots.length - 1;
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                final int entry = slots[next] - 1;
+                if (entry < 0) {
+                    break;
+                }
+                // the entry can move into the hole unless its ideal slot lies between the hole and where it is now
+                final int ideal = hashes[entry] & mask;
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    slots[hole] = slots[next];
+                    hole = next;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private void rehash(int newLength) {
+            final int mask = newLength - 1;
+            final int[] newSlots = new int[newLength];
+            for (int entry = 0; entry < size; entry++) {
+                int slot = hashes[entry] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = entry + 1;
+            }
+            slots = newSlots;
+        }
+
+        private void resizeEntries(int length) {
+            hashes = Arrays.copyOf(hashes, length);
+            keyOffsets = Arrays.copyOf(keyOffsets, length);
+            keyLengths = Arrays.copyOf(keyLengths, length);
+            versions = Arrays.copyOf(versions, length);
+            seqNos = Arrays.copyOf(seqNos, length);
+            terms = Arrays.copyOf(terms, length);
+            if (locations != null) {
+                locations = Arrays.copyOf(locations, length);
+            }
+        }
+
+        private void ensureKeyCapacity(int length) {
+            if (keysUsed + length <= keys.length) {
+                return;
+            }
+            if (keysRemoved == 0) {
+                keys = ArrayUtil.grow(keys, keysUsed + length);
+                return;
+            }
+            // drop the uids of the removed entries while growing the slab
+            final int live = keysUsed - keysRemoved;
+            final byte[] newKeys = new byte[ArrayUtil.oversize(live + length, Byte.BYTES)];
+            int newKeysUsed = 0;
+            for (int entry = 0; entry < size; entry++) {
+                System.arraycopy(keys, keyOffsets[entry], newKeys, newKeysUsed, keyLengths[entry]);
+                keyOffsets[entry] = newKeysUsed;
+                newKeysUsed += keyLengths[entry];
+            }
+            keys = newKeys;
+            keysUsed = newKeysUsed;
+            keysRemoved = 0;
+        }
+
+        /**
+         * Returns the number of slots to hold the given number of entries, so that the table is at most half full.
+         */
+        private static int slotsFor(int entries) {
+            return Math.max(8, Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1);
+        }
+    }
+}
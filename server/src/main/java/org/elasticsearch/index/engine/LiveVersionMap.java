@@ -18,7 +18,7 @@ import org.elasticsearch.common.util.concurrent.KeyedLock;
 import org.elasticsearch.core.Releasable;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -39,13 +39,11 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
 
     public static final class VersionLookup {
 
-        /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones,
-         *  we only account for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not
-         *  clear this from RAM. */
+        /** Tracks bytes used by current map, i.e. what is freed on refresh. */
         final AtomicLong ramBytesUsed = new AtomicLong();
 
-        private static final VersionLookup EMPTY = new VersionLookup(Collections.emptyMap());
-        private final Map<BytesRef, VersionValue> map;
+        private static final VersionLookup EMPTY = new VersionLookup();
+        private final CompactVersionTable map;
 
         // each version map has a notion of safe / unsafe which allows us to apply certain optimization in the auto-generated ID usecase
         // where we know that documents can't have any duplicates so we can skip the version map entirely. This reduces
@@ -65,19 +63,17 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
 
         // Modifies the map of this instance by merging with the given VersionLookup
         public void merge(VersionLookup versionLookup) {
-            long existingEntriesSize = 0;
-            for (var entry : versionLookup.map.entrySet()) {
-                var existingValue = map.get(entry.getKey());
-                existingEntriesSize += existingValue == null ? 0 : mapEntryBytesUsed(entry.getKey(), existingValue);
-            }
-            map.putAll(versionLookup.map);
-            adjustRamUsage(versionLookup.ramBytesUsed() - existingEntriesSize);
+            versionLookup.map.forEach(this::put);
             minDeleteTimestamp.accumulateAndGet(versionLookup.minDeleteTimestamp(), Math::min);
         }
 
         // Visible for testing
-        VersionLookup(Map<BytesRef, VersionValue> map) {
-            this.map = map;
+        VersionLookup() {
+            this(0);
+        }
+
+        VersionLookup(int expectedSize) {
+            this.map = new CompactVersionTable(expectedSize);
         }
 
         public VersionValue get(BytesRef key) {
@@ -85,8 +81,9 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         }
 
         VersionValue put(BytesRef key, VersionValue value) {
+            assert value.isDelete() == false : "deletes are tracked in the tombstones";
             long ramAccounting = mapEntryBytesUsed(key, value);
-            VersionValue previousValue = map.put(key, value);
+            VersionValue previousValue = map.put(key, value.version, value.seqNo, value.term, value.getLocation());
             ramAccounting += previousValue == null ? 0 : -mapEntryBytesUsed(key, previousValue);
             adjustRamUsage(ramAccounting);
             return previousValue;
@@ -136,12 +133,16 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         }
 
         public static long mapEntryBytesUsed(BytesRef key, VersionValue value) {
-            return (BASE_BYTES_PER_BYTESREF + key.bytes.length) + (BASE_BYTES_PER_CHM_ENTRY + value.ramBytesUsed());
+            return CompactVersionTable.entryBytesUsed(key, value.getLocation());
         }
 
-        // Used only for testing
+        /**
+         * Returns a point in time snapshot of the entries. Used only for testing.
+         */
         Map<BytesRef, VersionValue> getMap() {
-            return map;
+            Map<BytesRef, VersionValue> snapshot = new HashMap<>();
+            map.forEach(snapshot::put);
+            return snapshot;
         }
     }
 
@@ -165,7 +166,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
         }
 
         Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()), VersionLookup.EMPTY, false);
+            this(new VersionLookup(), VersionLookup.EMPTY, false);
         }
 
         boolean isSafeAccessMode() {
@@ -183,11 +184,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
          * Builds a new map for the refresh transition this should be called in beforeRefresh()
          */
         Maps buildTransitionMap() {
-            return new Maps(
-                new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())),
-                current,
-                shouldInheritSafeAccess()
-            );
+            return new Maps(new VersionLookup(current.size()), current, shouldInheritSafeAccess());
         }
 
         /**
@@ -519,7 +516,7 @@ public final class LiveVersionMap implements ReferenceManager.RefreshListener, A
      * Returns the current internal versions as a point in time snapshot
      */
     Map<BytesRef, VersionValue> getAllCurrent() {
-        return maps.current.map;
+        return maps.current.getMap();
     }
 
     /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones
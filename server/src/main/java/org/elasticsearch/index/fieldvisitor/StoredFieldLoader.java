@@ -29,12 +29,19 @@ import java.util.Set;
  */
 public abstract class StoredFieldLoader {
 
+    /**
+     * The largest gap between two docs for them to count as close enough to share a compressed block of stored fields.
+     */
+    static final int MAX_CLUSTERED_DOC_GAP = 16;
+
     /**
      * Return a {@link LeafStoredFieldLoader} for the given segment and document set
      *
      * The loader will use an internal lucene merge reader if the document set is of
-     * sufficient size and is contiguous.  Callers may pass {@code null} if the set
-     * is not known up front or if the merge reader optimisation will not apply.
+     * sufficient size and its documents are mostly close to each other, as the merge
+     * reader decompresses each block of stored fields once for all the documents in it.
+     * Callers may pass {@code null} if the set is not known up front or if the merge
+     * reader optimisation will not apply.
      */
     public abstract LeafStoredFieldLoader getLoader(LeafReaderContext ctx, int[] docs) throws IOException;
 
@@ -131,7 +138,7 @@ public abstract class StoredFieldLoader {
 
     private static CheckedBiConsumer<Integer, FieldsVisitor, IOException> reader(LeafReaderContext ctx, int[] docs) throws IOException {
         LeafReader leafReader = ctx.reader();
-        if (docs != null && docs.length > 10 && hasSequentialDocs(docs)) {
+        if (docs != null && useSequentialReader(docs)) {
             return sequentialReader(ctx);
         }
         StoredFields storedFields = leafReader.storedFields();
@@ -157,8 +164,23 @@ public abstract class StoredFieldLoader {
         return fieldsToLoad.stream().sorted().toList();
     }
 
-    private static boolean hasSequentialDocs(int[] docs) {
-        return docs.length > 0 && docs[docs.length - 1] - docs[0] == docs.length - 1;
+    /**
+     * Whether to read the given sorted docs with the merge reader. A regular reader decompresses a block up to the requested
+     * document for every document it reads, while the merge reader decompresses the whole block once and then reads the
+     * following documents of the block from memory. That only pays off if most documents share their block with the previous one.
+     */
+    static boolean useSequentialReader(int[] docs) {
+        if (docs.length <= 10) {
+            return false;
+        }
+        int clustered = 0;
+        for (int i = 1; i < docs.length; i++) {
+            int gap = docs[i] - docs[i - 1];
+            if (gap > 0 && gap <= MAX_CLUSTERED_DOC_GAP) {
+                clustered++;
+            }
+        }
+        return clustered * 2 >= docs.length;
     }
 
     private static class EmptyStoredFieldLoader implements LeafStoredFieldLoader {
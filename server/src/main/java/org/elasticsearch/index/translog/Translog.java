@@ -109,6 +109,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final List<TranslogReader> readers = new ArrayList<>();
     private final BigArrays bigArrays;
     private final DiskIoBufferPool diskIoBufferPool;
+    private final boolean writeBehind;
     protected final Lock readLock;
     protected final Lock writeLock;
     private final Path location;
@@ -162,6 +163,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         this.translogUUID = translogUUID;
         this.bigArrays = config.getBigArrays();
         this.diskIoBufferPool = config.getDiskIoBufferPool();
+        this.writeBehind = indexSettings.getValue(IndexSettings.INDEX_TRANSLOG_WRITE_BEHIND_SETTING);
         var rwl = new ReentrantReadWriteLock();
         this.readLock = rwl.readLock();
         this.writeLock = rwl.writeLock();
@@ -582,7 +584,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 bigArrays,
                 diskIoBufferPool,
                 operationListener,
-                config.fsync()
+                config.fsync(),
+                writeBehind
             );
         } catch (final IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
@@ -1958,7 +1961,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             BigArrays.NON_RECYCLING_INSTANCE,
             DiskIoBufferPool.INSTANCE,
             TranslogConfig.NOOP_OPERATION_LISTENER,
-            true
+            true,
+            false
         );
         writer.close();
         return uuid;
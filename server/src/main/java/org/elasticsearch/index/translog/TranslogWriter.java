@@ -23,11 +23,14 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.core.Assertions;
 import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.core.SuppressForbidden;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.nativeaccess.FileWriteback;
+import org.elasticsearch.nativeaccess.NativeAccess;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -85,6 +88,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     private final Map<Long, Tuple<BytesReference, Exception>> seenSequenceNumbers;
 
     private final DiskIoBufferPool diskIoBufferPool;
+    // starts writing back the ops written to the file ahead of the next fsync, null if not enabled or not supported
+    @Nullable
+    private final FileWriteback writeback;
 
     // package private for testing
     LastModifiedTimeCache lastModifiedTimeCache;
@@ -108,7 +114,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         BigArrays bigArrays,
         DiskIoBufferPool diskIoBufferPool,
         OperationListener operationListener,
-        boolean fsync
+        boolean fsync,
+        @Nullable FileWriteback writeback
     ) throws IOException {
         super(initialCheckpoint.generation, channel, path, header);
         assert initialCheckpoint.offset == channel.position()
@@ -137,6 +144,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         this.tragedy = tragedy;
         this.operationListener = operationListener;
         this.fsync = fsync;
+        this.writeback = writeback;
         this.lastModifiedTimeCache = new LastModifiedTimeCache(-1, -1, -1);
     }
 
@@ -157,12 +165,14 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         BigArrays bigArrays,
         DiskIoBufferPool diskIoBufferPool,
         OperationListener operationListener,
-        boolean fsync
+        boolean fsync,
+        boolean writeBehind
     ) throws IOException {
         final Path checkpointFile = file.getParent().resolve(Translog.CHECKPOINT_FILE_NAME);
 
         final FileChannel channel = channelFactory.open(file);
         FileChannel checkpointChannel = null;
+        FileWriteback writeback = null;
         try {
             checkpointChannel = channelFactory.open(checkpointFile, StandardOpenOption.WRITE);
             final TranslogHeader header = new TranslogHeader(translogUUID, primaryTerm);
@@ -185,6 +195,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
             } else {
                 writerGlobalCheckpointSupplier = globalCheckpointSupplier;
             }
+            if (fsync && writeBehind) {
+                writeback = NativeAccess.instance().openWriteback(file);
+            }
             return new TranslogWriter(
                 shardId,
                 checkpoint,
@@ -201,13 +214,14 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                 bigArrays,
                 diskIoBufferPool,
                 operationListener,
-                fsync
+                fsync,
+                writeback
             );
         } catch (Exception exception) {
             // if we fail to bake the file-generation into the checkpoint we stick with the file and once we recover and that
             // file exists we remove it. We only apply this logic to the checkpoint.generation+1 any other file with a higher generation
             // is an error condition
-            IOUtils.closeWhileHandlingException(channel, checkpointChannel);
+            IOUtils.closeWhileHandlingException(channel, checkpointChannel, writeback);
             throw exception;
         }
     }
@@ -416,7 +430,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                     assert totalOffset == lastSyncedCheckpoint.offset;
                     if (closed.compareAndSet(false, true)) {
                         try {
-                            checkpointChannel.close();
+                            IOUtils.close(checkpointChannel, writeback);
                         } catch (final Exception ex) {
                             closeWithTragicEvent(ex);
                             throw ex;
@@ -534,7 +548,11 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         try (ReleasableLock locked = blockOnExistingWriter ? writeLock.acquire() : writeLock.tryAcquire()) {
             try {
                 if (locked != null && offset > getWrittenOffset()) {
+                    final long writeOffset = writeback == null ? -1 : getWrittenOffset();
                     writeAndReleaseOps(pollOpsToWrite());
+                    if (writeback != null) {
+                        startWriteback(writeOffset, getWrittenOffset());
+                    }
                 }
             } catch (Exception e) {
                 closeWithTragicEvent(e);
@@ -543,6 +561,14 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         }
     }
 
+    private void startWriteback(long from, long to) {
+        assert writeLock.isHeldByCurrentThread();
+        // a zero length would start the writeback of the file up to its end
+        if (to > from) {
+            writeback.start(from, to - from);
+        }
+    }
+
     private synchronized ReleasableBytesReference pollOpsToWrite() {
         ensureOpen();
         if (this.buffer != null) {
@@ -649,7 +675,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                 buffer = null;
                 bufferedBytes = 0;
             }
-            IOUtils.close(checkpointChannel, channel);
+            IOUtils.close(checkpointChannel, channel, writeback);
         }
     }
 
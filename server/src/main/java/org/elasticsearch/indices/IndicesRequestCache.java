@@ -10,6 +10,8 @@
 package org.elasticsearch.indices;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.CheckedSupplier;
@@ -60,6 +62,17 @@ public final class IndicesRequestCache implements Closeable {
         Property.Dynamic,
         Property.IndexScope
     );
+    /**
+     * A setting to also cache the aggregation results of each segment of a shard, so that a request whose shard level result was
+     * invalidated by a refresh only needs to collect the segments that changed. Its dynamic for the same reason as
+     * {@link #INDEX_CACHE_REQUEST_ENABLED_SETTING}.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING = Setting.boolSetting(
+        "index.requests.cache.per_segment",
+        false,
+        Property.Dynamic,
+        Property.IndexScope
+    );
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE = Setting.memorySizeSetting(
         "indices.requests.cache.size",
         "1%",
@@ -111,14 +124,7 @@ public final class IndicesRequestCache implements Closeable {
         BytesReference value = cache.computeIfAbsent(key, cacheLoader);
         if (cacheLoader.isLoaded()) {
             key.entity.onMiss();
-            // see if its the first time we see this reader, and make sure to register a cleanup key
-            CleanupKey cleanupKey = new CleanupKey(cacheEntity, cacheHelper.getKey());
-            if (registeredClosedListeners.containsKey(cleanupKey) == false) {
-                Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
-                if (previous == null) {
-                    cacheHelper.addClosedListener(cleanupKey);
-                }
-            }
+            registerClosedListener(cacheEntity, cacheHelper);
             /*
              * Note that we don't use a closed listener for the mapping. Instead
              * we let cache entries for out of date mappings age out. We do this
@@ -134,6 +140,52 @@ public final class IndicesRequestCache implements Closeable {
         return value;
     }
 
+    /**
+     * Returns the value cached for the given segment of a shard, or {@code null} if there is none. Unlike
+     * {@link #getOrCompute}, the value of a segment is computed as part of the collection of the whole shard, so it's
+     * {@link #putForLeaf put} separately once collected. The request was already counted as a miss by the shard level lookup, so
+     * the lookups of its segments don't count as hits or misses of the request cache.
+     */
+    BytesReference getForLeaf(CacheEntity cacheEntity, MappingLookup.CacheKey mappingCacheKey, LeafReader reader, BytesReference cacheKey) {
+        final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        return cache.get(new Key(cacheEntity, mappingCacheKey, cacheHelper.getKey(), cacheKey));
+    }
+
+    /**
+     * Caches the value computed for the given segment of a shard, until the segment is closed or its deletes change.
+     */
+    void putForLeaf(
+        CacheEntity cacheEntity,
+        MappingLookup.CacheKey mappingCacheKey,
+        LeafReader reader,
+        BytesReference cacheKey,
+        BytesReference value
+    ) {
+        final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return;
+        }
+        final Key key = new Key(cacheEntity, mappingCacheKey, cacheHelper.getKey(), cacheKey);
+        // a concurrent request may have cached the same segment already, replacing its value keeps the stats right
+        cache.put(key, value);
+        cacheEntity.onCached(key, value);
+        registerClosedListener(cacheEntity, new ESCacheHelper.Wrapper(cacheHelper));
+    }
+
+    private void registerClosedListener(CacheEntity cacheEntity, ESCacheHelper cacheHelper) {
+        // see if its the first time we see this reader, and make sure to register a cleanup key
+        CleanupKey cleanupKey = new CleanupKey(cacheEntity, cacheHelper.getKey());
+        if (registeredClosedListeners.containsKey(cleanupKey) == false) {
+            Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
+            if (previous == null) {
+                cacheHelper.addClosedListener(cleanupKey);
+            }
+        }
+    }
+
     /**
      * Invalidates the given the cache entry for the given key and it's context
      * @param cacheEntity the cache entity to invalidate for
@@ -13,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader.CacheHelper;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.RamUsageEstimator;
@@ -137,6 +138,9 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafAggregationsCache;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
@@ -1591,6 +1595,13 @@ public class IndicesService extends AbstractLifecycleComponent
 
         boolean[] loadedFromCache = new boolean[] { true };
         BytesReference cacheKey = request.cacheKey(requestCacheKeyDifferentiator);
+        if (canCachePerSegment(request, context)) {
+            // if the shard level result must be computed, only the segments that changed since it was last computed are collected
+            context.aggregations()
+                .setLeafAggregationsCache(
+                    newLeafAggregationsCache(context.indexShard(), context.getSearchExecutionContext().mappingCacheKey(), cacheKey)
+                );
+        }
         BytesReference bytesReference = cacheShardLevelResult(
             context.indexShard(),
             context.getSearchExecutionContext().mappingCacheKey(),
@@ -1633,6 +1644,60 @@ public class IndicesService extends AbstractLifecycleComponent
         }
     }
 
+    /**
+     * Whether the aggregation results of each segment can be cached on top of the shard level result. The results of the segments
+     * are reduced like the results of the slices of a concurrent search, so the aggregations must support parallel collection, and
+     * the collection of a segment must not be interrupted, or its partial result would be cached.
+     */
+    private boolean canCachePerSegment(ShardSearchRequest request, SearchContext context) {
+        if (context.indexShard().indexSettings().getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING) == false) {
+            return false;
+        }
+        if (context.aggregations() == null || context.aggregations().isInSortOrderExecutionRequired()) {
+            return false;
+        }
+        if (context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return false;
+        }
+        if (context.timeout() != null && context.timeout().equals(SearchService.NO_TIMEOUT) == false) {
+            return false;
+        }
+        final IndexService indexService = indexServiceSafe(context.indexShard().shardId().getIndex());
+        final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
+        return request.source()
+            .aggregations()
+            .supportsParallelCollection(field -> SearchService.getFieldCardinality(field, indexService, directoryReader));
+    }
+
+    private LeafAggregationsCache newLeafAggregationsCache(
+        IndexShard shard,
+        MappingLookup.CacheKey mappingCacheKey,
+        BytesReference cacheKey
+    ) {
+        final IndexShardCacheEntity cacheEntity = new IndexShardCacheEntity(shard);
+        return new LeafAggregationsCache() {
+            @Override
+            public InternalAggregations get(LeafReaderContext context) throws IOException {
+                BytesReference bytes = indicesRequestCache.getForLeaf(cacheEntity, mappingCacheKey, context.reader(), cacheKey);
+                if (bytes == null) {
+                    return null;
+                }
+                try (StreamInput in = new NamedWriteableAwareStreamInput(bytes.streamInput(), namedWriteableRegistry)) {
+                    return InternalAggregations.readFrom(in);
+                }
+            }
+
+            @Override
+            public void put(LeafReaderContext context, InternalAggregations aggregations) throws IOException {
+                // see cacheShardLevelResult for the expected size
+                try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+                    aggregations.writeTo(out);
+                    indicesRequestCache.putForLeaf(cacheEntity, mappingCacheKey, context.reader(), cacheKey, out.bytes());
+                }
+            }
+        };
+    }
+
     public long getTotalIndexingBufferBytes() {
         return indexingMemoryController.indexingBufferSize();
     }
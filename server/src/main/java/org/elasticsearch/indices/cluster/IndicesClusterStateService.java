@@ -125,6 +125,10 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
     // we keep track of these shards in order to prevent repeated recovery of these shards on each cluster state update
     final ConcurrentMap<ShardId, ShardRouting> failedShardsCache = ConcurrentCollections.newConcurrentMap();
     private final Map<ShardId, PendingShardCreation> pendingShardCreations = new HashMap<>();
+
+    // the UUID of the last cluster state that was fully applied, null if the last application did not complete
+    @Nullable
+    private String lastAppliedClusterStateUUID;
     private final RepositoriesService repositoriesService;
 
     private final FailedShardHandler failedShardHandler = new FailedShardHandler();
@@ -265,6 +269,8 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
     }
 
     private void doApplyClusterState(final ClusterChangedEvent event) {
+        final String previouslyAppliedClusterStateUUID = lastAppliedClusterStateUUID;
+        lastAppliedClusterStateUUID = null;
         if (lifecycle.started() == false) {
             return;
         }
@@ -272,7 +278,9 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         final ClusterState state = event.state();
 
         final DiscoveryNode currentMaster = state.nodes().getMasterNode();
-        if (currentMaster != null && currentMaster.equals(event.previousState().nodes().getMasterNode()) == false) {
+        final boolean masterChanged = currentMaster != null
+            && currentMaster.equals(event.previousState().nodes().getMasterNode()) == false;
+        if (masterChanged) {
             // master node changed, clear request deduplicator so we send out new state update requests right away without waiting for
             // the in-flight ones to fail first
             shardStateAction.clearRemoteShardRequestDeduplicator();
@@ -295,15 +303,23 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
             return;
         }
 
+        // If the previous cluster state was fully applied then the local indices and shards reflect it and we only need to look at the
+        // indices that changed since. Otherwise, or if the master changed and may have missed some of our shard state updates, we
+        // visit every index and shard.
+        final ClusterChangedEvent.IndicesDelta indicesDelta = masterChanged == false
+            && event.previousState().stateUUID().equals(previouslyAppliedClusterStateUUID) ? event.indicesDelta() : null;
+
         updateFailedShardsCache(state);
 
         deleteIndices(event); // also deletes shards of deleted indices
 
-        removeIndicesAndShards(event); // also removes shards of removed indices
+        removeIndicesAndShards(event, indicesDelta); // also removes shards of removed indices
 
         updateIndices(event); // can also fail shards, but these are then guaranteed to be in failedShardsCache
 
-        createIndicesAndUpdateShards(state);
+        createIndicesAndUpdateShards(state, indicesDelta);
+
+        lastAppliedClusterStateUUID = state.stateUUID();
     }
 
     /**
@@ -444,9 +460,10 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
      * {@link org.elasticsearch.indices.store.IndicesStore}).
      * Also removes shards that are currently loaded by indicesService but have disappeared from the routing table of the current node.
      *
-     * @param event the cluster changed event
+     * @param event        the cluster changed event
+     * @param indicesDelta the indices that changed since the last applied cluster state, or {@code null} to check all indices
      */
-    private void removeIndicesAndShards(final ClusterChangedEvent event) {
+    private void removeIndicesAndShards(final ClusterChangedEvent event, @Nullable final ClusterChangedEvent.IndicesDelta indicesDelta) {
         final ClusterState state = event.state();
         final String localNodeId = state.nodes().getLocalNodeId();
         assert localNodeId != null;
@@ -454,6 +471,10 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         RoutingNode localRoutingNode = state.getRoutingNodes().node(localNodeId);
         for (AllocatedIndex<? extends Shard> indexService : indicesService) {
             final Index index = indexService.getIndexSettings().getIndex();
+            if (indicesDelta != null && localRoutingNode != null && indicesDelta.changed(index) == false) {
+                // neither the metadata nor the routing table of this index changed, so none of its shards went away
+                continue;
+            }
             final IndexMetadata indexMetadata = state.metadata().index(index);
             final IndexMetadata existingMetadata = indexService.getIndexSettings().getIndexMetadata();
 
@@ -538,9 +559,10 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
      * Notifies master about shards that don't exist but are supposed to be active on this node, creates new shards that are supposed to
      * be initializing on this node and if needed updates the state of existing shards with the new cluster state.
      *
-     * @param state new cluster state
+     * @param state        new cluster state
+     * @param indicesDelta the indices that changed since the last applied cluster state, or {@code null} to update all shards
      */
-    private void createIndicesAndUpdateShards(final ClusterState state) {
+    private void createIndicesAndUpdateShards(final ClusterState state, @Nullable final ClusterChangedEvent.IndicesDelta indicesDelta) {
         RoutingNode localRoutingNode = state.getRoutingNodes().node(state.nodes().getLocalNodeId());
         if (localRoutingNode == null) {
             return;
@@ -565,7 +587,9 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
                 } else {
                     if (indexService == null) {
                         indicesToCreate.computeIfAbsent(index, k -> new ArrayList<>()).add(shardRouting);
-                    } else {
+                    } else if (indicesDelta == null || shardRouting.initializing() || indicesDelta.changed(index)) {
+                        // active shards of unchanged indices already have the primary term, in-sync ids and routing table of
+                        // this cluster state so we skip them
                         createOrUpdateShard(state, shardRouting, indexService);
                     }
                 }
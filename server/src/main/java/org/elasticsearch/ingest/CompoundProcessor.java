@@ -13,8 +13,11 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.core.Tuple;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.function.BiConsumer;
 import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
@@ -39,6 +42,7 @@ public class CompoundProcessor implements Processor {
     private final List<Tuple<Processor, IngestMetric>> processorsWithMetrics;
     private final LongSupplier relativeTimeProvider;
     private final boolean isAsync;
+    private final boolean supportsBatchExecution;
 
     public CompoundProcessor(Processor... processors) {
         this(false, List.of(processors), List.of());
@@ -62,6 +66,7 @@ public class CompoundProcessor implements Processor {
         this.relativeTimeProvider = relativeTimeProvider;
         this.processorsWithMetrics = List.copyOf(processors.stream().map(p -> new Tuple<>(p, new IngestMetric())).toList());
         this.isAsync = flattenProcessors().stream().anyMatch(Processor::isAsync);
+        this.supportsBatchExecution = this.processors.stream().anyMatch(Processor::supportsBatchExecution);
     }
 
     List<Tuple<Processor, IngestMetric>> getProcessorsWithMetrics() {
@@ -146,6 +151,181 @@ public class CompoundProcessor implements Processor {
         innerExecute(0, ingestDocument, handler);
     }
 
+    @Override
+    public boolean supportsBatchExecution() {
+        return supportsBatchExecution;
+    }
+
+    @Override
+    public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        assert documents.size() == handlers.size();
+        if (supportsBatchExecution == false) {
+            for (int i = 0; i < documents.size(); i++) {
+                innerExecute(0, documents.get(i), handlers.get(i));
+            }
+            return;
+        }
+        innerExecuteBatch(0, documents, handlers);
+    }
+
+    /**
+     * Runs the documents through the processors in lockstep: every document goes through a processor before any document moves on
+     * to the next one, so that the processors that support it see all the documents as a single batch. Documents that fail, are
+     * dropped or are rerouted leave the batch and are handled as in {@link #innerExecute}.
+     */
+    void innerExecuteBatch(int currentProcessor, List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        assert currentProcessor <= processorsWithMetrics.size();
+        // iteratively execute the processors that complete synchronously, like innerExecute, and only continue from a processor's
+        // callback when it completes asynchronously
+        while (true) {
+            final List<IngestDocument> batch = new ArrayList<>(documents.size());
+            final List<BiConsumer<IngestDocument, Exception>> batchHandlers = new ArrayList<>(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                IngestDocument document = documents.get(i);
+                if (currentProcessor == processorsWithMetrics.size() || document.isReroute()) {
+                    handlers.get(i).accept(document, null);
+                } else {
+                    batch.add(document);
+                    batchHandlers.add(handlers.get(i));
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final BatchStep step = new BatchStep(currentProcessor, batch, batchHandlers);
+            if (step.run() == false) {
+                // the step moves the documents on to the next processor once they all went through the current one
+                return;
+            }
+            documents = step.nextBatch;
+            handlers = step.nextHandlers;
+            currentProcessor++;
+        }
+    }
+
+    /**
+     * Runs a batch of documents through a single processor and collects the documents to pass on to the next processor.
+     */
+    private final class BatchStep {
+        private final int currentProcessor;
+        private final List<IngestDocument> batch;
+        private final List<BiConsumer<IngestDocument, Exception>> batchHandlers;
+        private final Processor processor;
+        private final IngestMetric metric;
+        private final IngestDocument[] results;
+        private final Exception[] failures;
+        private final long[] startTimesInNanos;
+        private final AtomicIntegerArray completed;
+        /**
+         * The documents that didn't go through the processor yet, plus one for {@link #run} itself so that whoever completes the
+         * step last knows if it completed synchronously.
+         */
+        private final AtomicInteger remaining;
+        private final List<IngestDocument> nextBatch;
+        private final List<BiConsumer<IngestDocument, Exception>> nextHandlers;
+
+        private BatchStep(int currentProcessor, List<IngestDocument> batch, List<BiConsumer<IngestDocument, Exception>> batchHandlers) {
+            this.currentProcessor = currentProcessor;
+            this.batch = batch;
+            this.batchHandlers = batchHandlers;
+            this.processor = processorsWithMetrics.get(currentProcessor).v1();
+            this.metric = processorsWithMetrics.get(currentProcessor).v2();
+            int size = batch.size();
+            this.results = new IngestDocument[size];
+            this.failures = new Exception[size];
+            this.startTimesInNanos = new long[size];
+            this.completed = new AtomicIntegerArray(size);
+            this.remaining = new AtomicInteger(size + 1);
+            this.nextBatch = new ArrayList<>(size);
+            this.nextHandlers = new ArrayList<>(size);
+        }
+
+        /**
+         * Runs the batch through the processor.
+         *
+         * @return {@code true} if every document went through the processor before returning, in which case the caller moves
+         *         {@link #nextBatch} on to the next processor, or {@code false} if the step does that itself once it completes
+         */
+        boolean run() {
+            final int size = batch.size();
+            final List<BiConsumer<IngestDocument, Exception>> stepHandlers = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final int slot = i;
+                stepHandlers.add((result, e) -> onDocumentCompleted(slot, result, e));
+            }
+            for (int i = 0; i < size; i++) {
+                metric.preIngest();
+            }
+            if (processor.supportsBatchExecution()) {
+                Arrays.fill(startTimesInNanos, relativeTimeProvider.getAsLong());
+                try {
+                    processor.executeBatch(batch, stepHandlers);
+                } catch (Exception e) {
+                    // fails the documents whose handler wasn't called yet
+                    for (BiConsumer<IngestDocument, Exception> stepHandler : stepHandlers) {
+                        stepHandler.accept(null, e);
+                    }
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    startTimesInNanos[i] = relativeTimeProvider.getAsLong();
+                    if (processor.isAsync()) {
+                        try {
+                            processor.execute(batch.get(i), stepHandlers.get(i));
+                        } catch (Exception e) {
+                            stepHandlers.get(i).accept(null, e);
+                        }
+                    } else {
+                        IngestDocument result;
+                        try {
+                            result = processor.execute(batch.get(i));
+                        } catch (Exception e) {
+                            stepHandlers.get(i).accept(null, e);
+                            continue;
+                        }
+                        stepHandlers.get(i).accept(result, null);
+                    }
+                }
+            }
+            if (remaining.decrementAndGet() > 0) {
+                return false;
+            }
+            collectNextBatch();
+            return true;
+        }
+
+        private void onDocumentCompleted(int slot, IngestDocument result, Exception e) {
+            if (completed.compareAndSet(slot, 0, 1) == false) {
+                return;
+            }
+            metric.postIngest(relativeTimeProvider.getAsLong() - startTimesInNanos[slot]);
+            results[slot] = result;
+            failures[slot] = e;
+            if (remaining.decrementAndGet() > 0) {
+                return;
+            }
+            // the last document completed asynchronously, after run returned, so we have to move the batch on from here
+            collectNextBatch();
+            if (nextBatch.isEmpty() == false) {
+                innerExecuteBatch(currentProcessor + 1, nextBatch, nextHandlers);
+            }
+        }
+
+        private void collectNextBatch() {
+            for (int i = 0; i < batch.size(); i++) {
+                if (failures[i] != null) {
+                    executeOnFailureOuter(currentProcessor, batch.get(i), batchHandlers.get(i), processor, metric, failures[i]);
+                } else if (results[i] == null) {
+                    batchHandlers.get(i).accept(null, null);
+                } else {
+                    nextBatch.add(results[i]);
+                    nextHandlers.add(batchHandlers.get(i));
+                }
+            }
+        }
+    }
+
     void innerExecute(int currentProcessor, IngestDocument ingestDocument, final BiConsumer<IngestDocument, Exception> handler) {
         assert currentProcessor <= processorsWithMetrics.size();
         if (currentProcessor == processorsWithMetrics.size() || ingestDocument.isReroute()) {
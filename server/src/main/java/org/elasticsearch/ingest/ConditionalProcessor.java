@@ -140,6 +140,48 @@ public class ConditionalProcessor extends AbstractProcessor implements WrappingP
         }
     }
 
+    @Override
+    public boolean supportsBatchExecution() {
+        return processor.supportsBatchExecution();
+    }
+
+    @Override
+    public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        final List<IngestDocument> matching = new ArrayList<>(documents.size());
+        final List<BiConsumer<IngestDocument, Exception>> matchingHandlers = new ArrayList<>(documents.size());
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        for (int i = 0; i < documents.size(); i++) {
+            IngestDocument ingestDocument = documents.get(i);
+            BiConsumer<IngestDocument, Exception> handler = handlers.get(i);
+            final boolean matches;
+            try {
+                matches = evaluate(ingestDocument);
+            } catch (Exception e) {
+                handler.accept(null, e);
+                continue;
+            }
+            if (matches) {
+                metric.preIngest();
+                matching.add(ingestDocument);
+                matchingHandlers.add((result, e) -> {
+                    long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
+                    metric.postIngest(ingestTimeInNanos);
+                    if (e != null) {
+                        metric.ingestFailed();
+                        handler.accept(null, e);
+                    } else {
+                        handler.accept(result, null);
+                    }
+                });
+            } else {
+                handler.accept(ingestDocument, null);
+            }
+        }
+        if (matching.isEmpty() == false) {
+            processor.executeBatch(matching, matchingHandlers);
+        }
+    }
+
     boolean evaluate(IngestDocument ingestDocument) {
         IngestConditionalScript script = precompiledConditionScript;
         if (script == null) {
@@ -43,7 +43,11 @@ class IngestCtxMap extends CtxMap<IngestDocMetadata> {
         ZonedDateTime timestamp,
         Map<String, Object> source
     ) {
-        super(new HashMap<>(source), new IngestDocMetadata(index, id, version, routing, versionType, timestamp));
+        // a lazy source is already a mutable map of its own, copying it would parse all of its fields
+        super(
+            source instanceof LazySourceMap ? source : new HashMap<>(source),
+            new IngestDocMetadata(index, id, version, routing, versionType, timestamp)
+        );
     }
 
     /**
@@ -11,6 +11,7 @@ package org.elasticsearch.ingest;
 
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.util.CollectionUtils;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.VersionType;
@@ -185,8 +186,8 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public <T> T getFieldValue(String path, Class<T> clazz, boolean ignoreMissing) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (String pathElement : fieldPath.pathElements) {
             ResolveResult result = resolve(pathElement, path, context);
             if (result.wasSuccessful) {
@@ -256,8 +257,8 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public boolean hasField(String path, boolean failOutOfRange) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -324,8 +325,8 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty, invalid or if the field doesn't exist.
      */
     public void removeField(String path) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             ResolveResult result = resolve(fieldPath.pathElements[i], path, context);
             if (result.wasSuccessful) {
@@ -535,8 +536,8 @@ public final class IngestDocument {
     }
 
     private void setFieldValue(String path, Object value, boolean append, boolean allowDuplicates) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -845,21 +846,59 @@ public final class IngestDocument {
                 new GraphStructureException("Too many nested pipelines. Cannot have more than " + MAX_PIPELINES + " nested pipelines")
             );
         } else if (executedPipelines.add(pipeline.getId())) {
-            Object previousPipeline = ingestMetadata.put("pipeline", pipeline.getId());
-            pipeline.execute(this, (result, e) -> {
-                executedPipelines.remove(pipeline.getId());
-                if (previousPipeline != null) {
-                    ingestMetadata.put("pipeline", previousPipeline);
-                } else {
-                    ingestMetadata.remove("pipeline");
-                }
-                handler.accept(result, e);
-            });
+            pipeline.execute(this, enterPipeline(pipeline, handler));
         } else {
             handler.accept(null, new GraphStructureException(PIPELINE_CYCLE_ERROR_MESSAGE + pipeline.getId()));
         }
     }
 
+    /**
+     * Executes the given pipeline for a batch of documents, in the same way as {@link #executePipeline(Pipeline, BiConsumer)}
+     * would for each document on its own. {@code handlers} holds the handler of each document.
+     */
+    public static void executePipeline(
+        Pipeline pipeline,
+        List<IngestDocument> documents,
+        List<BiConsumer<IngestDocument, Exception>> handlers
+    ) {
+        assert documents.size() == handlers.size();
+        List<IngestDocument> batch = new ArrayList<>(documents.size());
+        List<BiConsumer<IngestDocument, Exception>> batchHandlers = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            IngestDocument document = documents.get(i);
+            if (pipeline.getProcessors().isEmpty() == false
+                && document.executedPipelines.size() < MAX_PIPELINES
+                && document.executedPipelines.add(pipeline.getId())) {
+                batch.add(document);
+                batchHandlers.add(document.enterPipeline(pipeline, handlers.get(i)));
+            } else {
+                // empty pipelines, and the errors
+                document.executePipeline(pipeline, handlers.get(i));
+            }
+        }
+        if (batch.isEmpty() == false) {
+            pipeline.executeBatch(batch, batchHandlers);
+        }
+    }
+
+    /**
+     * Marks the given pipeline as the current pipeline of this document.
+     *
+     * @return a handler that restores the previous pipeline before calling the given handler
+     */
+    private BiConsumer<IngestDocument, Exception> enterPipeline(Pipeline pipeline, BiConsumer<IngestDocument, Exception> handler) {
+        Object previousPipeline = ingestMetadata.put("pipeline", pipeline.getId());
+        return (result, e) -> {
+            executedPipelines.remove(pipeline.getId());
+            if (previousPipeline != null) {
+                ingestMetadata.put("pipeline", previousPipeline);
+            } else {
+                ingestMetadata.remove("pipeline");
+            }
+            handler.accept(result, e);
+        };
+    }
+
     /**
      * @return a pipeline stack; all pipelines that are in execution by this document in reverse order
      */
@@ -965,21 +1004,41 @@ public final class IngestDocument {
         }
     }
 
-    private class FieldPath {
+    private static final class FieldPath {
 
-        private final String[] pathElements;
-        private final Object initialContext;
+        private static final int MAX_SIZE = 512;
+        private static final Map<String, FieldPath> CACHE = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-        private FieldPath(String path) {
+        // every processor resolves its field paths on every document, and parsing a path (e.g. "foo.bar.baz") into its elements
+        // (e.g. ["foo", "bar", "baz"]) allocates the elements, the array holding them and the list that String#split collects them
+        // in. The paths don't depend on the document though, and a node sees a bounded set of them as long as the pipelines don't
+        // change, so the parsed paths are cached and shared by all documents.
+        static FieldPath of(String path) {
             if (Strings.isEmpty(path)) {
                 throw new IllegalArgumentException("path cannot be null nor empty");
             }
+            FieldPath fieldPath = CACHE.get(path);
+            if (fieldPath == null) {
+                fieldPath = new FieldPath(path);
+                if (CACHE.size() > MAX_SIZE) {
+                    // templated paths could make the cache grow without bound, start over rather than track usage
+                    CACHE.clear();
+                }
+                CACHE.put(path, fieldPath);
+            }
+            return fieldPath;
+        }
+
+        private final String[] pathElements;
+        private final boolean useIngestContext;
+
+        private FieldPath(String path) {
             String newPath;
             if (path.startsWith(INGEST_KEY_PREFIX)) {
-                initialContext = ingestMetadata;
+                useIngestContext = true;
                 newPath = path.substring(INGEST_KEY_PREFIX.length());
             } else {
-                initialContext = ctxMap;
+                useIngestContext = false;
                 if (path.startsWith(SOURCE_PREFIX)) {
                     newPath = path.substring(SOURCE_PREFIX.length());
                 } else {
@@ -992,6 +1051,9 @@ public final class IngestDocument {
             }
         }
 
+        Object initialContext(IngestDocument document) {
+            return useIngestContext ? document.ingestMetadata : document.ctxMap;
+        }
     }
 
     private static class ResolveResult {
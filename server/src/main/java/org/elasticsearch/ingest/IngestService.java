@@ -13,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.ResourceNotFoundException;
@@ -65,7 +66,6 @@ import org.elasticsearch.node.ReportingService;
 import org.elasticsearch.plugins.IngestPlugin;
 import org.elasticsearch.plugins.internal.DocumentParsingProvider;
 import org.elasticsearch.plugins.internal.XContentMeteringParserDecorator;
-import org.elasticsearch.plugins.internal.XContentParserDecorator;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -77,6 +77,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -113,6 +114,10 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
     private final ClusterService clusterService;
     private final ScriptService scriptService;
     private final DocumentParsingProvider documentParsingProvider;
+    /**
+     * Whether the JSON sources of the documents to ingest are parsed lazily, see {@link IngestSettings#LAZY_SOURCE}.
+     */
+    private final boolean lazySource;
     private final Map<String, Processor.Factory> processorFactories;
     // Ideally this should be in IngestMetadata class, but we don't have the processor factories around there.
     // We know of all the processor factories when a node with all its plugin have been initialized. Also some
@@ -201,6 +206,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         this.clusterService = clusterService;
         this.scriptService = scriptService;
         this.documentParsingProvider = documentParsingProvider;
+        this.lazySource = env != null && IngestSettings.LAZY_SOURCE.get(env.settings());
         this.processorFactories = processorFactories(
             ingestPlugins,
             new Processor.Parameters(
@@ -230,6 +236,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         this.clusterService = ingestService.clusterService;
         this.scriptService = ingestService.scriptService;
         this.documentParsingProvider = ingestService.documentParsingProvider;
+        this.lazySource = ingestService.lazySource;
         this.processorFactories = ingestService.processorFactories;
         this.threadPool = ingestService.threadPool;
         this.taskQueue = ingestService.taskQueue;
@@ -732,6 +739,8 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
             protected void doRun() {
                 final Thread originalThread = Thread.currentThread();
                 try (var refs = new RefCountingRunnable(() -> onCompletion.accept(originalThread, null))) {
+                    // the documents whose first pipeline holds processors that process documents in batches
+                    final Map<Pipeline, PipelineBatch> batches = new IdentityHashMap<>();
                     int i = 0;
                     for (DocWriteRequest<?> actionRequest : actionRequests) {
                         IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(actionRequest);
@@ -798,17 +807,42 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                             }
                         );
 
-                        executePipelines(pipelines, indexRequest, ingestDocument, resolveFailureStore, documentListener);
+                        executePipelines(pipelines, indexRequest, ingestDocument, resolveFailureStore, batches, documentListener);
                         indexRequest.setNormalisedBytesParsed(meteringParserDecorator.meteredDocumentSize().ingestedBytes());
                         assert actionRequest.index() != null;
 
                         i++;
                     }
+                    for (PipelineBatch batch : batches.values()) {
+                        batch.execute();
+                    }
                 }
             }
         });
     }
 
+    /**
+     * The documents of a bulk request that go through the same pipeline, to be executed together.
+     */
+    private static final class PipelineBatch {
+        private final Pipeline pipeline;
+        private final List<IngestDocument> documents = new ArrayList<>();
+        private final List<BiConsumer<IngestDocument, Exception>> handlers = new ArrayList<>();
+
+        PipelineBatch(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        void add(IngestDocument ingestDocument, BiConsumer<Boolean, Exception> handler) {
+            documents.add(ingestDocument);
+            handlers.add(keepHandler(handler));
+        }
+
+        void execute() {
+            IngestDocument.executePipeline(pipeline, documents, handlers);
+        }
+    }
+
     /**
      * Returns the pipelines of the request, and updates the request so that it no longer references
      * any pipelines (both the default and final pipeline are set to the noop pipeline).
@@ -890,6 +924,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         final IndexRequest indexRequest,
         final IngestDocument ingestDocument,
         final Function<String, Boolean> resolveFailureStore,
+        @Nullable final Map<Pipeline, PipelineBatch> batches,
         final ActionListener<IngestPipelinesExecutionResult> listener
     ) {
         assert pipelines.hasNext();
@@ -927,7 +962,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 throw new IllegalArgumentException("pipeline with id [" + pipelineId + "] does not exist");
             }
             indexRequest.addPipeline(pipelineId);
-            executePipeline(ingestDocument, pipeline, (keep, e) -> {
+            final BiConsumer<Boolean, Exception> pipelineHandler = (keep, e) -> {
                 assert keep != null;
 
                 if (e != null) {
@@ -968,7 +1003,11 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 try {
                     // check for self-references if necessary, (i.e. if a script processor has run), and clear the bit
                     if (ingestDocument.doNoSelfReferencesCheck()) {
-                        CollectionUtils.ensureNoSelfReferences(ingestDocument.getSource(), null);
+                        if (ingestDocument.getSource() instanceof LazySourceMap lazySource) {
+                            lazySource.ensureNoSelfReferences();
+                        } else {
+                            CollectionUtils.ensureNoSelfReferences(ingestDocument.getSource(), null);
+                        }
                         ingestDocument.doNoSelfReferencesCheck(false);
                     }
                 } catch (IllegalArgumentException ex) {
@@ -1050,14 +1089,20 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 }
 
                 if (newPipelines.hasNext()) {
-                    executePipelines(newPipelines, indexRequest, ingestDocument, resolveFailureStore, listener);
+                    executePipelines(newPipelines, indexRequest, ingestDocument, resolveFailureStore, null, listener);
                 } else {
                     // update the index request's source and (potentially) cache the timestamp for TSDB
                     updateIndexRequestSource(indexRequest, ingestDocument);
                     cacheRawTimestamp(indexRequest, ingestDocument);
                     listener.onResponse(IngestPipelinesExecutionResult.SUCCESSFUL_RESULT); // document succeeded!
                 }
-            });
+            };
+            if (batches != null && pipeline.supportsBatchExecution()) {
+                // executed later on, along with the other documents of the bulk request that go through the same pipeline
+                batches.computeIfAbsent(pipeline, PipelineBatch::new).add(ingestDocument, pipelineHandler);
+            } else {
+                executePipeline(ingestDocument, pipeline, pipelineHandler);
+            }
         } catch (Exception e) {
             logger.debug(
                 () -> format("failed to execute pipeline [%s] for document [%s/%s]", pipelineId, indexRequest.index(), indexRequest.id()),
@@ -1072,16 +1117,20 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         final Pipeline pipeline,
         final BiConsumer<Boolean, Exception> handler
     ) {
+        ingestDocument.executePipeline(pipeline, keepHandler(handler));
+    }
+
+    private static BiConsumer<IngestDocument, Exception> keepHandler(final BiConsumer<Boolean, Exception> handler) {
         // adapt our {@code BiConsumer<Boolean, Exception>} handler shape to the
         // {@code BiConsumer<IngestDocument, Exception>} handler shape used internally
         // by ingest pipelines and processors
-        ingestDocument.executePipeline(pipeline, (result, e) -> {
+        return (result, e) -> {
             if (e != null) {
                 handler.accept(true, e);
             } else {
                 handler.accept(result != null, null);
             }
-        });
+        };
     }
 
     public IngestStats stats() {
@@ -1138,15 +1187,16 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
     /**
      * Builds a new ingest document from the passed-in index request.
      */
-    private static IngestDocument newIngestDocument(final IndexRequest request, XContentParserDecorator parserDecorator) {
-        return new IngestDocument(
-            request.index(),
-            request.id(),
-            request.version(),
-            request.routing(),
-            request.versionType(),
-            request.sourceAsMap(parserDecorator)
-        );
+    private IngestDocument newIngestDocument(final IndexRequest request, XContentMeteringParserDecorator parserDecorator) {
+        Map<String, Object> source = null;
+        // metering needs to see the whole source go through its parser
+        if (lazySource && parserDecorator == XContentMeteringParserDecorator.NOOP) {
+            source = LazySourceMap.parse(request.source(), request.getContentType());
+        }
+        if (source == null) {
+            source = request.sourceAsMap(parserDecorator);
+        }
+        return new IngestDocument(request.index(), request.id(), request.version(), request.routing(), request.versionType(), source);
     }
 
     /**
@@ -1185,7 +1235,15 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         // we already check for self references elsewhere (and clear the bit), so this should always be false,
         // keeping the check and assert as a guard against extraordinarily surprising circumstances
         assert ensureNoSelfReferences == false;
-        request.source(document.getSource(), request.getContentType(), ensureNoSelfReferences);
+        if (document.getSource() instanceof LazySourceMap lazySource) {
+            try {
+                request.source(lazySource.toBytes(), request.getContentType());
+            } catch (IOException e) {
+                throw new ElasticsearchGenerationException("Failed to generate the source of document [" + request.id() + "]", e);
+            }
+        } else {
+            request.source(document.getSource(), request.getContentType(), ensureNoSelfReferences);
+        }
     }
 
     /**
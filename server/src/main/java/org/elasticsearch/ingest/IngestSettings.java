@@ -28,5 +28,9 @@ public final class IngestSettings {
         TimeValue.timeValueSeconds(1),
         Setting.Property.NodeScope
     );
+    /**
+     * Whether the JSON sources of the documents to ingest are parsed lazily, one top-level field at a time, see {@link LazySourceMap}.
+     */
+    public static final Setting<Boolean> LAZY_SOURCE = Setting.boolSetting("ingest.lazy_source", false, Setting.Property.NodeScope);
 
 }
@@ -0,0 +1,391 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.CollectionUtils;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.XContentParserConfiguration;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.xcontent.json.JsonXContent;
+import org.elasticsearch.xcontent.support.AbstractXContentParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A document source that only parses the top-level fields that are read. The JSON source is scanned once to find where the value
+ * of each top-level field starts and ends, and a value is only parsed the first time it is accessed. When the source is written
+ * back, the values that were never accessed are copied as they are from the original bytes, and the original bytes are reused as a
+ * whole if nothing was modified.
+ * <p>
+ * Values that are never accessed are only checked for balanced brackets and terminated strings, they are fully validated when the
+ * document is parsed for indexing. Maps and lists are mutable so the source counts as modified as soon as one of them is accessed.
+ */
+final class LazySourceMap extends AbstractMap<String, Object> {
+
+    private final BytesReference source;
+    private final BytesRef bytes;
+    private final LinkedHashMap<String, Object> fields;
+    private boolean modified = false;
+
+    private LazySourceMap(BytesReference source, BytesRef bytes, LinkedHashMap<String, Object> fields) {
+        this.source = source;
+        this.bytes = bytes;
+        this.fields = fields;
+    }
+
+    /**
+     * Scans the top-level fields of a source.
+     *
+     * @return the lazy source, or {@code null} if the source isn't a JSON object that can be scanned, for instance because a field
+     *         name is escaped or repeated, in which case the source should be parsed as usual
+     */
+    @Nullable
+    static LazySourceMap parse(BytesReference source, XContentType contentType) {
+        if (contentType.canonical() != XContentType.JSON) {
+            return null;
+        }
+        BytesRef bytes = source.toBytesRef();
+        byte[] b = bytes.bytes;
+        int end = bytes.offset + bytes.length;
+        LinkedHashMap<String, Object> fields = new LinkedHashMap<>();
+        int pos = skipWhitespace(b, bytes.offset, end);
+        if (pos >= end || b[pos] != '{') {
+            return null;
+        }
+        pos = skipWhitespace(b, pos + 1, end);
+        if (pos < end && b[pos] == '}') {
+            pos++;
+        } else {
+            while (true) {
+                if (pos >= end || b[pos] != '"') {
+                    return null;
+                }
+                int keyEnd = skipString(b, pos, end);
+                if (keyEnd < 0) {
+                    return null;
+                }
+                for (int i = pos + 1; i < keyEnd - 1; i++) {
+                    if (b[i] == '\\') {
+                        return null;
+                    }
+                }
+                String key = new String(b, pos + 1, keyEnd - pos - 2, StandardCharsets.UTF_8);
+                pos = skipWhitespace(b, keyEnd, end);
+                if (pos >= end || b[pos] != ':') {
+                    return null;
+                }
+                int valueStart = skipWhitespace(b, pos + 1, end);
+                int valueEnd = skipValue(b, valueStart, end);
+                if (valueEnd < 0) {
+                    return null;
+                }
+                if (fields.putIfAbsent(key, new RawValue(valueStart, valueEnd - valueStart)) != null) {
+                    return null;
+                }
+                pos = skipWhitespace(b, valueEnd, end);
+                if (pos < end && b[pos] == ',') {
+                    pos = skipWhitespace(b, pos + 1, end);
+                } else if (pos < end && b[pos] == '}') {
+                    pos++;
+                    break;
+                } else {
+                    return null;
+                }
+            }
+        }
+        if (skipWhitespace(b, pos, end) != end) {
+            return null;
+        }
+        return new LazySourceMap(source, bytes, fields);
+    }
+
+    /**
+     * Writes the source back, copying the fields that were never accessed from the original bytes.
+     */
+    BytesReference toBytes() throws IOException {
+        if (modified == false) {
+            return source;
+        }
+        try (XContentBuilder builder = JsonXContent.contentBuilder()) {
+            builder.startObject();
+            for (Map.Entry<String, Object> entry : fields.entrySet()) {
+                if (entry.getValue() instanceof RawValue raw) {
+                    builder.rawField(
+                        entry.getKey(),
+                        new ByteArrayInputStream(bytes.bytes, raw.offset(), raw.length()),
+                        builder.contentType()
+                    );
+                } else {
+                    builder.field(entry.getKey(), entry.getValue());
+                }
+            }
+            builder.endObject();
+            return BytesReference.bytes(builder);
+        }
+    }
+
+    /**
+     * Checks the values that were accessed or added for self references, the others can't hold any.
+     */
+    void ensureNoSelfReferences() {
+        for (Object value : fields.values()) {
+            if (value instanceof RawValue == false) {
+                CollectionUtils.ensureNoSelfReferences(value, null);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return fields.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = fields.get(key);
+        if (value instanceof RawValue raw) {
+            value = materialize(raw);
+            fields.put((String) key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        modified = true;
+        return materialize(fields.put(key, value));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        modified = true;
+        return materialize(fields.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        modified = true;
+        fields.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Entry<String, Object>> iterator = fields.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        return new LazyEntry(iterator.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        modified = true;
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return fields.size();
+            }
+        };
+    }
+
+    private Object materialize(Object value) {
+        if (value instanceof RawValue raw) {
+            try (
+                XContentParser parser = JsonXContent.jsonXContent.createParser(
+                    XContentParserConfiguration.EMPTY,
+                    bytes.bytes,
+                    raw.offset(),
+                    raw.length()
+                )
+            ) {
+                parser.nextToken();
+                value = AbstractXContentParser.readValue(parser, HashMap::new);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (value instanceof Map<?, ?> || value instanceof List<?>) {
+            // these can be modified in place
+            modified = true;
+        }
+        return value;
+    }
+
+    private final class LazyEntry implements Entry<String, Object> {
+        private final Entry<String, Object> entry;
+
+        LazyEntry(Entry<String, Object> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = entry.getValue();
+            if (value instanceof RawValue) {
+                value = materialize(value);
+                entry.setValue(value);
+            }
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = getValue();
+            modified = true;
+            entry.setValue(value);
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> other && getKey().equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+    }
+
+    /**
+     * The location in the original bytes of a value that wasn't parsed yet.
+     */
+    private record RawValue(int offset, int length) {}
+
+    private static int skipWhitespace(byte[] b, int pos, int end) {
+        while (pos < end && (b[pos] == ' ' || b[pos] == '\n' || b[pos] == '\r' || b[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the position after the string that starts at {@code pos}, or {@code -1} if it isn't terminated
+     */
+    private static int skipString(byte[] b, int pos, int end) {
+        pos++;
+        while (pos < end) {
+            if (b[pos] == '\\') {
+                pos += 2;
+            } else if (b[pos] == '"') {
+                return pos + 1;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the value that starts at {@code pos}, or {@code -1} if it can't be scanned
+     */
+    private static int skipValue(byte[] b, int pos, int end) {
+        if (pos >= end) {
+            return -1;
+        }
+        return switch (b[pos]) {
+            case '"' -> skipString(b, pos, end);
+            case '{', '[' -> skipContainer(b, pos, end);
+            default -> skipLiteral(b, pos, end);
+        };
+    }
+
+    private static int skipLiteral(byte[] b, int pos, int end) {
+        int start = pos;
+        while (pos < end) {
+            byte c = b[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                break;
+            }
+            if (c == '"' || c == '{' || c == '[' || c == ':' || c == '/') {
+                return -1;
+            }
+            pos++;
+        }
+        return pos > start ? pos : -1;
+    }
+
+    private static int skipContainer(byte[] b, int pos, int end) {
+        byte[] open = new byte[16];
+        int depth = 0;
+        while (pos < end) {
+            byte c = b[pos];
+            switch (c) {
+                case '"' -> {
+                    pos = skipString(b, pos, end);
+                    if (pos < 0) {
+                        return -1;
+                    }
+                    continue;
+                }
+                case '{', '[' -> {
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = c;
+                }
+                case '}', ']' -> {
+                    if (open[--depth] != (c == '}' ? '{' : '[')) {
+                        return -1;
+                    }
+                    if (depth == 0) {
+                        return pos + 1;
+                    }
+                }
+                // comments could hide brackets or quotes
+                case '/' -> {
+                    return -1;
+                }
+                default -> {}
+            }
+            pos++;
+        }
+        return -1;
+    }
+}
@@ -13,6 +13,7 @@ import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.script.ScriptService;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -137,6 +138,36 @@ public final class Pipeline {
         });
     }
 
+    /**
+     * Modifies the data of a batch of documents to be indexed based on the processor this pipeline holds, in the same way as
+     * {@link #execute(IngestDocument, BiConsumer)} would for each document on its own. {@code handlers} holds the handler of
+     * each document.
+     */
+    public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        assert documents.size() == handlers.size();
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        final List<BiConsumer<IngestDocument, Exception>> pipelineHandlers = new ArrayList<>(handlers.size());
+        for (BiConsumer<IngestDocument, Exception> handler : handlers) {
+            metrics.preIngest();
+            pipelineHandlers.add((result, e) -> {
+                long ingestTimeInNanos = relativeTimeProvider.getAsLong() - startTimeInNanos;
+                metrics.postIngest(ingestTimeInNanos);
+                if (e != null) {
+                    metrics.ingestFailed();
+                }
+                handler.accept(result, e);
+            });
+        }
+        compoundProcessor.executeBatch(documents, pipelineHandlers);
+    }
+
+    /**
+     * Whether this pipeline holds processors that benefit from processing documents in batches.
+     */
+    public boolean supportsBatchExecution() {
+        return compoundProcessor.supportsBatchExecution();
+    }
+
     /**
      * The unique id of this pipeline
      */
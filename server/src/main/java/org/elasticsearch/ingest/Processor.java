@@ -17,6 +17,7 @@ import org.elasticsearch.index.analysis.AnalysisRegistry;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.threadpool.Scheduler;
 
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -60,6 +61,42 @@ public interface Processor {
         return ingestDocument;
     }
 
+    /**
+     * Introspect and potentially modify a batch of documents, for instance the documents of a bulk request that go through the
+     * same pipeline. {@code handlers} holds the handler of each document, which must be called exactly once, in the same way
+     * as the handler of {@link #execute(IngestDocument, BiConsumer)}.
+     *
+     * Expert method: only override this method, along with {@link #supportsBatchExecution()}, if a processor can process
+     * a batch of documents more cheaply than each document on its own, for instance by making a single remote call for all
+     * of them. By default each document is processed on its own.
+     */
+    default void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        assert documents.size() == handlers.size();
+        for (int i = 0; i < documents.size(); i++) {
+            IngestDocument document = documents.get(i);
+            BiConsumer<IngestDocument, Exception> handler = handlers.get(i);
+            if (isAsync()) {
+                execute(document, handler);
+            } else {
+                IngestDocument result;
+                try {
+                    result = execute(document);
+                } catch (Exception e) {
+                    handler.accept(null, e);
+                    continue;
+                }
+                handler.accept(result, null);
+            }
+        }
+    }
+
+    /**
+     * Whether this processor benefits from processing documents in batches with {@link #executeBatch(List, List)}.
+     */
+    default boolean supportsBatchExecution() {
+        return false;
+    }
+
     /**
      * Gets the type of a processor
      */
@@ -510,5 +510,9 @@ public class JvmInfo implements ReportingService.Info {
             return ByteSizeValue.ofBytes(heapMax);
         }
 
+        public ByteSizeValue getDirectMemoryMax() {
+            return ByteSizeValue.ofBytes(directMemoryMax);
+        }
+
     }
 }
@@ -19,6 +19,8 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
 import java.util.Locale;
@@ -40,6 +42,9 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
 
+    private final ConcurrentMap<ShardCopy, ExponentiallyWeightedMovingAverage> shardCopyResponseTimes = ConcurrentCollections
+        .newConcurrentMap();
+
     public ResponseCollectorService(ClusterService clusterService) {
         clusterService.addListener(this);
     }
@@ -51,10 +56,18 @@ public final class ResponseCollectorService implements ClusterStateListener {
                 removeNode(removedNode.getId());
             }
         }
+        for (Index deletedIndex : event.indicesDeleted()) {
+            removeIndex(deletedIndex);
+        }
     }
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        shardCopyResponseTimes.keySet().removeIf(shardCopy -> shardCopy.nodeId().equals(nodeId));
+    }
+
+    void removeIndex(Index index) {
+        shardCopyResponseTimes.keySet().removeIf(shardCopy -> shardCopy.shardId().getIndex().equals(index));
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -72,6 +85,30 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records the response time of a search on the copy of a shard held by the given node. The response time of the node averages
+     * the responses for all of its shards, while this one tells a copy whose caches are warm for the shard apart from a cold one.
+     */
+    public void addShardResponseTime(ShardId shardId, String nodeId, long responseTimeNanos) {
+        shardCopyResponseTimes.compute(new ShardCopy(shardId, nodeId), (copy, responseTime) -> {
+            if (responseTime == null) {
+                return new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+            } else {
+                responseTime.addValue((double) responseTimeNanos);
+                return responseTime;
+            }
+        });
+    }
+
+    /**
+     * Returns the EWMA of the response time of the copy of the given shard held by the given node, or {@code -1} if no response was
+     * collected for it yet.
+     */
+    public double getShardResponseTime(ShardId shardId, String nodeId) {
+        final ExponentiallyWeightedMovingAverage responseTime = shardCopyResponseTimes.get(new ShardCopy(shardId, nodeId));
+        return responseTime == null ? -1 : responseTime.getAverage();
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
         // Transform the mutable object internally used for accounting into the computed version
@@ -152,7 +189,7 @@ public final class ResponseCollectorService implements ClusterStateListener {
          * Rank this copy of the data, according to the adaptive replica selection formula from the C3 paper
          * https://www.usenix.org/system/files/conference/nsdi15/nsdi15-paper-suresh.pdf
          */
-        private double innerRank(long outstandingRequests) {
+        private double innerRank(long outstandingRequests, double responseTime) {
             // the concurrency compensation is defined as the number of
             // outstanding requests from the client to the node times the number
             // of clients in the system
@@ -178,11 +215,19 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
         public double rank(long outstandingRequests) {
             if (cachedRank == 0) {
-                cachedRank = innerRank(outstandingRequests);
+                cachedRank = innerRank(outstandingRequests, responseTime);
             }
             return cachedRank;
         }
 
+        /**
+         * Rank the copy of a shard held by this node like {@link #rank(long)}, but with the EWMA of the response time of the node for
+         * this shard rather than for all of its shards, so that a copy that responds faster because it is warm ranks better.
+         */
+        public double rank(long outstandingRequests, double shardResponseTime) {
+            return innerRank(outstandingRequests, shardResponseTime);
+        }
+
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder("ComputedNodeStats[");
@@ -197,6 +242,11 @@ public final class ResponseCollectorService implements ClusterStateListener {
         }
     }
 
+    /**
+     * A copy of a shard, identified by the node that holds it.
+     */
+    private record ShardCopy(ShardId shardId, String nodeId) {}
+
     /**
      * Class encapsulating a node's exponentially weighted queue size, response
      * time, and service time, however, this class is private and intended only
@@ -213,7 +213,8 @@ public class RestThreadPoolAction extends AbstractCatAction {
                         keepAlive = poolInfo.getKeepAlive();
                     }
 
-                    if (poolInfo.getThreadPoolType() == ThreadPool.ThreadPoolType.SCALING) {
+                    if (poolInfo.getThreadPoolType() == ThreadPool.ThreadPoolType.SCALING
+                        || poolInfo.getThreadPoolType() == ThreadPool.ThreadPoolType.VIRTUAL) {
                         assert poolInfo.getMin() >= 0;
                         core = poolInfo.getMin();
                         assert poolInfo.getMax() > 0;
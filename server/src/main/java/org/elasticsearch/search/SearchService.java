@@ -12,6 +12,7 @@ package org.elasticsearch.search;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
@@ -527,6 +528,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * Returns the number of distinct values of the given field in the given reader, or {@code -1} if it's unknown, to resolve whether
+     * aggregations support parallel collection.
+     */
+    public static long getFieldCardinality(String field, IndexService indexService, DirectoryReader directoryReader) {
+        return DefaultSearchContext.getFieldCardinality(field, indexService, directoryReader);
+    }
+
     /**
      * Try to load the query results from the cache or execute the query phase directly if the cache cannot be used.
      */
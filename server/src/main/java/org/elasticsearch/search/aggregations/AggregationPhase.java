@@ -34,6 +34,13 @@ public class AggregationPhase {
             AggregatorCollector collector = newAggregatorCollector(context);
             executeInSortOrder(context, collector.bucketCollector);
             collectorSupplier = () -> new AggregatorCollector(collector.aggregators, BucketCollector.NO_OP_BUCKET_COLLECTOR);
+        } else if (context.aggregations().getLeafAggregationsCache() != null) {
+            LeafAggregationsCache cache = context.aggregations().getLeafAggregationsCache();
+            collectorSupplier = () -> new LeafCachingAggregatorCollector(
+                () -> newAggregatorCollector(context),
+                cache,
+                () -> context.aggregations().getAggregationReduceContextBuilder().forPartialReduction()
+            );
         } else {
             collectorSupplier = () -> newAggregatorCollector(context);
         }
@@ -0,0 +1,33 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Caches the aggregation results collected from each segment of a shard for a request, so that running the request again
+ * only needs to collect the segments that were added or changed since.
+ */
+public interface LeafAggregationsCache {
+
+    /**
+     * Returns the results cached for the given segment, or {@code null} if the segment must be collected.
+     */
+    @Nullable
+    InternalAggregations get(LeafReaderContext context) throws IOException;
+
+    /**
+     * Caches the results collected from the given segment.
+     */
+    void put(LeafReaderContext context, InternalAggregations aggregations) throws IOException;
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collector that builds the aggregations of each segment with their own aggregators, so that the results of each segment can be
+ * cached in a {@link LeafAggregationsCache}. Segments whose results are cached are not collected, and the results of all the
+ * segments are partially reduced once the collection is done, the same way as the results of the slices of a concurrent search.
+ * This is only valid for the aggregations that support parallel collection.
+ */
+final class LeafCachingAggregatorCollector extends AggregatorCollector {
+
+    private final Supplier<AggregatorCollector> collectorSupplier;
+    private final LeafAggregationsCache cache;
+    private final Supplier<AggregationReduceContext> reduceContextSupplier;
+    private final ScoreMode scoreMode;
+    private final List<InternalAggregations> leafResults = new ArrayList<>();
+    // the collector of the segment being collected, or of the next one that isn't cached
+    private AggregatorCollector collector;
+    private LeafReaderContext leaf;
+
+    LeafCachingAggregatorCollector(
+        Supplier<AggregatorCollector> collectorSupplier,
+        LeafAggregationsCache cache,
+        Supplier<AggregationReduceContext> reduceContextSupplier
+    ) {
+        super(new Aggregator[0], BucketCollector.NO_OP_BUCKET_COLLECTOR);
+        this.collectorSupplier = collectorSupplier;
+        this.cache = cache;
+        this.reduceContextSupplier = reduceContextSupplier;
+        this.collector = collectorSupplier.get();
+        this.scoreMode = collector.scoreMode();
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        // the segments of a slice are collected one after the other, the previous one is done
+        finishLeaf();
+        InternalAggregations cached = cache.get(context);
+        if (cached != null) {
+            leafResults.add(cached);
+            throw new CollectionTerminatedException();
+        }
+        if (collector == null) {
+            collector = collectorSupplier.get();
+        }
+        leaf = context;
+        return collector.getLeafCollector(context);
+    }
+
+    private void finishLeaf() throws IOException {
+        if (leaf != null) {
+            collector.doPostCollection();
+            InternalAggregations result = InternalAggregations.from(collector.internalAggregations);
+            cache.put(leaf, result);
+            leafResults.add(result);
+            leaf = null;
+            collector = null;
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return scoreMode;
+    }
+
+    @Override
+    public void doPostCollection() throws IOException {
+        finishLeaf();
+        if (leafResults.isEmpty()) {
+            // no segment was collected, build empty results
+            if (collector == null) {
+                collector = collectorSupplier.get();
+            }
+            collector.doPostCollection();
+            internalAggregations.addAll(collector.internalAggregations);
+        } else if (leafResults.size() == 1) {
+            internalAggregations.addAll(leafResults.get(0).asList());
+        } else {
+            internalAggregations.addAll(InternalAggregations.topLevelReduce(leafResults, reduceContextSupplier.get()).asList());
+        }
+    }
+}
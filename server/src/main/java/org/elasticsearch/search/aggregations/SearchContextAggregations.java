@@ -20,6 +20,7 @@ public class SearchContextAggregations {
     private final AggregatorFactories factories;
     private final Supplier<AggregationReduceContext.Builder> toAggregationReduceContextBuilder;
     private CollectorManager<AggregatorCollector, Void> aggCollectorManager;
+    private LeafAggregationsCache leafAggregationsCache;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -50,6 +51,21 @@ public class SearchContextAggregations {
         return aggCollectorManager;
     }
 
+    /**
+     * Sets the cache of the results of each segment. Must only be set if the aggregations support parallel collection, and the
+     * collection of a segment can't be interrupted, e.g. because of a timeout.
+     */
+    public void setLeafAggregationsCache(LeafAggregationsCache leafAggregationsCache) {
+        this.leafAggregationsCache = leafAggregationsCache;
+    }
+
+    /**
+     * Returns the cache of the results of each segment, or {@code null} if they are not cached.
+     */
+    public LeafAggregationsCache getLeafAggregationsCache() {
+        return leafAggregationsCache;
+    }
+
     /**
      * Returns if the aggregations needs to execute in sort order.
      */
@@ -13,6 +13,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.index.fieldvisitor.LeafStoredFieldLoader;
 import org.elasticsearch.index.fieldvisitor.StoredFieldLoader;
 import org.elasticsearch.index.mapper.IdLoader;
@@ -134,6 +135,8 @@ public final class FetchPhase {
             LeafReaderContext ctx;
             LeafNestedDocuments leafNestedDocuments;
             LeafStoredFieldLoader leafStoredFieldLoader;
+            StoredFieldLoader rootStoredFieldLoader;
+            LeafStoredFieldLoader leafRootStoredFieldLoader;
             SourceLoader.Leaf leafSourceLoader;
             IdLoader.Leaf leafIdLoader;
 
@@ -143,6 +146,7 @@ public final class FetchPhase {
                 this.ctx = ctx;
                 this.leafNestedDocuments = nestedDocuments.getLeafNestedDocuments(ctx);
                 this.leafStoredFieldLoader = storedFieldLoader.getLoader(ctx, docsInLeaf);
+                this.leafRootStoredFieldLoader = null;
                 this.leafSourceLoader = sourceLoader.leaf(ctx.reader(), docsInLeaf);
                 this.leafIdLoader = idLoader.leaf(leafStoredFieldLoader, ctx.reader(), docsInLeaf);
                 fieldLookupProvider.setNextReader(ctx);
@@ -154,6 +158,17 @@ public final class FetchPhase {
                 }
             }
 
+            // nested hits of the same root document, or of root documents in the same block, share the loader of the segment
+            private LeafStoredFieldLoader leafRootStoredFieldLoader() throws IOException {
+                if (leafRootStoredFieldLoader == null) {
+                    if (rootStoredFieldLoader == null) {
+                        rootStoredFieldLoader = profiler.storedFields(StoredFieldLoader.create(requiresSource, Collections.emptySet()));
+                    }
+                    leafRootStoredFieldLoader = rootStoredFieldLoader.getLoader(ctx, null);
+                }
+                return leafRootStoredFieldLoader;
+            }
+
             @Override
             protected SearchHit nextDoc(int doc) throws IOException {
                 if (context.isCancelled()) {
@@ -165,6 +180,7 @@ public final class FetchPhase {
                     profiler,
                     leafNestedDocuments,
                     leafStoredFieldLoader,
+                    this::leafRootStoredFieldLoader,
                     doc,
                     ctx,
                     leafSourceLoader,
@@ -223,6 +239,7 @@ public final class FetchPhase {
         Profiler profiler,
         LeafNestedDocuments nestedDocuments,
         LeafStoredFieldLoader leafStoredFieldLoader,
+        CheckedSupplier<LeafStoredFieldLoader, IOException> leafRootStoredFieldLoader,
         int docId,
         LeafReaderContext subReaderContext,
         SourceLoader.Leaf sourceLoader,
@@ -244,11 +261,11 @@ public final class FetchPhase {
             return prepareNestedHitContext(
                 context,
                 requiresSource,
-                profiler,
                 docId,
                 nestedDocuments,
                 subReaderContext,
                 leafStoredFieldLoader,
+                leafRootStoredFieldLoader,
                 rankDoc
             );
         }
@@ -324,11 +341,11 @@ public final class FetchPhase {
     private static HitContext prepareNestedHitContext(
         SearchContext context,
         boolean requiresSource,
-        Profiler profiler,
         int topDocId,
         LeafNestedDocuments nestedInfo,
         LeafReaderContext subReaderContext,
         LeafStoredFieldLoader childFieldLoader,
+        CheckedSupplier<LeafStoredFieldLoader, IOException> rootLoader,
         RankDoc rankDoc
     ) throws IOException {
 
@@ -342,8 +359,7 @@ public final class FetchPhase {
                 rootSource = innerHitsContext.getRootLookup();
             }
         } else {
-            StoredFieldLoader rootLoader = profiler.storedFields(StoredFieldLoader.create(requiresSource, Collections.emptySet()));
-            LeafStoredFieldLoader leafRootLoader = rootLoader.getLoader(subReaderContext, null);
+            LeafStoredFieldLoader leafRootLoader = rootLoader.get();
             leafRootLoader.advanceTo(nestedInfo.rootDoc());
             rootId = leafRootLoader.id();
 
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static java.util.Collections.unmodifiableMap;
+import static org.elasticsearch.threadpool.ThreadPool.VIRTUAL_THREAD_POOLS_SETTING;
 import static org.elasticsearch.threadpool.ThreadPool.WRITE_THREAD_POOLS_EWMA_ALPHA_SETTING;
 import static org.elasticsearch.threadpool.ThreadPool.searchAutoscalingEWMA;
 
@@ -203,6 +204,12 @@ public class DefaultBuiltInExecutorBuilders implements BuiltInExecutorBuilders {
                 new EsExecutors.TaskTrackingConfig(true, indexAutoscalingEWMA)
             )
         );
+        for (String name : VIRTUAL_THREAD_POOLS_SETTING.get(settings)) {
+            result.put(
+                name,
+                new VirtualExecutorBuilder(name, ThreadPool.DEFAULT_VIRTUAL_THREAD_POOL_MAX, -1, TimeValue.timeValueSeconds(30), false)
+            );
+        }
         return unmodifiableMap(result);
     }
 }
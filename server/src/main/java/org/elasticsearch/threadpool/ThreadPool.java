@@ -11,6 +11,7 @@ package org.elasticsearch.threadpool;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -46,6 +47,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
@@ -126,7 +129,8 @@ public class ThreadPool implements ReportingService<ThreadPoolInfo>, Scheduler {
         @Deprecated(forRemoval = true)
         @UpdateForV9(owner = UpdateForV9.Owner.CORE_INFRA) // no longer used, remove in v9
         FIXED_AUTO_QUEUE_SIZE("fixed_auto_queue_size"),
-        SCALING("scaling");
+        SCALING("scaling"),
+        VIRTUAL("virtual");
 
         private final String type;
 
@@ -175,6 +179,24 @@ public class ThreadPool implements ReportingService<ThreadPoolInfo>, Scheduler {
         entry(Names.SYSTEM_CRITICAL_WRITE, ThreadPoolType.FIXED)
     );
 
+    /**
+     * The built-in thread pools that spend most of their time blocked on disk or on a repository and so may run their tasks on
+     * virtual threads instead, see {@link #VIRTUAL_THREAD_POOLS_SETTING}. The {@link Names#GENERIC} pool isn't one of them: it
+     * runs all sorts of code, some of which blocks while holding monitors and so would pin the carrier threads, and some of which
+     * waits on other generic tasks and so could deadlock once the pool's {@code max} tasks are running.
+     */
+    public static final Set<String> VIRTUAL_THREAD_POOL_CANDIDATES = Set.of(
+        Names.SNAPSHOT,
+        Names.SNAPSHOT_META,
+        Names.FETCH_SHARD_STARTED,
+        Names.FETCH_SHARD_STORE
+    );
+
+    /**
+     * The default number of tasks that may run at once in a built-in thread pool that runs on virtual threads.
+     */
+    public static final int DEFAULT_VIRTUAL_THREAD_POOL_MAX = 1024;
+
     public static final double searchAutoscalingEWMA = 0.1;
 
     // This value is chosen such that a sudden increase in the task durations would need to persist roughly for 120 samples
@@ -238,6 +260,24 @@ public class ThreadPool implements ReportingService<ThreadPoolInfo>, Scheduler {
         Setting.Property.NodeScope
     );
 
+    // The built-in thread pools that run their tasks on virtual threads rather than on platform threads
+    public static final Setting<List<String>> VIRTUAL_THREAD_POOLS_SETTING = Setting.stringListSetting(
+        "thread_pool.virtual_threads.pools",
+        pools -> {
+            for (String pool : pools) {
+                if (VIRTUAL_THREAD_POOL_CANDIDATES.contains(pool) == false) {
+                    throw new IllegalArgumentException(
+                        "thread pool ["
+                            + pool
+                            + "] can't run on virtual threads, expected one of "
+                            + new TreeSet<>(VIRTUAL_THREAD_POOL_CANDIDATES)
+                    );
+                }
+            }
+        },
+        Setting.Property.NodeScope
+    );
+
     /**
      * Defines and builds the many thread pools delineated in {@link Names}.
      *
@@ -951,7 +991,12 @@ public class ThreadPool implements ReportingService<ThreadPoolInfo>, Scheduler {
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             out.writeString(name);
-            out.writeString(type.getType());
+            if (type == ThreadPoolType.VIRTUAL && out.getTransportVersion().before(TransportVersions.VIRTUAL_THREAD_POOL_TYPE)) {
+                // older nodes don't know about virtual thread pools, the closest thing they understand is a scaling one
+                out.writeString(ThreadPoolType.SCALING.getType());
+            } else {
+                out.writeString(type.getType());
+            }
             out.writeInt(min);
             out.writeInt(max);
             out.writeOptionalTimeValue(keepAlive);
@@ -989,7 +1034,7 @@ public class ThreadPool implements ReportingService<ThreadPoolInfo>, Scheduler {
             builder.startObject(name);
             builder.field("type", type.getType());
 
-            if (type == ThreadPoolType.SCALING) {
+            if (type == ThreadPoolType.SCALING || type == ThreadPoolType.VIRTUAL) {
                 assert min != -1;
                 builder.field("core", min);
                 assert max != -1;
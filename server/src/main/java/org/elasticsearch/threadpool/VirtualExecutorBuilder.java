@@ -0,0 +1,181 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.threadpool;
+
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.node.Node;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for executors that run their tasks on virtual threads.
+ *
+ * The {@link #build} method will instantiate a java {@link ExecutorService} that starts a new virtual thread for each task until
+ * {@code max} tasks are running and then queues the rest, discarding idle threads after {@code keep_alive}. Unlike the
+ * {@link FixedExecutorBuilder} and the {@link ScalingExecutorBuilder} a running task doesn't occupy an OS thread while it is blocked,
+ * so {@code max} can be much higher than the number of threads we would otherwise be willing to start. This makes these executors
+ * suitable for pools that mostly wait on disk or on a remote repository.
+ */
+public final class VirtualExecutorBuilder extends ExecutorBuilder<VirtualExecutorBuilder.VirtualExecutorSettings> {
+
+    private final Setting<Integer> coreSetting;
+    private final Setting<Integer> maxSetting;
+    private final Setting<Integer> queueSizeSetting;
+    private final Setting<TimeValue> keepAliveSetting;
+    private final boolean rejectAfterShutdown;
+    private final EsExecutors.TaskTrackingConfig trackingConfig;
+
+    /**
+     * Construct a virtual executor builder; the settings will have the
+     * key prefix "thread_pool." followed by the executor name.
+     *
+     * @param name      the name of the executor
+     * @param max       the maximum number of tasks that run at once
+     * @param queueSize the size of the backing queue, -1 for unbounded
+     * @param keepAlive the time that idle threads will be kept alive
+     * @param rejectAfterShutdown set to {@code true} if the executor should reject tasks after shutdown
+     */
+    public VirtualExecutorBuilder(
+        final String name,
+        final int max,
+        final int queueSize,
+        final TimeValue keepAlive,
+        final boolean rejectAfterShutdown
+    ) {
+        this(name, max, queueSize, keepAlive, rejectAfterShutdown, "thread_pool." + name, EsExecutors.TaskTrackingConfig.DO_NOT_TRACK);
+    }
+
+    /**
+     * Construct a virtual executor builder; the settings will have the
+     * specified key prefix.
+     *
+     * @param name      the name of the executor
+     * @param max       the maximum number of tasks that run at once
+     * @param queueSize the size of the backing queue, -1 for unbounded
+     * @param keepAlive the time that idle threads will be kept alive
+     * @param rejectAfterShutdown set to {@code true} if the executor should reject tasks after shutdown
+     * @param prefix    the prefix for the settings keys
+     * @param trackingConfig configuration that'll indicate if we should track statistics about task execution time
+     */
+    public VirtualExecutorBuilder(
+        final String name,
+        final int max,
+        final int queueSize,
+        final TimeValue keepAlive,
+        final boolean rejectAfterShutdown,
+        final String prefix,
+        final EsExecutors.TaskTrackingConfig trackingConfig
+    ) {
+        super(name);
+        // only registered so that a pool switched over from the scaling type gets a clear error rather than an unknown setting
+        this.coreSetting = Setting.intSetting(settingsKey(prefix, "core"), 0, 0, Setting.Property.NodeScope);
+        this.maxSetting = Setting.intSetting(settingsKey(prefix, "max"), max, 1, Setting.Property.NodeScope);
+        this.queueSizeSetting = Setting.intSetting(settingsKey(prefix, "queue_size"), queueSize, Setting.Property.NodeScope);
+        this.keepAliveSetting = Setting.timeSetting(
+            settingsKey(prefix, "keep_alive"),
+            keepAlive,
+            TimeValue.timeValueMillis(1),
+            Setting.Property.NodeScope
+        );
+        this.rejectAfterShutdown = rejectAfterShutdown;
+        this.trackingConfig = trackingConfig;
+    }
+
+    @Override
+    public List<Setting<?>> getRegisteredSettings() {
+        return Arrays.asList(coreSetting, maxSetting, queueSizeSetting, keepAliveSetting);
+    }
+
+    @Override
+    VirtualExecutorSettings getSettings(Settings settings) {
+        if (coreSetting.exists(settings)) {
+            throw new IllegalArgumentException(
+                "thread pool ["
+                    + name()
+                    + "] runs on virtual threads which don't have a core size, remove ["
+                    + coreSetting.getKey()
+                    + "] and use ["
+                    + maxSetting.getKey()
+                    + "] to limit the number of tasks that run at once"
+            );
+        }
+        final String nodeName = Node.NODE_NAME_SETTING.get(settings);
+        final int max = maxSetting.get(settings);
+        final int queueSize = queueSizeSetting.get(settings);
+        final TimeValue keepAlive = keepAliveSetting.get(settings);
+        return new VirtualExecutorSettings(nodeName, max, queueSize, keepAlive);
+    }
+
+    @Override
+    ThreadPool.ExecutorHolder build(final VirtualExecutorSettings settings, final ThreadContext threadContext) {
+        int max = settings.max;
+        int queueSize = settings.queueSize;
+        TimeValue keepAlive = settings.keepAlive;
+        final ThreadFactory threadFactory = EsExecutors.virtualThreadFactory(EsExecutors.threadName(settings.nodeName, name()));
+        final ExecutorService executor = EsExecutors.newVirtual(
+            settings.nodeName + "/" + name(),
+            max,
+            queueSize,
+            keepAlive.millis(),
+            TimeUnit.MILLISECONDS,
+            rejectAfterShutdown,
+            threadFactory,
+            threadContext,
+            trackingConfig
+        );
+        final ThreadPool.Info info = new ThreadPool.Info(
+            name(),
+            ThreadPool.ThreadPoolType.VIRTUAL,
+            0,
+            max,
+            keepAlive,
+            queueSize < 0 ? null : new SizeValue(queueSize)
+        );
+        return new ThreadPool.ExecutorHolder(executor, info);
+    }
+
+    @Override
+    String formatInfo(ThreadPool.Info info) {
+        return String.format(
+            Locale.ROOT,
+            "name [%s], virtual, max [%d], queue size [%s], keep alive [%s]",
+            info.getName(),
+            info.getMax(),
+            info.getQueueSize() == null ? "unbounded" : info.getQueueSize(),
+            info.getKeepAlive()
+        );
+    }
+
+    static class VirtualExecutorSettings extends ExecutorBuilder.ExecutorSettings {
+
+        private final int max;
+        private final int queueSize;
+        private final TimeValue keepAlive;
+
+        VirtualExecutorSettings(final String nodeName, final int max, final int queueSize, final TimeValue keepAlive) {
+            super(nodeName);
+            this.max = max;
+            this.queueSize = queueSize;
+            this.keepAlive = keepAlive;
+        }
+
+    }
+
+}
@@ -19,6 +19,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.core.Booleans;
 import org.elasticsearch.lz4.ESLZ4Compressor;
 import org.elasticsearch.lz4.ESLZ4Decompressor;
+import org.elasticsearch.nativeaccess.NativeAccess;
+import org.elasticsearch.nativeaccess.Zstd;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -27,14 +29,19 @@ public class Compression {
 
     public enum Scheme {
         LZ4,
-        DEFLATE;
+        DEFLATE,
+        ZSTD;
 
         static final TransportVersion LZ4_VERSION = TransportVersions.V_7_14_0;
+        static final TransportVersion ZSTD_VERSION = TransportVersions.TRANSPORT_COMPRESSION_ZSTD;
         static final int HEADER_LENGTH = 4;
         private static final byte[] DEFLATE_HEADER = new byte[] { 'D', 'F', 'L', '\0' };
         private static final byte[] LZ4_HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+        private static final byte[] ZSTD_HEADER = new byte[] { 'Z', 'S', 'T', '\0' };
         private static final int LZ4_BLOCK_SIZE;
         private static final boolean USE_FORKED_LZ4;
+        private static final int ZSTD_BLOCK_SIZE;
+        private static final int ZSTD_LEVEL;
 
         static {
             String blockSizeString = System.getProperty("es.transport.compression.lz4_block_size");
@@ -49,6 +56,23 @@ public class Compression {
             }
 
             USE_FORKED_LZ4 = Booleans.parseBoolean(System.getProperty("es.compression.use_forked_lz4", "true"));
+
+            String zstdBlockSizeString = System.getProperty("es.transport.compression.zstd_block_size");
+            if (zstdBlockSizeString != null) {
+                int zstdBlockSize = Integer.parseInt(zstdBlockSizeString);
+                if (zstdBlockSize < 1024 || zstdBlockSize > ZstdTransportDecompressor.MAX_BLOCK_SIZE) {
+                    throw new IllegalArgumentException("zstd_block_size must be >= 1KB and <= 1MB");
+                }
+                ZSTD_BLOCK_SIZE = zstdBlockSize;
+            } else {
+                ZSTD_BLOCK_SIZE = 128 * 1024;
+            }
+
+            int zstdLevel = Integer.parseInt(System.getProperty("es.transport.compression.zstd_level", "1"));
+            if (zstdLevel < 1 || zstdLevel > 19) {
+                throw new IllegalArgumentException("zstd_level must be >= 1 and <= 19");
+            }
+            ZSTD_LEVEL = zstdLevel;
         }
 
         public static boolean isDeflate(BytesReference bytes) {
@@ -69,6 +93,15 @@ public class Compression {
             }
         }
 
+        public static boolean isZstd(BytesReference bytes) {
+            byte firstByte = bytes.get(0);
+            if (firstByte != Scheme.ZSTD_HEADER[0]) {
+                return false;
+            } else {
+                return validateHeader(bytes, ZSTD_HEADER);
+            }
+        }
+
         private static boolean validateHeader(BytesReference bytes, byte[] header) {
             for (int i = 1; i < Compression.Scheme.HEADER_LENGTH; ++i) {
                 if (bytes.get(i) != header[i]) {
@@ -96,6 +129,31 @@ public class Compression {
             }
             return new ReuseBuffersLZ4BlockOutputStream(outputStream, LZ4_BLOCK_SIZE, lz4Compressor);
         }
+
+        /**
+         * Whether zstd can be used on this node, which requires native access.
+         */
+        public static boolean isZstdAvailable() {
+            return ZstdHolder.ZSTD != null;
+        }
+
+        static Zstd zstd() {
+            if (ZstdHolder.ZSTD == null) {
+                throw new IllegalStateException("zstd compression requires native access");
+            }
+            return ZstdHolder.ZSTD;
+        }
+
+        public static OutputStream zstdOutputStream(OutputStream outputStream) throws IOException {
+            Zstd zstd = zstd();
+            outputStream.write(ZSTD_HEADER);
+            return new ZstdTransportOutputStream(outputStream, ZSTD_BLOCK_SIZE, ZSTD_LEVEL, zstd);
+        }
+
+        // resolved lazily, and only once, since native access logs a warning each time zstd is requested but not available
+        private static final class ZstdHolder {
+            private static final Zstd ZSTD = NativeAccess.instance().getZstd();
+        }
     }
 
     public enum Enabled {
@@ -18,6 +18,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -28,6 +29,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * Sends and receives transport-level connection handshakes. This class will send the initial handshake, manage state/timeouts while the
@@ -41,6 +44,11 @@ final class TransportHandshaker {
      * ignores the body of the request. After the handshake, the OutboundHandler uses the min(local,remote) protocol version for all later
      * messages.
      *
+     * If both nodes are on or after TRANSPORT_COMPRESSION_ZSTD then the response has one more byte after the version, telling the
+     * node that opened the connection whether the responding node can decompress zstd. If it can't, usually because it has no native
+     * access, then the connection falls back to lz4. Responses are compressed with the scheme of the request they answer so the
+     * responding node doesn't need to know the same about the node that opened the connection.
+     *
      * This version supports two handshake protocols, v6080099 and v7170099, which respectively have the same message structure as the
      * transport protocols of v6.8.0 and v7.17.0. This node only sends v7170099 requests, but it can send a valid response to any v6080099
      * requests that it receives.
@@ -128,17 +136,29 @@ final class TransportHandshaker {
     private final ThreadPool threadPool;
     private final HandshakeRequestSender handshakeRequestSender;
     private final boolean ignoreDeserializationErrors;
+    private final BooleanSupplier zstdSupported;
 
     TransportHandshaker(
         TransportVersion version,
         ThreadPool threadPool,
         HandshakeRequestSender handshakeRequestSender,
         boolean ignoreDeserializationErrors
+    ) {
+        this(version, threadPool, handshakeRequestSender, ignoreDeserializationErrors, Compression.Scheme::isZstdAvailable);
+    }
+
+    TransportHandshaker(
+        TransportVersion version,
+        ThreadPool threadPool,
+        HandshakeRequestSender handshakeRequestSender,
+        boolean ignoreDeserializationErrors,
+        BooleanSupplier zstdSupported
     ) {
         this.version = version;
         this.threadPool = threadPool;
         this.handshakeRequestSender = handshakeRequestSender;
         this.ignoreDeserializationErrors = ignoreDeserializationErrors;
+        this.zstdSupported = zstdSupported;
     }
 
     void sendHandshake(
@@ -146,7 +166,7 @@ final class TransportHandshaker {
         DiscoveryNode node,
         TcpChannel channel,
         TimeValue timeout,
-        ActionListener<TransportVersion> listener
+        ActionListener<TcpTransport.HandshakeResult> listener
     ) {
         numHandshakes.inc();
         final HandshakeResponseHandler handler = new HandshakeResponseHandler(requestId, listener);
@@ -175,9 +195,10 @@ final class TransportHandshaker {
     }
 
     void handleHandshake(TransportChannel channel, long requestId, StreamInput stream) throws IOException {
+        final HandshakeRequest request;
         try {
             // Must read the handshake request to exhaust the stream
-            new HandshakeRequest(stream);
+            request = new HandshakeRequest(stream);
         } catch (Exception e) {
             assert ignoreDeserializationErrors : e;
             throw e;
@@ -196,7 +217,21 @@ final class TransportHandshaker {
             assert ignoreDeserializationErrors : exception;
             throw exception;
         }
-        channel.sendResponse(new HandshakeResponse(this.version));
+        if (exchangesZstdSupport(request.version)) {
+            channel.sendResponse(new HandshakeResponse(this.version, zstdSupported.getAsBoolean()));
+        } else {
+            channel.sendResponse(new HandshakeResponse(this.version));
+        }
+    }
+
+    /**
+     * Does the handshake response tell a node of the {@code remoteVersion} whether we support zstd compression? Both
+     * sides of the handshake have to know about it, so we check this with the version of the remote node and our own.
+     */
+    private boolean exchangesZstdSupport(@Nullable TransportVersion remoteVersion) {
+        return remoteVersion != null
+            && remoteVersion.onOrAfter(Compression.Scheme.ZSTD_VERSION)
+            && version.onOrAfter(Compression.Scheme.ZSTD_VERSION);
     }
 
     TransportResponseHandler<HandshakeResponse> removeHandlerForHandshake(long requestId) {
@@ -214,17 +249,17 @@ final class TransportHandshaker {
     private class HandshakeResponseHandler implements TransportResponseHandler<HandshakeResponse> {
 
         private final long requestId;
-        private final ActionListener<TransportVersion> listener;
+        private final ActionListener<TcpTransport.HandshakeResult> listener;
         private final AtomicBoolean isDone = new AtomicBoolean(false);
 
-        private HandshakeResponseHandler(long requestId, ActionListener<TransportVersion> listener) {
+        private HandshakeResponseHandler(long requestId, ActionListener<TcpTransport.HandshakeResult> listener) {
             this.requestId = requestId;
             this.listener = listener;
         }
 
         @Override
         public HandshakeResponse read(StreamInput in) throws IOException {
-            return new HandshakeResponse(in);
+            return new HandshakeResponse(in, TransportHandshaker.this::exchangesZstdSupport);
         }
 
         @Override
@@ -247,7 +282,7 @@ final class TransportHandshaker {
                         )
                     );
                 } else {
-                    listener.onResponse(responseVersion);
+                    listener.onResponse(new TcpTransport.HandshakeResult(responseVersion, response.isZstdSupported()));
                 }
             }
         }
@@ -306,25 +341,44 @@ final class TransportHandshaker {
     static final class HandshakeResponse extends TransportResponse {
 
         private final TransportVersion responseVersion;
+        private final boolean writeZstdSupported;
+        private final boolean zstdSupported;
 
         HandshakeResponse(TransportVersion responseVersion) {
             this.responseVersion = responseVersion;
+            this.writeZstdSupported = false;
+            this.zstdSupported = false;
         }
 
-        private HandshakeResponse(StreamInput in) throws IOException {
+        HandshakeResponse(TransportVersion responseVersion, boolean zstdSupported) {
+            this.responseVersion = responseVersion;
+            this.writeZstdSupported = true;
+            this.zstdSupported = zstdSupported;
+        }
+
+        private HandshakeResponse(StreamInput in, Predicate<TransportVersion> readZstdSupported) throws IOException {
             super(in);
             responseVersion = TransportVersion.readVersion(in);
+            writeZstdSupported = readZstdSupported.test(responseVersion);
+            zstdSupported = writeZstdSupported && in.readBoolean();
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             assert responseVersion != null;
             TransportVersion.writeVersion(responseVersion, out);
+            if (writeZstdSupported) {
+                out.writeBoolean(zstdSupported);
+            }
         }
 
         TransportVersion getResponseVersion() {
             return responseVersion;
         }
+
+        boolean isZstdSupported() {
+            return zstdSupported;
+        }
     }
 
     @FunctionalInterface
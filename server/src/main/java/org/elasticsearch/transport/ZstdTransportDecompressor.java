@@ -0,0 +1,269 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.transport;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.nativeaccess.CloseableByteBuffer;
+import org.elasticsearch.nativeaccess.NativeAccess;
+import org.elasticsearch.nativeaccess.Zstd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Decompresses the blocks written by {@link ZstdTransportOutputStream} as they are received.
+ * <p>
+ * Compressed blocks are decompressed through native buffers that are reused by all the messages that a thread decompresses. Messages
+ * are decompressed on the transport threads, which live as long as the node, and the buffers are bounded by the maximum block size.
+ */
+public class ZstdTransportDecompressor extends TransportDecompressor {
+
+    static final int MAX_BLOCK_SIZE = 1 << 20;
+
+    private static final class NativeBuffers {
+        private CloseableByteBuffer src;
+        private CloseableByteBuffer dest;
+
+        private void ensureCapacity(int compressedLength, int decompressedLength) {
+            final NativeAccess nativeAccess = NativeAccess.instance();
+            if (src == null || src.buffer().capacity() < compressedLength) {
+                if (src != null) {
+                    src.close();
+                    src = null;
+                }
+                src = nativeAccess.newBuffer(compressedLength);
+            }
+            if (dest == null || dest.buffer().capacity() < decompressedLength) {
+                if (dest != null) {
+                    dest.close();
+                    dest = null;
+                }
+                dest = nativeAccess.newBuffer(decompressedLength);
+            }
+        }
+    }
+
+    private static final ThreadLocal<NativeBuffers> NATIVE_BUFFERS = ThreadLocal.withInitial(NativeBuffers::new);
+
+    private enum State {
+        INIT_BLOCK,
+        DECOMPRESS_DATA,
+        FINISHED,
+        CORRUPTED
+    }
+
+    private final Zstd zstd;
+
+    private State currentState = State.INIT_BLOCK;
+
+    /**
+     * Type of current block.
+     */
+    private int blockType;
+
+    /**
+     * Compressed length of current incoming block.
+     */
+    private int compressedLength;
+
+    /**
+     * Decompressed length of current incoming block.
+     */
+    private int decompressedLength;
+
+    public ZstdTransportDecompressor(Recycler<BytesRef> recycler) {
+        super(recycler);
+        this.zstd = Compression.Scheme.zstd();
+    }
+
+    @Override
+    public Compression.Scheme getScheme() {
+        return Compression.Scheme.ZSTD;
+    }
+
+    @Override
+    public int decompress(BytesReference bytesReference) throws IOException {
+        int bytesConsumed = 0;
+        if (hasSkippedHeader == false) {
+            hasSkippedHeader = true;
+            int esHeaderLength = Compression.Scheme.HEADER_LENGTH;
+            bytesReference = bytesReference.slice(esHeaderLength, bytesReference.length() - esHeaderLength);
+            bytesConsumed += esHeaderLength;
+        }
+
+        while (true) {
+            int consumed = decodeBlock(bytesReference);
+            bytesConsumed += consumed;
+            int newLength = bytesReference.length() - consumed;
+            if (consumed > 0 && newLength > 0) {
+                bytesReference = bytesReference.slice(consumed, newLength);
+            } else {
+                break;
+            }
+        }
+
+        return bytesConsumed;
+    }
+
+    private int decodeBlock(BytesReference reference) throws IOException {
+        int bytesConsumed = 0;
+        try {
+            switch (currentState) {
+                case INIT_BLOCK -> {
+                    if (reference.length() < ZstdTransportOutputStream.HEADER_LENGTH) {
+                        return bytesConsumed;
+                    }
+                    try (StreamInput in = reference.streamInput()) {
+                        final int blockType = in.readByte();
+                        final int compressedLength = in.readInt();
+                        final int decompressedLength = in.readInt();
+                        validateBlockHeader(blockType, compressedLength, decompressedLength);
+                        bytesConsumed += ZstdTransportOutputStream.HEADER_LENGTH;
+
+                        if (decompressedLength == 0) {
+                            currentState = State.FINISHED;
+                            return bytesConsumed;
+                        }
+
+                        this.blockType = blockType;
+                        this.compressedLength = compressedLength;
+                        this.decompressedLength = decompressedLength;
+                    }
+                    currentState = State.DECOMPRESS_DATA;
+                }
+                case DECOMPRESS_DATA -> {
+                    if (reference.length() < compressedLength) {
+                        return bytesConsumed;
+                    }
+                    final BytesReference block = reference.slice(0, compressedLength);
+                    if (blockType == ZstdTransportOutputStream.BLOCK_TYPE_RAW) {
+                        final BytesRefIterator iterator = block.iterator();
+                        BytesRef ref;
+                        while ((ref = iterator.next()) != null) {
+                            copyToPages(ref.bytes, ref.offset, ref.length);
+                        }
+                    } else {
+                        decompressBlock(block);
+                    }
+                    bytesConsumed += compressedLength;
+                    currentState = State.INIT_BLOCK;
+                }
+                case FINISHED -> {}
+                case CORRUPTED -> throw new IllegalStateException("zstd stream corrupted.");
+            }
+        } catch (IOException | RuntimeException e) {
+            currentState = State.CORRUPTED;
+            throw e;
+        }
+        return bytesConsumed;
+    }
+
+    private static void validateBlockHeader(int blockType, int compressedLength, int decompressedLength) {
+        if (blockType != ZstdTransportOutputStream.BLOCK_TYPE_RAW && blockType != ZstdTransportOutputStream.BLOCK_TYPE_ZSTD) {
+            throw new IllegalStateException(
+                String.format(
+                    Locale.ROOT,
+                    "unexpected blockType: %d (expected: %d or %d)",
+                    blockType,
+                    ZstdTransportOutputStream.BLOCK_TYPE_RAW,
+                    ZstdTransportOutputStream.BLOCK_TYPE_ZSTD
+                )
+            );
+        }
+        if (decompressedLength < 0 || decompressedLength > MAX_BLOCK_SIZE) {
+            throw new IllegalStateException(
+                String.format(Locale.ROOT, "invalid decompressedLength: %d (expected: 0-%d)", decompressedLength, MAX_BLOCK_SIZE)
+            );
+        }
+        if (compressedLength < 0
+            || (decompressedLength == 0) != (compressedLength == 0)
+            || compressedLength > decompressedLength
+            || blockType == ZstdTransportOutputStream.BLOCK_TYPE_RAW && compressedLength != decompressedLength) {
+            throw new IllegalStateException(
+                String.format(
+                    Locale.ROOT,
+                    "stream corrupted: compressedLength(%d) and decompressedLength(%d) mismatch",
+                    compressedLength,
+                    decompressedLength
+                )
+            );
+        }
+    }
+
+    private void decompressBlock(BytesReference block) throws IOException {
+        final NativeBuffers buffers = NATIVE_BUFFERS.get();
+        buffers.ensureCapacity(compressedLength, decompressedLength);
+        final ByteBuffer src = buffers.src.buffer();
+        src.clear();
+        final BytesRefIterator iterator = block.iterator();
+        BytesRef ref;
+        while ((ref = iterator.next()) != null) {
+            src.put(ref.bytes, ref.offset, ref.length);
+        }
+        src.flip();
+        final ByteBuffer dest = buffers.dest.buffer();
+        dest.clear();
+        dest.limit(decompressedLength);
+        final int decompressed;
+        try {
+            decompressed = zstd.decompress(buffers.dest, buffers.src);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("zstd stream corrupted.", e);
+        }
+        if (decompressed != decompressedLength) {
+            throw new IllegalStateException(
+                String.format(
+                    Locale.ROOT,
+                    "stream corrupted: expected %d decompressed bytes, got %d",
+                    decompressedLength,
+                    decompressed
+                )
+            );
+        }
+        copyToPages(dest, decompressedLength);
+    }
+
+    private void copyToPages(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            maybeAddNewPage();
+            final BytesRef page = pages.getLast().v();
+            int toCopy = Math.min(length, pageLength - pageOffset);
+            System.arraycopy(bytes, offset, page.bytes, page.offset + pageOffset, toCopy);
+            pageOffset += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+        }
+    }
+
+    private void copyToPages(ByteBuffer buffer, int length) {
+        int offset = 0;
+        while (offset < length) {
+            maybeAddNewPage();
+            final BytesRef page = pages.getLast().v();
+            int toCopy = Math.min(length - offset, pageLength - pageOffset);
+            buffer.get(offset, page.bytes, page.offset + pageOffset, toCopy);
+            pageOffset += toCopy;
+            offset += toCopy;
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream
+     * has been reached.
+     */
+    public boolean isClosed() {
+        return currentState == State.FINISHED;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.transport;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.nativeaccess.CloseableByteBuffer;
+import org.elasticsearch.nativeaccess.NativeAccess;
+import org.elasticsearch.nativeaccess.Zstd;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses a transport message with zstd, one block at a time so that the message is compressed while it is serialized and can
+ * be decompressed as it is received, see {@link ZstdTransportDecompressor}. Each block is written with a header holding its type and
+ * its compressed and decompressed lengths, blocks that zstd can't shrink are written as they are, and the stream ends with an empty
+ * block.
+ * <p>
+ * The block is buffered in an array that is reused by all the streams of a thread, and is compressed through two native buffers that
+ * are allocated on the first block and reused for the following blocks of the message.
+ */
+public class ZstdTransportOutputStream extends FilterOutputStream {
+
+    private static class ArrayBox {
+        private byte[] uncompressed = BytesRef.EMPTY_BYTES;
+        private boolean owned = false;
+
+        private byte[] markOwnership(int blockSize) {
+            assert owned == false;
+            owned = true;
+            if (blockSize > uncompressed.length) {
+                uncompressed = new byte[blockSize];
+            }
+            return uncompressed;
+        }
+
+        private void release() {
+            owned = false;
+        }
+    }
+
+    private static final ThreadLocal<ArrayBox> ARRAY_BOX = ThreadLocal.withInitial(ArrayBox::new);
+
+    static final int HEADER_LENGTH = 1 // block type
+        + 4 // compressed length
+        + 4; // decompressed length
+
+    static final int BLOCK_TYPE_RAW = 0x10;
+    static final int BLOCK_TYPE_ZSTD = 0x20;
+
+    private final Zstd zstd;
+    private final int level;
+    private final ArrayBox arrayBox;
+    private final byte[] buffer;
+    private final byte[] header = new byte[HEADER_LENGTH];
+    private byte[] copyBuffer = BytesRef.EMPTY_BYTES;
+    private CloseableByteBuffer src;
+    private CloseableByteBuffer dest;
+    private boolean finished = false;
+    private int o = 0;
+
+    /**
+     * @param out       the {@link OutputStream} to feed
+     * @param blockSize the number of bytes to compress at once
+     * @param level     the zstd compression level
+     * @param zstd      the native zstd binding
+     */
+    public ZstdTransportOutputStream(OutputStream out, int blockSize, int level, Zstd zstd) {
+        super(out);
+        if (blockSize <= 0 || blockSize > ZstdTransportDecompressor.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(
+                "blockSize must be > 0 and <= " + ZstdTransportDecompressor.MAX_BLOCK_SIZE + ", got " + blockSize
+            );
+        }
+        this.zstd = zstd;
+        this.level = level;
+        this.arrayBox = ARRAY_BOX.get();
+        this.buffer = arrayBox.markOwnership(blockSize);
+    }
+
+    private void ensureNotFinished() {
+        if (finished) {
+            throw new IllegalStateException("This stream is already closed");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureNotFinished();
+        if (o == buffer.length) {
+            flushBufferedData();
+        }
+        buffer[o++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureNotFinished();
+        while (o + len > buffer.length) {
+            final int l = buffer.length - o;
+            System.arraycopy(b, off, buffer, o, l);
+            o = buffer.length;
+            flushBufferedData();
+            off += l;
+            len -= l;
+        }
+        System.arraycopy(b, off, buffer, o, len);
+        o += len;
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (finished == false) {
+                finish();
+            }
+            out.close();
+        } finally {
+            closeNativeBuffers();
+            arrayBox.release();
+        }
+    }
+
+    private void flushBufferedData() throws IOException {
+        if (o == 0) {
+            return;
+        }
+        ensureNativeBuffers(o);
+        src.buffer().clear();
+        src.buffer().put(buffer, 0, o);
+        src.buffer().flip();
+        dest.buffer().clear();
+        final int compressedLength = zstd.compress(dest, src, level);
+        if (compressedLength >= o) {
+            writeHeader(BLOCK_TYPE_RAW, o, o);
+            out.write(buffer, 0, o);
+        } else {
+            writeHeader(BLOCK_TYPE_ZSTD, compressedLength, o);
+            if (copyBuffer.length < compressedLength) {
+                copyBuffer = new byte[buffer.length];
+            }
+            dest.buffer().get(0, copyBuffer, 0, compressedLength);
+            out.write(copyBuffer, 0, compressedLength);
+        }
+        o = 0;
+    }
+
+    private void ensureNativeBuffers(int length) {
+        // the first block is the only one that may be smaller than the block size, size the buffers for it so that small messages
+        // don't allocate native memory for a whole block
+        if (src == null || src.buffer().capacity() < length) {
+            final NativeAccess nativeAccess = NativeAccess.instance();
+            closeNativeBuffers();
+            src = nativeAccess.newBuffer(length);
+            dest = nativeAccess.newBuffer(zstd.compressBound(length));
+        }
+    }
+
+    private void closeNativeBuffers() {
+        try {
+            if (src != null) {
+                src.close();
+            }
+        } finally {
+            src = null;
+            if (dest != null) {
+                dest.close();
+                dest = null;
+            }
+        }
+    }
+
+    private void writeHeader(int blockType, int compressedLength, int decompressedLength) throws IOException {
+        header[0] = (byte) blockType;
+        writeInt(compressedLength, header, 1);
+        writeInt(decompressedLength, header, 5);
+        out.write(header, 0, HEADER_LENGTH);
+    }
+
+    private static void writeInt(int i, byte[] buf, int off) {
+        buf[off++] = (byte) (i >>> 24);
+        buf[off++] = (byte) (i >>> 16);
+        buf[off++] = (byte) (i >>> 8);
+        buf[off] = (byte) i;
+    }
+
+    /**
+     * Flushes this compressed {@link OutputStream}. The buffered data is compressed as a block, which hurts the compression ratio, so
+     * this should only be called when the message is complete.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            flushBufferedData();
+            out.flush();
+        }
+    }
+
+    /**
+     * Same as {@link #close()} except that it doesn't close the underlying stream.
+     */
+    public void finish() throws IOException {
+        ensureNotFinished();
+        flushBufferedData();
+        writeHeader(BLOCK_TYPE_RAW, 0, 0);
+        out.flush();
+        finished = true;
+    }
+}
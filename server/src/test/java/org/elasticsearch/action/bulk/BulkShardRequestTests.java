@@ -14,8 +14,14 @@ import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xcontent.XContentType;
 
 import java.io.IOException;
 
@@ -60,6 +66,40 @@ public class BulkShardRequestTests extends ESTestCase {
         assertThat(bulkShardRequest.getRefreshPolicy(), equalTo(copy.getRefreshPolicy()));
     }
 
+    public void testPooledSources() throws IOException {
+        String indexName = randomAlphaOfLength(10);
+        ShardId shardId = new ShardId(indexName, randomAlphaOfLength(10), 0);
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(1, 10)];
+        for (int i = 0; i < items.length; i++) {
+            final DocWriteRequest<?> request = i == 0 || randomBoolean()
+                ? new IndexRequest(indexName).id("id_" + i).source("{\"field\":" + i + "}", XContentType.JSON)
+                : new DeleteRequest(indexName, "id_" + i);
+            items[i] = new BulkItemRequest(i, request);
+        }
+        BulkShardRequest request = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.writeTo(out);
+            RefCounted bufferRefs = AbstractRefCounted.of(() -> {});
+            ReleasableBytesReference buffer = new ReleasableBytesReference(out.bytes(), bufferRefs);
+            BulkShardRequest copy;
+            try (StreamInput in = buffer.streamInput()) {
+                copy = BulkShardRequest.readPooled(in);
+            }
+            buffer.decRef();
+
+            // the sources of the index requests retain the buffer they were read from
+            assertTrue(bufferRefs.hasReferences());
+            for (int i = 0; i < items.length; i++) {
+                if (items[i].request() instanceof IndexRequest indexRequest) {
+                    assertThat(((IndexRequest) copy.items()[i].request()).source(), equalTo(indexRequest.source()));
+                }
+            }
+            assertTrue(copy.decRef());
+            assertFalse(bufferRefs.hasReferences());
+        }
+    }
+
     protected BulkShardRequest randomBulkShardRequest() {
         String indexName = randomAlphaOfLength(100);
         ShardId shardId = new ShardId(indexName, randomAlphaOfLength(50), randomInt());
@@ -0,0 +1,132 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.client.NoOpNodeClient;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IncrementalBulkServiceTests extends ESTestCase {
+
+    public void testRetryRejectedItems() {
+        try (var threadPool = createThreadPool()) {
+            List<List<String>> requests = new CopyOnWriteArrayList<>();
+            var client = new RejectingClient(threadPool, requests, 2);
+            var service = new IncrementalBulkService(client, new IndexingPressure(Settings.EMPTY), threadPool.getThreadContext());
+
+            PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+            service.newBulkRequest().lastItems(indexRequests(0, 4), () -> {}, future);
+            BulkResponse response = safeGet(future);
+
+            assertFalse(response.hasFailures());
+            assertThat(requests, contains(List.of("0", "1", "2", "3"), List.of("1", "3"), List.of("3")));
+            BulkItemResponse[] items = response.getItems();
+            assertThat(items.length, equalTo(4));
+            for (int i = 0; i < items.length; i++) {
+                assertThat(items[i].getItemId(), equalTo(i));
+                assertThat(items[i].getId(), equalTo(Integer.toString(i)));
+            }
+        }
+    }
+
+    public void testNextItemsWaitForRetries() {
+        try (var threadPool = createThreadPool()) {
+            List<List<String>> requests = new CopyOnWriteArrayList<>();
+            var client = new RejectingClient(threadPool, requests, 1);
+            // split the bulk on every chunk
+            Settings settings = Settings.builder()
+                .put(IndexingPressure.SPLIT_BULK_LOW_WATERMARK.getKey(), "0b")
+                .put(IndexingPressure.SPLIT_BULK_LOW_WATERMARK_SIZE.getKey(), "0b")
+                .build();
+            var service = new IncrementalBulkService(client, new IndexingPressure(settings), threadPool.getThreadContext());
+
+            IncrementalBulkService.Handler handler = service.newBulkRequest();
+            CountDownLatch nextItems = new CountDownLatch(1);
+            AtomicReference<List<List<String>>> sentBeforeNextItems = new AtomicReference<>();
+            handler.addItems(indexRequests(0, 2), () -> {}, () -> {
+                sentBeforeNextItems.set(List.copyOf(requests));
+                nextItems.countDown();
+            });
+            safeAwait(nextItems);
+            // the rejected item was retried before the next items were read
+            assertThat(sentBeforeNextItems.get(), contains(List.of("0", "1"), List.of("1")));
+
+            PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+            handler.lastItems(indexRequests(2, 3), () -> {}, future);
+            BulkResponse response = safeGet(future);
+            assertFalse(response.hasFailures());
+            assertThat(response.getItems().length, equalTo(3));
+        }
+    }
+
+    private static List<DocWriteRequest<?>> indexRequests(int from, int to) {
+        List<DocWriteRequest<?>> requests = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            requests.add(new IndexRequest("index").id(Integer.toString(i)).source("field", i));
+        }
+        return requests;
+    }
+
+    /**
+     * Rejects the items with an odd id the first time they are sent, as the shards would if they were under indexing pressure, and
+     * keeps rejecting the item with id 3 for the given number of attempts.
+     */
+    private static class RejectingClient extends NoOpNodeClient {
+
+        private final List<List<String>> requests;
+        private final int rejections;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        RejectingClient(ThreadPool threadPool, List<List<String>> requests, int rejections) {
+            super(threadPool);
+            this.requests = requests;
+            this.rejections = rejections;
+        }
+
+        @Override
+        public void bulk(BulkRequest request, ActionListener<BulkResponse> listener) {
+            final int attempt = attempts.getAndIncrement();
+            requests.add(request.requests().stream().map(DocWriteRequest::id).toList());
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                DocWriteRequest<?> item = request.requests().get(i);
+                int id = Integer.parseInt(item.id());
+                if (id % 2 == 1 && attempt < rejections && (attempt == 0 || id == 3)) {
+                    Exception e = new EsRejectedExecutionException("rejected execution of primary operation");
+                    items[i] = BulkItemResponse.failure(i, item.opType(), new BulkItemResponse.Failure("index", item.id(), e));
+                } else {
+                    ShardId shardId = new ShardId(new Index("index", "_na_"), 0);
+                    items[i] = BulkItemResponse.success(i, item.opType(), new IndexResponse(shardId, item.id(), 1, 1, 1, true));
+                }
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        }
+    }
+}
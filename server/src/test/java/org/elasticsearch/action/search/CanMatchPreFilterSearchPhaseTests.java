@@ -31,6 +31,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexVersion;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.CoordinatorRewriteContext;
 import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.RangeQueryBuilder;
@@ -542,6 +543,65 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         );
     }
 
+    public void testCoordinatorRewriteRunsOncePerIndex() throws Exception {
+        Index dataStreamIndex1 = new Index(".ds-mydata0001", UUIDs.base64UUID());
+        Index dataStreamIndex2 = new Index(".ds-mydata0002", UUIDs.base64UUID());
+        DataStream dataStream = DataStreamTestHelper.newInstance("mydata", List.of(dataStreamIndex1, dataStreamIndex2));
+        List<Index> regularIndices = randomList(0, 2, () -> new Index(randomAlphaOfLength(10), UUIDs.base64UUID()));
+
+        long indexMinTimestamp = randomLongBetween(0, 5000);
+        long indexMaxTimestamp = randomLongBetween(indexMinTimestamp, 5000 * 2);
+        StaticCoordinatorRewriteContextProviderBuilder contextProviderBuilder = new StaticCoordinatorRewriteContextProviderBuilder();
+        for (Index dataStreamIndex : dataStream.getIndices()) {
+            contextProviderBuilder.addIndexMinMaxTimestamps(
+                dataStreamIndex,
+                DataStream.TIMESTAMP_FIELD_NAME,
+                indexMinTimestamp,
+                indexMaxTimestamp
+            );
+        }
+        CoordinatorRewriteContextProvider contextProvider = contextProviderBuilder.build();
+        Map<Index, AtomicInteger> rewritesByIndex = new ConcurrentHashMap<>();
+        CoordinatorRewriteContextProvider countingContextProvider = new CoordinatorRewriteContextProvider(
+            XContentParserConfiguration.EMPTY,
+            mock(Client.class),
+            System::currentTimeMillis,
+            () -> ClusterState.EMPTY_STATE,
+            index -> null
+        ) {
+            @Override
+            public CoordinatorRewriteContext getCoordinatorRewriteContext(Index index) {
+                rewritesByIndex.computeIfAbsent(index, k -> new AtomicInteger()).incrementAndGet();
+                return contextProvider.getCoordinatorRewriteContext(index);
+            }
+        };
+
+        RangeQueryBuilder rangeQueryBuilder = new RangeQueryBuilder(DataStream.TIMESTAMP_FIELD_NAME);
+        rangeQueryBuilder.from(indexMaxTimestamp + 1).to(indexMaxTimestamp + 2);
+
+        assignShardsAndExecuteCanMatchPhase(
+            List.of(dataStream),
+            regularIndices,
+            countingContextProvider,
+            new BoolQueryBuilder().filter(rangeQueryBuilder),
+            List.of(),
+            null,
+            (updatedSearchShardIterators, requests) -> {
+                Set<Index> searchedIndices = new HashSet<>();
+                for (SearchShardIterator searchShardIterator : updatedSearchShardIterators) {
+                    searchedIndices.add(searchShardIterator.shardId().getIndex());
+                }
+                assertThat(rewritesByIndex.keySet(), equalTo(searchedIndices));
+                for (AtomicInteger rewrites : rewritesByIndex.values()) {
+                    assertThat(rewrites.get(), equalTo(1));
+                }
+                boolean allRequestsWereTriggeredAgainstRegularIndices = requests.stream()
+                    .allMatch(request -> regularIndices.contains(request.shardId().getIndex()));
+                assertThat(allRequestsWereTriggeredAgainstRegularIndices, equalTo(true));
+            }
+        );
+    }
+
     public void testCoordinatorCanMatchFilteringThatCanBeSkippedUsingBothTimestamps() throws Exception {
         Index dataStreamIndex1 = new Index(".ds-twoTimestamps0001", UUIDs.base64UUID());
         Index dataStreamIndex2 = new Index(".ds-twoTimestamps0002", UUIDs.base64UUID());
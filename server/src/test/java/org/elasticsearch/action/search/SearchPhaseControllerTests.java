@@ -852,6 +852,74 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
     }
 
+    /**
+     * Waits for each shard result to be acknowledged before sending the next one, like a search
+     * throttled by {@code max_concurrent_shard_requests}, and checks that no more than
+     * {@code batched_reduce_size} shard results hold on to their aggregations at once.
+     */
+    public void testConsumerBoundsBufferedAggs() throws Exception {
+        int bufferSize = randomIntBetween(2, 10);
+        int expectedNumResults = randomIntBetween(bufferSize, 100);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(new MaxAggregationBuilder("test")).size(0));
+        request.setBatchedReduceSize(bufferSize);
+        try (
+            SearchPhaseResults<SearchPhaseResult> consumer = searchPhaseController.newSearchPhaseResults(
+                fixedExecutor,
+                new NoopCircuitBreaker(CircuitBreaker.REQUEST),
+                () -> false,
+                SearchProgressListener.NOOP,
+                request,
+                expectedNumResults,
+                exc -> {}
+            )
+        ) {
+            List<QuerySearchResult> consumed = new ArrayList<>();
+            int maxBuffered = 0;
+            int max = 0;
+            for (int i = 0; i < expectedNumResults; i++) {
+                int number = randomIntBetween(1, 1000);
+                max = Math.max(max, number);
+                QuerySearchResult result = new QuerySearchResult(
+                    new ShardSearchContextId("", i),
+                    new SearchShardTarget("node", new ShardId("a", "b", i), null),
+                    null
+                );
+                try {
+                    result.topDocs(
+                        new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), number),
+                        new DocValueFormat[0]
+                    );
+                    result.aggregations(
+                        InternalAggregations.from(List.of(new Max("test", (double) number, DocValueFormat.RAW, Collections.emptyMap())))
+                    );
+                    result.setShardIndex(i);
+                    result.size(0);
+                    CountDownLatch latch = new CountDownLatch(1);
+                    consumer.consumeResult(result, latch::countDown);
+                    latch.await();
+                    consumed.add(result);
+                } finally {
+                    result.decRef();
+                }
+                int buffered = 0;
+                for (QuerySearchResult r : consumed) {
+                    if (r.aggregations() != null) {
+                        buffered++;
+                    }
+                }
+                assertThat(buffered, lessThanOrEqualTo(bufferSize));
+                maxBuffered = Math.max(maxBuffered, buffered);
+            }
+            assertThat(maxBuffered, equalTo(Math.min(bufferSize, expectedNumResults)));
+
+            SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+            assertAggReduction(request);
+            assertEquals(max, ((Max) reduce.aggregations().asList().get(0)).value(), 0.0D);
+            assertThat(reduce.numReducePhases(), greaterThanOrEqualTo(expectedNumResults / bufferSize));
+        }
+    }
+
     public void testConsumerOnlyHits() throws Exception {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
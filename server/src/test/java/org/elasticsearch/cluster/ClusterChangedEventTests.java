@@ -219,6 +219,66 @@ public class ClusterChangedEventTests extends ESTestCase {
         assertTrue("index routing table should not be the same object", event.indexRoutingTableChanged(initialIndices.get(0).getName()));
     }
 
+    /**
+     * Test the indices delta.
+     */
+    public void testIndicesDelta() {
+        final int numNodesInCluster = 3;
+        final ClusterState originalState = createState(numNodesInCluster, randomBoolean(), initialIndices);
+
+        // metadata and routing tables are same object
+        ClusterState newState = ClusterState.builder(originalState).build();
+        ClusterChangedEvent.IndicesDelta delta = new ClusterChangedEvent("_na_", newState, originalState).indicesDelta();
+        assertTrue("indices delta should be empty", delta.isEmpty());
+
+        // one index is added, one is removed, one is updated and one is left alone
+        final Index added = new Index("newIdx", UUIDs.randomBase64UUID());
+        final Index removed = initialIndices.get(0);
+        final Index updated = initialIndices.get(1);
+        final Index unchanged = initialIndices.get(2);
+        final Metadata metadata = Metadata.builder(originalState.metadata())
+            .put(createIndexMetadata(added), true)
+            .remove(removed.getName())
+            .put(createIndexMetadata(updated, originalState.metadata().index(updated).getVersion() + 1), true)
+            .build();
+        final RoutingTable routingTable = RoutingTable.builder(
+            TestShardRoutingRoleStrategies.DEFAULT_ROLE_ONLY,
+            originalState.routingTable()
+        )
+            .remove(removed.getName())
+            .addAsNew(metadata.index(added))
+            .build();
+        newState = ClusterState.builder(originalState).metadata(metadata).routingTable(routingTable).build();
+        final ClusterChangedEvent event = new ClusterChangedEvent("_na_", newState, originalState);
+        delta = event.indicesDelta();
+        assertSame("indices delta should only be computed once", delta, event.indicesDelta());
+        assertFalse("indices delta should not be empty", delta.isEmpty());
+        assertThat(delta.added(), equalTo(Set.of(added)));
+        assertThat(delta.removed(), equalTo(Set.of(removed)));
+        assertThat(delta.metadataChanged(), equalTo(Set.of(updated)));
+        assertThat(delta.routingChanged(), equalTo(Set.of(added, removed)));
+        assertTrue(delta.changed(added));
+        assertTrue(delta.changed(removed));
+        assertTrue(delta.changed(updated));
+        assertFalse(delta.changed(unchanged));
+
+        // an index is deleted and recreated with the same name
+        final Index recreated = new Index(unchanged.getName(), UUIDs.randomBase64UUID());
+        final Metadata recreatedMetadata = Metadata.builder(originalState.metadata())
+            .remove(unchanged.getName())
+            .put(createIndexMetadata(recreated), true)
+            .build();
+        newState = ClusterState.builder(originalState)
+            .metadata(recreatedMetadata)
+            .routingTable(createRoutingTable(recreatedMetadata))
+            .build();
+        delta = new ClusterChangedEvent("_na_", newState, originalState).indicesDelta();
+        assertThat(delta.added(), equalTo(Set.of(recreated)));
+        assertThat(delta.removed(), equalTo(Set.of(unchanged)));
+        assertThat(delta.metadataChanged(), equalTo(Set.of()));
+        assertTrue(delta.routingChanged().containsAll(Set.of(recreated, unchanged)));
+    }
+
     /**
      * Test custom metadata change checks
      */
@@ -409,6 +409,48 @@ public class OperationRoutingTests extends ESTestCase {
         terminate(threadPool);
     }
 
+    public void testARSPrefersWarmShardCopies() throws Exception {
+        String[] indexNames = new String[] { "test0" };
+        ClusterState state = ClusterStateCreationUtils.stateWithAssignedPrimariesAndReplicas(indexNames, 1, 1);
+        OperationRouting opRouting = new OperationRouting(
+            Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        );
+        opRouting.setUseAdaptiveReplicaSelection(true);
+        TestThreadPool threadPool = new TestThreadPool("test");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+
+        ResponseCollectorService collector = new ResponseCollectorService(clusterService);
+
+        // The first node responds a bit faster overall
+        collector.addNodeStatistics("node_0", 1, TimeValue.timeValueMillis(50).nanos(), TimeValue.timeValueMillis(40).nanos());
+        collector.addNodeStatistics("node_1", 1, TimeValue.timeValueMillis(60).nanos(), TimeValue.timeValueMillis(40).nanos());
+
+        GroupShardsIterator<ShardIterator> groupIterator = opRouting.searchShards(
+            state,
+            indexNames,
+            null,
+            null,
+            collector,
+            new HashMap<>()
+        );
+        assertThat(groupIterator.get(0).nextOrNull().currentNodeId(), equalTo("node_0"));
+
+        // But the copy of the shard on the second node is warm and responds much faster
+        ShardId shardId = groupIterator.get(0).shardId();
+        collector.addShardResponseTime(shardId, "node_1", TimeValue.timeValueMillis(20).nanos());
+        groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, new HashMap<>());
+        assertThat(groupIterator.get(0).nextOrNull().currentNodeId(), equalTo("node_1"));
+
+        // Until it gets cold again
+        collector.addShardResponseTime(shardId, "node_1", TimeValue.timeValueMillis(500).nanos());
+        groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, new HashMap<>());
+        assertThat(groupIterator.get(0).nextOrNull().currentNodeId(), equalTo("node_0"));
+
+        IOUtils.close(clusterService);
+        terminate(threadPool);
+    }
+
     public void testARSOutstandingRequestTracking() throws Exception {
         int numIndices = 1;
         int numShards = 2;
@@ -44,6 +44,7 @@ import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.Maps;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.IndexVersion;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.repositories.IndexId;
@@ -82,6 +83,7 @@ import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
@@ -694,6 +696,73 @@ public class DesiredBalanceComputerTests extends ESAllocationTestCase {
         );
     }
 
+    public void testParallelComputationMatchesSequentialComputation() {
+        var nodes = randomIntBetween(5, 10);
+        var discoveryNodesBuilder = DiscoveryNodes.builder();
+        for (int node = 0; node < nodes; node++) {
+            discoveryNodesBuilder.add(newNode("node-" + node));
+        }
+
+        var metadataBuilder = Metadata.builder();
+        var routingTableBuilder = RoutingTable.builder();
+        var indices = randomIntBetween(250, 400);
+        var shardCopies = 0;
+        for (int i = 0; i < indices; i++) {
+            var shards = randomIntBetween(4, 6);
+            var indexMetadata = IndexMetadata.builder("index-" + i).settings(indexSettings(IndexVersion.current(), shards, 1)).build();
+            metadataBuilder.put(indexMetadata, false);
+            var indexRoutingTableBuilder = IndexRoutingTable.builder(indexMetadata.getIndex());
+            for (int shard = 0; shard < shards; shard++) {
+                var shardId = new ShardId(indexMetadata.getIndex(), shard);
+                // place all shard copies on the lower half of the nodes so that the balancer has work to do
+                var primaryNode = randomIntBetween(0, nodes / 2 - 1);
+                indexRoutingTableBuilder.addShard(shardRoutingBuilder(shardId, "node-" + primaryNode, true, STARTED).build());
+                indexRoutingTableBuilder.addShard(shardRoutingBuilder(shardId, "node-" + (primaryNode + 1), false, STARTED).build());
+                shardCopies += 2;
+            }
+            routingTableBuilder.add(indexRoutingTableBuilder);
+        }
+        assertThat("should have enough shards to be computed in parallel", shardCopies, greaterThanOrEqualTo(2000));
+
+        var clusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .nodes(discoveryNodesBuilder)
+            .metadata(metadataBuilder)
+            .routingTable(routingTableBuilder)
+            .build();
+
+        // excluding a node makes the canRemain decisions of its shards matter
+        var settings = Settings.builder().put("cluster.routing.allocation.exclude._id", "node-0").build();
+        var deciders = randomAllocationDeciders(settings, createBuiltInClusterSettings(settings));
+        assertTrue("the built-in deciders should allow computing canRemain in parallel", deciders.canRemainIsThreadSafe());
+
+        var threadPool = mock(ThreadPool.class);
+        when(threadPool.generic()).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
+        var sequentialComputer = new DesiredBalanceComputer(createBuiltInClusterSettings(), threadPool, new BalancedShardsAllocator());
+        var parallelComputer = new DesiredBalanceComputer(
+            createBuiltInClusterSettings(
+                Settings.builder().put(DesiredBalanceComputer.PARALLELISM_SETTING.getKey(), randomIntBetween(2, 8)).build()
+            ),
+            threadPool,
+            new BalancedShardsAllocator()
+        );
+
+        var sequentialBalance = sequentialComputer.compute(
+            DesiredBalance.INITIAL,
+            new DesiredBalanceInput(1, routingAllocationOf(clusterState, deciders), List.of()),
+            queue(),
+            input -> true
+        );
+        var parallelBalance = parallelComputer.compute(
+            DesiredBalance.INITIAL,
+            new DesiredBalanceInput(1, routingAllocationOf(clusterState, deciders), List.of()),
+            queue(),
+            input -> true
+        );
+
+        assertThat(parallelBalance.assignments(), equalTo(sequentialBalance.assignments()));
+        assertThat(parallelBalance.lastConvergedIndex(), equalTo(sequentialBalance.lastConvergedIndex()));
+    }
+
     private static long smallShardSizeDeviation(long originalSize) {
         var deviation = randomIntBetween(-5, 5);
         return originalSize * (100 + deviation) / 100;
@@ -1359,6 +1428,10 @@ public class DesiredBalanceComputerTests extends ESAllocationTestCase {
         return new RoutingAllocation(new AllocationDeciders(List.of()), clusterState, ClusterInfo.EMPTY, SnapshotShardSizeInfo.EMPTY, 0L);
     }
 
+    private static RoutingAllocation routingAllocationOf(ClusterState clusterState, AllocationDeciders deciders) {
+        return new RoutingAllocation(deciders, clusterState, ClusterInfo.EMPTY, SnapshotShardSizeInfo.EMPTY, 0L);
+    }
+
     private static RoutingAllocation routingAllocationWithDecidersOf(
         ClusterState clusterState,
         ClusterInfo clusterInfo,
@@ -9,6 +9,7 @@
 
 package org.elasticsearch.cluster.routing.allocation.decider;
 
+import org.elasticsearch.cluster.ClusterModule;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ESAllocationTestCase;
@@ -23,6 +24,7 @@ import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.Predicates;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexVersion;
@@ -222,6 +224,17 @@ public class AllocationDecidersTests extends ESAllocationTestCase {
         );
     }
 
+    public void testCanRemainIsThreadSafe() {
+        var builtInDeciders = ClusterModule.createAllocationDeciders(Settings.EMPTY, createBuiltInClusterSettings(), List.of());
+        assertTrue(new AllocationDeciders(builtInDeciders).canRemainIsThreadSafe());
+        // deciders that don't override canRemain are safe to call concurrently
+        assertTrue(new AllocationDeciders(List.of(new AnyNodeInitialShardAllocationDecider())).canRemainIsThreadSafe());
+
+        var deciders = new ArrayList<AllocationDecider>(builtInDeciders);
+        deciders.add(new TestAllocationDecider(() -> Decision.YES));
+        assertFalse(new AllocationDeciders(shuffledList(deciders)).canRemainIsThreadSafe());
+    }
+
     private static ShardRouting createUnassignedShard(Index index) {
         return ShardRouting.newUnassigned(
             new ShardId(index, 0),
@@ -19,10 +19,13 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.indices.breaker.CircuitBreakerMetrics;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.test.ESTestCase;
 
 import java.lang.reflect.InvocationTargetException;
@@ -34,8 +37,10 @@ import java.util.List;
 import java.util.function.Function;
 
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
@@ -510,6 +515,151 @@ public class BigArraysTests extends ESTestCase {
         }
     }
 
+    public void testOffHeapLongArray() throws Exception {
+        BigArrays offHeap = offHeapBigArrays(newBigArraysInstance(Integer.MAX_VALUE, true).breakerService());
+        final int totalLen = randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 1000000);
+        LongArray array = offHeap.newLongArray(randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, totalLen), randomBoolean());
+        assertThat(array, instanceOf(OffHeapLongArray.class));
+        long[] ref = new long[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomLong();
+            array = offHeap.grow(array, i + 1);
+            array.set(i, ref[i]);
+        }
+        final int fromIndex = randomIntBetween(0, totalLen - 1);
+        final int toIndex = randomIntBetween(fromIndex, totalLen);
+        final long fill = randomLong();
+        Arrays.fill(ref, fromIndex, toIndex, fill);
+        array.fill(fromIndex, toIndex, fill);
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i], array.increment(i, 1) - 1);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        array.writeTo(out);
+        final LongArray copy = LongArray.readFrom(out.bytes().streamInput());
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i] + 1, copy.get(i));
+        }
+        assertEquals(array.ramBytesUsed(), offHeap.breakerService().getBreaker(CircuitBreaker.REQUEST).getUsed());
+        Releasables.close(array, copy);
+        assertEquals(0, offHeap.breakerService().getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    public void testOffHeapDoubleArray() throws Exception {
+        BigArrays offHeap = offHeapBigArrays(newBigArraysInstance(Integer.MAX_VALUE, true).breakerService());
+        final int len = randomIntBetween(PageCacheRecycler.DOUBLE_PAGE_SIZE + 1, 100_000);
+        DoubleArray array = offHeap.newDoubleArray(len, randomBoolean());
+        assertThat(array, instanceOf(OffHeapDoubleArray.class));
+        double[] ref = new double[len];
+        for (int i = 0; i < len; ++i) {
+            ref[i] = randomDouble();
+            array.set(i, ref[i]);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        array.writeTo(out);
+        final DoubleArray copy = offHeap.newDoubleArray(len, randomBoolean());
+        copy.fillWith(out.bytes().streamInput());
+        for (int i = 0; i < len; ++i) {
+            assertThat(copy.get(i), equalTo(ref[i]));
+        }
+        final CircuitBreaker breaker = offHeap.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        assertEquals(array.ramBytesUsed() + copy.ramBytesUsed(), breaker.getUsed());
+        Releasables.close(array, copy);
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testOffHeapByteArray() throws Exception {
+        BigArrays offHeap = offHeapBigArrays(new NoneCircuitBreakerService());
+        final int length = randomIntBetween(PageCacheRecycler.BYTE_PAGE_SIZE + 1, 4 * PageCacheRecycler.BYTE_PAGE_SIZE);
+        final byte[] bytes = randomByteArrayOfLength(length);
+        try (ByteArray array = offHeap.newByteArray(bytes.length, randomBoolean())) {
+            assertThat(array, instanceOf(OffHeapByteArray.class));
+            array.set(0, bytes, 0, bytes.length);
+            final int offset = randomIntBetween(0, bytes.length - 1);
+            final int len = randomIntBetween(1, bytes.length - offset);
+            final BytesRef ref = new BytesRef();
+            final boolean crossesPage = offset / PageCacheRecycler.BYTE_PAGE_SIZE != (offset + len - 1) / PageCacheRecycler.BYTE_PAGE_SIZE;
+            assertThat(array.get(offset, len, ref), equalTo(crossesPage));
+            assertThat(BytesRef.deepCopyOf(ref), equalTo(new BytesRef(bytes, offset, len)));
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            BytesRefIterator iterator = array.iterator();
+            BytesRef next;
+            while ((next = iterator.next()) != null) {
+                out.writeBytes(next.bytes, next.offset, next.length);
+            }
+            assertThat(out.bytes().toBytesRef(), equalTo(new BytesRef(bytes)));
+        }
+    }
+
+    public void testOffHeapByteArrayReusesBuffer() {
+        BigArrays offHeap = offHeapBigArrays(new NoneCircuitBreakerService());
+        final int length = 2 * PageCacheRecycler.BYTE_PAGE_SIZE;
+        final byte[] bytes = randomByteArrayOfLength(length);
+        try (ByteArray array = offHeap.newByteArray(bytes.length, randomBoolean())) {
+            array.set(0, bytes, 0, bytes.length);
+            final BytesRef ref = new BytesRef();
+            assertFalse(array.get(0, 10, ref));
+            final byte[] buffer = ref.bytes;
+            assertThat(ref, equalTo(new BytesRef(bytes, 0, 10)));
+
+            // passing the same BytesRef back copies into the same buffer, even across pages
+            assertTrue(array.get(PageCacheRecycler.BYTE_PAGE_SIZE - 5, 10, ref));
+            assertSame(buffer, ref.bytes);
+            assertThat(ref, equalTo(new BytesRef(bytes, PageCacheRecycler.BYTE_PAGE_SIZE - 5, 10)));
+
+            // but another BytesRef gets its own buffer so the first one stays valid
+            final BytesRef other = new BytesRef();
+            assertFalse(array.get(20, 10, other));
+            assertNotSame(buffer, other.bytes);
+            assertThat(ref, equalTo(new BytesRef(bytes, PageCacheRecycler.BYTE_PAGE_SIZE - 5, 10)));
+            assertThat(other, equalTo(new BytesRef(bytes, 20, 10)));
+        }
+    }
+
+    public void testMaxOffHeap() {
+        final int maxPages = between(1, 4);
+        Settings settings = Settings.builder()
+            .put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true)
+            .put(
+                PageCacheRecycler.MAX_OFF_HEAP_SETTING.getKey(),
+                ByteSizeValue.ofBytes((long) maxPages * PageCacheRecycler.BYTE_PAGE_SIZE)
+            )
+            .build();
+        PageCacheRecycler recycler = new MockPageCacheRecycler(settings);
+        BigArrays offHeap = new BigArrays(recycler, new NoneCircuitBreakerService(), CircuitBreaker.REQUEST);
+        try (ByteArray array = offHeap.newByteArray((long) (maxPages + 1) * PageCacheRecycler.BYTE_PAGE_SIZE, false)) {
+            for (int p = 0; p < maxPages; p++) {
+                array.set((long) p * PageCacheRecycler.BYTE_PAGE_SIZE, randomByte());
+            }
+            assertThat(recycler.offHeapBytesUsed(), equalTo((long) maxPages * PageCacheRecycler.BYTE_PAGE_SIZE));
+            CircuitBreakingException e = expectThrows(
+                CircuitBreakingException.class,
+                () -> array.set((long) maxPages * PageCacheRecycler.BYTE_PAGE_SIZE, randomByte())
+            );
+            assertThat(e.getMessage(), containsString("[" + PageCacheRecycler.MAX_OFF_HEAP_SETTING.getKey() + "]"));
+            assertThat(recycler.offHeapBytesUsed(), equalTo((long) maxPages * PageCacheRecycler.BYTE_PAGE_SIZE));
+        }
+        assertThat(recycler.offHeapBytesUsed(), equalTo(0L));
+    }
+
+    public void testMaxOffHeapMustFitInDirectMemory() {
+        final long directMemoryMax = JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes();
+        assumeTrue("needs to know the maximum direct memory", directMemoryMax > 0);
+        Settings settings = Settings.builder()
+            .put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true)
+            .put(PageCacheRecycler.MAX_OFF_HEAP_SETTING.getKey(), ByteSizeValue.ofBytes(directMemoryMax))
+            .put(PageCacheRecycler.LIMIT_OFF_HEAP_SETTING.getKey(), ByteSizeValue.ofBytes(PageCacheRecycler.BYTE_PAGE_SIZE))
+            .build();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new PageCacheRecycler(settings));
+        assertThat(e.getMessage(), containsString("must add up to at most the maximum direct memory"));
+    }
+
+    private static BigArrays offHeapBigArrays(CircuitBreakerService breakerService) {
+        Settings settings = Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build();
+        return new BigArrays(new MockPageCacheRecycler(settings), breakerService, CircuitBreaker.REQUEST).withCircuitBreaking();
+    }
+
     public void testOverSizeUsesMinPageCount() {
         final int pageSize = 1 << (randomIntBetween(2, 16));
         final int minSize = randomIntBetween(1, pageSize) * randomIntBetween(1, 100);
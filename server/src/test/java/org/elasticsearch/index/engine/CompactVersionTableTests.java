@@ -0,0 +1,100 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.elasticsearch.index.engine.LiveVersionMapTestUtils.randomTranslogLocation;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CompactVersionTableTests extends ESTestCase {
+
+    public void testSameAsMap() {
+        CompactVersionTable table = new CompactVersionTable(randomIntBetween(0, 100));
+        Map<BytesRef, VersionValue> expected = new HashMap<>();
+        List<BytesRef> uids = new ArrayList<>();
+        for (int i = 0; i < randomIntBetween(10, 500); i++) {
+            uids.add(new BytesRef(randomAlphaOfLengthBetween(1, 20) + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            BytesRef uid = randomFrom(uids);
+            if (randomBoolean()) {
+                Translog.Location location = randomTranslogLocation();
+                long version = randomNonNegativeLong();
+                long seqNo = randomNonNegativeLong();
+                long term = randomNonNegativeLong();
+                VersionValue previous = table.put(slice(uid), version, seqNo, term, location);
+                assertThat(previous, equalTo(expected.put(uid, new IndexVersionValue(location, version, seqNo, term))));
+            } else if (randomBoolean()) {
+                assertThat(table.remove(slice(uid)), equalTo(expected.remove(uid)));
+            } else {
+                assertThat(table.get(slice(uid)), equalTo(expected.get(uid)));
+            }
+            assertThat(table.size(), equalTo(expected.size()));
+        }
+        assertThat(table.isEmpty(), equalTo(expected.isEmpty()));
+        Map<BytesRef, VersionValue> actual = new HashMap<>();
+        table.forEach(actual::put);
+        assertThat(actual, equalTo(expected));
+
+        for (BytesRef uid : uids) {
+            assertThat(table.remove(uid), equalTo(expected.remove(uid)));
+        }
+        assertTrue(table.isEmpty());
+        assertThat(table.get(randomFrom(uids)), nullValue());
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        CompactVersionTable table = new CompactVersionTable();
+        Thread[] threads = new Thread[randomIntBetween(2, 8)];
+        int uidsPerThread = randomIntBetween(100, 1000);
+        int updates = randomIntBetween(1, 10);
+        CyclicBarrier barrier = new CyclicBarrier(threads.length);
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                safeAwait(barrier);
+                for (int update = 1; update <= updates; update++) {
+                    for (int i = 0; i < uidsPerThread; i++) {
+                        BytesRef uid = new BytesRef(thread + "_" + i);
+                        VersionValue previous = table.put(uid, update, update, 1, null);
+                        assertThat(previous == null ? 0L : previous.version, equalTo(update - 1L));
+                        if (i % 3 == 0) {
+                            assertThat(table.remove(uid).version, equalTo((long) update));
+                            table.put(uid, update, update, 1, null);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(table.size(), equalTo(threads.length * uidsPerThread));
+        table.forEach((uid, value) -> assertThat(value.seqNo, equalTo((long) updates)));
+    }
+
+    private static BytesRef slice(BytesRef uid) {
+        // the table must copy the uid rather than keep a reference to the given bytes
+        byte[] bytes = new byte[uid.length + 2];
+        System.arraycopy(uid.bytes, uid.offset, bytes, 1, uid.length);
+        return new BytesRef(bytes, 1, uid.length);
+    }
+}
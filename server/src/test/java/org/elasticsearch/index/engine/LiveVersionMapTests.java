@@ -14,7 +14,6 @@ import org.apache.lucene.tests.util.TestUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.Constants;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.index.translog.Translog;
@@ -34,7 +33,6 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
-import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency;
 import static org.elasticsearch.core.Tuple.tuple;
 import static org.elasticsearch.index.engine.LiveVersionMapTestUtils.randomIndexVersionValue;
 import static org.elasticsearch.index.engine.LiveVersionMapTestUtils.randomTranslogLocation;
@@ -451,7 +449,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testVersionLookupRamBytesUsed() {
-        var vl = new LiveVersionMap.VersionLookup(newConcurrentMapWithAggressiveConcurrency());
+        var vl = new LiveVersionMap.VersionLookup();
         assertEquals(0, vl.ramBytesUsed());
         Set<BytesRef> existingKeys = new HashSet<>();
         Supplier<Tuple<BytesRef, IndexVersionValue>> randomEntry = () -> {
@@ -478,7 +476,7 @@ public class LiveVersionMapTests extends ESTestCase {
                     }
                     break;
                 case 2: // merge
-                    var toMerge = new LiveVersionMap.VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency());
+                    var toMerge = new LiveVersionMap.VersionLookup();
                     IntStream.range(0, randomIntBetween(1, 100))
                         .mapToObj(n -> randomEntry.get())
                         .forEach(kv -> toMerge.put(kv.v1(), kv.v2()));
@@ -0,0 +1,75 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.fieldvisitor;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class StoredFieldLoaderTests extends ESTestCase {
+
+    public void testUseSequentialReader() {
+        assertFalse(StoredFieldLoader.useSequentialReader(new int[] { 0, 1, 2, 3, 4 }));
+        assertTrue(StoredFieldLoader.useSequentialReader(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }));
+        assertTrue(StoredFieldLoader.useSequentialReader(new int[] { 3, 10, 12, 20, 35, 40, 41, 50, 66, 70, 80 }));
+        assertFalse(StoredFieldLoader.useSequentialReader(new int[] { 0, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000 }));
+        // clusters of hits far apart from each other
+        assertTrue(StoredFieldLoader.useSequentialReader(new int[] { 0, 1, 2, 3, 1000, 1001, 1002, 1003, 5000, 5001, 5002, 5003 }));
+        // about half of the hits close to the previous one
+        assertTrue(StoredFieldLoader.useSequentialReader(new int[] { 0, 1, 100, 101, 200, 201, 300, 301, 400, 401, 500, 501 }));
+        assertFalse(StoredFieldLoader.useSequentialReader(new int[] { 0, 1, 100, 200, 201, 300, 400, 401, 500, 600, 601, 700 }));
+    }
+
+    public void testLoadDocs() throws IOException {
+        int numDocs = between(1, 1000);
+        try (Directory dir = newDirectory(); IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StoredField("field", "value-" + i));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+            ShardId shardId = new ShardId("index", "_na_", 0);
+            try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), shardId)) {
+                LeafReaderContext ctx = reader.leaves().get(0);
+                Set<Integer> docSet = new TreeSet<>();
+                int numHits = between(1, numDocs);
+                if (randomBoolean()) {
+                    // clustered hits
+                    int start = between(0, numDocs - numHits);
+                    for (int i = 0; i < numHits; i++) {
+                        docSet.add(start + i);
+                    }
+                } else {
+                    for (int i = 0; i < numHits; i++) {
+                        docSet.add(between(0, numDocs - 1));
+                    }
+                }
+                int[] docs = docSet.stream().mapToInt(Integer::intValue).toArray();
+                LeafStoredFieldLoader loader = StoredFieldLoader.create(false, Set.of("field")).getLoader(ctx, docs);
+                for (int doc : docs) {
+                    loader.advanceTo(doc);
+                    assertEquals(List.of("value-" + doc), loader.storedFields().get("field"));
+                }
+            }
+        }
+    }
+}
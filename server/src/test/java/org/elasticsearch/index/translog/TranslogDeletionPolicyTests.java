@@ -95,7 +95,8 @@ public class TranslogDeletionPolicyTests extends ESTestCase {
                 BigArrays.NON_RECYCLING_INSTANCE,
                 TranslogTests.RANDOMIZING_IO_BUFFERS,
                 TranslogConfig.NOOP_OPERATION_LISTENER,
-                true
+                true,
+                false
             );
             writer = Mockito.spy(writer);
             byte[] bytes = new byte[4];
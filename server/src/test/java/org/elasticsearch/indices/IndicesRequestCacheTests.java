@@ -16,6 +16,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermQuery;
@@ -502,6 +504,59 @@ public class IndicesRequestCacheTests extends ESTestCase {
         assertEquals(0, cache.numRegisteredCloseListeners());
     }
 
+    public void testCachePerLeaf() throws Exception {
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+
+        writer.addDocument(newDoc(0, "foo"));
+        writer.addDocument(newDoc(1, "foo"));
+        MappingLookup.CacheKey mappingKey = MappingLookup.EMPTY.cacheKey();
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        assertEquals(1, reader.leaves().size());
+        LeafReader leaf = reader.leaves().get(0).reader();
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+
+        // initial cache, the lookups of segments don't count as hits or misses of the request
+        assertNull(cache.getForLeaf(entity, mappingKey, leaf, termBytes));
+        assertEquals(0, requestCacheStats.stats().getHitCount());
+        assertEquals(0, requestCacheStats.stats().getMissCount());
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("foo");
+        cache.putForLeaf(entity, mappingKey, leaf, termBytes, out.bytes());
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.numRegisteredCloseListeners());
+        assertTrue(requestCacheStats.stats().getMemorySize().getBytes() > out.bytes().length());
+
+        // the segment is unchanged by a refresh that adds another one
+        writer.addDocument(newDoc(2, "bar"));
+        DirectoryReader secondReader = DirectoryReader.openIfChanged(reader);
+        assertEquals(2, secondReader.leaves().size());
+        BytesReference value = cache.getForLeaf(entity, mappingKey, secondReader.leaves().get(0).reader(), termBytes);
+        assertEquals("foo", value.streamInput().readString());
+        assertNull(cache.getForLeaf(entity, mappingKey, secondReader.leaves().get(1).reader(), termBytes));
+
+        // but not by a refresh that deletes a document from it
+        writer.deleteDocuments(new Term("id", "1"));
+        DirectoryReader thirdReader = DirectoryReader.openIfChanged(secondReader);
+        assertNull(cache.getForLeaf(entity, mappingKey, thirdReader.leaves().get(0).reader(), termBytes));
+        assertEquals(0, requestCacheStats.stats().getHitCount());
+        assertEquals(0, requestCacheStats.stats().getMissCount());
+
+        // release once the segment is closed, the writer pools it too
+        IOUtils.close(reader, secondReader, thirdReader, writer);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0L, requestCacheStats.stats().getMemorySize().getBytes());
+
+        IOUtils.close(dir, cache);
+        assertEquals(0, cache.numRegisteredCloseListeners());
+    }
+
     public void testKeyEqualsAndHashCode() throws IOException {
         AtomicBoolean trueBoolean = new AtomicBoolean(true);
         AtomicBoolean falseBoolean = new AtomicBoolean(false);
@@ -13,11 +13,14 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.LongSupplier;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -595,6 +598,114 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(failureProcessor2.getInvokedCounter(), equalTo(1));
     }
 
+    public void testExecuteBatch() {
+        List<Integer> batchSizes = new ArrayList<>();
+        TestProcessor first = new TestProcessor(null, "first", null, (Function<IngestDocument, IngestDocument>) document -> {
+            if (document.hasField("drop")) {
+                return null;
+            }
+            if (document.hasField("fail")) {
+                throw new RuntimeException("error");
+            }
+            document.setFieldValue("first", true);
+            return document;
+        });
+        TestProcessor batched = new TestProcessor(document -> document.setFieldValue("batched", true)) {
+            @Override
+            public boolean supportsBatchExecution() {
+                return true;
+            }
+
+            @Override
+            public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+                batchSizes.add(documents.size());
+                super.executeBatch(documents, handlers);
+            }
+        };
+        TestProcessor onFailure = new TestProcessor(document -> document.setFieldValue("failed", true));
+        CompoundProcessor compoundProcessor = new CompoundProcessor(false, List.of(first, batched), List.of(onFailure), () -> 0L);
+        assertTrue(compoundProcessor.supportsBatchExecution());
+
+        List<IngestDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            documents.add(TestIngestDocument.emptyIngestDocument());
+        }
+        documents.get(1).setFieldValue("drop", true);
+        documents.get(3).setFieldValue("fail", true);
+        IngestDocument[] results = new IngestDocument[documents.size()];
+        Exception[] failures = new Exception[documents.size()];
+        List<BiConsumer<IngestDocument, Exception>> handlers = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            int slot = i;
+            handlers.add((result, e) -> {
+                assertThat(results[slot], nullValue());
+                results[slot] = result;
+                failures[slot] = e;
+            });
+        }
+        compoundProcessor.executeBatch(documents, handlers);
+
+        // the documents that went through the first processor reached the batched processor together
+        assertThat(batchSizes, equalTo(List.of(3)));
+        for (int i : new int[] { 0, 2, 4 }) {
+            assertThat(results[i], sameInstance(documents.get(i)));
+            assertThat(results[i].getFieldValue("batched", Boolean.class), is(true));
+        }
+        assertThat(results[1], nullValue());
+        assertThat(results[3].getFieldValue("failed", Boolean.class), is(true));
+        assertThat(results[3].hasField("batched"), is(false));
+        for (Exception failure : failures) {
+            assertThat(failure, nullValue());
+        }
+        assertStats(0, compoundProcessor, 0, 5, 1, 0);
+        assertStats(1, compoundProcessor, 0, 3, 0, 0);
+    }
+
+    public void testExecuteBatchIteratesOverSyncProcessors() {
+        // completes the batch after executeBatch returned, like a processor that calls a remote service does
+        List<Runnable> pending = new ArrayList<>();
+        TestProcessor batched = new TestProcessor(document -> document.setFieldValue("batched", true)) {
+            @Override
+            public boolean supportsBatchExecution() {
+                return true;
+            }
+
+            @Override
+            public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+                pending.add(() -> super.executeBatch(documents, handlers));
+            }
+        };
+        List<Processor> processors = new ArrayList<>();
+        processors.add(batched);
+        List<Integer> stackDepths = new ArrayList<>();
+        int syncProcessors = between(10, 100);
+        for (int i = 0; i < syncProcessors; i++) {
+            processors.add(new TestProcessor(document -> stackDepths.add(Thread.currentThread().getStackTrace().length)));
+        }
+        CompoundProcessor compoundProcessor = new CompoundProcessor(false, processors, List.of(), () -> 0L);
+
+        int count = between(1, 5);
+        List<IngestDocument> documents = new ArrayList<>();
+        List<IngestDocument> results = new ArrayList<>();
+        List<BiConsumer<IngestDocument, Exception>> handlers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(TestIngestDocument.emptyIngestDocument());
+            handlers.add((result, e) -> {
+                assertThat(e, nullValue());
+                results.add(result);
+            });
+        }
+        compoundProcessor.executeBatch(documents, handlers);
+        assertThat(pending, hasSize(1));
+        assertThat(results, hasSize(0));
+
+        pending.get(0).run();
+        assertThat(results, hasSize(count));
+        assertThat(stackDepths, hasSize(count * syncProcessors));
+        // the sync processors run in a loop rather than from each other's completion handlers, so the stack doesn't grow
+        assertThat(Set.copyOf(stackDepths), hasSize(1));
+    }
+
     private TestProcessor getTestProcessor(String tag, boolean isAsync, boolean shouldThrowException) {
         return new TestProcessor(tag, "test-processor", null, ingestDocument -> {
             if (shouldThrowException) throw new RuntimeException("Intentionally failing");
@@ -129,6 +129,28 @@ public class IngestDocumentTests extends ESTestCase {
         }
     }
 
+    public void testFieldPathsAreNotSharedAcrossContexts() {
+        // the same parsed path resolves against the maps of each document
+        IngestDocument other = new IngestDocument("index", "id", 1, null, null, new HashMap<>(Map.of("foo", "other")));
+        ingestDocument.setFieldValue("foo", "bar");
+        assertThat(ingestDocument.getFieldValue("foo", String.class), equalTo("bar"));
+        assertThat(other.getFieldValue("foo", String.class), equalTo("other"));
+        assertThat(ingestDocument.getFieldValue("_source.foo", String.class), equalTo("bar"));
+        assertThat(other.getFieldValue("_source.foo", String.class), equalTo("other"));
+        assertThat(other.hasField("_ingest.foo"), equalTo(false));
+    }
+
+    public void testManyFieldPaths() {
+        // more distinct paths than are cached
+        int fields = between(1000, 2000);
+        for (int i = 0; i < fields; i++) {
+            ingestDocument.setFieldValue("many.field_" + i, i);
+        }
+        for (int i = 0; i < fields; i++) {
+            assertThat(ingestDocument.getFieldValue("many.field_" + i, Integer.class), equalTo(i));
+        }
+    }
+
     public void testGetFieldValueNullValue() {
         assertThat(ingestDocument.getFieldValue("fizz.foo_null", Object.class), nullValue());
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.xcontent.json.JsonXContent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class LazySourceMapTests extends ESTestCase {
+
+    private static final String SOURCE = """
+        {
+          "@timestamp": "2024-03-07T11:24:17.123Z",
+          "message": "GET /index.html HTTP/1.1 \\"quoted\\" {not: [an object}",
+          "http": { "response": { "status_code": 200, "bytes": 1582 }, "headers": [ "a", "b]" ] },
+          "tags": [ ],
+          "score": -1.5e3,
+          "ok": true,
+          "missing": null
+        }""";
+
+    public void testSameAsMap() {
+        LazySourceMap lazy = parse(SOURCE);
+        assertThat(lazy, notNullValue());
+        assertThat(lazy.size(), equalTo(7));
+        assertThat(lazy, equalTo(toMap(SOURCE)));
+    }
+
+    public void testUntouchedSourceIsReused() throws IOException {
+        BytesReference bytes = new BytesArray(SOURCE);
+        LazySourceMap lazy = LazySourceMap.parse(bytes, XContentType.JSON);
+        assertThat(lazy.get("message"), equalTo("GET /index.html HTTP/1.1 \"quoted\" {not: [an object}"));
+        assertThat(lazy.get("ok"), equalTo(true));
+        assertTrue(lazy.containsKey("missing"));
+        assertThat(lazy.toBytes(), sameInstance(bytes));
+    }
+
+    public void testModifications() throws IOException {
+        LazySourceMap lazy = parse(SOURCE);
+        lazy.put("event", Map.of("kind", "access"));
+        lazy.remove("tags");
+        assertThat(lazy.remove("score"), equalTo(-1500.0));
+
+        Map<String, Object> expected = toMap(SOURCE);
+        expected.put("event", Map.of("kind", "access"));
+        expected.remove("tags");
+        expected.remove("score");
+        assertThat(toMap(lazy.toBytes()), equalTo(expected));
+    }
+
+    public void testModificationsThroughIngestDocument() throws IOException {
+        LazySourceMap lazy = parse(SOURCE);
+        IngestDocument document = new IngestDocument("index", "id", 1, null, VersionType.INTERNAL, lazy);
+        assertThat(document.getSource(), sameInstance(lazy));
+        document.setFieldValue("http.response.status_code", 404);
+        document.appendFieldValue("tags", "error");
+
+        Map<String, Object> expected = toMap(SOURCE);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> http = (Map<String, Object>) expected.get("http");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> response = (Map<String, Object>) http.get("response");
+        response.put("status_code", 404);
+        expected.put("tags", List.of("error"));
+        assertThat(toMap(lazy.toBytes()), equalTo(expected));
+    }
+
+    public void testSelfReferences() {
+        LazySourceMap lazy = parse(SOURCE);
+        lazy.ensureNoSelfReferences();
+        Map<String, Object> map = new HashMap<>();
+        map.put("self", map);
+        lazy.put("field", map);
+        expectThrows(IllegalArgumentException.class, lazy::ensureNoSelfReferences);
+    }
+
+    public void testUnsupportedSources() {
+        // escaped field names
+        assertThat(parse("{\"a\\\"b\": 1}"), nullValue());
+        // repeated field names
+        assertThat(parse("{\"a\": 1, \"a\": 2}"), nullValue());
+        // comments
+        assertThat(parse("{\"a\": [1, /* ] */ 2]}"), nullValue());
+        assertThat(parse("{\"a\": 1 // comment\n}"), nullValue());
+        // malformed
+        assertThat(parse("{\"a\": [1, 2}"), nullValue());
+        assertThat(parse("{\"a\": \"b}"), nullValue());
+        assertThat(parse("{\"a\" 1}"), nullValue());
+        assertThat(parse("{\"a\": 1,}"), nullValue());
+        assertThat(parse("{\"a\": 1} {"), nullValue());
+        assertThat(parse("[1]"), nullValue());
+        // not JSON
+        assertThat(LazySourceMap.parse(new BytesArray("{\"a\": 1}"), XContentType.YAML), nullValue());
+        // but empty objects are fine
+        assertThat(parse(" { } "), equalTo(Map.of()));
+    }
+
+    public void testRandomSources() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> map = randomSource(0);
+            XContentBuilder builder = JsonXContent.contentBuilder();
+            if (randomBoolean()) {
+                builder.prettyPrint();
+            }
+            builder.map(map);
+            BytesReference bytes = BytesReference.bytes(builder);
+            LazySourceMap lazy = LazySourceMap.parse(bytes, XContentType.JSON);
+            assertThat(lazy, notNullValue());
+            Map<String, Object> expected = toMap(bytes);
+            List<String> keys = new ArrayList<>(expected.keySet());
+            for (String key : randomSubsetOf(keys)) {
+                assertThat(lazy.get(key), equalTo(expected.get(key)));
+            }
+            if (keys.isEmpty() == false && randomBoolean()) {
+                String key = randomFrom(keys);
+                lazy.put(key, "replaced");
+                expected.put(key, "replaced");
+            }
+            assertThat(toMap(lazy.toBytes()), equalTo(expected));
+            assertThat(lazy, equalTo(expected));
+        }
+    }
+
+    private static Map<String, Object> randomSource(int depth) {
+        Map<String, Object> map = new HashMap<>();
+        int size = randomIntBetween(0, 5);
+        for (int i = 0; i < size; i++) {
+            map.put(randomAlphaOfLengthBetween(1, 5) + i, randomValue(depth));
+        }
+        return map;
+    }
+
+    private static Object randomValue(int depth) {
+        return switch (randomIntBetween(0, depth < 3 ? 6 : 4)) {
+            case 0 -> randomUnicodeOfLengthBetween(0, 10);
+            case 1 -> randomFrom("{", "}", "[", "]", "\"", "\\", ",", ":");
+            case 2 -> randomLong();
+            case 3 -> randomBoolean();
+            case 4 -> null;
+            case 5 -> randomSource(depth + 1);
+            default -> randomList(0, 3, () -> randomValue(depth + 1));
+        };
+    }
+
+    private static LazySourceMap parse(String source) {
+        return LazySourceMap.parse(new BytesArray(source), XContentType.JSON);
+    }
+
+    private static Map<String, Object> toMap(String source) {
+        return toMap(new BytesArray(source));
+    }
+
+    private static Map<String, Object> toMap(BytesReference source) {
+        return XContentHelper.convertToMap(source, false, XContentType.JSON).v2();
+    }
+}
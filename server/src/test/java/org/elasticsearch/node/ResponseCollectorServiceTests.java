@@ -18,6 +18,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -27,6 +28,7 @@ import org.junit.Before;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
@@ -139,4 +141,28 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testShardResponseTime() {
+        ShardId shardId = new ShardId("index", "_na_", 0);
+        ShardId otherShardId = new ShardId("other", "_na_", 0);
+        assertThat(collector.getShardResponseTime(shardId, "node1"), equalTo(-1.0));
+
+        collector.addShardResponseTime(shardId, "node1", 100);
+        collector.addShardResponseTime(shardId, "node2", 10);
+        collector.addShardResponseTime(otherShardId, "node1", 50);
+        assertThat(collector.getShardResponseTime(shardId, "node1"), equalTo(100.0));
+        assertThat(collector.getShardResponseTime(shardId, "node2"), equalTo(10.0));
+        assertThat(collector.getShardResponseTime(otherShardId, "node1"), equalTo(50.0));
+
+        collector.addShardResponseTime(shardId, "node1", 200);
+        assertThat(collector.getShardResponseTime(shardId, "node1"), closeTo(130.0, 0.001));
+
+        collector.removeNode("node2");
+        assertThat(collector.getShardResponseTime(shardId, "node2"), equalTo(-1.0));
+        assertThat(collector.getShardResponseTime(shardId, "node1"), closeTo(130.0, 0.001));
+
+        collector.removeIndex(otherShardId.getIndex());
+        assertThat(collector.getShardResponseTime(otherShardId, "node1"), equalTo(-1.0));
+        assertThat(collector.getShardResponseTime(shardId, "node1"), closeTo(130.0, 0.001));
+    }
 }
@@ -9,6 +9,7 @@
 package org.elasticsearch.threadpool;
 
 import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -18,6 +19,7 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.telemetry.metric.MeterRegistry;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.TransportVersionUtils;
 import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.junit.Before;
@@ -123,4 +125,16 @@ public class ThreadPoolSerializationTests extends ESTestCase {
 
         assertThat(newInfo.getThreadPoolType(), is(threadPoolType));
     }
+
+    public void testThatVirtualThreadPoolTypeIsSerializedAsScalingToOlderNodes() throws IOException {
+        ThreadPool.Info info = new ThreadPool.Info("foo", ThreadPool.ThreadPoolType.VIRTUAL, 0, 10, TimeValue.timeValueMillis(3000), null);
+        output.setTransportVersion(TransportVersionUtils.getPreviousVersion(TransportVersions.VIRTUAL_THREAD_POOL_TYPE));
+        info.writeTo(output);
+
+        StreamInput input = output.bytes().streamInput();
+        ThreadPool.Info newInfo = new ThreadPool.Info(input);
+
+        assertThat(newInfo.getThreadPoolType(), is(ThreadPool.ThreadPoolType.SCALING));
+        assertThat(newInfo.getMax(), is(10));
+    }
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.threadpool;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.TaskExecutionTimeTrackingEsThreadPoolExecutor;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class VirtualThreadPoolTests extends ESThreadPoolTestCase {
+
+    public void testRunsOnVirtualThreads() throws InterruptedException {
+        final String threadPoolName = randomFrom(ThreadPool.VIRTUAL_THREAD_POOL_CANDIDATES.stream().sorted().toList());
+        final Settings nodeSettings = Settings.builder()
+            .put("node.name", "testRunsOnVirtualThreads")
+            .putList(ThreadPool.VIRTUAL_THREAD_POOLS_SETTING.getKey(), threadPoolName)
+            .build();
+        ThreadPool threadPool = null;
+        try {
+            threadPool = new ThreadPool(nodeSettings, MeterRegistry.NOOP, new DefaultBuiltInExecutorBuilders());
+            final ThreadPool.Info info = info(threadPool, threadPoolName);
+            assertThat(info.getThreadPoolType(), equalTo(ThreadPool.ThreadPoolType.VIRTUAL));
+            assertThat(info.getMax(), equalTo(ThreadPool.DEFAULT_VIRTUAL_THREAD_POOL_MAX));
+            assertThat(info.getQueueSize(), nullValue());
+
+            final AtomicBoolean virtual = new AtomicBoolean();
+            final AtomicReference<String> executorName = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            threadPool.executor(threadPoolName).execute(() -> {
+                virtual.set(Thread.currentThread().isVirtual());
+                executorName.set(EsExecutors.executorName(Thread.currentThread()));
+                latch.countDown();
+            });
+            safeAwait(latch);
+            assertTrue(virtual.get());
+            assertThat(executorName.get(), equalTo(threadPoolName));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+    public void testManyBlockedTasksRunConcurrently() throws Exception {
+        final String threadPoolName = "test";
+        final int tasks = randomIntBetween(256, 1024);
+        final Settings nodeSettings = Settings.builder().put("node.name", "testManyBlockedTasksRunConcurrently").build();
+        ThreadPool threadPool = null;
+        try {
+            threadPool = new ThreadPool(
+                nodeSettings,
+                MeterRegistry.NOOP,
+                new DefaultBuiltInExecutorBuilders(),
+                new VirtualExecutorBuilder(threadPoolName, tasks, -1, TimeValue.timeValueMillis(1), false)
+            );
+
+            final CountDownLatch running = new CountDownLatch(tasks);
+            final CountDownLatch block = new CountDownLatch(1);
+            for (int i = 0; i < tasks; i++) {
+                threadPool.executor(threadPoolName).execute(() -> {
+                    running.countDown();
+                    safeAwait(block);
+                });
+            }
+            // every task is running at once, none of them are waiting in the queue
+            safeAwait(running);
+            ThreadPoolStats.Stats stats = stats(threadPool, threadPoolName);
+            assertThat(stats.threads(), equalTo(tasks));
+            assertThat(stats.active(), equalTo(tasks));
+            assertThat(stats.queue(), equalTo(0));
+            block.countDown();
+
+            // and the threads go away once they are idle
+            final ThreadPool finalThreadPool = threadPool;
+            assertBusy(() -> {
+                ThreadPoolStats.Stats idle = stats(finalThreadPool, threadPoolName);
+                assertThat(idle.threads(), equalTo(0));
+                assertThat(idle.completed(), equalTo((long) tasks));
+                assertThat(idle.largest(), equalTo(tasks));
+            });
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+    public void testRejectedExecutionCounter() throws InterruptedException {
+        final String threadPoolName = "test";
+        final int max = randomIntBetween(1, 32);
+        final int queueSize = randomIntBetween(1, 16);
+        final long rejections = randomIntBetween(1, 16);
+
+        ThreadPool threadPool = null;
+        final Settings nodeSettings = Settings.builder()
+            .put("node.name", "testRejectedExecutionCounter")
+            .put("thread_pool." + threadPoolName + ".max", max)
+            .put("thread_pool." + threadPoolName + ".queue_size", queueSize)
+            .build();
+        try {
+            threadPool = new ThreadPool(
+                nodeSettings,
+                MeterRegistry.NOOP,
+                new DefaultBuiltInExecutorBuilders(),
+                new VirtualExecutorBuilder(threadPoolName, 1, 1, TimeValue.timeValueSeconds(30), true)
+            );
+            assertThat(info(threadPool, threadPoolName).getQueueSize().singles(), equalTo((long) queueSize));
+
+            // these tasks will consume all the permits causing further submissions to queue
+            final CountDownLatch latch = new CountDownLatch(max);
+            final CountDownLatch block = new CountDownLatch(1);
+            for (int i = 0; i < max; i++) {
+                threadPool.executor(threadPoolName).execute(() -> {
+                    latch.countDown();
+                    safeAwait(block);
+                });
+            }
+            safeAwait(latch);
+
+            // these tasks will fill the queue
+            for (int i = 0; i < queueSize; i++) {
+                threadPool.executor(threadPoolName).execute(() -> {});
+            }
+
+            // these tasks will be rejected
+            long counter = 0;
+            for (int i = 0; i < rejections; i++) {
+                try {
+                    threadPool.executor(threadPoolName).execute(() -> {});
+                } catch (EsRejectedExecutionException e) {
+                    counter++;
+                }
+            }
+
+            block.countDown();
+
+            assertThat(counter, equalTo(rejections));
+            assertThat(stats(threadPool, threadPoolName).rejected(), equalTo(rejections));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+    public void testTracksExecutionTime() throws Exception {
+        final String threadPoolName = "test";
+        final Settings nodeSettings = Settings.builder().put("node.name", "testTracksExecutionTime").build();
+        ThreadPool threadPool = null;
+        try {
+            threadPool = new ThreadPool(
+                nodeSettings,
+                MeterRegistry.NOOP,
+                new DefaultBuiltInExecutorBuilders(),
+                new VirtualExecutorBuilder(
+                    threadPoolName,
+                    8,
+                    -1,
+                    TimeValue.timeValueSeconds(30),
+                    false,
+                    "thread_pool." + threadPoolName,
+                    EsExecutors.TaskTrackingConfig.DEFAULT
+                )
+            );
+            assertThat(threadPool.executor(threadPoolName), instanceOf(TaskExecutionTimeTrackingEsThreadPoolExecutor.class));
+            final var executor = (TaskExecutionTimeTrackingEsThreadPoolExecutor) threadPool.executor(threadPoolName);
+            final CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(() -> {
+                safeSleep(10);
+                latch.countDown();
+            });
+            safeAwait(latch);
+            assertBusy(() -> assertThat(executor.getTotalTaskExecutionTime(), greaterThan(0L)));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+    public void testOnlyBlockingPoolsCanRunOnVirtualThreads() {
+        final String threadPoolName = randomFrom(
+            ThreadPool.THREAD_POOL_TYPES.keySet()
+                .stream()
+                .filter(name -> ThreadPool.VIRTUAL_THREAD_POOL_CANDIDATES.contains(name) == false)
+                .sorted()
+                .toList()
+        );
+        final Settings nodeSettings = Settings.builder()
+            .put("node.name", "testOnlyBlockingPoolsCanRunOnVirtualThreads")
+            .putList(ThreadPool.VIRTUAL_THREAD_POOLS_SETTING.getKey(), List.of(threadPoolName))
+            .build();
+        final IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> new ThreadPool(nodeSettings, MeterRegistry.NOOP, new DefaultBuiltInExecutorBuilders())
+        );
+        assertThat(e.getMessage(), containsString("thread pool [" + threadPoolName + "] can't run on virtual threads"));
+    }
+
+    public void testGenericCantRunOnVirtualThreads() {
+        assertFalse(ThreadPool.VIRTUAL_THREAD_POOL_CANDIDATES.contains(ThreadPool.Names.GENERIC));
+    }
+
+    public void testRejectsScalingCoreSetting() {
+        final String threadPoolName = randomFrom(ThreadPool.VIRTUAL_THREAD_POOL_CANDIDATES.stream().sorted().toList());
+        final Settings nodeSettings = Settings.builder()
+            .put("node.name", "testRejectsScalingCoreSetting")
+            .putList(ThreadPool.VIRTUAL_THREAD_POOLS_SETTING.getKey(), threadPoolName)
+            .put("thread_pool." + threadPoolName + ".core", 1)
+            .build();
+        final IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> new ThreadPool(nodeSettings, MeterRegistry.NOOP, new DefaultBuiltInExecutorBuilders())
+        );
+        assertThat(
+            e.getMessage(),
+            equalTo(
+                "thread pool ["
+                    + threadPoolName
+                    + "] runs on virtual threads which don't have a core size, remove [thread_pool."
+                    + threadPoolName
+                    + ".core] and use [thread_pool."
+                    + threadPoolName
+                    + ".max] to limit the number of tasks that run at once"
+            )
+        );
+    }
+
+    public void testKeepsScalingMaxAndKeepAliveSettings() {
+        final String threadPoolName = randomFrom(ThreadPool.VIRTUAL_THREAD_POOL_CANDIDATES.stream().sorted().toList());
+        final int max = randomIntBetween(1, 4096);
+        final Settings nodeSettings = Settings.builder()
+            .put("node.name", "testKeepsScalingMaxAndKeepAliveSettings")
+            .putList(ThreadPool.VIRTUAL_THREAD_POOLS_SETTING.getKey(), threadPoolName)
+            .put("thread_pool." + threadPoolName + ".max", max)
+            .put("thread_pool." + threadPoolName + ".keep_alive", "1m")
+            .build();
+        ThreadPool threadPool = null;
+        try {
+            threadPool = new ThreadPool(nodeSettings, MeterRegistry.NOOP, new DefaultBuiltInExecutorBuilders());
+            final ThreadPool.Info info = info(threadPool, threadPoolName);
+            assertThat(info.getThreadPoolType(), equalTo(ThreadPool.ThreadPoolType.VIRTUAL));
+            assertThat(info.getMax(), equalTo(max));
+            assertThat(info.getKeepAlive(), equalTo(TimeValue.timeValueMinutes(1)));
+        } finally {
+            terminateThreadPoolIfNeeded(threadPool);
+        }
+    }
+
+}
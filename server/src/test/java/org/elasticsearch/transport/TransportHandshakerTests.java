@@ -9,6 +9,7 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -60,7 +61,7 @@ public class TransportHandshakerTests extends ESTestCase {
     }
 
     public void testHandshakeRequestAndResponse() throws IOException {
-        PlainActionFuture<TransportVersion> versionFuture = new PlainActionFuture<>();
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
         long reqId = randomLongBetween(1, 10);
         handshaker.sendHandshake(reqId, node, channel, new TimeValue(30, TimeUnit.SECONDS), versionFuture);
 
@@ -80,7 +81,63 @@ public class TransportHandshakerTests extends ESTestCase {
         handler.handleResponse((TransportHandshaker.HandshakeResponse) responseFuture.actionGet());
 
         assertTrue(versionFuture.isDone());
-        assertEquals(TransportVersion.current(), versionFuture.actionGet());
+        assertEquals(TransportVersion.current(), versionFuture.actionGet().transportVersion());
+    }
+
+    public void testHandshakeAdvertisesZstdSupport() throws IOException {
+        boolean zstdSupported = randomBoolean();
+        handshaker = new TransportHandshaker(TransportVersion.current(), threadPool, requestSender, false, () -> zstdSupported);
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
+        long reqId = randomLongBetween(1, 10);
+        handshaker.sendHandshake(reqId, node, channel, new TimeValue(30, TimeUnit.SECONDS), versionFuture);
+
+        TcpTransport.HandshakeResult result = roundTripHandshake(reqId, TransportVersion.current(), versionFuture);
+        assertEquals(TransportVersion.current(), result.transportVersion());
+        assertEquals(zstdSupported, result.zstdSupported());
+    }
+
+    public void testHandshakeWithNodeThatDoesntAdvertiseZstd() throws IOException {
+        handshaker = new TransportHandshaker(TransportVersion.current(), threadPool, requestSender, false, () -> true);
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
+        long reqId = randomLongBetween(1, 10);
+        handshaker.sendHandshake(reqId, node, channel, new TimeValue(30, TimeUnit.SECONDS), versionFuture);
+
+        // a node from before zstd doesn't write the flag so we mustn't read it
+        TcpTransport.HandshakeResult result = roundTripHandshake(reqId, TransportVersions.MINIMUM_COMPATIBLE, versionFuture);
+        assertEquals(TransportVersions.MINIMUM_COMPATIBLE, result.transportVersion());
+        assertFalse(result.zstdSupported());
+    }
+
+    /**
+     * Handles a handshake request from a node of {@code remoteVersion} and feeds the serialized response back
+     * to the handshake we sent as though that node had sent it.
+     */
+    private TcpTransport.HandshakeResult roundTripHandshake(
+        long reqId,
+        TransportVersion remoteVersion,
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture
+    ) throws IOException {
+        BytesStreamOutput requestBytes = new BytesStreamOutput();
+        new TransportHandshaker.HandshakeRequest(remoteVersion).writeTo(requestBytes);
+        final PlainActionFuture<TransportResponse> responseFuture = new PlainActionFuture<>();
+        handshaker.handleHandshake(new TestTransportChannel(responseFuture), reqId, requestBytes.bytes().streamInput());
+
+        // the remote node answers with its own version
+        TransportHandshaker.HandshakeResponse response = (TransportHandshaker.HandshakeResponse) responseFuture.actionGet();
+        BytesStreamOutput responseBytes = new BytesStreamOutput();
+        if (remoteVersion.onOrAfter(Compression.Scheme.ZSTD_VERSION)) {
+            response.writeTo(responseBytes);
+        } else {
+            new TransportHandshaker.HandshakeResponse(remoteVersion).writeTo(responseBytes);
+        }
+
+        TransportResponseHandler<TransportHandshaker.HandshakeResponse> handler = handshaker.removeHandlerForHandshake(reqId);
+        try (StreamInput in = responseBytes.bytes().streamInput()) {
+            handler.handleResponse(handler.read(in));
+            assertEquals(0, in.available());
+        }
+        assertTrue(versionFuture.isDone());
+        return versionFuture.actionGet();
     }
 
     public void testHandshakeRequestFutureVersionsCompatibility() throws IOException {
@@ -119,7 +176,7 @@ public class TransportHandshakerTests extends ESTestCase {
     }
 
     public void testHandshakeError() throws IOException {
-        PlainActionFuture<TransportVersion> versionFuture = new PlainActionFuture<>();
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
         long reqId = randomLongBetween(1, 10);
         handshaker.sendHandshake(reqId, node, channel, new TimeValue(30, TimeUnit.SECONDS), versionFuture);
 
@@ -136,7 +193,7 @@ public class TransportHandshakerTests extends ESTestCase {
     }
 
     public void testSendRequestThrowsException() throws IOException {
-        PlainActionFuture<TransportVersion> versionFuture = new PlainActionFuture<>();
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
         long reqId = randomLongBetween(1, 10);
         doThrow(new IOException("boom")).when(requestSender)
             .sendRequest(node, channel, reqId, TransportHandshaker.REQUEST_HANDSHAKE_VERSION);
@@ -150,7 +207,7 @@ public class TransportHandshakerTests extends ESTestCase {
     }
 
     public void testHandshakeTimeout() throws IOException {
-        PlainActionFuture<TransportVersion> versionFuture = new PlainActionFuture<>();
+        PlainActionFuture<TcpTransport.HandshakeResult> versionFuture = new PlainActionFuture<>();
         long reqId = randomLongBetween(1, 10);
         handshaker.sendHandshake(reqId, node, channel, new TimeValue(100, TimeUnit.MILLISECONDS), versionFuture);
 
@@ -57,6 +57,11 @@ public final class DataTierAllocationDecider extends AllocationDecider {
         return shouldFilter(indexMetadata, node.node(), allocation);
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     @Override
     public Decision shouldAutoExpandToNode(IndexMetadata indexMetadata, DiscoveryNode node, RoutingAllocation allocation) {
         return shouldFilter(indexMetadata, node, allocation);
@@ -8,6 +8,7 @@
 package org.elasticsearch.xpack.esql.core.util;
 
 import org.elasticsearch.xpack.esql.core.expression.Attribute;
+import org.elasticsearch.xpack.esql.core.expression.NameId;
 import org.elasticsearch.xpack.esql.core.type.EsField;
 
 import java.io.IOException;
@@ -31,4 +32,11 @@ public interface PlanStreamOutput {
      * @throws IOException
      */
     boolean writeEsFieldCacheHeader(EsField field) throws IOException;
+
+    /**
+     * Translate the {@code long} behind a {@link NameId} into the {@code long} written
+     * to the stream. Plans sent over the wire write the id as is, but streams that build
+     * cache keys renumber them so the same query always produces the same bytes.
+     */
+    long mapNameId(long id);
 }
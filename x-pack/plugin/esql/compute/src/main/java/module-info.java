@@ -31,6 +31,8 @@ module org.elasticsearch.compute {
     exports org.elasticsearch.compute.aggregation.spatial;
     exports org.elasticsearch.compute.operator.topn;
     exports org.elasticsearch.compute.operator.mvdedupe;
+    exports org.elasticsearch.compute.operator.spill;
+    exports org.elasticsearch.compute.operator.join;
     exports org.elasticsearch.compute.aggregation.table;
     exports org.elasticsearch.compute.data.sort;
 }
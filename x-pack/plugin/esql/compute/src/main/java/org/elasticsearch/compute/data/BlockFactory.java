@@ -76,6 +76,13 @@ public class BlockFactory {
         return new BlockFactory(childBreaker, bigArrays, ByteSizeValue.ofBytes(maxPrimitiveArrayBytes), this);
     }
 
+    /**
+     * A {@link BlockFactory} that shares this factory's breaker but allocates {@link BigArrays} from {@code bigArrays}.
+     */
+    public BlockFactory withBigArrays(BigArrays bigArrays) {
+        return new BlockFactory(breaker, bigArrays, ByteSizeValue.ofBytes(maxPrimitiveArrayBytes), parent);
+    }
+
     /**
      * Adjust the circuit breaker with the given delta, if the delta is negative, the breaker will
      * be adjusted without tripping.
@@ -0,0 +1,719 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.compute.Describable;
+import org.elasticsearch.compute.aggregation.GroupingAggregator;
+import org.elasticsearch.compute.aggregation.GroupingAggregatorFunction;
+import org.elasticsearch.compute.aggregation.blockhash.BlockHash;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.IntBlock;
+import org.elasticsearch.compute.data.IntVector;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.spill.KeyPartitioner;
+import org.elasticsearch.compute.operator.spill.MemoryTracker;
+import org.elasticsearch.compute.operator.spill.SpillFile;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * A {@link HashAggregationOperator} that degrades to disk instead of holding every
+ * group in memory. It aggregates in memory until the {@link BlockHash} and the
+ * aggregators' state take up {@code maxBytesInMemory}, as measured by a
+ * {@link MemoryTracker}. After that the in memory groups are frozen and
+ * every incoming row is written to one of {@code partitions} {@link SpillFile}s
+ * chosen by the hash of its grouping key. When the input is finished we aggregate
+ * one partition at a time, merging in the frozen groups that belong to the
+ * partition, and emit one {@link Page} per partition.
+ * <p>
+ *     Because every key lives in exactly one partition only the frozen groups and a
+ *     single partition's groups are ever in memory at once. Rows with multivalued keys
+ *     may contribute to many partitions so they are written to each of them and we
+ *     only emit the keys that belong to the partition we're processing.
+ * </p>
+ */
+public class SpillingHashAggregationOperator implements Operator {
+
+    public record SpillingHashAggregationOperatorFactory(
+        List<BlockHash.GroupSpec> groups,
+        List<GroupingAggregator.Factory> aggregators,
+        int maxPageSize,
+        long maxBytesInMemory,
+        int partitions,
+        Path spillDirectory
+    ) implements OperatorFactory {
+        @Override
+        public Operator get(DriverContext driverContext) {
+            return new SpillingHashAggregationOperator(
+                groups.stream().mapToInt(BlockHash.GroupSpec::channel).toArray(),
+                aggregators,
+                blockFactory -> BlockHash.build(groups, blockFactory, maxPageSize, false),
+                maxBytesInMemory,
+                partitions,
+                spillDirectory,
+                driverContext
+            );
+        }
+
+        @Override
+        public String describe() {
+            return "SpillingHashAggregationOperator[mode = "
+                + "<not-needed>"
+                + ", aggs = "
+                + aggregators.stream().map(Describable::describe).collect(joining(", "))
+                + ", maxBytesInMemory = "
+                + maxBytesInMemory
+                + ", partitions = "
+                + partitions
+                + "]";
+        }
+    }
+
+    private final int[] groupChannels;
+    private final List<GroupingAggregator.Factory> aggregatorFactories;
+    private final Function<BlockFactory, BlockHash> blockHashBuilder;
+    private final long maxBytesInMemory;
+    private final Path spillDirectory;
+    private final DriverContext driverContext;
+    private final KeyPartitioner partitioner;
+
+    /**
+     * Measures the memory used by {@link #blockHash} and {@link #aggregators}.
+     */
+    private final MemoryTracker memory;
+    private final BlockHash blockHash;
+    private final List<GroupingAggregator> aggregators;
+
+    /**
+     * The partitions rows are written to once we've started spilling. {@code null} before that.
+     */
+    private SpillFile[] spills;
+    private int[][] spillPositions;
+    private int[] spillPositionCounts;
+
+    /**
+     * The keys of the frozen, in memory, groups. Built when we finish if we've spilled.
+     */
+    private Block[] residentKeys;
+    private IntVector residentGroups;
+    private int[] residentPartitions;
+    private int nextPartition;
+
+    private boolean finished;
+    private Page output;
+
+    /**
+     * Nanoseconds this operator has spent hashing grouping keys.
+     */
+    private long hashNanos;
+    /**
+     * Nanoseconds this operator has spent running the aggregations.
+     */
+    private long aggregationNanos;
+    /**
+     * Count of pages this operator has processed.
+     */
+    private int pagesProcessed;
+    /**
+     * Count of pages this operator has written to disk.
+     */
+    private int pagesSpilled;
+    /**
+     * Bytes this operator has written to disk.
+     */
+    private long bytesSpilled;
+
+    @SuppressWarnings("this-escape")
+    public SpillingHashAggregationOperator(
+        int[] groupChannels,
+        List<GroupingAggregator.Factory> aggregators,
+        Function<BlockFactory, BlockHash> blockHash,
+        long maxBytesInMemory,
+        int partitions,
+        Path spillDirectory,
+        DriverContext driverContext
+    ) {
+        if (maxBytesInMemory < 1) {
+            throw new IllegalArgumentException("maxBytesInMemory must be positive but was [" + maxBytesInMemory + "]");
+        }
+        this.groupChannels = groupChannels;
+        this.aggregatorFactories = aggregators;
+        this.blockHashBuilder = blockHash;
+        this.maxBytesInMemory = maxBytesInMemory;
+        this.spillDirectory = requireNonNull(spillDirectory, "spillDirectory is null");
+        this.driverContext = driverContext;
+        this.partitioner = new KeyPartitioner(groupChannels, partitions);
+        this.aggregators = new ArrayList<>(aggregators.size());
+        this.memory = new MemoryTracker(driverContext);
+        boolean success = false;
+        try {
+            this.blockHash = blockHash.apply(memory.driverContext().blockFactory());
+            for (GroupingAggregator.Factory a : aggregators) {
+                this.aggregators.add(a.apply(memory.driverContext()));
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+    }
+
+    @Override
+    public boolean needsInput() {
+        return finished == false;
+    }
+
+    @Override
+    public void addInput(Page page) {
+        try {
+            checkState(needsInput(), "Operator is already finishing");
+            requireNonNull(page, "page is null");
+            if (spills == null) {
+                aggregate(blockHash, aggregators, page);
+                if (memory.bytes() >= maxBytesInMemory) {
+                    spills = new SpillFile[partitioner.partitions()];
+                    spillPositions = new int[partitioner.partitions()][];
+                    spillPositionCounts = new int[partitioner.partitions()];
+                }
+            } else {
+                spill(page);
+            }
+        } finally {
+            page.releaseBlocks();
+            pagesProcessed++;
+        }
+    }
+
+    /**
+     * Add a page to a {@link BlockHash} and its aggregators. Doesn't release the page.
+     */
+    private void aggregate(BlockHash hash, List<GroupingAggregator> aggs, Page page) {
+        GroupingAggregatorFunction.AddInput[] prepared = new GroupingAggregatorFunction.AddInput[aggs.size()];
+        class AddInput implements GroupingAggregatorFunction.AddInput {
+            long hashStart = System.nanoTime();
+            long aggStart;
+
+            @Override
+            public void add(int positionOffset, IntBlock groupIds) {
+                IntVector groupIdsVector = groupIds.asVector();
+                if (groupIdsVector != null) {
+                    add(positionOffset, groupIdsVector);
+                } else {
+                    startAggEndHash();
+                    for (GroupingAggregatorFunction.AddInput p : prepared) {
+                        p.add(positionOffset, groupIds);
+                    }
+                    end();
+                }
+            }
+
+            @Override
+            public void add(int positionOffset, IntVector groupIds) {
+                startAggEndHash();
+                for (GroupingAggregatorFunction.AddInput p : prepared) {
+                    p.add(positionOffset, groupIds);
+                }
+                end();
+            }
+
+            private void startAggEndHash() {
+                aggStart = System.nanoTime();
+                hashNanos += aggStart - hashStart;
+            }
+
+            private void end() {
+                hashStart = System.nanoTime();
+                aggregationNanos += hashStart - aggStart;
+            }
+
+            @Override
+            public void close() {
+                Releasables.closeExpectNoException(prepared);
+            }
+        }
+        try (AddInput add = new AddInput()) {
+            for (int i = 0; i < prepared.length; i++) {
+                prepared[i] = aggs.get(i).prepareProcessPage(hash, page);
+            }
+            hash.add(page, add);
+            hashNanos += System.nanoTime() - add.hashStart;
+        }
+    }
+
+    /**
+     * Write each row of the page to the partitions its keys belong to. Doesn't release the page.
+     */
+    private void spill(Page page) {
+        Arrays.fill(spillPositionCounts, 0);
+        int positionCount = page.getPositionCount();
+        for (int p = 0; p < positionCount; p++) {
+            long partitions = partitioner.partitionsOfRow(page, p);
+            while (partitions != 0) {
+                int partition = Long.numberOfTrailingZeros(partitions);
+                partitions &= partitions - 1;
+                int[] positions = spillPositions[partition];
+                if (positions == null) {
+                    positions = spillPositions[partition] = new int[positionCount];
+                } else if (positions.length <= spillPositionCounts[partition]) {
+                    positions = spillPositions[partition] = ArrayUtil.grow(positions, spillPositionCounts[partition] + 1);
+                }
+                positions[spillPositionCounts[partition]++] = p;
+            }
+        }
+        try {
+            for (int partition = 0; partition < spills.length; partition++) {
+                int count = spillPositionCounts[partition];
+                if (count == 0) {
+                    continue;
+                }
+                if (spills[partition] == null) {
+                    spills[partition] = SpillFile.create(spillDirectory, "esql-hash-aggregation-" + partition + "-");
+                }
+                if (count == positionCount) {
+                    spills[partition].write(page);
+                } else {
+                    Page filtered = filter(page, Arrays.copyOf(spillPositions[partition], count));
+                    try {
+                        spills[partition].write(filtered);
+                    } finally {
+                        filtered.releaseBlocks();
+                    }
+                }
+                pagesSpilled++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Page filter(Page page, int[] positions) {
+        Block[] blocks = new Block[page.getBlockCount()];
+        boolean success = false;
+        try {
+            for (int b = 0; b < blocks.length; b++) {
+                blocks[b] = page.getBlock(b).filter(positions);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.closeExpectNoException(blocks);
+            }
+        }
+        return new Page(positions.length, blocks);
+    }
+
+    @Override
+    public Page getOutput() {
+        while (output == null && finished && spills != null && nextPartition < spills.length) {
+            output = buildPartition(nextPartition++);
+        }
+        Page p = output;
+        output = null;
+        return p;
+    }
+
+    @Override
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (spills == null) {
+            output = buildOutput(blockHash, aggregators, -1);
+            return;
+        }
+        try {
+            for (SpillFile spill : spills) {
+                if (spill != null) {
+                    spill.finishWriting();
+                    bytesSpilled += spill.sizeInBytes();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        residentGroups = blockHash.nonEmpty();
+        residentKeys = blockHash.getKeys();
+        residentPartitions = new int[residentGroups.getPositionCount()];
+        for (int i = 0; i < residentPartitions.length; i++) {
+            residentPartitions[i] = partitioner.partitionOfKey(residentKeys, i);
+        }
+    }
+
+    /**
+     * Aggregate a single spilled partition together with the frozen groups that belong to it.
+     */
+    private Page buildPartition(int partition) {
+        BlockHash hash = null;
+        List<GroupingAggregator> aggs = new ArrayList<>(aggregatorFactories.size());
+        try {
+            hash = blockHashBuilder.apply(driverContext.blockFactory());
+            for (GroupingAggregator.Factory a : aggregatorFactories) {
+                aggs.add(a.apply(driverContext));
+            }
+            if (spills[partition] != null) {
+                try (SpillFile.Reader reader = spills[partition].reader(driverContext.blockFactory())) {
+                    Page page;
+                    while ((page = reader.next()) != null) {
+                        try {
+                            aggregate(hash, aggs, page);
+                        } finally {
+                            page.releaseBlocks();
+                        }
+                    }
+                }
+            }
+            mergeResident(partition, hash, aggs);
+            return buildOutput(hash, aggs, partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            SpillFile spill = spills[partition];
+            spills[partition] = null;
+            Releasables.close(hash, () -> Releasables.close(aggs), () -> IOUtils.closeWhileHandlingException(spill));
+        }
+    }
+
+    /**
+     * Merge the frozen in memory groups that belong to {@code partition} into {@code hash}.
+     */
+    private void mergeResident(int partition, BlockHash hash, List<GroupingAggregator> aggs) {
+        int count = 0;
+        int[] positions = new int[residentPartitions.length];
+        for (int i = 0; i < residentPartitions.length; i++) {
+            if (residentPartitions[i] == partition) {
+                positions[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        int[] selected = Arrays.copyOf(positions, count);
+        Block[] blocks = new Block[Arrays.stream(groupChannels).max().getAsInt() + 1];
+        try {
+            for (int k = 0; k < groupChannels.length; k++) {
+                blocks[groupChannels[k]] = residentKeys[k].filter(selected);
+            }
+            for (int b = 0; b < blocks.length; b++) {
+                if (blocks[b] == null) {
+                    blocks[b] = driverContext.blockFactory().newConstantNullBlock(count);
+                }
+            }
+            Page keys = new Page(count, blocks);
+            hash.add(keys, new GroupingAggregatorFunction.AddInput() {
+                @Override
+                public void add(int positionOffset, IntBlock groupIds) {
+                    for (int p = 0; p < groupIds.getPositionCount(); p++) {
+                        int first = groupIds.getFirstValueIndex(p);
+                        int end = first + groupIds.getValueCount(p);
+                        for (int v = first; v < end; v++) {
+                            addRow(groupIds.getInt(v), selected[positionOffset + p]);
+                        }
+                    }
+                }
+
+                @Override
+                public void add(int positionOffset, IntVector groupIds) {
+                    for (int p = 0; p < groupIds.getPositionCount(); p++) {
+                        addRow(groupIds.getInt(p), selected[positionOffset + p]);
+                    }
+                }
+
+                private void addRow(int groupId, int residentPosition) {
+                    int residentGroup = residentGroups.getInt(residentPosition);
+                    for (int a = 0; a < aggs.size(); a++) {
+                        aggs.get(a).addIntermediateRow(groupId, aggregators.get(a), residentGroup);
+                    }
+                }
+
+                @Override
+                public void close() {}
+            });
+        } finally {
+            Releasables.closeExpectNoException(blocks);
+        }
+    }
+
+    /**
+     * Build the output for {@code hash}, keeping only the keys that belong to
+     * {@code partition}. {@code -1} means keep every key.
+     */
+    private Page buildOutput(BlockHash hash, List<GroupingAggregator> aggs, int partition) {
+        Block[] blocks = null;
+        IntVector selected = null;
+        Block[] keys = null;
+        boolean success = false;
+        try {
+            selected = hash.nonEmpty();
+            keys = hash.getKeys();
+            if (partition >= 0) {
+                int[] keep = new int[selected.getPositionCount()];
+                int count = 0;
+                for (int i = 0; i < keep.length; i++) {
+                    if (partitioner.partitionOfKey(keys, i) == partition) {
+                        keep[count++] = i;
+                    }
+                }
+                if (count == 0) {
+                    success = true;
+                    return null;
+                }
+                if (count < keep.length) {
+                    keep = Arrays.copyOf(keep, count);
+                    IntVector filteredSelected = selected.filter(keep);
+                    selected.close();
+                    selected = filteredSelected;
+                    Block[] filteredKeys = new Block[keys.length];
+                    try {
+                        for (int k = 0; k < keys.length; k++) {
+                            filteredKeys[k] = keys[k].filter(keep);
+                        }
+                    } finally {
+                        Releasables.closeExpectNoException(keys);
+                        keys = filteredKeys;
+                    }
+                }
+            }
+            int[] aggBlockCounts = aggs.stream().mapToInt(GroupingAggregator::evaluateBlockCount).toArray();
+            blocks = new Block[keys.length + Arrays.stream(aggBlockCounts).sum()];
+            System.arraycopy(keys, 0, blocks, 0, keys.length);
+            int offset = keys.length;
+            keys = null;
+            for (int i = 0; i < aggs.size(); i++) {
+                aggs.get(i).evaluate(blocks, offset, selected, driverContext);
+                offset += aggBlockCounts[i];
+            }
+            Page page = new Page(blocks);
+            success = true;
+            return page;
+        } finally {
+            // selected should always be closed
+            if (selected != null) {
+                selected.close();
+            }
+            if (keys != null) {
+                Releasables.closeExpectNoException(keys);
+            }
+            if (success == false && blocks != null) {
+                Releasables.closeExpectNoException(blocks);
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && output == null && (spills == null || nextPartition >= spills.length);
+    }
+
+    @Override
+    public void close() {
+        if (output != null) {
+            output.releaseBlocks();
+        }
+        Releasable closeResidentKeys = residentKeys == null ? () -> {} : () -> Releasables.close(residentKeys);
+        Releasable closeSpills = spills == null ? () -> {} : () -> IOUtils.closeWhileHandlingException(spills);
+        Releasables.close(blockHash, () -> Releasables.close(aggregators), residentGroups, closeResidentKeys, closeSpills);
+    }
+
+    @Override
+    public Operator.Status status() {
+        return new Status(hashNanos, aggregationNanos, pagesProcessed, pagesSpilled, bytesSpilled);
+    }
+
+    protected static void checkState(boolean condition, String msg) {
+        if (condition == false) {
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(this.getClass().getSimpleName()).append("[");
+        sb.append("blockHash=").append(blockHash).append(", ");
+        sb.append("aggregators=").append(aggregators).append(", ");
+        sb.append("maxBytesInMemory=").append(maxBytesInMemory).append(", ");
+        sb.append("partitions=").append(partitioner.partitions());
+        sb.append("]");
+        return sb.toString();
+    }
+
+    public static class Status implements Operator.Status {
+        public static final NamedWriteableRegistry.Entry ENTRY = new NamedWriteableRegistry.Entry(
+            Operator.Status.class,
+            "spilling_hashagg",
+            Status::new
+        );
+
+        /**
+         * Nanoseconds this operator has spent hashing grouping keys.
+         */
+        private final long hashNanos;
+        /**
+         * Nanoseconds this operator has spent running the aggregations.
+         */
+        private final long aggregationNanos;
+        /**
+         * Count of pages this operator has processed.
+         */
+        private final int pagesProcessed;
+        /**
+         * Count of pages this operator has written to disk.
+         */
+        private final int pagesSpilled;
+        /**
+         * Bytes this operator has written to disk.
+         */
+        private final long bytesSpilled;
+
+        /**
+         * Build.
+         * @param hashNanos Nanoseconds this operator has spent hashing grouping keys.
+         * @param aggregationNanos Nanoseconds this operator has spent running the aggregations.
+         * @param pagesProcessed Count of pages this operator has processed.
+         * @param pagesSpilled Count of pages this operator has written to disk.
+         * @param bytesSpilled Bytes this operator has written to disk.
+         */
+        public Status(long hashNanos, long aggregationNanos, int pagesProcessed, int pagesSpilled, long bytesSpilled) {
+            this.hashNanos = hashNanos;
+            this.aggregationNanos = aggregationNanos;
+            this.pagesProcessed = pagesProcessed;
+            this.pagesSpilled = pagesSpilled;
+            this.bytesSpilled = bytesSpilled;
+        }
+
+        protected Status(StreamInput in) throws IOException {
+            hashNanos = in.readVLong();
+            aggregationNanos = in.readVLong();
+            pagesProcessed = in.readVInt();
+            pagesSpilled = in.readVInt();
+            bytesSpilled = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(hashNanos);
+            out.writeVLong(aggregationNanos);
+            out.writeVInt(pagesProcessed);
+            out.writeVInt(pagesSpilled);
+            out.writeVLong(bytesSpilled);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return ENTRY.name;
+        }
+
+        /**
+         * Nanoseconds this operator has spent hashing grouping keys.
+         */
+        public long hashNanos() {
+            return hashNanos;
+        }
+
+        /**
+         * Nanoseconds this operator has spent running the aggregations.
+         */
+        public long aggregationNanos() {
+            return aggregationNanos;
+        }
+
+        /**
+         * Count of pages this operator has processed.
+         */
+        public int pagesProcessed() {
+            return pagesProcessed;
+        }
+
+        /**
+         * Count of pages this operator has written to disk.
+         */
+        public int pagesSpilled() {
+            return pagesSpilled;
+        }
+
+        /**
+         * Bytes this operator has written to disk.
+         */
+        public long bytesSpilled() {
+            return bytesSpilled;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("hash_nanos", hashNanos);
+            if (builder.humanReadable()) {
+                builder.field("hash_time", TimeValue.timeValueNanos(hashNanos));
+            }
+            builder.field("aggregation_nanos", aggregationNanos);
+            if (builder.humanReadable()) {
+                builder.field("aggregation_time", TimeValue.timeValueNanos(aggregationNanos));
+            }
+            builder.field("pages_processed", pagesProcessed);
+            builder.field("pages_spilled", pagesSpilled);
+            builder.field("bytes_spilled", bytesSpilled);
+            if (builder.humanReadable()) {
+                builder.field("spilled", ByteSizeValue.ofBytes(bytesSpilled));
+            }
+            return builder.endObject();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Status status = (Status) o;
+            return hashNanos == status.hashNanos
+                && aggregationNanos == status.aggregationNanos
+                && pagesProcessed == status.pagesProcessed
+                && pagesSpilled == status.pagesSpilled
+                && bytesSpilled == status.bytesSpilled;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hashNanos, aggregationNanos, pagesProcessed, pagesSpilled, bytesSpilled);
+        }
+
+        @Override
+        public String toString() {
+            return Strings.toString(this);
+        }
+
+        @Override
+        public TransportVersion getMinimalSupportedVersion() {
+            return TransportVersions.ESQL_SPILLING_HASH_AGGREGATION;
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class StringExtractOperator extends AbstractPageMappingOperator {
     public record StringExtractOperatorFactory(
         String[] fieldNames,
         ExpressionEvaluator.Factory expressionEvaluator,
-        Supplier<Function<String, Map<String, String>>> parserSupplier
+        Supplier<Function<BytesRef, Map<String, String>>> parserSupplier
     ) implements OperatorFactory {
 
         @Override
@@ -43,13 +43,13 @@ public class StringExtractOperator extends AbstractPageMappingOperator {
 
     private final String[] fieldNames;
     private final EvalOperator.ExpressionEvaluator inputEvaluator;
-    private final Function<String, Map<String, String>> parser;  // TODO parser should consume ByteRef instead of String
+    private final Function<BytesRef, Map<String, String>> parser;
     private final DriverContext driverContext;
 
     public StringExtractOperator(
         String[] fieldNames,
         EvalOperator.ExpressionEvaluator inputEvaluator,
-        Function<String, Map<String, String>> parser,
+        Function<BytesRef, Map<String, String>> parser,
         DriverContext driverContext
     ) {
         this.fieldNames = fieldNames;
@@ -81,7 +81,7 @@ public class StringExtractOperator extends AbstractPageMappingOperator {
                     int position = input.getFirstValueIndex(row);
                     int valueCount = input.getValueCount(row);
                     if (valueCount == 1) {
-                        Map<String, String> items = parser.apply(input.getBytesRef(position, spare).utf8ToString());
+                        Map<String, String> items = parser.apply(input.getBytesRef(position, spare));
                         if (items == null) {
                             for (int i = 0; i < fieldNames.length; i++) {
                                 blockBuilders[i].appendNull();
@@ -97,7 +97,7 @@ public class StringExtractOperator extends AbstractPageMappingOperator {
                         String[] firstValues = new String[fieldNames.length];
                         boolean[] positionEntryOpen = new boolean[fieldNames.length];
                         for (int c = 0; c < valueCount; c++) {
-                            Map<String, String> items = parser.apply(input.getBytesRef(position + c, spare).utf8ToString());
+                            Map<String, String> items = parser.apply(input.getBytesRef(position + c, spare));
                             if (items == null) {
                                 continue;
                             }
@@ -0,0 +1,80 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.compute.operator.SinkOperator;
+import org.elasticsearch.core.Releasables;
+
+/**
+ * Sends every {@link Page} it receives to a {@link HashJoinBuildSide}. Runs at the end
+ * of the drivers producing the build side of a {@link HashJoinOperator}.
+ */
+public class HashJoinBuildOperator extends SinkOperator {
+    public record HashJoinBuildOperatorFactory(HashJoinBuildSide buildSide) implements SinkOperatorFactory {
+        @Override
+        public SinkOperator get(DriverContext driverContext) {
+            return new HashJoinBuildOperator(buildSide);
+        }
+
+        @Override
+        public String describe() {
+            return "HashJoinBuildOperator";
+        }
+    }
+
+    private final HashJoinBuildSide buildSide;
+    private boolean finished;
+    private int pagesAccepted;
+
+    public HashJoinBuildOperator(HashJoinBuildSide buildSide) {
+        buildSide.addSink();
+        buildSide.incRef();
+        this.buildSide = buildSide;
+    }
+
+    @Override
+    public boolean needsInput() {
+        return finished == false;
+    }
+
+    @Override
+    protected void doAddInput(Page page) {
+        pagesAccepted++;
+        buildSide.addPage(page);
+    }
+
+    @Override
+    public void finish() {
+        if (finished == false) {
+            finished = true;
+            buildSide.sinkFinished();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(() -> {
+            if (finished == false) {
+                finished = true;
+                buildSide.sinkFailed(new IllegalStateException("hash join build operator closed before finishing"));
+            }
+        }, buildSide);
+    }
+
+    @Override
+    public String toString() {
+        return "HashJoinBuildOperator[pagesAccepted=" + pagesAccepted + "]";
+    }
+}
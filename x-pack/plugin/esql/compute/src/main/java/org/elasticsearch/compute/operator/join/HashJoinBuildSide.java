@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+import org.elasticsearch.action.support.SubscribableListener;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.IsBlockedResult;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.RefCounted;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The build side of a hash join, shared between the drivers that produce it and
+ * the drivers that probe it. {@link HashJoinBuildOperator}s collect {@link Page}s
+ * into it and each {@link HashJoinOperator} waits until all of them have finished
+ * before building its hash table from those pages.
+ * <p>
+ *     This is reference counted. Whoever creates it holds the first reference and
+ *     must {@link #close} it once it has created the operators. Each operator holds
+ *     its own reference until it is closed and the pages are released when the last
+ *     reference is released.
+ * </p>
+ */
+public final class HashJoinBuildSide implements Releasable {
+    private final RefCounted refs = AbstractRefCounted.of(this::closeInternal);
+    private final SubscribableListener<Void> built = new SubscribableListener<>();
+    private final List<Page> pages = new ArrayList<>();
+    private int activeSinks;
+    private Exception failure;
+    private boolean released;
+
+    /**
+     * A build side made of pages that are already available, like the tables sent with
+     * a request, so it doesn't need any {@link HashJoinBuildOperator}s. Takes ownership
+     * of the pages.
+     */
+    public static HashJoinBuildSide of(List<Page> pages) {
+        HashJoinBuildSide buildSide = new HashJoinBuildSide();
+        buildSide.pages.addAll(pages);
+        buildSide.built.onResponse(null);
+        return buildSide;
+    }
+
+    /**
+     * Register a new {@link HashJoinBuildOperator}. The build side isn't
+     * finished until all registered operators have finished.
+     */
+    synchronized void addSink() {
+        if (built.isDone()) {
+            throw new IllegalStateException("build side is already finished");
+        }
+        activeSinks++;
+    }
+
+    /**
+     * Add a page to the build side, taking ownership of it.
+     */
+    void addPage(Page page) {
+        synchronized (this) {
+            if (built.isDone() == false && released == false) {
+                pages.add(page);
+                return;
+            }
+        }
+        page.releaseBlocks();
+    }
+
+    /**
+     * Called when a registered {@link HashJoinBuildOperator} has sent all of its pages.
+     */
+    void sinkFinished() {
+        synchronized (this) {
+            if (--activeSinks > 0 || built.isDone()) {
+                return;
+            }
+        }
+        built.onResponse(null);
+    }
+
+    /**
+     * Called when a registered {@link HashJoinBuildOperator} is closed without finishing.
+     * The build side is incomplete so any operator waiting on it fails.
+     */
+    void sinkFailed(Exception e) {
+        synchronized (this) {
+            if (built.isDone()) {
+                return;
+            }
+            failure = e;
+        }
+        built.onFailure(e);
+    }
+
+    /**
+     * Has every {@link HashJoinBuildOperator} finished?
+     */
+    boolean isBuilt() {
+        return built.isDone();
+    }
+
+    IsBlockedResult waitForBuild() {
+        return new IsBlockedResult(built, "hash join build");
+    }
+
+    /**
+     * A shallow copy of all the pages on the build side. The caller must release them.
+     */
+    synchronized List<Page> pages() {
+        if (built.isDone() == false) {
+            throw new IllegalStateException("build side isn't finished");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("build side failed", failure);
+        }
+        List<Page> copies = new ArrayList<>(pages.size());
+        boolean success = false;
+        try {
+            for (Page page : pages) {
+                copies.add(page.shallowCopy());
+            }
+            success = true;
+            return copies;
+        } finally {
+            if (success == false) {
+                Releasables.closeExpectNoException(Releasables.wrap(copies.stream().map(p -> (Releasable) p::releaseBlocks).toList()));
+            }
+        }
+    }
+
+    void incRef() {
+        refs.mustIncRef();
+    }
+
+    @Override
+    public void close() {
+        refs.decRef();
+    }
+
+    private void closeInternal() {
+        List<Page> toRelease;
+        synchronized (this) {
+            released = true;
+            toRelease = new ArrayList<>(pages);
+            pages.clear();
+        }
+        Releasables.closeExpectNoException(Releasables.wrap(toRelease.stream().map(p -> (Releasable) p::releaseBlocks).toList()));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HashJoinBuildSide[pages=" + pages.size() + ", activeSinks=" + activeSinks + ", built=" + built.isDone() + "]";
+    }
+}
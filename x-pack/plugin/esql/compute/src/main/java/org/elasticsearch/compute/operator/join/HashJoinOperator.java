@@ -0,0 +1,1066 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.compute.aggregation.GroupingAggregatorFunction;
+import org.elasticsearch.compute.aggregation.blockhash.BlockHash;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.IntBlock;
+import org.elasticsearch.compute.data.IntVector;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.compute.operator.IsBlockedResult;
+import org.elasticsearch.compute.operator.Operator;
+import org.elasticsearch.compute.operator.spill.KeyPartitioner;
+import org.elasticsearch.compute.operator.spill.SpillFile;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.ReleasableIterator;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Joins its input, the probe side, against the {@link Page}s collected in a
+ * {@link HashJoinBuildSide}. It waits until the build side is finished, loads it
+ * into a {@link BlockHash} that maps each key to the chain of build rows that have
+ * it, and then emits one row for every pair of matching probe and build rows. Output
+ * pages contain all of the probe columns followed by all of the build columns.
+ * <p>
+ *     Rows with a {@code null} or multivalued key never match. A {@link JoinType#LEFT}
+ *     join emits them, and every other unmatched probe row, with {@code null} build
+ *     columns.
+ * </p>
+ * <p>
+ *     If the blocks on the build side take more than {@code maxBuildBytesInMemory} we fall back
+ *     to a partitioned join: the build rows are written to {@code partitions}
+ *     {@link SpillFile}s by the hash of their key, the probe rows are written the same
+ *     way, and once the input is finished each partition is joined on its own. Only
+ *     one partition's build side is ever in memory at a time.
+ * </p>
+ * <p>
+ *     A {@link JoinType#LOOKUP} join emits one row per probe row instead, in the order
+ *     they arrive, so it never partitions. Its build side is a single page, usually a
+ *     table sent with the request, and each build column is loaded with
+ *     {@link Block#lookup} like {@code LOOKUP} does.
+ * </p>
+ */
+public class HashJoinOperator implements Operator {
+    private static final ByteSizeValue LOOKUP_TARGET_SIZE = ByteSizeValue.ofKb(64);
+
+    public record HashJoinOperatorFactory(
+        HashJoinBuildSide buildSide,
+        JoinType joinType,
+        int[] probeKeyChannels,
+        int[] buildKeyChannels,
+        List<ElementType> buildElementTypes,
+        int maxPageSize,
+        long maxBuildBytesInMemory,
+        int partitions,
+        Path spillDirectory
+    ) implements OperatorFactory {
+        public HashJoinOperatorFactory {
+            if (probeKeyChannels.length != buildKeyChannels.length) {
+                throw new IllegalArgumentException(
+                    "probe keys " + Arrays.toString(probeKeyChannels) + " and build keys " + Arrays.toString(buildKeyChannels) + " differ"
+                );
+            }
+        }
+
+        @Override
+        public Operator get(DriverContext driverContext) {
+            return new HashJoinOperator(
+                buildSide,
+                joinType,
+                probeKeyChannels,
+                buildKeyChannels,
+                buildElementTypes,
+                maxPageSize,
+                maxBuildBytesInMemory,
+                partitions,
+                spillDirectory,
+                driverContext
+            );
+        }
+
+        @Override
+        public String describe() {
+            return "HashJoinOperator[type="
+                + joinType
+                + ", probeKeys="
+                + Arrays.toString(probeKeyChannels)
+                + ", buildKeys="
+                + Arrays.toString(buildKeyChannels)
+                + ", maxBuildBytesInMemory="
+                + maxBuildBytesInMemory
+                + ", partitions="
+                + partitions
+                + "]";
+        }
+    }
+
+    private final HashJoinBuildSide buildSide;
+    private final JoinType joinType;
+    private final int[] probeKeyChannels;
+    private final int[] buildKeyChannels;
+    private final List<ElementType> buildElementTypes;
+    private final List<BlockHash.GroupSpec> keySpecs;
+    private final int maxPageSize;
+    private final long maxBuildBytesInMemory;
+    private final Path spillDirectory;
+    private final DriverContext driverContext;
+    private final KeyPartitioner partitioner;
+
+    private boolean built;
+    private boolean finished;
+
+    /**
+     * The hash table we're probing. If we've spilled this is the table for the partition we're processing.
+     */
+    private Table table;
+    private Probe probe;
+
+    /**
+     * The build and probe partitions. {@code null} unless the build side didn't fit in memory.
+     */
+    private SpillFile[] buildSpills;
+    private SpillFile[] probeSpills;
+    private int[][] spillPositions;
+    private int[] spillPositionCounts;
+    private int partition = -1;
+    private SpillFile.Reader probeReader;
+
+    /**
+     * Count of rows on the build side.
+     */
+    private long buildRows;
+    /**
+     * Count of pages this operator has received.
+     */
+    private int pagesReceived;
+    /**
+     * Count of pages this operator has emitted.
+     */
+    private int pagesEmitted;
+    /**
+     * Count of rows this operator has emitted.
+     */
+    private long rowsEmitted;
+    /**
+     * Count of pages this operator has written to disk.
+     */
+    private int pagesSpilled;
+    /**
+     * Bytes this operator has written to disk.
+     */
+    private long bytesSpilled;
+
+    public HashJoinOperator(
+        HashJoinBuildSide buildSide,
+        JoinType joinType,
+        int[] probeKeyChannels,
+        int[] buildKeyChannels,
+        List<ElementType> buildElementTypes,
+        int maxPageSize,
+        long maxBuildBytesInMemory,
+        int partitions,
+        Path spillDirectory,
+        DriverContext driverContext
+    ) {
+        if (maxBuildBytesInMemory < 1) {
+            throw new IllegalArgumentException("maxBuildBytesInMemory must be positive but was [" + maxBuildBytesInMemory + "]");
+        }
+        this.joinType = joinType;
+        this.probeKeyChannels = probeKeyChannels;
+        this.buildKeyChannels = buildKeyChannels;
+        this.buildElementTypes = buildElementTypes;
+        this.keySpecs = new ArrayList<>(buildKeyChannels.length);
+        for (int k = 0; k < buildKeyChannels.length; k++) {
+            keySpecs.add(new BlockHash.GroupSpec(k, buildElementTypes.get(buildKeyChannels[k])));
+        }
+        this.maxPageSize = maxPageSize;
+        this.maxBuildBytesInMemory = maxBuildBytesInMemory;
+        this.spillDirectory = requireNonNull(spillDirectory, "spillDirectory is null");
+        this.driverContext = driverContext;
+        this.partitioner = new KeyPartitioner(probeKeyChannels, partitions);
+        buildSide.incRef();
+        this.buildSide = buildSide;
+    }
+
+    @Override
+    public IsBlockedResult isBlocked() {
+        return built ? NOT_BLOCKED : buildSide.waitForBuild();
+    }
+
+    @Override
+    public boolean needsInput() {
+        return finished == false && probe == null && buildSide.isBuilt();
+    }
+
+    @Override
+    public void addInput(Page page) {
+        boolean pageOwnedByProbe = false;
+        try {
+            ensureBuilt();
+            pagesReceived++;
+            if (buildSpills == null) {
+                pageOwnedByProbe = true;
+                probe = new Probe(table, page);
+            } else {
+                spillProbe(page);
+            }
+        } finally {
+            if (pageOwnedByProbe == false) {
+                page.releaseBlocks();
+            }
+        }
+    }
+
+    @Override
+    public void finish() {
+        finished = true;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && built && probe == null && (buildSpills == null || (probeReader == null && partition >= buildSpills.length));
+    }
+
+    @Override
+    public Page getOutput() {
+        if (buildSide.isBuilt() == false) {
+            return null;
+        }
+        ensureBuilt();
+        try {
+            while (true) {
+                if (probe != null) {
+                    Page output = probe.next();
+                    if (output != null) {
+                        pagesEmitted++;
+                        rowsEmitted += output.getPositionCount();
+                        return output;
+                    }
+                    probe.close();
+                    probe = null;
+                }
+                if (finished == false || buildSpills == null) {
+                    return null;
+                }
+                if (probeReader == null) {
+                    if (nextPartition() == false) {
+                        return null;
+                    }
+                    continue;
+                }
+                Page page = probeReader.next();
+                if (page == null) {
+                    closePartition();
+                    continue;
+                }
+                probe = new Probe(table, page);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Load the build side once it's finished, either into memory or into partitions on disk.
+     */
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        built = true;
+        List<Page> pages = buildSide.pages();
+        long buildBytes = 0;
+        for (Page page : pages) {
+            buildRows += page.getPositionCount();
+            buildBytes += page.ramBytesUsedByBlocks();
+        }
+        // The table's hash and row chains are charged to the breaker as we build them, the pages are the part we can spill.
+        // Partitioning would reorder the rows so LOOKUP joins always stay in memory.
+        if (joinType == JoinType.LOOKUP || buildBytes <= maxBuildBytesInMemory) {
+            table = new Table(pages);
+            return;
+        }
+        try {
+            int partitions = partitioner.partitions();
+            buildSpills = new SpillFile[partitions];
+            probeSpills = new SpillFile[partitions];
+            spillPositions = new int[partitions][];
+            spillPositionCounts = new int[partitions];
+            for (Page page : pages) {
+                spill(buildSpills, "esql-hash-join-build-", page, buildKeyChannels);
+            }
+            for (SpillFile spill : buildSpills) {
+                if (spill != null) {
+                    spill.finishWriting();
+                    bytesSpilled += spill.sizeInBytes();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releasePages(pages);
+        }
+    }
+
+    /**
+     * Write the rows of a probe page to their partitions. Rows that can't match
+     * anything are emitted straight away if this is a {@link JoinType#LEFT} join.
+     */
+    private void spillProbe(Page page) {
+        try {
+            int[] unmatched = spill(probeSpills, "esql-hash-join-probe-", page, probeKeyChannels);
+            if (joinType == JoinType.LEFT && unmatched.length > 0) {
+                probe = new Probe(null, filter(page, unmatched));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write each row of {@code page} to the partition of its key. Doesn't release the page.
+     * @return the positions of rows whose keys are {@code null} or multivalued and so can't match
+     */
+    private int[] spill(SpillFile[] spills, String prefix, Page page, int[] keyChannels) throws IOException {
+        Arrays.fill(spillPositionCounts, 0);
+        int positionCount = page.getPositionCount();
+        Block[] keys = new Block[keyChannels.length];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = page.getBlock(keyChannels[k]);
+        }
+        int[] unmatched = new int[0];
+        int unmatchedCount = 0;
+        for (int p = 0; p < positionCount; p++) {
+            if (singleValued(keys, p) == false) {
+                unmatched = ArrayUtil.grow(unmatched, unmatchedCount + 1);
+                unmatched[unmatchedCount++] = p;
+                continue;
+            }
+            int partition = partitioner.partitionOfKey(keys, p);
+            int[] positions = spillPositions[partition];
+            if (positions == null) {
+                positions = spillPositions[partition] = new int[positionCount];
+            } else if (positions.length <= spillPositionCounts[partition]) {
+                positions = spillPositions[partition] = ArrayUtil.grow(positions, spillPositionCounts[partition] + 1);
+            }
+            positions[spillPositionCounts[partition]++] = p;
+        }
+        for (int partition = 0; partition < spills.length; partition++) {
+            int count = spillPositionCounts[partition];
+            if (count == 0) {
+                continue;
+            }
+            if (spills[partition] == null) {
+                spills[partition] = SpillFile.create(spillDirectory, prefix + partition + "-");
+            }
+            if (count == positionCount) {
+                spills[partition].write(page);
+            } else {
+                Page filtered = filter(page, Arrays.copyOf(spillPositions[partition], count));
+                try {
+                    spills[partition].write(filtered);
+                } finally {
+                    filtered.releaseBlocks();
+                }
+            }
+            pagesSpilled++;
+        }
+        return Arrays.copyOf(unmatched, unmatchedCount);
+    }
+
+    /**
+     * Load the next partition that can produce results.
+     * @return {@code false} if there aren't any more partitions
+     */
+    private boolean nextPartition() throws IOException {
+        while (++partition < buildSpills.length) {
+            SpillFile probeSpill = probeSpills[partition];
+            SpillFile buildSpill = buildSpills[partition];
+            if (probeSpill == null || (buildSpill == null && joinType == JoinType.INNER)) {
+                probeSpills[partition] = null;
+                buildSpills[partition] = null;
+                IOUtils.closeWhileHandlingException(probeSpill, buildSpill);
+                continue;
+            }
+            List<Page> pages = new ArrayList<>();
+            try {
+                if (buildSpill != null) {
+                    try (SpillFile.Reader reader = buildSpill.reader(driverContext.blockFactory())) {
+                        Page page;
+                        while ((page = reader.next()) != null) {
+                            pages.add(page);
+                        }
+                    }
+                }
+                table = new Table(pages);
+                pages = null;
+            } finally {
+                if (pages != null) {
+                    releasePages(pages);
+                }
+            }
+            probeReader = probeSpill.reader(driverContext.blockFactory());
+            bytesSpilled += probeSpill.sizeInBytes();
+            return true;
+        }
+        return false;
+    }
+
+    private void closePartition() {
+        SpillFile probeSpill = probeSpills[partition];
+        SpillFile buildSpill = buildSpills[partition];
+        probeSpills[partition] = null;
+        buildSpills[partition] = null;
+        Releasable closeReader = probeReader == null ? () -> {} : () -> IOUtils.closeWhileHandlingException(probeReader);
+        probeReader = null;
+        Releasables.close(table, closeReader, () -> IOUtils.closeWhileHandlingException(probeSpill, buildSpill));
+        table = null;
+    }
+
+    private static boolean singleValued(Block[] keys, int position) {
+        for (Block key : keys) {
+            if (key.isNull(position) || key.getValueCount(position) != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Block[] keyBlocks(Page keys) {
+        Block[] blocks = new Block[keys.getBlockCount()];
+        for (int k = 0; k < blocks.length; k++) {
+            blocks[k] = keys.getBlock(k);
+        }
+        return blocks;
+    }
+
+    private static Page filter(Page page, int[] positions) {
+        Block[] blocks = new Block[page.getBlockCount()];
+        boolean success = false;
+        try {
+            for (int b = 0; b < blocks.length; b++) {
+                blocks[b] = page.getBlock(b).filter(positions);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.closeExpectNoException(blocks);
+            }
+        }
+        return new Page(positions.length, blocks);
+    }
+
+    private static void releasePages(List<Page> pages) {
+        Releasables.closeExpectNoException(Releasables.wrap(pages.stream().map(p -> (Releasable) p::releaseBlocks).toList()));
+    }
+
+    @Override
+    public void close() {
+        Releasable closeSpills = buildSpills == null ? () -> {} : () -> {
+            IOUtils.closeWhileHandlingException(probeReader);
+            IOUtils.closeWhileHandlingException(buildSpills);
+            IOUtils.closeWhileHandlingException(probeSpills);
+        };
+        Releasables.close(probe, table, closeSpills, buildSide);
+    }
+
+    @Override
+    public Operator.Status status() {
+        return new Status(buildRows, pagesReceived, pagesEmitted, rowsEmitted, pagesSpilled, bytesSpilled);
+    }
+
+    @Override
+    public String toString() {
+        return "HashJoinOperator[type="
+            + joinType
+            + ", probeKeys="
+            + Arrays.toString(probeKeyChannels)
+            + ", buildKeys="
+            + Arrays.toString(buildKeyChannels)
+            + ", maxBuildBytesInMemory="
+            + maxBuildBytesInMemory
+            + ", partitions="
+            + partitioner.partitions()
+            + "]";
+    }
+
+    /**
+     * An in memory hash table of build rows. Maps each key to a chain of the build rows
+     * with that key, linked through {@link #nextRows}.
+     */
+    private class Table implements Releasable {
+        private final List<Page> pages;
+        private final BigArrays bigArrays = driverContext.bigArrays();
+        private BlockHash hash;
+        /**
+         * The first row in the chain for each group id or {@code -1} if there aren't any.
+         */
+        private IntArray heads;
+        private long headsSize;
+        /**
+         * The next row in the chain for each row or {@code -1} if it's the last one.
+         */
+        private IntArray nextRows;
+        /**
+         * The page index in the upper 32 bits and position in the lower 32 bits of each row.
+         */
+        private LongArray addresses;
+        private int rows;
+
+        /**
+         * Build the table, taking ownership of {@code pages}.
+         */
+        Table(List<Page> pages) {
+            this.pages = pages;
+            boolean success = false;
+            try {
+                int emitBatchSize = Math.max(1, maxPageSize);
+                if (joinType == JoinType.LOOKUP && pages.size() > 1) {
+                    throw new IllegalArgumentException("LOOKUP joins need the build side in a single page but got [" + pages.size() + "]");
+                }
+                // LOOKUP hashes its keys like RowInTableLookup so that nulls and multivalued probe keys match the same way
+                hash = keySpecs.size() == 1 && joinType != JoinType.LOOKUP
+                    ? BlockHash.build(keySpecs, driverContext.blockFactory(), emitBatchSize, false)
+                    : BlockHash.buildPackedValuesBlockHash(keySpecs, driverContext.blockFactory(), emitBatchSize);
+                heads = bigArrays.newIntArray(16, false);
+                nextRows = bigArrays.newIntArray(16, false);
+                addresses = bigArrays.newLongArray(16, false);
+                for (int i = 0; i < pages.size(); i++) {
+                    add(i, pages.get(i));
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+        }
+
+        private void add(int pageIndex, Page page) {
+            Page keys = page.projectBlocks(buildKeyChannels);
+            try {
+                Block[] keyBlocks = keyBlocks(keys);
+                if (joinType == JoinType.LOOKUP) {
+                    for (Block key : keyBlocks) {
+                        if (key.doesHaveMultivaluedFields()) {
+                            throw new IllegalArgumentException("only single valued keys are supported");
+                        }
+                    }
+                }
+                hash.add(keys, new GroupingAggregatorFunction.AddInput() {
+                    @Override
+                    public void add(int positionOffset, IntBlock groupIds) {
+                        for (int p = 0; p < groupIds.getPositionCount(); p++) {
+                            if (groupIds.getValueCount(p) == 1) {
+                                addRow(pageIndex, positionOffset + p, groupIds.getInt(groupIds.getFirstValueIndex(p)), keyBlocks);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void add(int positionOffset, IntVector groupIds) {
+                        for (int p = 0; p < groupIds.getPositionCount(); p++) {
+                            addRow(pageIndex, positionOffset + p, groupIds.getInt(p), keyBlocks);
+                        }
+                    }
+
+                    @Override
+                    public void close() {}
+                });
+            } finally {
+                keys.releaseBlocks();
+            }
+        }
+
+        private void addRow(int pageIndex, int position, int groupId, Block[] keys) {
+            if (joinType != JoinType.LOOKUP && singleValued(keys, position) == false) {
+                return;
+            }
+            int row = rows++;
+            nextRows = bigArrays.grow(nextRows, rows);
+            addresses = bigArrays.grow(addresses, rows);
+            if (groupId >= headsSize) {
+                heads = bigArrays.grow(heads, groupId + 1);
+                heads.fill(headsSize, heads.size(), -1);
+                headsSize = heads.size();
+            }
+            if (joinType == JoinType.LOOKUP && heads.get(groupId) != -1) {
+                throw new IllegalArgumentException("found a duplicate row");
+            }
+            addresses.set(row, ((long) pageIndex << 32) | position);
+            nextRows.set(row, heads.get(groupId));
+            heads.set(groupId, row);
+        }
+
+        /**
+         * The first matching build row for each position in {@code page}, or {@code -1} if there isn't one.
+         */
+        int[] firstMatches(Page page) {
+            int[] firstMatches = new int[page.getPositionCount()];
+            Arrays.fill(firstMatches, -1);
+            if (rows == 0) {
+                return firstMatches;
+            }
+            Page keys = page.projectBlocks(probeKeyChannels);
+            try {
+                Block[] keyBlocks = keyBlocks(keys);
+                try (ReleasableIterator<IntBlock> groupIds = hash.lookup(keys, LOOKUP_TARGET_SIZE)) {
+                    int offset = 0;
+                    while (groupIds.hasNext()) {
+                        try (IntBlock ids = groupIds.next()) {
+                            for (int p = 0; p < ids.getPositionCount(); p++) {
+                                int position = offset + p;
+                                if (ids.isNull(p) || ids.getValueCount(p) != 1 || singleValued(keyBlocks, position) == false) {
+                                    continue;
+                                }
+                                int groupId = ids.getInt(ids.getFirstValueIndex(p));
+                                if (groupId < headsSize) {
+                                    firstMatches[position] = heads.get(groupId);
+                                }
+                            }
+                            offset += ids.getPositionCount();
+                        }
+                    }
+                }
+            } finally {
+                keys.releaseBlocks();
+            }
+            return firstMatches;
+        }
+
+        /**
+         * The positions of the build rows that match each position in {@code page} for a
+         * {@link JoinType#LOOKUP} join. Positions that match more than one row, through
+         * multivalued keys, are multivalued and positions that don't match are {@code null}.
+         */
+        IntBlock lookupPositions(Page page) {
+            Page keys = page.projectBlocks(probeKeyChannels);
+            try (
+                IntBlock.Builder positions = driverContext.blockFactory().newIntBlockBuilder(page.getPositionCount());
+                ReleasableIterator<IntBlock> groupIds = hash.lookup(keys, LOOKUP_TARGET_SIZE)
+            ) {
+                while (groupIds.hasNext()) {
+                    try (IntBlock ids = groupIds.next()) {
+                        for (int p = 0; p < ids.getPositionCount(); p++) {
+                            int matched = 0;
+                            if (ids.isNull(p) == false) {
+                                int start = ids.getFirstValueIndex(p);
+                                int end = start + ids.getValueCount(p);
+                                int first = -1;
+                                for (int i = start; i < end; i++) {
+                                    int groupId = ids.getInt(i);
+                                    int row = groupId < headsSize ? heads.get(groupId) : -1;
+                                    if (row == -1) {
+                                        continue;
+                                    }
+                                    if (matched == 0) {
+                                        first = position(row);
+                                    } else {
+                                        if (matched == 1) {
+                                            positions.beginPositionEntry();
+                                            positions.appendInt(first);
+                                        }
+                                        positions.appendInt(position(row));
+                                    }
+                                    matched++;
+                                }
+                                if (matched == 1) {
+                                    positions.appendInt(first);
+                                } else if (matched > 1) {
+                                    positions.endPositionEntry();
+                                }
+                            }
+                            if (matched == 0) {
+                                positions.appendNull();
+                            }
+                        }
+                    }
+                }
+                return positions.build();
+            } finally {
+                keys.releaseBlocks();
+            }
+        }
+
+        /**
+         * Load the values of a build column at {@code positions} like {@link #lookupPositions} returns them.
+         */
+        Block lookupColumn(int channel, IntBlock positions) {
+            int count = positions.getPositionCount();
+            if (pages.isEmpty()) {
+                return driverContext.blockFactory().newConstantNullBlock(count);
+            }
+            try (
+                ReleasableIterator<? extends Block> values = pages.get(0).getBlock(channel).lookup(positions, LOOKUP_TARGET_SIZE);
+                Block.Builder builder = buildElementTypes.get(channel).newBlockBuilder(count, driverContext.blockFactory())
+            ) {
+                while (values.hasNext()) {
+                    try (Block chunk = values.next()) {
+                        builder.copyFrom(chunk, 0, chunk.getPositionCount());
+                    }
+                }
+                return builder.build();
+            }
+        }
+
+        int next(int row) {
+            return nextRows.get(row);
+        }
+
+        Block block(int row, int channel) {
+            return pages.get((int) (addresses.get(row) >>> 32)).getBlock(channel);
+        }
+
+        int position(int row) {
+            return (int) addresses.get(row);
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(hash, heads, nextRows, addresses, () -> releasePages(pages));
+        }
+    }
+
+    /**
+     * Emits the joined rows for a single probe page, a page at a time.
+     */
+    private class Probe implements Releasable {
+        /**
+         * The table to probe. {@code null} if nothing in the page can match.
+         */
+        private final Table table;
+        private final Page page;
+        private final int[] firstMatches;
+        /**
+         * The positions of the matching build rows for a {@link JoinType#LOOKUP} join, see {@link Table#lookupPositions}.
+         */
+        private final IntBlock lookupPositions;
+        private int position;
+        /**
+         * The next build row to emit for {@link #position} or {@code -1} if we haven't started it.
+         */
+        private int cursor = -1;
+
+        /**
+         * Build, taking ownership of {@code page}.
+         */
+        Probe(Table table, Page page) {
+            this.table = table;
+            this.page = page;
+            boolean success = false;
+            try {
+                if (joinType == JoinType.LOOKUP) {
+                    firstMatches = null;
+                    lookupPositions = table.lookupPositions(page);
+                } else if (table == null) {
+                    firstMatches = new int[page.getPositionCount()];
+                    Arrays.fill(firstMatches, -1);
+                    lookupPositions = null;
+                } else {
+                    firstMatches = table.firstMatches(page);
+                    lookupPositions = null;
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    page.releaseBlocks();
+                }
+            }
+        }
+
+        /**
+         * The next page of joined rows or {@code null} if there aren't any more.
+         */
+        Page next() {
+            if (joinType == JoinType.LOOKUP) {
+                return nextLookup();
+            }
+            int[] probePositions = new int[maxPageSize];
+            int[] buildRows = new int[maxPageSize];
+            int count = 0;
+            while (count < maxPageSize && position < page.getPositionCount()) {
+                if (cursor == -1) {
+                    cursor = firstMatches[position];
+                    if (cursor == -1) {
+                        if (joinType == JoinType.LEFT) {
+                            probePositions[count] = position;
+                            buildRows[count] = -1;
+                            count++;
+                        }
+                        position++;
+                        continue;
+                    }
+                }
+                probePositions[count] = position;
+                buildRows[count] = cursor;
+                count++;
+                cursor = table.next(cursor);
+                if (cursor == -1) {
+                    position++;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            return build(Arrays.copyOf(probePositions, count), buildRows);
+        }
+
+        private Page build(int[] probePositions, int[] buildRows) {
+            int count = probePositions.length;
+            Block[] blocks = new Block[page.getBlockCount() + buildElementTypes.size()];
+            boolean success = false;
+            try {
+                for (int b = 0; b < page.getBlockCount(); b++) {
+                    blocks[b] = page.getBlock(b).filter(probePositions);
+                }
+                for (int c = 0; c < buildElementTypes.size(); c++) {
+                    try (Block.Builder builder = buildElementTypes.get(c).newBlockBuilder(count, driverContext.blockFactory())) {
+                        for (int i = 0; i < count; i++) {
+                            int row = buildRows[i];
+                            if (row == -1) {
+                                builder.appendNull();
+                            } else {
+                                int position = table.position(row);
+                                builder.copyFrom(table.block(row, c), position, position + 1);
+                            }
+                        }
+                        blocks[page.getBlockCount() + c] = builder.build();
+                    }
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.closeExpectNoException(blocks);
+                }
+            }
+            return new Page(count, blocks);
+        }
+
+        /**
+         * The next page of a {@link JoinType#LOOKUP} join, which has a row for each probe row.
+         */
+        private Page nextLookup() {
+            int count = Math.min(maxPageSize, page.getPositionCount() - position);
+            if (count <= 0) {
+                return null;
+            }
+            int[] probePositions = new int[count];
+            for (int i = 0; i < count; i++) {
+                probePositions[i] = position + i;
+            }
+            position += count;
+            Block[] blocks = new Block[page.getBlockCount() + buildElementTypes.size()];
+            boolean success = false;
+            try (IntBlock positions = lookupPositions.filter(probePositions)) {
+                for (int b = 0; b < page.getBlockCount(); b++) {
+                    blocks[b] = page.getBlock(b).filter(probePositions);
+                }
+                for (int c = 0; c < buildElementTypes.size(); c++) {
+                    blocks[page.getBlockCount() + c] = table.lookupColumn(c, positions);
+                }
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.closeExpectNoException(blocks);
+                }
+            }
+            return new Page(count, blocks);
+        }
+
+        @Override
+        public void close() {
+            Releasables.closeExpectNoException(page::releaseBlocks, lookupPositions);
+        }
+    }
+
+    public static class Status implements Operator.Status {
+        public static final NamedWriteableRegistry.Entry ENTRY = new NamedWriteableRegistry.Entry(
+            Operator.Status.class,
+            "hash_join",
+            Status::new
+        );
+
+        /**
+         * Count of rows on the build side.
+         */
+        private final long buildRows;
+        /**
+         * Count of pages this operator has received.
+         */
+        private final int pagesReceived;
+        /**
+         * Count of pages this operator has emitted.
+         */
+        private final int pagesEmitted;
+        /**
+         * Count of rows this operator has emitted.
+         */
+        private final long rowsEmitted;
+        /**
+         * Count of pages this operator has written to disk.
+         */
+        private final int pagesSpilled;
+        /**
+         * Bytes this operator has written to disk.
+         */
+        private final long bytesSpilled;
+
+        /**
+         * Build.
+         * @param buildRows Count of rows on the build side.
+         * @param pagesReceived Count of pages this operator has received.
+         * @param pagesEmitted Count of pages this operator has emitted.
+         * @param rowsEmitted Count of rows this operator has emitted.
+         * @param pagesSpilled Count of pages this operator has written to disk.
+         * @param bytesSpilled Bytes this operator has written to disk.
+         */
+        public Status(long buildRows, int pagesReceived, int pagesEmitted, long rowsEmitted, int pagesSpilled, long bytesSpilled) {
+            this.buildRows = buildRows;
+            this.pagesReceived = pagesReceived;
+            this.pagesEmitted = pagesEmitted;
+            this.rowsEmitted = rowsEmitted;
+            this.pagesSpilled = pagesSpilled;
+            this.bytesSpilled = bytesSpilled;
+        }
+
+        protected Status(StreamInput in) throws IOException {
+            buildRows = in.readVLong();
+            pagesReceived = in.readVInt();
+            pagesEmitted = in.readVInt();
+            rowsEmitted = in.readVLong();
+            pagesSpilled = in.readVInt();
+            bytesSpilled = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(buildRows);
+            out.writeVInt(pagesReceived);
+            out.writeVInt(pagesEmitted);
+            out.writeVLong(rowsEmitted);
+            out.writeVInt(pagesSpilled);
+            out.writeVLong(bytesSpilled);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return ENTRY.name;
+        }
+
+        /**
+         * Count of rows on the build side.
+         */
+        public long buildRows() {
+            return buildRows;
+        }
+
+        /**
+         * Count of pages this operator has received.
+         */
+        public int pagesReceived() {
+            return pagesReceived;
+        }
+
+        /**
+         * Count of pages this operator has emitted.
+         */
+        public int pagesEmitted() {
+            return pagesEmitted;
+        }
+
+        /**
+         * Count of rows this operator has emitted.
+         */
+        public long rowsEmitted() {
+            return rowsEmitted;
+        }
+
+        /**
+         * Count of pages this operator has written to disk.
+         */
+        public int pagesSpilled() {
+            return pagesSpilled;
+        }
+
+        /**
+         * Bytes this operator has written to disk.
+         */
+        public long bytesSpilled() {
+            return bytesSpilled;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("build_rows", buildRows);
+            builder.field("pages_received", pagesReceived);
+            builder.field("pages_emitted", pagesEmitted);
+            builder.field("rows_emitted", rowsEmitted);
+            builder.field("pages_spilled", pagesSpilled);
+            builder.field("bytes_spilled", bytesSpilled);
+            if (builder.humanReadable()) {
+                builder.field("spilled", ByteSizeValue.ofBytes(bytesSpilled));
+            }
+            return builder.endObject();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Status status = (Status) o;
+            return buildRows == status.buildRows
+                && pagesReceived == status.pagesReceived
+                && pagesEmitted == status.pagesEmitted
+                && rowsEmitted == status.rowsEmitted
+                && pagesSpilled == status.pagesSpilled
+                && bytesSpilled == status.bytesSpilled;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(buildRows, pagesReceived, pagesEmitted, rowsEmitted, pagesSpilled, bytesSpilled);
+        }
+
+        @Override
+        public String toString() {
+            return Strings.toString(this);
+        }
+
+        @Override
+        public TransportVersion getMinimalSupportedVersion() {
+            return TransportVersions.ESQL_HASH_JOIN;
+        }
+    }
+}
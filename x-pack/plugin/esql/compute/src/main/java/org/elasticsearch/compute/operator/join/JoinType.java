@@ -0,0 +1,30 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+public enum JoinType {
+    /**
+     * Emit a row for every pair of matching probe and build rows.
+     */
+    INNER,
+
+    /**
+     * Like {@link #INNER} but also emit probe rows that don't match any build
+     * rows, with {@code null} in all of the build columns.
+     */
+    LEFT,
+
+    /**
+     * Like {@link #LEFT} but emit exactly one row for every probe row, in the order they
+     * arrive, with the build columns of every build row that matches any of the values of
+     * the probe row's keys. They are multivalued if more than one build row matches. This
+     * is what {@code LOOKUP} does so the build side must have unique, single valued keys
+     * and {@code null} keys match {@code null} keys.
+     */
+    LOOKUP;
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.spill;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BooleanBlock;
+import org.elasticsearch.compute.data.BytesRefBlock;
+import org.elasticsearch.compute.data.DoubleBlock;
+import org.elasticsearch.compute.data.FloatBlock;
+import org.elasticsearch.compute.data.IntBlock;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.data.Page;
+
+/**
+ * Assigns keys made of one or more columns to one of a fixed number of partitions
+ * so that every row with the same key lands in the same partition. Operators that
+ * spill use this to split their input into pieces that can be processed one at a
+ * time.
+ * <p>
+ *     Rows with multivalued keys contribute to one key per combination of their
+ *     values so they can belong to many partitions. {@link #partitionsOfRow} returns
+ *     all of them as a bit set and the operator must make sure it only emits the keys
+ *     that belong to the partition it is processing with {@link #partitionOfKey}.
+ * </p>
+ */
+public final class KeyPartitioner {
+    /**
+     * The maximum number of partitions. Limited so we can return partitions as a bit set in a {@code long}.
+     */
+    public static final int MAX_PARTITIONS = Long.SIZE;
+
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+    private static final int BYTES_REF_SEED = 0x5EED;
+
+    private final int[] channels;
+    private final int partitions;
+    private final long[] hashes;
+    private final long[] nextHashes;
+    private final BytesRef scratch = new BytesRef();
+
+    /**
+     * Build.
+     * @param channels the channels of the key in the pages passed to {@link #partitionsOfRow}
+     * @param partitions the number of partitions, at most {@link #MAX_PARTITIONS}
+     */
+    public KeyPartitioner(int[] channels, int partitions) {
+        if (partitions < 1 || partitions > MAX_PARTITIONS) {
+            throw new IllegalArgumentException("partitions must be in [1, " + MAX_PARTITIONS + "] but was [" + partitions + "]");
+        }
+        this.channels = channels;
+        this.partitions = partitions;
+        this.hashes = new long[partitions];
+        this.nextHashes = new long[partitions];
+    }
+
+    /**
+     * The number of partitions.
+     */
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * A bit set with all partitions.
+     */
+    public long allPartitions() {
+        return partitions == MAX_PARTITIONS ? -1L : (1L << partitions) - 1;
+    }
+
+    /**
+     * The partition of a single valued key. {@code keys} contains one block per key column
+     * in the same order as the {@code channels} this was built with. This is the shape of
+     * {@code BlockHash#getKeys}.
+     */
+    public int partitionOfKey(Block[] keys, int position) {
+        long hash = 0;
+        for (Block key : keys) {
+            hash = hash * 31 + (key.isNull(position) ? NULL_HASH : hashValue(key, key.getFirstValueIndex(position)));
+        }
+        return partition(hash);
+    }
+
+    /**
+     * The partitions that a row of {@code page} contributes keys to, as a bit set.
+     * Single valued rows always contribute to exactly one partition. If a row has
+     * more combinations of values than there are partitions we return all of them.
+     */
+    public long partitionsOfRow(Page page, int position) {
+        int count = 1;
+        hashes[0] = 0;
+        for (int channel : channels) {
+            Block block = page.getBlock(channel);
+            if (block.isNull(position)) {
+                for (int i = 0; i < count; i++) {
+                    hashes[i] = hashes[i] * 31 + NULL_HASH;
+                }
+                continue;
+            }
+            int valueCount = block.getValueCount(position);
+            int first = block.getFirstValueIndex(position);
+            if (valueCount == 1) {
+                long valueHash = hashValue(block, first);
+                for (int i = 0; i < count; i++) {
+                    hashes[i] = hashes[i] * 31 + valueHash;
+                }
+                continue;
+            }
+            if ((long) count * valueCount > partitions) {
+                return allPartitions();
+            }
+            int next = 0;
+            for (int v = first; v < first + valueCount; v++) {
+                long valueHash = hashValue(block, v);
+                for (int i = 0; i < count; i++) {
+                    nextHashes[next++] = hashes[i] * 31 + valueHash;
+                }
+            }
+            System.arraycopy(nextHashes, 0, hashes, 0, next);
+            count = next;
+        }
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            result |= 1L << partition(hashes[i]);
+        }
+        return result;
+    }
+
+    private int partition(long hash) {
+        return (int) Long.remainderUnsigned(MurmurHash3.murmur64(hash), partitions);
+    }
+
+    private long hashValue(Block block, int valueIndex) {
+        return switch (block.elementType()) {
+            case BOOLEAN -> ((BooleanBlock) block).getBoolean(valueIndex) ? 1231 : 1237;
+            case INT -> ((IntBlock) block).getInt(valueIndex);
+            case LONG -> ((LongBlock) block).getLong(valueIndex);
+            case FLOAT -> Float.floatToIntBits(((FloatBlock) block).getFloat(valueIndex));
+            case DOUBLE -> Double.doubleToLongBits(((DoubleBlock) block).getDouble(valueIndex));
+            case BYTES_REF -> {
+                BytesRef v = ((BytesRefBlock) block).getBytesRef(valueIndex, scratch);
+                yield StringHelper.murmurhash3_x86_32(v.bytes, v.offset, v.length, BYTES_REF_SEED);
+            }
+            case NULL -> NULL_HASH;
+            default -> throw new IllegalArgumentException("can't partition on [" + block.elementType() + "]");
+        };
+    }
+}
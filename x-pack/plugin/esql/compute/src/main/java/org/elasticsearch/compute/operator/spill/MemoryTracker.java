@@ -0,0 +1,128 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.spill;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.CircuitBreakerStats;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+
+/**
+ * Counts the bytes allocated through the {@link BigArrays} of a {@link DriverContext}
+ * while passing them on to the driver's breakers. Operators that spill build the
+ * structures they keep in memory, like a {@code BlockHash} and the state of its
+ * aggregators, from {@link #driverContext()} and start spilling once {@link #bytes()}
+ * passes their limit.
+ */
+public final class MemoryTracker extends CircuitBreakerService {
+    private final CircuitBreakerService next;
+    private final DriverContext driverContext;
+    private long bytes;
+
+    @SuppressWarnings("this-escape")
+    public MemoryTracker(DriverContext driverContext) {
+        BigArrays bigArrays = driverContext.bigArrays();
+        this.next = bigArrays.breakerService() == null ? new NoneCircuitBreakerService() : bigArrays.breakerService();
+        BigArrays tracked = bigArrays.withBreakerService(this);
+        this.driverContext = new DriverContext(tracked, driverContext.blockFactory().withBigArrays(tracked));
+    }
+
+    /**
+     * A {@link DriverContext} whose {@link BigArrays} allocations are counted.
+     */
+    public DriverContext driverContext() {
+        return driverContext;
+    }
+
+    /**
+     * Bytes currently allocated through {@link #driverContext()}.
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public CircuitBreaker getBreaker(String name) {
+        return new CountingBreaker(next.getBreaker(name));
+    }
+
+    @Override
+    public AllCircuitBreakerStats stats() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CircuitBreakerStats stats(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    private class CountingBreaker implements CircuitBreaker {
+        private final CircuitBreaker next;
+
+        CountingBreaker(CircuitBreaker next) {
+            this.next = next;
+        }
+
+        @Override
+        public void circuitBreak(String fieldName, long bytesNeeded) {
+            next.circuitBreak(fieldName, bytesNeeded);
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            next.addEstimateBytesAndMaybeBreak(bytes, label);
+            MemoryTracker.this.bytes += bytes;
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            next.addWithoutBreaking(bytes);
+            MemoryTracker.this.bytes += bytes;
+        }
+
+        @Override
+        public long getUsed() {
+            return next.getUsed();
+        }
+
+        @Override
+        public long getLimit() {
+            return next.getLimit();
+        }
+
+        @Override
+        public double getOverhead() {
+            return next.getOverhead();
+        }
+
+        @Override
+        public long getTrippedCount() {
+            return next.getTrippedCount();
+        }
+
+        @Override
+        public String getName() {
+            return next.getName();
+        }
+
+        @Override
+        public Durability getDurability() {
+            return next.getDurability();
+        }
+
+        @Override
+        public void setLimitAndOverhead(long limit, double overhead) {
+            next.setLimitAndOverhead(limit, overhead);
+        }
+    }
+}
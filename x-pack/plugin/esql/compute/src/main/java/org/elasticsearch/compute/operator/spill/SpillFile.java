@@ -0,0 +1,181 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.spill;
+
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.PositionTrackingOutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.BlockStreamInput;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.core.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A temporary file holding {@link Page}s that didn't fit in memory. Pages are
+ * appended with {@link #write} and, once {@link #finishWriting} has been called,
+ * read back in the same order with a {@link Reader}. {@link #close Closing} the
+ * file deletes it from disk.
+ * <p>
+ *     Pages are written with their standard wire serialization so the file only
+ *     lives as long as the operator that wrote it and is never read by another
+ *     version of Elasticsearch.
+ * </p>
+ */
+public final class SpillFile implements Closeable {
+    private static final NamedWriteableRegistry REGISTRY = new NamedWriteableRegistry(Block.getNamedWriteables());
+
+    private final Path path;
+    private PositionTrackingOutputStreamStreamOutput out;
+    private int pageCount;
+    private long sizeInBytes;
+
+    private SpillFile(Path path) throws IOException {
+        this.path = path;
+        this.out = new PositionTrackingOutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    /**
+     * Create a new, empty, spill file in {@code directory}.
+     */
+    public static SpillFile create(Path directory, String prefix) throws IOException {
+        Path path = Files.createTempFile(directory, prefix, ".spill");
+        boolean success = false;
+        try {
+            SpillFile file = new SpillFile(path);
+            success = true;
+            return file;
+        } finally {
+            if (success == false) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Append a {@link Page} to the file. This doesn't release the {@link Page}.
+     * {@link ElementType#DOC} blocks can't be serialized and are never read by
+     * the operators that spill so they are written as {@code null}.
+     */
+    public void write(Page page) throws IOException {
+        if (out == null) {
+            throw new IllegalStateException("already finished writing [" + path + "]");
+        }
+        out.writeVInt(page.getPositionCount());
+        out.writeVInt(page.getBlockCount());
+        for (int b = 0; b < page.getBlockCount(); b++) {
+            Block block = page.getBlock(b);
+            if (block.elementType() == ElementType.DOC) {
+                try (Block nulls = block.blockFactory().newConstantNullBlock(page.getPositionCount())) {
+                    out.writeNamedWriteable(nulls);
+                }
+            } else {
+                out.writeNamedWriteable(block);
+            }
+        }
+        pageCount++;
+    }
+
+    /**
+     * Flush all pages to disk and prepare the file for reading.
+     */
+    public void finishWriting() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+            sizeInBytes = out.position();
+        } finally {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * Open a {@link Reader} that reads the pages back in the order they were written,
+     * allocating their blocks from {@code blockFactory}. May be called many times.
+     */
+    public Reader reader(BlockFactory blockFactory) throws IOException {
+        finishWriting();
+        return new Reader(blockFactory);
+    }
+
+    /**
+     * The number of pages written to this file.
+     */
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * The size of the file on disk. Only accurate once {@link #finishWriting} has been called.
+     */
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(out);
+        } finally {
+            out = null;
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillFile[path=" + path + ", pages=" + pageCount + "]";
+    }
+
+    /**
+     * Reads {@link Page}s back from a {@link SpillFile}.
+     */
+    public final class Reader implements Closeable {
+        private final StreamInput delegate;
+        private final BlockStreamInput in;
+        private int remaining = pageCount;
+
+        private Reader(BlockFactory blockFactory) throws IOException {
+            this.delegate = new NamedWriteableAwareStreamInput(
+                new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path))),
+                REGISTRY
+            );
+            this.in = new BlockStreamInput(delegate, blockFactory);
+        }
+
+        /**
+         * Read the next {@link Page} or {@code null} if all pages have been read.
+         * The caller owns the returned page and must release it.
+         */
+        public Page next() throws IOException {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            return new Page(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(in, delegate);
+        }
+    }
+}
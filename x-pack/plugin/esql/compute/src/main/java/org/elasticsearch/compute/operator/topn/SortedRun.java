@@ -0,0 +1,151 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.topn;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.PositionTrackingOutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.compute.operator.BreakingBytesRefBuilder;
+import org.elasticsearch.core.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A temporary file containing {@link TopNOperator.Row}s in sorted order. Rows are
+ * written in the same encoding {@link TopNOperator} keeps them in memory so we can
+ * compare them with {@link TopNOperator#compareRows} while merging without decoding
+ * them. {@link #close Closing} the run deletes the file.
+ */
+final class SortedRun implements Closeable {
+    private final Path path;
+    private PositionTrackingOutputStreamStreamOutput out;
+    private int rowCount;
+    private long sizeInBytes;
+
+    private SortedRun(Path path) throws IOException {
+        this.path = path;
+        this.out = new PositionTrackingOutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    static SortedRun create(Path directory) throws IOException {
+        Path path = Files.createTempFile(directory, "esql-topn-", ".run");
+        boolean success = false;
+        try {
+            SortedRun run = new SortedRun(path);
+            success = true;
+            return run;
+        } finally {
+            if (success == false) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Append a row. Rows must be appended in sorted order.
+     */
+    void write(TopNOperator.Row row) throws IOException {
+        BytesRef keys = row.keys.bytesRefView();
+        out.writeVInt(keys.length);
+        out.writeBytes(keys.bytes, keys.offset, keys.length);
+        for (int endOffset : row.bytesOrder.endOffsets) {
+            out.writeVInt(endOffset);
+        }
+        BytesRef values = row.values.bytesRefView();
+        out.writeVInt(values.length);
+        out.writeBytes(values.bytes, values.offset, values.length);
+        rowCount++;
+    }
+
+    /**
+     * Flush all rows to disk and prepare the run for reading.
+     */
+    void finishWriting() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+            sizeInBytes = out.position();
+        } finally {
+            out.close();
+            out = null;
+        }
+    }
+
+    Reader reader() throws IOException {
+        finishWriting();
+        return new Reader();
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(out);
+        } finally {
+            out = null;
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Reads rows back in the order they were written.
+     */
+    final class Reader implements Closeable {
+        private final StreamInput in;
+        private int remaining = rowCount;
+
+        private Reader() throws IOException {
+            this.in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        /**
+         * Read the next row into {@code destination}, returning {@code false} if there aren't any more rows.
+         */
+        boolean next(TopNOperator.Row destination) throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            read(destination.keys);
+            int[] endOffsets = destination.bytesOrder.endOffsets;
+            for (int i = 0; i < endOffsets.length; i++) {
+                endOffsets[i] = in.readVInt();
+            }
+            read(destination.values);
+            return true;
+        }
+
+        private void read(BreakingBytesRefBuilder destination) throws IOException {
+            int length = in.readVInt();
+            destination.clear();
+            destination.grow(length);
+            in.readBytes(destination.bytes(), 0, length);
+            destination.setLength(length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
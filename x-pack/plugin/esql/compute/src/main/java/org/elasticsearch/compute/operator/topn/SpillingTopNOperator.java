@@ -0,0 +1,506 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.topn;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.compute.operator.Operator;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link TopNOperator} that can sort more rows than fit in memory. Rows are encoded
+ * exactly like {@link TopNOperator} encodes them and buffered until there are
+ * {@code maxRowsInMemory} of them. Then the buffer is sorted and the first
+ * {@code topCount} rows are written to a {@link SortedRun} on disk. When the input is
+ * finished the runs are merged, {@code k} at a time, and the result is built one
+ * {@link Page} at a time so the output doesn't have to fit in memory either.
+ * <p>
+ *     Once a run holds {@code topCount} rows its last row is an upper bound on the
+ *     result so any incoming row that sorts after it is dropped without buffering.
+ * </p>
+ */
+public class SpillingTopNOperator implements Operator {
+    /**
+     * The maximum number of runs we merge at once. If there are more runs than
+     * this we merge them into larger runs first so we don't hold too many files
+     * open at once.
+     */
+    static final int MAX_MERGE_WIDTH = 64;
+
+    public record SpillingTopNOperatorFactory(
+        int topCount,
+        List<ElementType> elementTypes,
+        List<TopNEncoder> encoders,
+        List<TopNOperator.SortOrder> sortOrders,
+        int maxPageSize,
+        int maxRowsInMemory,
+        Path spillDirectory
+    ) implements OperatorFactory {
+        public SpillingTopNOperatorFactory {
+            for (ElementType e : elementTypes) {
+                if (e == null) {
+                    throw new IllegalArgumentException("ElementType not known");
+                }
+            }
+        }
+
+        @Override
+        public SpillingTopNOperator get(DriverContext driverContext) {
+            return new SpillingTopNOperator(
+                driverContext.blockFactory(),
+                driverContext.breaker(),
+                topCount,
+                elementTypes,
+                encoders,
+                sortOrders,
+                maxPageSize,
+                maxRowsInMemory,
+                spillDirectory
+            );
+        }
+
+        @Override
+        public String describe() {
+            return "SpillingTopNOperator[count="
+                + topCount
+                + ", elementTypes="
+                + elementTypes
+                + ", encoders="
+                + encoders
+                + ", sortOrders="
+                + sortOrders
+                + ", maxRowsInMemory="
+                + maxRowsInMemory
+                + "]";
+        }
+    }
+
+    private final BlockFactory blockFactory;
+    private final CircuitBreaker breaker;
+    private final int topCount;
+    private final List<ElementType> elementTypes;
+    private final List<TopNEncoder> encoders;
+    private final List<TopNOperator.SortOrder> sortOrders;
+    private final int maxPageSize;
+    private final int maxRowsInMemory;
+    private final Path spillDirectory;
+
+    private final List<TopNOperator.Row> buffer = new ArrayList<>();
+    private final List<SortedRun> runs = new ArrayList<>();
+    private int spareKeysPreAllocSize = 0;
+    private int spareValuesPreAllocSize = 0;
+
+    /**
+     * The last row of the best run holding {@code topCount} rows. No row that sorts
+     * after this can be in the result. {@code null} until a run fills up.
+     */
+    private TopNOperator.Row cutoff;
+
+    private boolean finished;
+    private Merger merger;
+    private int emitted;
+    private final BytesRef keysScratch = new BytesRef();
+    private final BytesRef valuesScratch = new BytesRef();
+
+    public SpillingTopNOperator(
+        BlockFactory blockFactory,
+        CircuitBreaker breaker,
+        int topCount,
+        List<ElementType> elementTypes,
+        List<TopNEncoder> encoders,
+        List<TopNOperator.SortOrder> sortOrders,
+        int maxPageSize,
+        int maxRowsInMemory,
+        Path spillDirectory
+    ) {
+        if (maxRowsInMemory < 1) {
+            throw new IllegalArgumentException("maxRowsInMemory must be positive but was [" + maxRowsInMemory + "]");
+        }
+        this.blockFactory = blockFactory;
+        this.breaker = breaker;
+        this.topCount = topCount;
+        this.elementTypes = elementTypes;
+        this.encoders = encoders;
+        this.sortOrders = sortOrders;
+        this.maxPageSize = maxPageSize;
+        this.maxRowsInMemory = maxRowsInMemory;
+        this.spillDirectory = requireNonNull(spillDirectory, "spillDirectory is null");
+    }
+
+    @Override
+    public boolean needsInput() {
+        return finished == false;
+    }
+
+    @Override
+    public void addInput(Page page) {
+        TopNOperator.Row row = null;
+        try {
+            TopNOperator.RowFiller rowFiller = new TopNOperator.RowFiller(elementTypes, encoders, sortOrders, page);
+            for (int i = 0; i < page.getPositionCount(); i++) {
+                if (row == null) {
+                    row = new TopNOperator.Row(breaker, sortOrders, spareKeysPreAllocSize, spareValuesPreAllocSize);
+                } else {
+                    row.keys.clear();
+                    row.values.clear();
+                }
+                rowFiller.row(i, row);
+                spareKeysPreAllocSize = Math.max(row.keys.length(), spareKeysPreAllocSize / 2);
+                spareValuesPreAllocSize = Math.max(row.values.length(), spareValuesPreAllocSize / 2);
+                if (cutoff != null && compareBestFirst(row, cutoff) >= 0) {
+                    // Can't make it into the results, reuse the row
+                    continue;
+                }
+                buffer.add(row);
+                row = null;
+                if (buffer.size() >= maxRowsInMemory) {
+                    spillBuffer();
+                }
+            }
+        } finally {
+            Releasables.close(row, page::releaseBlocks);
+        }
+    }
+
+    /**
+     * Sort the buffered rows and write the first {@code topCount} of them to a new {@link SortedRun}.
+     */
+    private void spillBuffer() {
+        try {
+            sortBuffer();
+            SortedRun run = SortedRun.create(spillDirectory);
+            runs.add(run);
+            int count = Math.min(topCount, buffer.size());
+            for (int i = 0; i < count; i++) {
+                run.write(buffer.get(i));
+            }
+            run.finishWriting();
+            if (count > 0 && count == topCount) {
+                TopNOperator.Row last = buffer.get(count - 1);
+                if (cutoff == null || compareBestFirst(last, cutoff) < 0) {
+                    buffer.set(count - 1, cutoff);
+                    cutoff = last;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Releasables.close(buffer);
+            buffer.clear();
+        }
+    }
+
+    private void sortBuffer() {
+        buffer.sort(SpillingTopNOperator::compareBestFirst);
+    }
+
+    /**
+     * Compare rows so the ones that belong at the top of the result sort first.
+     * {@link TopNOperator#compareRows} sorts the other way around because
+     * {@link TopNOperator} keeps the worst row at the top of its queue.
+     */
+    private static int compareBestFirst(TopNOperator.Row r1, TopNOperator.Row r2) {
+        return TopNOperator.compareRows(r2, r1);
+    }
+
+    @Override
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        List<RowSource> sources = new ArrayList<>(Math.min(runs.size(), MAX_MERGE_WIDTH) + 1);
+        boolean success = false;
+        try {
+            while (runs.size() > MAX_MERGE_WIDTH) {
+                mergeRuns();
+            }
+            sortBuffer();
+            sources.add(new BufferSource());
+            for (SortedRun run : runs) {
+                sources.add(new RunSource(run));
+            }
+            runs.clear();
+            merger = new Merger(sources);
+            success = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (success == false) {
+                Releasables.close(sources);
+            }
+        }
+    }
+
+    /**
+     * Merge the first {@link #MAX_MERGE_WIDTH} runs into a single run.
+     */
+    private void mergeRuns() throws IOException {
+        List<SortedRun> toMerge = new ArrayList<>(runs.subList(0, MAX_MERGE_WIDTH));
+        runs.subList(0, MAX_MERGE_WIDTH).clear();
+        List<RowSource> sources = new ArrayList<>(toMerge.size());
+        SortedRun merged = null;
+        boolean success = false;
+        try {
+            for (SortedRun run : toMerge) {
+                sources.add(new RunSource(run));
+            }
+            toMerge.clear();
+            merged = SortedRun.create(spillDirectory);
+            try (Merger m = new Merger(sources)) {
+                sources.clear();
+                TopNOperator.Row row;
+                while (merged.rowCount() < topCount && (row = m.current()) != null) {
+                    merged.write(row);
+                    m.advance();
+                }
+            }
+            merged.finishWriting();
+            runs.add(merged);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(sources);
+                IOUtils.closeWhileHandlingException(toMerge);
+                IOUtils.closeWhileHandlingException(merged);
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished && (merger == null || emitted >= topCount || merger.current() == null);
+    }
+
+    @Override
+    public Page getOutput() {
+        if (merger == null || emitted >= topCount || merger.current() == null) {
+            return null;
+        }
+        int size = Math.min(maxPageSize, topCount - emitted);
+        ResultBuilder[] builders = TopNOperator.resultBuilders(blockFactory, elementTypes, encoders, sortOrders, size);
+        try {
+            int p = 0;
+            TopNOperator.Row row;
+            while (p < size && (row = merger.current()) != null) {
+                // Decode through scratch refs so the row's own views keep their offsets for reuse
+                BytesRef keys = row.keys.bytesRefView();
+                keysScratch.bytes = keys.bytes;
+                keysScratch.offset = keys.offset;
+                keysScratch.length = keys.length;
+                BytesRef values = row.values.bytesRefView();
+                valuesScratch.bytes = values.bytes;
+                valuesScratch.offset = values.offset;
+                valuesScratch.length = values.length;
+                TopNOperator.decodeRow(keysScratch, valuesScratch, sortOrders, builders);
+                merger.advance();
+                p++;
+            }
+            emitted += p;
+            Block[] blocks = new Block[builders.length];
+            try {
+                for (int b = 0; b < blocks.length; b++) {
+                    blocks[b] = builders[b].build();
+                }
+            } finally {
+                if (blocks[blocks.length - 1] == null) {
+                    Releasables.closeExpectNoException(blocks);
+                }
+            }
+            return new Page(blocks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Releasables.closeExpectNoException(builders);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Close the merger first because it owns the buffer once we've finished
+        Releasables.close(merger, Releasables.wrap(buffer), cutoff, () -> IOUtils.closeWhileHandlingException(runs));
+    }
+
+    @Override
+    public Status status() {
+        long ramBytesUsed = 0;
+        for (TopNOperator.Row row : buffer) {
+            ramBytesUsed += row.ramBytesUsed();
+        }
+        return new TopNOperatorStatus(buffer.size(), ramBytesUsed);
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingTopNOperator[count="
+            + topCount
+            + ", elementTypes="
+            + elementTypes
+            + ", encoders="
+            + encoders
+            + ", sortOrders="
+            + sortOrders
+            + ", maxRowsInMemory="
+            + maxRowsInMemory
+            + ", runs="
+            + runs.size()
+            + "]";
+    }
+
+    /**
+     * A sorted source of rows.
+     */
+    private interface RowSource extends Releasable {
+        /**
+         * The current row or {@code null} if the source is exhausted.
+         */
+        TopNOperator.Row current();
+
+        /**
+         * Move to the next row.
+         */
+        void advance() throws IOException;
+    }
+
+    /**
+     * Reads from the sorted {@link #buffer}.
+     */
+    private class BufferSource implements RowSource {
+        private int position;
+
+        @Override
+        public TopNOperator.Row current() {
+            return position < buffer.size() ? buffer.get(position) : null;
+        }
+
+        @Override
+        public void advance() {
+            buffer.get(position).close();
+            buffer.set(position, null);
+            position++;
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads from a {@link SortedRun}, deleting it when closed.
+     */
+    private class RunSource implements RowSource {
+        private final SortedRun run;
+        private final SortedRun.Reader reader;
+        private final TopNOperator.Row row;
+        private boolean exhausted;
+
+        RunSource(SortedRun run) throws IOException {
+            this.run = run;
+            SortedRun.Reader reader = null;
+            TopNOperator.Row row = null;
+            boolean success = false;
+            try {
+                reader = run.reader();
+                row = new TopNOperator.Row(breaker, sortOrders, 0, 0);
+                exhausted = reader.next(row) == false;
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(row);
+                    IOUtils.closeWhileHandlingException(reader, run);
+                }
+            }
+            this.reader = reader;
+            this.row = row;
+        }
+
+        @Override
+        public TopNOperator.Row current() {
+            return exhausted ? null : row;
+        }
+
+        @Override
+        public void advance() throws IOException {
+            exhausted = reader.next(row) == false;
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(row, () -> IOUtils.closeWhileHandlingException(reader, run));
+        }
+    }
+
+    /**
+     * Merges many {@link RowSource}s into a single sorted {@link RowSource}.
+     */
+    private static class Merger implements RowSource {
+        private final PriorityQueue<RowSource> queue;
+        private final List<RowSource> exhausted = new ArrayList<>();
+
+        Merger(List<RowSource> sources) {
+            this.queue = new PriorityQueue<>(Math.max(1, sources.size())) {
+                @Override
+                protected boolean lessThan(RowSource a, RowSource b) {
+                    return compareBestFirst(a.current(), b.current()) < 0;
+                }
+            };
+            for (RowSource source : sources) {
+                if (source.current() == null) {
+                    exhausted.add(source);
+                } else {
+                    queue.add(source);
+                }
+            }
+        }
+
+        @Override
+        public TopNOperator.Row current() {
+            return queue.size() == 0 ? null : queue.top().current();
+        }
+
+        @Override
+        public void advance() throws IOException {
+            RowSource top = queue.top();
+            top.advance();
+            if (top.current() == null) {
+                exhausted.add(queue.pop());
+            } else {
+                queue.updateTop();
+            }
+        }
+
+        @Override
+        public void close() {
+            List<RowSource> all = new ArrayList<>(exhausted);
+            for (RowSource source : queue) {
+                all.add(source);
+            }
+            queue.clear();
+            exhausted.clear();
+            Releasables.close(all);
+        }
+    }
+}
@@ -403,42 +403,12 @@ public class TopNOperator implements Operator, Accountable {
             for (int i = 0; i < list.size(); i++) {
                 if (builders == null) {
                     size = Math.min(maxPageSize, list.size() - i);
-                    builders = new ResultBuilder[elementTypes.size()];
-                    for (int b = 0; b < builders.length; b++) {
-                        builders[b] = ResultBuilder.resultBuilderFor(
-                            blockFactory,
-                            elementTypes.get(b),
-                            encoders.get(b).toUnsortable(),
-                            channelInKey(sortOrders, b),
-                            size
-                        );
-                    }
+                    builders = resultBuilders(blockFactory, elementTypes, encoders, sortOrders, size);
                     p = 0;
                 }
 
                 Row row = list.get(i);
-                BytesRef keys = row.keys.bytesRefView();
-                for (SortOrder so : sortOrders) {
-                    if (keys.bytes[keys.offset] == so.nul()) {
-                        keys.offset++;
-                        keys.length--;
-                        continue;
-                    }
-                    keys.offset++;
-                    keys.length--;
-                    builders[so.channel].decodeKey(keys);
-                }
-                if (keys.length != 0) {
-                    throw new IllegalArgumentException("didn't read all keys");
-                }
-
-                BytesRef values = row.values.bytesRefView();
-                for (ResultBuilder builder : builders) {
-                    builder.decodeValue(values);
-                }
-                if (values.length != 0) {
-                    throw new IllegalArgumentException("didn't read all values");
-                }
+                decodeRow(row.keys.bytesRefView(), row.values.bytesRefView(), sortOrders, builders);
 
                 list.set(i, null);
                 row.close();
@@ -475,7 +445,65 @@ public class TopNOperator implements Operator, Accountable {
         }
     }
 
-    private static boolean channelInKey(List<SortOrder> sortOrders, int channel) {
+    /**
+     * Build one {@link ResultBuilder} per column to turn {@link Row}s back into {@link Page}s.
+     */
+    static ResultBuilder[] resultBuilders(
+        BlockFactory blockFactory,
+        List<ElementType> elementTypes,
+        List<TopNEncoder> encoders,
+        List<SortOrder> sortOrders,
+        int size
+    ) {
+        ResultBuilder[] builders = new ResultBuilder[elementTypes.size()];
+        boolean success = false;
+        try {
+            for (int b = 0; b < builders.length; b++) {
+                builders[b] = ResultBuilder.resultBuilderFor(
+                    blockFactory,
+                    elementTypes.get(b),
+                    encoders.get(b).toUnsortable(),
+                    channelInKey(sortOrders, b),
+                    size
+                );
+            }
+            success = true;
+            return builders;
+        } finally {
+            if (success == false) {
+                Releasables.closeExpectNoException(builders);
+            }
+        }
+    }
+
+    /**
+     * Decode the encoded {@code keys} and {@code values} of a {@link Row} into {@code builders}.
+     * This moves the {@code offset} and {@code length} of both {@link BytesRef}s to the end.
+     */
+    static void decodeRow(BytesRef keys, BytesRef values, List<SortOrder> sortOrders, ResultBuilder[] builders) {
+        for (SortOrder so : sortOrders) {
+            if (keys.bytes[keys.offset] == so.nul()) {
+                keys.offset++;
+                keys.length--;
+                continue;
+            }
+            keys.offset++;
+            keys.length--;
+            builders[so.channel].decodeKey(keys);
+        }
+        if (keys.length != 0) {
+            throw new IllegalArgumentException("didn't read all keys");
+        }
+
+        for (ResultBuilder builder : builders) {
+            builder.decodeValue(values);
+        }
+        if (values.length != 0) {
+            throw new IllegalArgumentException("didn't read all values");
+        }
+    }
+
+    static boolean channelInKey(List<SortOrder> sortOrders, int channel) {
         for (SortOrder so : sortOrders) {
             if (so.channel == channel) {
                 return true;
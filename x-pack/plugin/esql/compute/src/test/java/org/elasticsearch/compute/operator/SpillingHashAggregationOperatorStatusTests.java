@@ -0,0 +1,73 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class SpillingHashAggregationOperatorStatusTests extends AbstractWireSerializingTestCase<SpillingHashAggregationOperator.Status> {
+    public static SpillingHashAggregationOperator.Status simple() {
+        return new SpillingHashAggregationOperator.Status(500012, 200012, 123, 45, 2048);
+    }
+
+    public static String simpleToJson() {
+        return """
+            {
+              "hash_nanos" : 500012,
+              "hash_time" : "500micros",
+              "aggregation_nanos" : 200012,
+              "aggregation_time" : "200micros",
+              "pages_processed" : 123,
+              "pages_spilled" : 45,
+              "bytes_spilled" : 2048,
+              "spilled" : "2kb"
+            }""";
+    }
+
+    public void testToXContent() {
+        assertThat(Strings.toString(simple(), true, true), equalTo(simpleToJson()));
+    }
+
+    @Override
+    protected Writeable.Reader<SpillingHashAggregationOperator.Status> instanceReader() {
+        return SpillingHashAggregationOperator.Status::new;
+    }
+
+    @Override
+    public SpillingHashAggregationOperator.Status createTestInstance() {
+        return new SpillingHashAggregationOperator.Status(
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeInt(),
+            randomNonNegativeInt(),
+            randomNonNegativeLong()
+        );
+    }
+
+    @Override
+    protected SpillingHashAggregationOperator.Status mutateInstance(SpillingHashAggregationOperator.Status instance) {
+        long hashNanos = instance.hashNanos();
+        long aggregationNanos = instance.aggregationNanos();
+        int pagesProcessed = instance.pagesProcessed();
+        int pagesSpilled = instance.pagesSpilled();
+        long bytesSpilled = instance.bytesSpilled();
+        switch (between(0, 4)) {
+            case 0 -> hashNanos = randomValueOtherThan(hashNanos, ESTestCase::randomNonNegativeLong);
+            case 1 -> aggregationNanos = randomValueOtherThan(aggregationNanos, ESTestCase::randomNonNegativeLong);
+            case 2 -> pagesProcessed = randomValueOtherThan(pagesProcessed, ESTestCase::randomNonNegativeInt);
+            case 3 -> pagesSpilled = randomValueOtherThan(pagesSpilled, ESTestCase::randomNonNegativeInt);
+            case 4 -> bytesSpilled = randomValueOtherThan(bytesSpilled, ESTestCase::randomNonNegativeLong);
+            default -> throw new UnsupportedOperationException();
+        }
+        return new SpillingHashAggregationOperator.Status(hashNanos, aggregationNanos, pagesProcessed, pagesSpilled, bytesSpilled);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator;
+
+import org.elasticsearch.common.collect.Iterators;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.compute.aggregation.AggregatorMode;
+import org.elasticsearch.compute.aggregation.MaxLongAggregatorFunction;
+import org.elasticsearch.compute.aggregation.MaxLongAggregatorFunctionSupplier;
+import org.elasticsearch.compute.aggregation.MaxLongGroupingAggregatorFunctionTests;
+import org.elasticsearch.compute.aggregation.SumLongAggregatorFunction;
+import org.elasticsearch.compute.aggregation.SumLongAggregatorFunctionSupplier;
+import org.elasticsearch.compute.aggregation.SumLongGroupingAggregatorFunctionTests;
+import org.elasticsearch.compute.aggregation.blockhash.BlockHash;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.BlockTestUtils;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.data.TestBlockFactory;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.Tuple;
+import org.hamcrest.Matcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.IntStream.range;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SpillingHashAggregationOperatorTests extends ForkingOperatorTestCase {
+    private static final int GROUPS = 20;
+    private static final long MAX_BYTES_IN_MEMORY = 1;
+    private static final int PARTITIONS = 4;
+
+    private Path spillDirectory;
+
+    private Path spillDirectory() {
+        if (spillDirectory == null) {
+            spillDirectory = createTempDir();
+        }
+        return spillDirectory;
+    }
+
+    @Override
+    protected SourceOperator simpleInput(BlockFactory blockFactory, int size) {
+        long max = randomLongBetween(1, Long.MAX_VALUE / size);
+        return new TupleBlockSourceOperator(
+            blockFactory,
+            LongStream.range(0, size).mapToObj(l -> Tuple.tuple(l % GROUPS, randomLongBetween(-max, max))),
+            between(GROUPS, 500)
+        );
+    }
+
+    @Override
+    protected Operator.OperatorFactory simpleWithMode(AggregatorMode mode) {
+        return simpleWithMode(mode, MAX_BYTES_IN_MEMORY);
+    }
+
+    private Operator.OperatorFactory simpleWithMode(AggregatorMode mode, long maxBytesInMemory) {
+        List<Integer> sumChannels, maxChannels;
+        if (mode.isInputPartial()) {
+            int sumChannelCount = SumLongAggregatorFunction.intermediateStateDesc().size();
+            int maxChannelCount = MaxLongAggregatorFunction.intermediateStateDesc().size();
+            sumChannels = range(1, 1 + sumChannelCount).boxed().toList();
+            maxChannels = range(1 + sumChannelCount, 1 + sumChannelCount + maxChannelCount).boxed().toList();
+        } else {
+            sumChannels = maxChannels = List.of(1);
+        }
+
+        return new SpillingHashAggregationOperator.SpillingHashAggregationOperatorFactory(
+            List.of(new BlockHash.GroupSpec(0, ElementType.LONG)),
+            List.of(
+                new SumLongAggregatorFunctionSupplier(sumChannels).groupingAggregatorFactory(mode),
+                new MaxLongAggregatorFunctionSupplier(maxChannels).groupingAggregatorFactory(mode)
+            ),
+            randomPageSize(),
+            maxBytesInMemory,
+            PARTITIONS,
+            spillDirectory()
+        );
+    }
+
+    @Override
+    protected Matcher<String> expectedDescriptionOfSimple() {
+        return equalTo(
+            "SpillingHashAggregationOperator[mode = <not-needed>, aggs = sum of longs, max of longs, "
+                + "maxBytesInMemory = 1, partitions = 4]"
+        );
+    }
+
+    @Override
+    protected Matcher<String> expectedToStringOfSimple() {
+        return equalTo(
+            "SpillingHashAggregationOperator[blockHash=LongBlockHash{channel=0, entries=0, seenNull=false}, aggregators=["
+                + "GroupingAggregator[aggregatorFunction=SumLongGroupingAggregatorFunction[channels=[1]], mode=SINGLE], "
+                + "GroupingAggregator[aggregatorFunction=MaxLongGroupingAggregatorFunction[channels=[1]], mode=SINGLE]], "
+                + "maxBytesInMemory=1, partitions=4]"
+        );
+    }
+
+    @Override
+    protected void assertSimpleOutput(List<Page> input, List<Page> results) {
+        Set<Long> expectedGroups = new HashSet<>();
+        for (Page page : input) {
+            LongBlock groups = page.getBlock(0);
+            for (int p = 0; p < groups.getPositionCount(); p++) {
+                expectedGroups.add(groups.getLong(p));
+            }
+        }
+
+        SumLongGroupingAggregatorFunctionTests sum = new SumLongGroupingAggregatorFunctionTests();
+        MaxLongGroupingAggregatorFunctionTests max = new MaxLongGroupingAggregatorFunctionTests();
+
+        Set<Long> seenGroups = new HashSet<>();
+        for (Page result : results) {
+            assertThat(result.getBlockCount(), equalTo(3));
+            LongBlock groups = result.getBlock(0);
+            Block sums = result.getBlock(1);
+            Block maxs = result.getBlock(2);
+            for (int i = 0; i < result.getPositionCount(); i++) {
+                long group = groups.getLong(i);
+                assertTrue("group [" + group + "] emitted twice", seenGroups.add(group));
+                sum.assertSimpleGroup(input, sums, i, group);
+                max.assertSimpleGroup(input, maxs, i, group);
+            }
+        }
+        assertThat(seenGroups, equalTo(expectedGroups));
+    }
+
+    public void testSpills() throws IOException {
+        DriverContext driverContext = driverContext();
+        List<Page> input = CannedSourceOperator.collectPages(simpleInput(driverContext.blockFactory(), between(1_000, 10_000)));
+        List<Page> origInput = BlockTestUtils.deepCopyOf(input, TestBlockFactory.getNonBreakingInstance());
+        Operator operator = simple().get(driverContext);
+        List<Page> results = drive(operator, input.iterator(), driverContext);
+        try {
+            assertSimpleOutput(origInput, results);
+            SpillingHashAggregationOperator.Status status = (SpillingHashAggregationOperator.Status) operator.status();
+            assertThat(status.pagesSpilled(), greaterThan(0));
+            assertThat(status.bytesSpilled(), greaterThan(0L));
+            try (Stream<Path> files = Files.list(spillDirectory())) {
+                assertThat(files.count(), equalTo(0L));
+            }
+        } finally {
+            Releasables.closeExpectNoException(Releasables.wrap(() -> Iterators.map(results.iterator(), p -> p::releaseBlocks)));
+        }
+        assertDriverContext(driverContext);
+    }
+
+    public void testStaysInMemoryUnderLimit() {
+        DriverContext driverContext = driverContext();
+        List<Page> input = CannedSourceOperator.collectPages(simpleInput(driverContext.blockFactory(), between(1_000, 10_000)));
+        List<Page> origInput = BlockTestUtils.deepCopyOf(input, TestBlockFactory.getNonBreakingInstance());
+        Operator operator = simpleWithMode(AggregatorMode.SINGLE, ByteSizeValue.ofMb(64).getBytes()).get(driverContext);
+        List<Page> results = drive(operator, input.iterator(), driverContext);
+        try {
+            assertSimpleOutput(origInput, results);
+            SpillingHashAggregationOperator.Status status = (SpillingHashAggregationOperator.Status) operator.status();
+            assertThat(status.pagesSpilled(), equalTo(0));
+        } finally {
+            Releasables.closeExpectNoException(Releasables.wrap(() -> Iterators.map(results.iterator(), p -> p::releaseBlocks)));
+        }
+        assertDriverContext(driverContext);
+    }
+}
@@ -32,16 +32,16 @@ public class StringExtractOperatorTests extends OperatorTestCase {
         return new BytesRefBlockSourceOperator(blockFactory, input);
     }
 
-    record FirstWord(String fieldName) implements Function<String, Map<String, String>> {
+    record FirstWord(String fieldName) implements Function<BytesRef, Map<String, String>> {
         @Override
-        public Map<String, String> apply(String s) {
-            return Map.of(fieldName, s.split(" ")[0]);
+        public Map<String, String> apply(BytesRef s) {
+            return Map.of(fieldName, s.utf8ToString().split(" ")[0]);
         }
     }
 
     @Override
     protected Operator.OperatorFactory simple() {
-        Supplier<Function<String, Map<String, String>>> expEval = () -> new FirstWord("test");
+        Supplier<Function<BytesRef, Map<String, String>>> expEval = () -> new FirstWord("test");
         return new StringExtractOperator.StringExtractOperatorFactory(
             new String[] { "test" },
             dvrCtx -> new EvalOperator.ExpressionEvaluator() {
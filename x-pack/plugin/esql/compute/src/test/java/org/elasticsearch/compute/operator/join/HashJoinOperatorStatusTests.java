@@ -0,0 +1,75 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class HashJoinOperatorStatusTests extends AbstractWireSerializingTestCase<HashJoinOperator.Status> {
+    public static HashJoinOperator.Status simple() {
+        return new HashJoinOperator.Status(1000, 123, 111, 50000, 45, 2048);
+    }
+
+    public static String simpleToJson() {
+        return """
+            {
+              "build_rows" : 1000,
+              "pages_received" : 123,
+              "pages_emitted" : 111,
+              "rows_emitted" : 50000,
+              "pages_spilled" : 45,
+              "bytes_spilled" : 2048,
+              "spilled" : "2kb"
+            }""";
+    }
+
+    public void testToXContent() {
+        assertThat(Strings.toString(simple(), true, true), equalTo(simpleToJson()));
+    }
+
+    @Override
+    protected Writeable.Reader<HashJoinOperator.Status> instanceReader() {
+        return HashJoinOperator.Status::new;
+    }
+
+    @Override
+    public HashJoinOperator.Status createTestInstance() {
+        return new HashJoinOperator.Status(
+            randomNonNegativeLong(),
+            randomNonNegativeInt(),
+            randomNonNegativeInt(),
+            randomNonNegativeLong(),
+            randomNonNegativeInt(),
+            randomNonNegativeLong()
+        );
+    }
+
+    @Override
+    protected HashJoinOperator.Status mutateInstance(HashJoinOperator.Status instance) {
+        long buildRows = instance.buildRows();
+        int pagesReceived = instance.pagesReceived();
+        int pagesEmitted = instance.pagesEmitted();
+        long rowsEmitted = instance.rowsEmitted();
+        int pagesSpilled = instance.pagesSpilled();
+        long bytesSpilled = instance.bytesSpilled();
+        switch (between(0, 5)) {
+            case 0 -> buildRows = randomValueOtherThan(buildRows, ESTestCase::randomNonNegativeLong);
+            case 1 -> pagesReceived = randomValueOtherThan(pagesReceived, ESTestCase::randomNonNegativeInt);
+            case 2 -> pagesEmitted = randomValueOtherThan(pagesEmitted, ESTestCase::randomNonNegativeInt);
+            case 3 -> rowsEmitted = randomValueOtherThan(rowsEmitted, ESTestCase::randomNonNegativeLong);
+            case 4 -> pagesSpilled = randomValueOtherThan(pagesSpilled, ESTestCase::randomNonNegativeInt);
+            case 5 -> bytesSpilled = randomValueOtherThan(bytesSpilled, ESTestCase::randomNonNegativeLong);
+            default -> throw new UnsupportedOperationException();
+        }
+        return new HashJoinOperator.Status(buildRows, pagesReceived, pagesEmitted, rowsEmitted, pagesSpilled, bytesSpilled);
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.join;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.data.TestBlockFactory;
+import org.elasticsearch.compute.operator.ColumnLoadOperator;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.compute.operator.Operator;
+import org.elasticsearch.compute.operator.OperatorTestCase;
+import org.elasticsearch.compute.operator.RowInTableLookupOperator;
+import org.elasticsearch.compute.operator.SequenceLongBlockSourceOperator;
+import org.elasticsearch.compute.operator.SourceOperator;
+import org.elasticsearch.core.Releasables;
+import org.hamcrest.Matcher;
+import org.junit.After;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.elasticsearch.compute.data.BlockUtils.toJavaObject;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class HashJoinOperatorTests extends OperatorTestCase {
+    private static final int BUILD_KEYS = 40;
+    private static final long MAX_BUILD_BYTES = ByteSizeValue.ofMb(1).getBytes();
+
+    private final List<HashJoinBuildSide> buildSides = new ArrayList<>();
+    private Path spillDirectory;
+
+    private Path spillDirectory() {
+        if (spillDirectory == null) {
+            spillDirectory = createTempDir();
+        }
+        return spillDirectory;
+    }
+
+    @After
+    public void closeBuildSides() {
+        Releasables.close(buildSides);
+    }
+
+    /**
+     * The build side of {@link #simple}. Every key has a row and even keys have two.
+     */
+    private static List<Page> simpleBuild() {
+        BlockFactory blockFactory = TestBlockFactory.getNonBreakingInstance();
+        try (
+            LongBlock.Builder keys = blockFactory.newLongBlockBuilder(BUILD_KEYS * 2);
+            LongBlock.Builder values = blockFactory.newLongBlockBuilder(BUILD_KEYS * 2)
+        ) {
+            for (long k = 0; k < BUILD_KEYS; k++) {
+                keys.appendLong(k);
+                values.appendLong(k * 10);
+                if (k % 2 == 0) {
+                    keys.appendLong(k);
+                    values.appendLong(k * 10 + 1);
+                }
+            }
+            return List.of(new Page(keys.build(), values.build()));
+        }
+    }
+
+    private HashJoinBuildSide buildSide(List<Page> pages) {
+        HashJoinBuildSide buildSide = new HashJoinBuildSide();
+        buildSides.add(buildSide);
+        try (HashJoinBuildOperator sink = new HashJoinBuildOperator(buildSide)) {
+            for (Page page : pages) {
+                sink.addInput(page);
+            }
+            sink.finish();
+        }
+        return buildSide;
+    }
+
+    @Override
+    protected HashJoinOperator.HashJoinOperatorFactory simple() {
+        return new HashJoinOperator.HashJoinOperatorFactory(
+            buildSide(simpleBuild()),
+            JoinType.INNER,
+            new int[] { 0 },
+            new int[] { 0 },
+            List.of(ElementType.LONG, ElementType.LONG),
+            randomPageSize(),
+            MAX_BUILD_BYTES,
+            4,
+            spillDirectory()
+        );
+    }
+
+    @Override
+    protected Matcher<String> expectedDescriptionOfSimple() {
+        return equalTo("HashJoinOperator[type=INNER, probeKeys=[0], buildKeys=[0], maxBuildBytesInMemory=1048576, partitions=4]");
+    }
+
+    @Override
+    protected Matcher<String> expectedToStringOfSimple() {
+        return equalTo("HashJoinOperator[type=INNER, probeKeys=[0], buildKeys=[0], maxBuildBytesInMemory=1048576, partitions=4]");
+    }
+
+    @Override
+    protected SourceOperator simpleInput(BlockFactory blockFactory, int size) {
+        return new SequenceLongBlockSourceOperator(
+            blockFactory,
+            LongStream.range(0, size).map(l -> randomLongBetween(0, BUILD_KEYS * 3 / 2)),
+            between(1, size * 2)
+        );
+    }
+
+    @Override
+    protected void assertSimpleOutput(List<Page> input, List<Page> results) {
+        List<Page> build = simpleBuild();
+        assertThat(rows(results), equalTo(expectedJoin(input, build, 2, JoinType.INNER)));
+    }
+
+    public void testLeftJoin() {
+        DriverContext driverContext = driverContext();
+        List<Page> build = simpleBuild();
+        HashJoinOperator.HashJoinOperatorFactory factory = new HashJoinOperator.HashJoinOperatorFactory(
+            buildSide(simpleBuild()),
+            JoinType.LEFT,
+            new int[] { 0 },
+            new int[] { 0 },
+            List.of(ElementType.LONG, ElementType.LONG),
+            randomPageSize(),
+            MAX_BUILD_BYTES,
+            4,
+            spillDirectory()
+        );
+        List<Page> input = randomProbe(driverContext.blockFactory(), between(1, 1000));
+        List<Page> expectedInput = copy(input);
+        List<Page> results = drive(factory.get(driverContext), input.iterator(), driverContext);
+        try {
+            assertThat(rows(results), equalTo(expectedJoin(expectedInput, build, 2, JoinType.LEFT)));
+        } finally {
+            releasePages(results);
+        }
+        assertDriverContext(driverContext);
+    }
+
+    /**
+     * Joins a build side that doesn't fit in memory, forcing the partitioned join.
+     */
+    public void testPartitioned() throws IOException {
+        JoinType joinType = randomFrom(JoinType.INNER, JoinType.LEFT);
+        DriverContext driverContext = driverContext();
+        List<Page> build = randomBuild(between(200, 1000));
+        HashJoinOperator.HashJoinOperatorFactory factory = new HashJoinOperator.HashJoinOperatorFactory(
+            buildSide(copy(build)),
+            joinType,
+            new int[] { 0 },
+            new int[] { 0 },
+            List.of(ElementType.LONG, ElementType.LONG),
+            randomPageSize(),
+            between(1, 1024),
+            between(1, 8),
+            spillDirectory()
+        );
+        List<Page> input = randomProbe(driverContext.blockFactory(), between(1, 1000));
+        List<Page> expectedInput = copy(input);
+        Operator operator = factory.get(driverContext);
+        List<Page> results = drive(operator, input.iterator(), driverContext);
+        try {
+            assertThat(rows(results), equalTo(expectedJoin(expectedInput, build, 2, joinType)));
+            HashJoinOperator.Status status = (HashJoinOperator.Status) operator.status();
+            assertThat(status.pagesSpilled(), greaterThan(0));
+            try (Stream<Path> files = Files.list(spillDirectory())) {
+                assertThat(files.count(), equalTo(0L));
+            }
+        } finally {
+            releasePages(results);
+        }
+        assertDriverContext(driverContext);
+    }
+
+    public void testPrebuilt() {
+        DriverContext driverContext = driverContext();
+        List<Page> build = simpleBuild();
+        HashJoinBuildSide buildSide = HashJoinBuildSide.of(simpleBuild());
+        buildSides.add(buildSide);
+        HashJoinOperator.HashJoinOperatorFactory factory = new HashJoinOperator.HashJoinOperatorFactory(
+            buildSide,
+            JoinType.LEFT,
+            new int[] { 0 },
+            new int[] { 0 },
+            List.of(ElementType.LONG, ElementType.LONG),
+            randomPageSize(),
+            MAX_BUILD_BYTES,
+            4,
+            spillDirectory()
+        );
+        List<Page> input = randomProbe(driverContext.blockFactory(), between(1, 1000));
+        List<Page> expectedInput = copy(input);
+        Operator operator = factory.get(driverContext);
+        assertTrue(operator.isBlocked().listener().isDone());
+        List<Page> results = drive(operator, input.iterator(), driverContext);
+        try {
+            assertThat(rows(results), equalTo(expectedJoin(expectedInput, build, 2, JoinType.LEFT)));
+        } finally {
+            releasePages(results);
+        }
+        assertDriverContext(driverContext);
+    }
+
+    /**
+     * A {@link JoinType#LOOKUP} join returns the same rows, in the same order, as
+     * {@link RowInTableLookupOperator} and {@link ColumnLoadOperator}.
+     */
+    public void testLookup() {
+        DriverContext driverContext = driverContext();
+        List<Page> build = uniqueBuild();
+        HashJoinOperator.HashJoinOperatorFactory factory = new HashJoinOperator.HashJoinOperatorFactory(
+            buildSide(copy(build)),
+            JoinType.LOOKUP,
+            new int[] { 0 },
+            new int[] { 0 },
+            List.of(ElementType.LONG, ElementType.LONG),
+            randomPageSize(),
+            between(1, 1024),
+            4,
+            spillDirectory()
+        );
+        List<Page> input = randomProbe(driverContext.blockFactory(), between(1, 1000));
+        List<Page> lookupInput = copy(input);
+        Operator operator = factory.get(driverContext);
+        List<Page> results = drive(operator, input.iterator(), driverContext);
+        List<Page> lookupResults = drive(
+            List.of(
+                new RowInTableLookupOperator(
+                    driverContext.blockFactory(),
+                    new RowInTableLookupOperator.Key[] { new RowInTableLookupOperator.Key("k", build.get(0).getBlock(0)) },
+                    new int[] { 0 }
+                ),
+                new ColumnLoadOperator(new ColumnLoadOperator.Values("v", build.get(0).getBlock(1)), 2)
+            ),
+            lookupInput.iterator(),
+            driverContext
+        );
+        try {
+            // Compare without the build keys and the positions RowInTableLookupOperator adds
+            List<List<Object>> expected = unsortedRows(lookupResults);
+            List<List<Object>> actual = unsortedRows(results);
+            expected.forEach(row -> row.remove(2));
+            actual.forEach(row -> row.remove(2));
+            assertThat(actual, equalTo(expected));
+            // The build side is over maxBuildBytesInMemory but partitioning would reorder the rows
+            HashJoinOperator.Status status = (HashJoinOperator.Status) operator.status();
+            assertThat(status.pagesSpilled(), equalTo(0));
+        } finally {
+            releasePages(results);
+            releasePages(lookupResults);
+        }
+        assertDriverContext(driverContext);
+    }
+
+    /**
+     * A {@link JoinType#LOOKUP} join rejects duplicate and multivalued build keys like {@link RowInTableLookupOperator}.
+     */
+    public void testLookupInvalidKeys() {
+        DriverContext driverContext = driverContext();
+        List<Page> build = randomBoolean() ? simpleBuild() : randomBuild(between(BUILD_KEYS * 2, 100));
+        IllegalArgumentException expected = expectThrows(
+            IllegalArgumentException.class,
+            () -> new RowInTableLookupOperator(
+                driverContext.blockFactory(),
+                new RowInTableLookupOperator.Key[] { new RowInTableLookupOperator.Key("k", build.get(0).getBlock(0)) },
+                new int[] { 0 }
+            )
+        );
+        try (
+            Operator operator = new HashJoinOperator.HashJoinOperatorFactory(
+                buildSide(build),
+                JoinType.LOOKUP,
+                new int[] { 0 },
+                new int[] { 0 },
+                List.of(ElementType.LONG, ElementType.LONG),
+                randomPageSize(),
+                MAX_BUILD_BYTES,
+                4,
+                spillDirectory()
+            ).get(driverContext)
+        ) {
+            Exception e = expectThrows(IllegalArgumentException.class, operator::getOutput);
+            assertThat(e.getMessage(), equalTo(expected.getMessage()));
+        }
+        assertDriverContext(driverContext);
+    }
+
+    public void testWaitsForBuild() {
+        HashJoinBuildSide buildSide = new HashJoinBuildSide();
+        buildSides.add(buildSide);
+        HashJoinBuildOperator sink = new HashJoinBuildOperator(buildSide);
+        try (
+            Operator operator = new HashJoinOperator.HashJoinOperatorFactory(
+                buildSide,
+                JoinType.INNER,
+                new int[] { 0 },
+                new int[] { 0 },
+                List.of(ElementType.LONG, ElementType.LONG),
+                randomPageSize(),
+                MAX_BUILD_BYTES,
+                4,
+                spillDirectory()
+            ).get(driverContext())
+        ) {
+            assertFalse(operator.needsInput());
+            assertFalse(operator.isBlocked().listener().isDone());
+            assertNull(operator.getOutput());
+            for (Page page : simpleBuild()) {
+                sink.addInput(page);
+            }
+            sink.finish();
+            assertTrue(operator.isBlocked().listener().isDone());
+            assertTrue(operator.needsInput());
+        } finally {
+            sink.close();
+        }
+    }
+
+    public void testBuildFailed() {
+        HashJoinBuildSide buildSide = new HashJoinBuildSide();
+        buildSides.add(buildSide);
+        HashJoinBuildOperator sink = new HashJoinBuildOperator(buildSide);
+        try (
+            Operator operator = new HashJoinOperator.HashJoinOperatorFactory(
+                buildSide,
+                JoinType.INNER,
+                new int[] { 0 },
+                new int[] { 0 },
+                List.of(ElementType.LONG, ElementType.LONG),
+                randomPageSize(),
+                MAX_BUILD_BYTES,
+                4,
+                spillDirectory()
+            ).get(driverContext())
+        ) {
+            sink.close();
+            assertTrue(operator.isBlocked().listener().isDone());
+            Exception e = expectThrows(IllegalStateException.class, operator::getOutput);
+            assertThat(e.getMessage(), containsString("build side failed"));
+        }
+    }
+
+    /**
+     * A build page with each key from {@code 0} to {@link #BUILD_KEYS} once, in random order,
+     * and sometimes a {@code null} key.
+     */
+    private static List<Page> uniqueBuild() {
+        BlockFactory blockFactory = TestBlockFactory.getNonBreakingInstance();
+        List<Long> keyValues = new ArrayList<>(LongStream.range(0, BUILD_KEYS).boxed().toList());
+        if (randomBoolean()) {
+            keyValues.add(null);
+        }
+        Collections.shuffle(keyValues, random());
+        try (
+            LongBlock.Builder keys = blockFactory.newLongBlockBuilder(keyValues.size());
+            LongBlock.Builder values = blockFactory.newLongBlockBuilder(keyValues.size())
+        ) {
+            for (Long k : keyValues) {
+                if (k == null) {
+                    keys.appendNull();
+                    values.appendLong(-1);
+                } else {
+                    keys.appendLong(k);
+                    values.appendLong(k * 10);
+                }
+            }
+            return List.of(new Page(keys.build(), values.build()));
+        }
+    }
+
+    /**
+     * Build pages with a random, sometimes {@code null} or multivalued, key and a unique value.
+     */
+    private static List<Page> randomBuild(int size) {
+        BlockFactory blockFactory = TestBlockFactory.getNonBreakingInstance();
+        try (
+            LongBlock.Builder keys = blockFactory.newLongBlockBuilder(size);
+            LongBlock.Builder values = blockFactory.newLongBlockBuilder(size)
+        ) {
+            for (int i = 0; i < size; i++) {
+                appendRandomKey(keys);
+                values.appendLong(i);
+            }
+            return List.of(new Page(keys.build(), values.build()));
+        }
+    }
+
+    /**
+     * Probe pages with a random, sometimes {@code null} or multivalued, key and a unique row id.
+     */
+    private static List<Page> randomProbe(BlockFactory blockFactory, int size) {
+        List<Page> pages = new ArrayList<>();
+        int id = 0;
+        while (id < size) {
+            int pageSize = Math.min(size - id, between(1, 100));
+            try (
+                LongBlock.Builder keys = blockFactory.newLongBlockBuilder(pageSize);
+                LongBlock.Builder ids = blockFactory.newLongBlockBuilder(pageSize)
+            ) {
+                for (int i = 0; i < pageSize; i++) {
+                    appendRandomKey(keys);
+                    ids.appendLong(id++);
+                }
+                pages.add(new Page(keys.build(), ids.build()));
+            }
+        }
+        return pages;
+    }
+
+    private static void appendRandomKey(LongBlock.Builder keys) {
+        switch (between(0, 9)) {
+            case 0 -> keys.appendNull();
+            case 1 -> {
+                keys.beginPositionEntry();
+                keys.appendLong(randomLongBetween(0, BUILD_KEYS));
+                keys.appendLong(randomLongBetween(0, BUILD_KEYS));
+                keys.endPositionEntry();
+            }
+            default -> keys.appendLong(randomLongBetween(0, BUILD_KEYS));
+        }
+    }
+
+    private static List<Page> copy(List<Page> pages) {
+        BlockFactory blockFactory = TestBlockFactory.getNonBreakingInstance();
+        List<Page> copies = new ArrayList<>(pages.size());
+        for (Page page : pages) {
+            Block[] blocks = new Block[page.getBlockCount()];
+            for (int b = 0; b < blocks.length; b++) {
+                Block block = page.getBlock(b);
+                try (Block.Builder builder = block.elementType().newBlockBuilder(block.getPositionCount(), blockFactory)) {
+                    builder.copyFrom(block, 0, block.getPositionCount());
+                    blocks[b] = builder.build();
+                }
+            }
+            copies.add(new Page(blocks));
+        }
+        return copies;
+    }
+
+    /**
+     * Join with nested loops.
+     */
+    private static List<List<Object>> expectedJoin(List<Page> probe, List<Page> build, int buildWidth, JoinType joinType) {
+        List<List<Object>> buildRows = rows(build);
+        List<List<Object>> result = new ArrayList<>();
+        for (List<Object> probeRow : rows(probe)) {
+            Object key = probeRow.get(0);
+            boolean matched = false;
+            if (key != null && key instanceof List<?> == false) {
+                for (List<Object> buildRow : buildRows) {
+                    if (key.equals(buildRow.get(0))) {
+                        List<Object> row = new ArrayList<>(probeRow);
+                        row.addAll(buildRow);
+                        result.add(row);
+                        matched = true;
+                    }
+                }
+            }
+            if (matched == false && joinType == JoinType.LEFT) {
+                List<Object> row = new ArrayList<>(probeRow);
+                row.addAll(Arrays.asList(new Object[buildWidth]));
+                result.add(row);
+            }
+        }
+        result.sort(Comparator.comparing(Object::toString));
+        return result;
+    }
+
+    private static List<List<Object>> rows(List<Page> pages) {
+        List<List<Object>> rows = unsortedRows(pages);
+        rows.sort(Comparator.comparing(Object::toString));
+        return rows;
+    }
+
+    private static List<List<Object>> unsortedRows(List<Page> pages) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (Page page : pages) {
+            for (int p = 0; p < page.getPositionCount(); p++) {
+                List<Object> row = new ArrayList<>(page.getBlockCount());
+                for (int b = 0; b < page.getBlockCount(); b++) {
+                    row.add(toJavaObject(page.getBlock(b), p));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void releasePages(List<Page> pages) {
+        for (Page page : pages) {
+            page.releaseBlocks();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.spill;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.BytesRefBlock;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.ComputeTestCase;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class KeyPartitionerTests extends ComputeTestCase {
+    public void testSingleValuedRowsMatchKeys() {
+        BlockFactory blockFactory = blockFactory();
+        int partitions = between(1, KeyPartitioner.MAX_PARTITIONS);
+        KeyPartitioner partitioner = new KeyPartitioner(new int[] { 1, 0 }, partitions);
+        int positions = between(1, 1000);
+        try (
+            BytesRefBlock.Builder strings = blockFactory.newBytesRefBlockBuilder(positions);
+            LongBlock.Builder longs = blockFactory.newLongBlockBuilder(positions)
+        ) {
+            for (int p = 0; p < positions; p++) {
+                if (rarely()) {
+                    strings.appendNull();
+                } else {
+                    strings.appendBytesRef(new BytesRef(randomAlphaOfLength(between(0, 5))));
+                }
+                longs.appendLong(randomLongBetween(-10, 10));
+            }
+            Page page = new Page(strings.build(), longs.build());
+            try {
+                Block[] keys = new Block[] { page.getBlock(1), page.getBlock(0) };
+                for (int p = 0; p < positions; p++) {
+                    int partition = partitioner.partitionOfKey(keys, p);
+                    assertThat(partitioner.partitionsOfRow(page, p), equalTo(1L << partition));
+                }
+            } finally {
+                page.releaseBlocks();
+            }
+        }
+    }
+
+    public void testMultivaluedRowsCoverEachValue() {
+        BlockFactory blockFactory = blockFactory();
+        int partitions = between(2, KeyPartitioner.MAX_PARTITIONS);
+        KeyPartitioner partitioner = new KeyPartitioner(new int[] { 0 }, partitions);
+        long a = randomLong();
+        long b = randomValueOtherThan(a, ESTestCase::randomLong);
+        LongBlock row = null;
+        LongBlock single = null;
+        try (LongBlock.Builder builder = blockFactory.newLongBlockBuilder(1)) {
+            builder.beginPositionEntry().appendLong(a).appendLong(b).endPositionEntry();
+            row = builder.build();
+            single = blockFactory.newLongArrayVector(new long[] { a, b }, 2).asBlock();
+            Block[] keys = new Block[] { single };
+            long expected = (1L << partitioner.partitionOfKey(keys, 0)) | (1L << partitioner.partitionOfKey(keys, 1));
+            assertThat(partitioner.partitionsOfRow(new Page(row), 0), equalTo(expected));
+        } finally {
+            Releasables.close(row, single);
+        }
+    }
+
+    public void testTooManyCombinations() {
+        BlockFactory blockFactory = blockFactory();
+        KeyPartitioner partitioner = new KeyPartitioner(new int[] { 0 }, 2);
+        try (LongBlock.Builder builder = blockFactory.newLongBlockBuilder(1)) {
+            builder.beginPositionEntry().appendLong(1).appendLong(2).appendLong(3).endPositionEntry();
+            try (LongBlock row = builder.build()) {
+                assertThat(partitioner.partitionsOfRow(new Page(row), 0), equalTo(partitioner.allPartitions()));
+            }
+        }
+    }
+
+    public void testTooManyPartitions() {
+        Exception e = expectThrows(IllegalArgumentException.class, () -> new KeyPartitioner(new int[] { 0 }, 65));
+        assertThat(e.getMessage(), equalTo("partitions must be in [1, 64] but was [65]"));
+    }
+}
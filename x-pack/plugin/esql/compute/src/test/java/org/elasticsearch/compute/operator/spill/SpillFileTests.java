@@ -0,0 +1,75 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.spill;
+
+import org.elasticsearch.compute.data.BasicBlockTests;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.ElementType;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.ComputeTestCase;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SpillFileTests extends ComputeTestCase {
+    public void testRoundTrip() throws IOException {
+        BlockFactory blockFactory = blockFactory();
+        Path dir = createTempDir();
+        List<ElementType> types = randomList(
+            1,
+            5,
+            () -> randomFrom(ElementType.BOOLEAN, ElementType.INT, ElementType.LONG, ElementType.DOUBLE, ElementType.BYTES_REF)
+        );
+        List<Page> written = new ArrayList<>();
+        try (SpillFile file = SpillFile.create(dir, "test-")) {
+            int pageCount = between(1, 10);
+            for (int p = 0; p < pageCount; p++) {
+                int positions = between(1, 100);
+                Block[] blocks = new Block[types.size()];
+                for (int b = 0; b < blocks.length; b++) {
+                    blocks[b] = BasicBlockTests.randomBlock(blockFactory, types.get(b), positions, true, 0, 3, 0, 0).block();
+                }
+                Page page = new Page(blocks);
+                written.add(page);
+                file.write(page);
+            }
+            file.finishWriting();
+            assertThat(file.pageCount(), equalTo(pageCount));
+            assertThat(file.sizeInBytes(), greaterThan(0L));
+            for (int round = 0; round < 2; round++) {
+                try (SpillFile.Reader reader = file.reader(blockFactory)) {
+                    for (Page expected : written) {
+                        Page read = reader.next();
+                        try {
+                            assertThat(read, equalTo(expected));
+                        } finally {
+                            read.releaseBlocks();
+                        }
+                    }
+                    assertThat(reader.next(), nullValue());
+                }
+            }
+        } finally {
+            Releasables.close(written.stream().map(p -> (Releasable) p::releaseBlocks).toList());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count(), equalTo(0L));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.compute.operator.topn;
+
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.CannedSourceOperator;
+import org.elasticsearch.compute.operator.DriverContext;
+import org.elasticsearch.compute.operator.OperatorTestCase;
+import org.elasticsearch.compute.operator.SequenceLongBlockSourceOperator;
+import org.elasticsearch.compute.operator.SourceOperator;
+import org.elasticsearch.compute.operator.TupleBlockSourceOperator;
+import org.elasticsearch.core.Tuple;
+import org.elasticsearch.test.ESTestCase;
+import org.hamcrest.Matcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.elasticsearch.compute.data.ElementType.LONG;
+import static org.elasticsearch.compute.operator.topn.TopNEncoder.DEFAULT_SORTABLE;
+import static org.elasticsearch.compute.operator.topn.TopNEncoder.DEFAULT_UNSORTABLE;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class SpillingTopNOperatorTests extends OperatorTestCase {
+    private static final int MAX_ROWS_IN_MEMORY = 10;
+
+    private final int pageSize = randomPageSize();
+    private Path spillDirectory;
+
+    private Path spillDirectory() {
+        if (spillDirectory == null) {
+            spillDirectory = createTempDir();
+        }
+        return spillDirectory;
+    }
+
+    @Override
+    protected SpillingTopNOperator.SpillingTopNOperatorFactory simple() {
+        return new SpillingTopNOperator.SpillingTopNOperatorFactory(
+            4,
+            List.of(LONG),
+            List.of(DEFAULT_UNSORTABLE),
+            List.of(new TopNOperator.SortOrder(0, true, false)),
+            pageSize,
+            MAX_ROWS_IN_MEMORY,
+            spillDirectory()
+        );
+    }
+
+    @Override
+    protected Matcher<String> expectedDescriptionOfSimple() {
+        return equalTo(
+            "SpillingTopNOperator[count=4, elementTypes=[LONG], encoders=[DefaultUnsortable], "
+                + "sortOrders=[SortOrder[channel=0, asc=true, nullsFirst=false]], maxRowsInMemory=10]"
+        );
+    }
+
+    @Override
+    protected Matcher<String> expectedToStringOfSimple() {
+        return equalTo(
+            "SpillingTopNOperator[count=4, elementTypes=[LONG], encoders=[DefaultUnsortable], "
+                + "sortOrders=[SortOrder[channel=0, asc=true, nullsFirst=false]], maxRowsInMemory=10, runs=0]"
+        );
+    }
+
+    @Override
+    protected SourceOperator simpleInput(BlockFactory blockFactory, int size) {
+        return new SequenceLongBlockSourceOperator(
+            blockFactory,
+            LongStream.range(0, size).map(l -> ESTestCase.randomLong()),
+            between(1, size * 2)
+        );
+    }
+
+    @Override
+    protected void assertSimpleOutput(List<Page> input, List<Page> results) {
+        for (int i = 0; i < results.size() - 1; i++) {
+            assertThat(results.get(i).getPositionCount(), equalTo(pageSize));
+        }
+        if (results.isEmpty() == false) {
+            assertThat(results.get(results.size() - 1).getPositionCount(), lessThanOrEqualTo(pageSize));
+        }
+        long[] topN = input.stream()
+            .flatMapToLong(
+                page -> IntStream.range(0, page.getPositionCount())
+                    .filter(p -> false == page.getBlock(0).isNull(p))
+                    .mapToLong(p -> ((LongBlock) page.getBlock(0)).getLong(p))
+            )
+            .sorted()
+            .limit(4)
+            .toArray();
+        assertThat(
+            results.stream()
+                .flatMapToLong(page -> IntStream.range(0, page.getPositionCount()).mapToLong(i -> page.<LongBlock>getBlock(0).getLong(i)))
+                .toArray(),
+            equalTo(topN)
+        );
+    }
+
+    /**
+     * Sorts enough rows to need more than {@link SpillingTopNOperator#MAX_MERGE_WIDTH}
+     * runs and compares the result to sorting in memory. The second column makes every
+     * row unique so ties can't make the order ambiguous.
+     */
+    public void testManyRuns() throws IOException {
+        boolean asc = randomBoolean();
+        int maxRowsInMemory = between(2, 20);
+        int rows = between(maxRowsInMemory * (SpillingTopNOperator.MAX_MERGE_WIDTH + 1), 5_000);
+        int topCount = between(1, rows + 10);
+        List<Tuple<Long, Long>> input = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            input.add(Tuple.tuple(randomLongBetween(0, 100), (long) i));
+        }
+
+        Comparator<Tuple<Long, Long>> comparator = Comparator.comparing(Tuple::v1);
+        comparator = comparator.thenComparing(Tuple::v2);
+        if (asc == false) {
+            comparator = comparator.reversed();
+        }
+        List<Tuple<Long, Long>> expected = input.stream().sorted(comparator).limit(topCount).toList();
+
+        DriverContext driverContext = driverContext();
+        SpillingTopNOperator op = new SpillingTopNOperator(
+            driverContext.blockFactory(),
+            driverContext.breaker(),
+            topCount,
+            List.of(LONG, LONG),
+            List.of(DEFAULT_SORTABLE, DEFAULT_SORTABLE),
+            List.of(new TopNOperator.SortOrder(0, asc, false), new TopNOperator.SortOrder(1, asc, false)),
+            pageSize,
+            maxRowsInMemory,
+            spillDirectory()
+        );
+        List<Page> results = drive(
+            op,
+            CannedSourceOperator.collectPages(new TupleBlockSourceOperator(driverContext.blockFactory(), input, between(1, 500)))
+                .iterator(),
+            driverContext
+        );
+        List<Tuple<Long, Long>> actual = new ArrayList<>(expected.size());
+        for (Page page : results) {
+            assertThat(page.getPositionCount(), lessThanOrEqualTo(pageSize));
+            LongBlock first = page.getBlock(0);
+            LongBlock second = page.getBlock(1);
+            for (int p = 0; p < page.getPositionCount(); p++) {
+                actual.add(Tuple.tuple(first.getLong(p), second.getLong(p)));
+            }
+            page.releaseBlocks();
+        }
+        assertThat(actual, equalTo(expected));
+        try (Stream<Path> files = Files.list(spillDirectory())) {
+            assertThat(files.count(), equalTo(0L));
+        }
+        assertDriverContext(driverContext);
+    }
+}
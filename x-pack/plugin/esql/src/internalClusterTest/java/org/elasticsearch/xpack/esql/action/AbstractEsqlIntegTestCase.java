@@ -197,6 +197,9 @@ public abstract class AbstractEsqlIntegTestCase extends ESIntegTestCase {
             if (randomBoolean()) {
                 settings.put("node_level_reduction", randomBoolean());
             }
+            if (randomBoolean()) {
+                settings.put("shard_result_cache", randomBoolean());
+            }
         }
         return new QueryPragmas(settings.build());
     }
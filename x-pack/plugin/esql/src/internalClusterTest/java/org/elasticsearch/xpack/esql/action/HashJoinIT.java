@@ -0,0 +1,159 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.esql.action;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.BytesRefBlock;
+import org.elasticsearch.compute.data.LongBlock;
+import org.elasticsearch.compute.operator.DriverProfile;
+import org.elasticsearch.compute.operator.DriverStatus;
+import org.elasticsearch.compute.operator.join.HashJoinOperator;
+import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
+import org.elasticsearch.xpack.esql.Column;
+import org.elasticsearch.xpack.esql.core.type.DataType;
+import org.elasticsearch.xpack.esql.plugin.QueryPragmas;
+import org.junit.Before;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.xpack.esql.EsqlTestUtils.getValuesList;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Runs {@code LOOKUP} with and without the {@link QueryPragmas#HASH_JOIN} pragma and
+ * checks that both return the same results.
+ */
+public class HashJoinIT extends AbstractEsqlIntegTestCase {
+    private static final int KEYS = 100;
+
+    @Before
+    public void setupIndex() {
+        ElasticsearchAssertions.assertAcked(
+            client().admin()
+                .indices()
+                .prepareCreate("test")
+                .setSettings(
+                    Settings.builder()
+                        .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, between(1, 3))
+                        .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+                )
+                .setMapping("id", "type=long", "k", "type=long")
+        );
+        BulkRequestBuilder bulk = client().prepareBulk("test").setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        int docs = between(KEYS, 5 * KEYS);
+        for (int d = 0; d < docs; d++) {
+            // Some documents are missing the key, some have more than one
+            Object k = switch (between(0, 9)) {
+                case 0 -> null;
+                case 1 -> List.of(randomLongBetween(0, KEYS), randomLongBetween(0, KEYS));
+                default -> randomLongBetween(0, KEYS);
+            };
+            bulk.add(new IndexRequest().source(k == null ? Map.of("id", d) : Map.of("id", d, "k", k)));
+        }
+        ElasticsearchAssertions.assertNoFailures(bulk.get());
+    }
+
+    public void testSameResults() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        // Name every other key and the null key, the rest don't match anything in the table
+        BlockFactory blockFactory = blockFactory();
+        Map<String, Column> table = new LinkedHashMap<>();
+        try (
+            LongBlock.Builder keys = blockFactory.newLongBlockBuilder(KEYS / 2 + 1);
+            BytesRefBlock.Builder values = blockFactory.newBytesRefBlockBuilder(KEYS / 2 + 1)
+        ) {
+            for (long k = 0; k < KEYS; k += 2) {
+                keys.appendLong(k);
+                values.appendBytesRef(new BytesRef(randomAlphaOfLength(5)));
+            }
+            keys.appendNull();
+            values.appendBytesRef(new BytesRef("missing"));
+            table.put("k", new Column(DataType.LONG, keys.build()));
+            table.put("name", new Column(DataType.KEYWORD, values.build()));
+        }
+        String query = "FROM test | LOOKUP names ON k | KEEP id, k, name | SORT id | LIMIT " + 5 * KEYS;
+
+        List<List<Object>> expected;
+        try (EsqlQueryResponse resp = run(request(query, table, false))) {
+            expected = getValuesList(resp);
+        }
+        try (EsqlQueryResponse resp = run(request(query, table, true))) {
+            assertThat(getValuesList(resp), equalTo(expected));
+            int hashJoins = 0;
+            for (DriverProfile driver : resp.profile().drivers()) {
+                for (DriverStatus.OperatorStatus operator : driver.operators()) {
+                    if (operator.status() instanceof HashJoinOperator.Status) {
+                        hashJoins++;
+                    }
+                }
+            }
+            assertThat(hashJoins, greaterThan(0));
+        }
+    }
+
+    public void testInvalidKeys() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        boolean duplicate = randomBoolean();
+        BlockFactory blockFactory = blockFactory();
+        Map<String, Column> table = new LinkedHashMap<>();
+        try (
+            LongBlock.Builder keys = blockFactory.newLongBlockBuilder(2);
+            BytesRefBlock.Builder values = blockFactory.newBytesRefBlockBuilder(2)
+        ) {
+            keys.appendLong(1);
+            if (duplicate) {
+                keys.appendLong(1);
+            } else {
+                keys.beginPositionEntry();
+                keys.appendLong(2);
+                keys.appendLong(3);
+                keys.endPositionEntry();
+            }
+            values.appendBytesRef(new BytesRef("a"));
+            values.appendBytesRef(new BytesRef("b"));
+            table.put("k", new Column(DataType.LONG, keys.build()));
+            table.put("name", new Column(DataType.KEYWORD, values.build()));
+        }
+        String query = "FROM test | LOOKUP names ON k | KEEP id, k, name";
+        String message = duplicate ? "found a duplicate row" : "only single valued keys are supported";
+        for (boolean hashJoin : new boolean[] { false, true }) {
+            Exception e = expectThrows(Exception.class, () -> run(request(query, table, hashJoin)).close());
+            Throwable cause = ExceptionsHelper.unwrap(e, IllegalArgumentException.class);
+            assertThat(cause, notNullValue());
+            assertThat(cause.getMessage(), containsString(message));
+        }
+    }
+
+    private static BlockFactory blockFactory() {
+        return new BlockFactory(new NoopCircuitBreaker(CircuitBreaker.REQUEST), BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    private static EsqlQueryRequest request(String query, Map<String, Column> table, boolean hashJoin) {
+        EsqlQueryRequest request = EsqlQueryRequest.syncEsqlQueryRequest();
+        request.query(query);
+        request.pragmas(new QueryPragmas(Settings.builder().put(QueryPragmas.HASH_JOIN.getKey(), hashJoin).build()));
+        request.profile(true);
+        request.addTable("names", table);
+        return request;
+    }
+}
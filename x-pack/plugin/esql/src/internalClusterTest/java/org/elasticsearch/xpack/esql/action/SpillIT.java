@@ -0,0 +1,141 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.esql.action;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.compute.operator.DriverProfile;
+import org.elasticsearch.compute.operator.DriverStatus;
+import org.elasticsearch.compute.operator.Operator;
+import org.elasticsearch.compute.operator.SpillingHashAggregationOperator;
+import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
+import org.elasticsearch.xpack.esql.plugin.QueryPragmas;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.elasticsearch.xpack.esql.EsqlTestUtils.getValuesList;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Runs queries with the pragmas that plan operators which spill to disk and
+ * checks that they spill and still produce the right results.
+ */
+public class SpillIT extends AbstractEsqlIntegTestCase {
+    private static final int GROUPS = 200;
+
+    /**
+     * The sum of {@code v} for each value of {@code k}.
+     */
+    private final TreeMap<Long, Long> sums = new TreeMap<>();
+
+    @Before
+    public void setupIndex() {
+        ElasticsearchAssertions.assertAcked(
+            client().admin()
+                .indices()
+                .prepareCreate("test")
+                .setSettings(
+                    Settings.builder()
+                        .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, between(1, 3))
+                        .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+                )
+                .setMapping("k", "type=long", "v", "type=long")
+        );
+        BulkRequestBuilder bulk = client().prepareBulk("test").setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        int docs = between(GROUPS, 5 * GROUPS);
+        for (int d = 0; d < docs; d++) {
+            long k = d % GROUPS;
+            long v = randomLongBetween(-1000, 1000);
+            bulk.add(new IndexRequest().source("k", k, "v", v));
+            sums.merge(k, v, Long::sum);
+        }
+        ElasticsearchAssertions.assertNoFailures(bulk.get());
+    }
+
+    public void testSpillingHashAggregation() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        QueryPragmas pragmas = pragmas(
+            Settings.builder().put(QueryPragmas.HASH_AGGREGATION_MAX_SIZE_IN_MEMORY.getKey(), between(1, 256) + "b")
+        );
+        EsqlQueryRequest request = EsqlQueryRequest.syncEsqlQueryRequest();
+        request.query("FROM test | STATS s = SUM(v) BY k | SORT k | LIMIT " + GROUPS);
+        request.pragmas(pragmas);
+        request.profile(true);
+        try (EsqlQueryResponse resp = run(request)) {
+            List<List<Object>> expected = new ArrayList<>();
+            sums.forEach((k, s) -> expected.add(List.of(s, k)));
+            assertThat(getValuesList(resp), equalTo(expected));
+
+            int pagesSpilled = 0;
+            for (Operator.Status status : operatorStatuses(resp)) {
+                if (status instanceof SpillingHashAggregationOperator.Status s) {
+                    pagesSpilled += s.pagesSpilled();
+                }
+            }
+            assertThat(pagesSpilled, greaterThan(0));
+        }
+    }
+
+    public void testSpillingTopN() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        QueryPragmas pragmas = pragmas(Settings.builder().put(QueryPragmas.TOPN_MAX_ROWS_IN_MEMORY.getKey(), between(1, GROUPS / 4)));
+        int limit = between(1, GROUPS);
+        EsqlQueryRequest request = EsqlQueryRequest.syncEsqlQueryRequest();
+        request.query("FROM test | STATS s = SUM(v) BY k | SORT s DESC, k | LIMIT " + limit);
+        request.pragmas(pragmas);
+        request.profile(true);
+        try (EsqlQueryResponse resp = run(request)) {
+            List<List<Object>> expected = new ArrayList<>();
+            sums.forEach((k, s) -> expected.add(List.of(s, k)));
+            expected.sort(
+                Comparator.<List<Object>, Long>comparing(r -> (Long) r.get(0)).reversed().thenComparing(r -> (Long) r.get(1))
+            );
+            assertThat(getValuesList(resp), equalTo(expected.subList(0, limit)));
+
+            List<String> spillingTopNs = new ArrayList<>();
+            for (DriverProfile driver : resp.profile().drivers()) {
+                for (DriverStatus.OperatorStatus operator : driver.operators()) {
+                    if (operator.operator().startsWith("SpillingTopNOperator[")) {
+                        spillingTopNs.add(operator.operator());
+                    }
+                }
+            }
+            assertThat(spillingTopNs, hasItem(not(containsString("runs=0"))));
+        }
+    }
+
+    /**
+     * Build pragmas with small pages so there's always more than one page to spill.
+     */
+    private static QueryPragmas pragmas(Settings.Builder settings) {
+        settings.put(QueryPragmas.PAGE_SIZE.getKey(), between(1, 20));
+        settings.put(QueryPragmas.SPILL_PARTITIONS.getKey(), between(1, 16));
+        return new QueryPragmas(settings.build());
+    }
+
+    private static List<Operator.Status> operatorStatuses(EsqlQueryResponse resp) {
+        List<Operator.Status> statuses = new ArrayList<>();
+        for (DriverProfile driver : resp.profile().drivers()) {
+            for (DriverStatus.OperatorStatus operator : driver.operators()) {
+                statuses.add(operator.status());
+            }
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.esql.plugin;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.IndicesRequestCache;
+import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
+import org.elasticsearch.xpack.core.watcher.common.stats.Counters;
+import org.elasticsearch.xpack.esql.action.AbstractEsqlIntegTestCase;
+import org.elasticsearch.xpack.esql.action.EsqlQueryResponse;
+
+import java.util.List;
+
+import static org.elasticsearch.xpack.esql.EsqlTestUtils.getValuesList;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ShardResultCacheIT extends AbstractEsqlIntegTestCase {
+
+    private static final QueryPragmas CACHING = new QueryPragmas(
+        Settings.builder()
+            .put(QueryPragmas.SHARD_RESULT_CACHE.getKey(), true)
+            .put(QueryPragmas.NODE_LEVEL_REDUCTION.getKey(), false)
+            .build()
+    );
+
+    public void testHitAndMiss() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        long hits = stat("shard_result_cache.hits");
+        long misses = stat("shard_result_cache.misses");
+        int shards = between(1, 3);
+        createIndex("test", true, shards);
+        long total = indexDocs(between(1, 100));
+
+        try (EsqlQueryResponse resp = run("FROM test | STATS s = SUM(v)", CACHING)) {
+            assertThat(getValuesList(resp), equalTo(List.of(List.of(total))));
+        }
+        assertThat(stat("shard_result_cache.misses"), equalTo(misses + shards));
+        assertThat(stat("shard_result_cache.hits"), equalTo(hits));
+        assertThat(stat("shard_result_cache.count"), equalTo((long) shards));
+
+        try (EsqlQueryResponse resp = run("FROM test | STATS s = SUM(v)", CACHING)) {
+            assertThat(getValuesList(resp), equalTo(List.of(List.of(total))));
+        }
+        assertThat(stat("shard_result_cache.misses"), equalTo(misses + shards));
+        assertThat(stat("shard_result_cache.hits"), equalTo(hits + shards));
+
+        // refreshing opens new readers for the shards that got docs so we have to run the query again on those
+        total += indexDocs(between(1, 100));
+        try (EsqlQueryResponse resp = run("FROM test | STATS s = SUM(v)", CACHING)) {
+            assertThat(getValuesList(resp), equalTo(List.of(List.of(total))));
+        }
+        assertThat(stat("shard_result_cache.misses"), greaterThan(misses + shards));
+        assertThat(stat("shard_result_cache.hits") + stat("shard_result_cache.misses"), equalTo(hits + misses + 3 * shards));
+    }
+
+    public void testDisabledByDefault() {
+        long misses = stat("shard_result_cache.misses");
+        createIndex("test", true, 1);
+        long total = indexDocs(between(1, 100));
+        for (int i = 0; i < 2; i++) {
+            try (EsqlQueryResponse resp = run("FROM test | STATS s = SUM(v)", QueryPragmas.EMPTY)) {
+                assertThat(getValuesList(resp), equalTo(List.of(List.of(total))));
+            }
+        }
+        assertThat(stat("shard_result_cache.misses"), equalTo(misses));
+    }
+
+    public void testDisabledForIndex() {
+        assumeTrue("requires query pragmas", canUseQueryPragmas());
+        long hits = stat("shard_result_cache.hits");
+        createIndex("test", false, 1);
+        long total = indexDocs(between(1, 100));
+        for (int i = 0; i < 2; i++) {
+            try (EsqlQueryResponse resp = run("FROM test | STATS s = SUM(v)", CACHING)) {
+                assertThat(getValuesList(resp), equalTo(List.of(List.of(total))));
+            }
+        }
+        assertThat(stat("shard_result_cache.hits"), equalTo(hits));
+    }
+
+    private void createIndex(String name, boolean requestCache, int shards) {
+        ElasticsearchAssertions.assertAcked(
+            client().admin()
+                .indices()
+                .prepareCreate(name)
+                .setSettings(
+                    Settings.builder()
+                        .put("index.number_of_shards", shards)
+                        .put("index.number_of_replicas", 0)
+                        .put("index.refresh_interval", -1)
+                        .put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), requestCache)
+                )
+                .setMapping("v", "type=long")
+        );
+    }
+
+    /**
+     * Index some docs to every shard and refresh, returning the sum of their values.
+     */
+    private long indexDocs(int count) {
+        BulkRequestBuilder bulk = client().prepareBulk("test").setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long v = randomLongBetween(0, 1000);
+            bulk.add(new IndexRequest().source("v", v));
+            total += v;
+        }
+        ElasticsearchAssertions.assertNoFailures(bulk.get());
+        return total;
+    }
+
+    private long stat(String name) {
+        long total = 0;
+        for (ShardResultCache cache : internalCluster().getInstances(ShardResultCache.class)) {
+            Counters counters = new Counters();
+            cache.stats(counters);
+            total += counters.get(name);
+        }
+        return total;
+    }
+}
@@ -22,10 +22,12 @@ import org.elasticsearch.core.Nullable;
 import org.elasticsearch.xpack.esql.Column;
 import org.elasticsearch.xpack.esql.core.InvalidArgumentException;
 import org.elasticsearch.xpack.esql.core.expression.Attribute;
+import org.elasticsearch.xpack.esql.core.expression.NameId;
 import org.elasticsearch.xpack.esql.core.type.EsField;
 import org.elasticsearch.xpack.esql.session.Configuration;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
@@ -65,6 +67,13 @@ public final class PlanStreamOutput extends StreamOutput implements org.elastics
      */
     protected final Map<EsField, Integer> cachedEsFields = new IdentityHashMap<>();
 
+    /**
+     * {@link NameId}s renumbered in the order they were first written or {@code null}
+     * if they are written as is.
+     */
+    @Nullable
+    private final Map<Long, Long> normalizedNameIds;
+
     private final StreamOutput delegate;
 
     private int nextCachedBlock = 0;
@@ -76,6 +85,27 @@ public final class PlanStreamOutput extends StreamOutput implements org.elastics
     }
 
     public PlanStreamOutput(StreamOutput delegate, @Nullable Configuration configuration, int maxSerializedAttributes) throws IOException {
+        this(delegate, configuration, maxSerializedAttributes, false);
+    }
+
+    /**
+     * Build a stream that writes each {@link NameId} as the order in which it was first
+     * written rather than its value on this node. Planning the same query twice produces
+     * plans that only differ in their {@linkplain NameId}s, so this writes the same bytes
+     * for both of them. The output can't be read back as a plan, it's only useful as a
+     * cache key.
+     */
+    public static PlanStreamOutput normalizingNameIds(StreamOutput delegate, @Nullable Configuration configuration) throws IOException {
+        return new PlanStreamOutput(delegate, configuration, MAX_SERIALIZED_ATTRIBUTES, true);
+    }
+
+    private PlanStreamOutput(
+        StreamOutput delegate,
+        @Nullable Configuration configuration,
+        int maxSerializedAttributes,
+        boolean normalizeNameIds
+    ) throws IOException {
+        this.normalizedNameIds = normalizeNameIds ? new HashMap<>() : null;
         this.delegate = delegate;
         if (configuration != null) {
             for (Map.Entry<String, Map<String, Column>> table : configuration.tables().entrySet()) {
@@ -209,6 +239,14 @@ public final class PlanStreamOutput extends StreamOutput implements org.elastics
         return id;
     }
 
+    @Override
+    public long mapNameId(long id) {
+        if (normalizedNameIds == null) {
+            return id;
+        }
+        return normalizedNameIds.computeIfAbsent(id, k -> (long) normalizedNameIds.size());
+    }
+
     /**
      * The byte representing a {@link Block} sent for the first time. The byte
      * will be followed by a {@link StreamOutput#writeVInt} encoded identifier
@@ -16,6 +16,7 @@ import org.elasticsearch.compute.data.ElementType;
 import org.elasticsearch.compute.operator.AggregationOperator;
 import org.elasticsearch.compute.operator.HashAggregationOperator.HashAggregationOperatorFactory;
 import org.elasticsearch.compute.operator.Operator;
+import org.elasticsearch.compute.operator.SpillingHashAggregationOperator.SpillingHashAggregationOperatorFactory;
 import org.elasticsearch.xpack.esql.EsqlIllegalArgumentException;
 import org.elasticsearch.xpack.esql.core.InvalidArgumentException;
 import org.elasticsearch.xpack.esql.core.expression.Alias;
@@ -158,6 +159,15 @@ public abstract class AbstractPhysicalOperationProviders implements PhysicalOper
                     groupSpecs.get(0).elementType(),
                     context
                 );
+            } else if (context.queryPragmas().hashAggregationMaxSizeInMemory().getBytes() > 0) {
+                operatorFactory = new SpillingHashAggregationOperatorFactory(
+                    groupSpecs.stream().map(GroupSpec::toHashGroupSpec).toList(),
+                    aggregatorFactories,
+                    context.pageSize(aggregateExec.estimatedRowSize()),
+                    context.queryPragmas().hashAggregationMaxSizeInMemory().getBytes(),
+                    context.queryPragmas().spillPartitions(),
+                    context.spillDirectory()
+                );
             } else {
                 operatorFactory = new HashAggregationOperatorFactory(
                     groupSpecs.stream().map(GroupSpec::toHashGroupSpec).toList(),
@@ -38,10 +38,14 @@ import org.elasticsearch.compute.operator.SinkOperator.SinkOperatorFactory;
 import org.elasticsearch.compute.operator.SourceOperator;
 import org.elasticsearch.compute.operator.SourceOperator.SourceOperatorFactory;
 import org.elasticsearch.compute.operator.StringExtractOperator;
-import org.elasticsearch.compute.operator.exchange.ExchangeSinkHandler;
+import org.elasticsearch.compute.operator.exchange.ExchangeSink;
 import org.elasticsearch.compute.operator.exchange.ExchangeSinkOperator.ExchangeSinkOperatorFactory;
 import org.elasticsearch.compute.operator.exchange.ExchangeSourceHandler;
 import org.elasticsearch.compute.operator.exchange.ExchangeSourceOperator.ExchangeSourceOperatorFactory;
+import org.elasticsearch.compute.operator.join.HashJoinBuildSide;
+import org.elasticsearch.compute.operator.join.HashJoinOperator;
+import org.elasticsearch.compute.operator.join.JoinType;
+import org.elasticsearch.compute.operator.topn.SpillingTopNOperator.SpillingTopNOperatorFactory;
 import org.elasticsearch.compute.operator.topn.TopNEncoder;
 import org.elasticsearch.compute.operator.topn.TopNOperator;
 import org.elasticsearch.compute.operator.topn.TopNOperator.TopNOperatorFactory;
@@ -71,6 +75,7 @@ import org.elasticsearch.xpack.esql.plan.physical.DissectExec;
 import org.elasticsearch.xpack.esql.plan.physical.EnrichExec;
 import org.elasticsearch.xpack.esql.plan.physical.EsQueryExec;
 import org.elasticsearch.xpack.esql.plan.physical.EsStatsQueryExec;
+import org.elasticsearch.xpack.esql.plan.physical.EstimatesRowSize;
 import org.elasticsearch.xpack.esql.plan.physical.EvalExec;
 import org.elasticsearch.xpack.esql.plan.physical.ExchangeExec;
 import org.elasticsearch.xpack.esql.plan.physical.ExchangeSinkExec;
@@ -91,7 +96,9 @@ import org.elasticsearch.xpack.esql.plan.physical.TopNExec;
 import org.elasticsearch.xpack.esql.plugin.QueryPragmas;
 import org.elasticsearch.xpack.esql.session.Configuration;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -99,6 +106,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -123,9 +131,13 @@ public class LocalExecutionPlanner {
     private final Settings settings;
     private final Configuration configuration;
     private final ExchangeSourceHandler exchangeSourceHandler;
-    private final ExchangeSinkHandler exchangeSinkHandler;
+    private final Supplier<ExchangeSink> exchangeSinkSupplier;
     private final EnrichLookupService enrichLookupService;
     private final PhysicalOperationProviders physicalOperationProviders;
+    /**
+     * Where operators that run out of memory write their spill files.
+     */
+    private final Path spillDirectory;
 
     public LocalExecutionPlanner(
         String sessionId,
@@ -136,9 +148,10 @@ public class LocalExecutionPlanner {
         Settings settings,
         Configuration configuration,
         ExchangeSourceHandler exchangeSourceHandler,
-        ExchangeSinkHandler exchangeSinkHandler,
+        Supplier<ExchangeSink> exchangeSinkSupplier,
         EnrichLookupService enrichLookupService,
-        PhysicalOperationProviders physicalOperationProviders
+        PhysicalOperationProviders physicalOperationProviders,
+        Path spillDirectory
     ) {
         this.sessionId = sessionId;
         this.clusterAlias = clusterAlias;
@@ -147,10 +160,11 @@ public class LocalExecutionPlanner {
         this.blockFactory = blockFactory;
         this.settings = settings;
         this.exchangeSourceHandler = exchangeSourceHandler;
-        this.exchangeSinkHandler = exchangeSinkHandler;
+        this.exchangeSinkSupplier = exchangeSinkSupplier;
         this.enrichLookupService = enrichLookupService;
         this.physicalOperationProviders = physicalOperationProviders;
         this.configuration = configuration;
+        this.spillDirectory = spillDirectory;
     }
 
     /**
@@ -163,7 +177,8 @@ public class LocalExecutionPlanner {
             configuration.pragmas(),
             bigArrays,
             blockFactory,
-            settings
+            settings,
+            spillDirectory
         );
 
         // workaround for https://github.com/elastic/elasticsearch/issues/99782
@@ -315,7 +330,7 @@ public class LocalExecutionPlanner {
     }
 
     private PhysicalOperation planExchangeSink(ExchangeSinkExec exchangeSink, LocalExecutionPlannerContext context) {
-        Objects.requireNonNull(exchangeSinkHandler, "ExchangeSinkHandler wasn't provided");
+        Objects.requireNonNull(exchangeSinkSupplier, "ExchangeSink wasn't provided");
         var child = exchangeSink.child();
 
         PhysicalOperation source = plan(child, context);
@@ -324,7 +339,7 @@ public class LocalExecutionPlanner {
             ? Function.identity()
             : alignPageToAttributes(exchangeSink.output(), source.layout);
 
-        return source.withSink(new ExchangeSinkOperatorFactory(exchangeSinkHandler::createExchangeSink, transformer), source.layout);
+        return source.withSink(new ExchangeSinkOperatorFactory(exchangeSinkSupplier, transformer), source.layout);
     }
 
     private PhysicalOperation planExchangeSource(ExchangeSourceExec exchangeSource, LocalExecutionPlannerContext context) {
@@ -391,16 +406,22 @@ public class LocalExecutionPlanner {
          * That'll be more accurate. And we don't have a path for estimating
          * incoming rows. And we don't need one because we can estimate.
          */
-        return source.with(
-            new TopNOperatorFactory(
-                limit,
-                asList(elementTypes),
-                asList(encoders),
-                orders,
-                context.pageSize(2000 + topNExec.estimatedRowSize())
-            ),
-            source.layout
-        );
+        int maxPageSize = context.pageSize(2000 + topNExec.estimatedRowSize());
+        if (context.queryPragmas().topNMaxRowsInMemory() > 0) {
+            return source.with(
+                new SpillingTopNOperatorFactory(
+                    limit,
+                    asList(elementTypes),
+                    asList(encoders),
+                    orders,
+                    maxPageSize,
+                    context.queryPragmas().topNMaxRowsInMemory(),
+                    context.spillDirectory()
+                ),
+                source.layout
+            );
+        }
+        return source.with(new TopNOperatorFactory(limit, asList(elementTypes), asList(encoders), orders, maxPageSize), source.layout);
     }
 
     private PhysicalOperation planEval(EvalExec eval, LocalExecutionPlannerContext context) {
@@ -429,7 +450,7 @@ public class LocalExecutionPlanner {
             new StringExtractOperator.StringExtractOperatorFactory(
                 patternNames,
                 EvalMapper.toEvaluator(expr, layout),
-                () -> (input) -> dissect.parser().parser().parse(input)
+                () -> (input) -> dissect.parser().parser().parse(input.bytes, input.offset, input.length)
             ),
             layout
         );
@@ -508,6 +529,9 @@ public class LocalExecutionPlanner {
         }
         Layout layout = layoutBuilder.build();
         Block[] localData = join.joinData().supplier().get();
+        if (context.queryPragmas().hashJoin()) {
+            return planTableHashJoin(join, source, layout, localData, context);
+        }
 
         RowInTableLookupOperator.Key[] keys = new RowInTableLookupOperator.Key[join.leftFields().size()];
         int[] blockMapping = new int[join.leftFields().size()];
@@ -556,6 +580,97 @@ public class LocalExecutionPlanner {
         return source.with(new ProjectOperatorFactory(projection), layout);
     }
 
+    /**
+     * Plan a {@link HashJoinExec} with the {@link HashJoinOperator}, using the table as the build side.
+     */
+    private PhysicalOperation planTableHashJoin(
+        HashJoinExec join,
+        PhysicalOperation source,
+        Layout layout,
+        Block[] localData,
+        LocalExecutionPlannerContext context
+    ) {
+        int probeWidth = source.layout.numberOfChannels();
+        int keyCount = join.leftFields().size();
+        // The build side is the keys followed by the fields we add
+        Block[] build = new Block[keyCount + join.addedFields().size()];
+        int[] probeKeys = new int[keyCount];
+        int[] buildKeys = new int[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            build[k] = localField(join, localData, ((NamedExpression) join.rightFields().get(k)).name());
+            probeKeys[k] = source.layout.get(join.leftFields().get(k).id()).channel();
+            buildKeys[k] = k;
+        }
+        for (int f = 0; f < join.addedFields().size(); f++) {
+            build[keyCount + f] = localField(join, localData, join.addedFields().get(f).name());
+        }
+        source = source.with(
+            new TableHashJoinOperatorFactory(
+                build,
+                probeKeys,
+                buildKeys,
+                context.pageSize(join.output().stream().mapToInt(a -> EstimatesRowSize.estimateSize(a.dataType())).sum()),
+                context.spillDirectory()
+            ),
+            layout
+        );
+
+        // Drop the keys from the build side
+        List<Integer> projection = new ArrayList<>();
+        IntStream.range(0, probeWidth).boxed().forEach(projection::add);
+        IntStream.range(probeWidth + keyCount, probeWidth + build.length).boxed().forEach(projection::add);
+        return source.with(new ProjectOperatorFactory(projection), layout);
+    }
+
+    private static Block localField(HashJoinExec join, Block[] localData, String name) {
+        for (int l = 0; l < join.joinData().output().size(); l++) {
+            if (join.joinData().output().get(l).name().equals(name)) {
+                return localData[l];
+            }
+        }
+        throw new IllegalArgumentException("can't find local data for [" + name + "]");
+    }
+
+    /**
+     * Builds a {@link JoinType#LOOKUP} {@link HashJoinOperator} for each driver that joins
+     * against a table sent with the request. Like {@link RowInTableLookupOperator.Factory}
+     * we never close the table's blocks, so each operator takes its own references to them.
+     * The table is already in memory so the operator never spills.
+     */
+    private record TableHashJoinOperatorFactory(Block[] build, int[] probeKeys, int[] buildKeys, int maxPageSize, Path spillDirectory)
+        implements
+            OperatorFactory {
+        @Override
+        public Operator get(DriverContext driverContext) {
+            List<ElementType> buildElementTypes = Arrays.stream(build).map(Block::elementType).toList();
+            try (HashJoinBuildSide buildSide = HashJoinBuildSide.of(List.of(new Page(build).shallowCopy()))) {
+                return new HashJoinOperator(
+                    buildSide,
+                    JoinType.LOOKUP,
+                    probeKeys,
+                    buildKeys,
+                    buildElementTypes,
+                    maxPageSize,
+                    Long.MAX_VALUE,
+                    1,
+                    spillDirectory,
+                    driverContext
+                );
+            }
+        }
+
+        @Override
+        public String describe() {
+            return "HashJoinOperator[type="
+                + JoinType.LOOKUP
+                + ", probeKeys="
+                + Arrays.toString(probeKeys)
+                + ", buildKeys="
+                + Arrays.toString(buildKeys)
+                + "]";
+        }
+    }
+
     private ExpressionEvaluator.Factory toEvaluator(Expression exp, Layout layout) {
         return EvalMapper.toEvaluator(exp, layout);
     }
@@ -747,7 +862,8 @@ public class LocalExecutionPlanner {
         QueryPragmas queryPragmas,
         BigArrays bigArrays,
         BlockFactory blockFactory,
-        Settings settings
+        Settings settings,
+        Path spillDirectory
     ) {
         void addDriverFactory(DriverFactory driverFactory) {
             driverFactories.add(driverFactory);
@@ -20,6 +20,7 @@ import org.elasticsearch.action.support.RefCountingListener;
 import org.elasticsearch.action.support.RefCountingRunnable;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.compute.data.BlockFactory;
 import org.elasticsearch.compute.data.Page;
@@ -72,6 +73,8 @@ import org.elasticsearch.xpack.esql.planner.PlannerUtils;
 import org.elasticsearch.xpack.esql.session.Configuration;
 import org.elasticsearch.xpack.esql.session.Result;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -82,6 +85,7 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static org.elasticsearch.xpack.esql.plugin.EsqlPlugin.ESQL_WORKER_THREAD_POOL_NAME;
 
@@ -100,6 +104,8 @@ public class ComputeService {
     private final ExchangeService exchangeService;
     private final EnrichLookupService enrichLookupService;
     private final ClusterService clusterService;
+    private final ShardResultCache shardResultCache;
+    private final Path spillDirectory;
 
     public ComputeService(
         SearchService searchService,
@@ -109,7 +115,9 @@ public class ComputeService {
         ClusterService clusterService,
         ThreadPool threadPool,
         BigArrays bigArrays,
-        BlockFactory blockFactory
+        BlockFactory blockFactory,
+        ShardResultCache shardResultCache,
+        Path spillDirectory
     ) {
         this.searchService = searchService;
         this.transportService = transportService;
@@ -127,6 +135,8 @@ public class ComputeService {
         this.exchangeService = exchangeService;
         this.enrichLookupService = enrichLookupService;
         this.clusterService = clusterService;
+        this.shardResultCache = shardResultCache;
+        this.spillDirectory = spillDirectory;
     }
 
     public void execute(
@@ -439,7 +449,8 @@ public class ComputeService {
                 context.exchangeSource(),
                 context.exchangeSink(),
                 enrichLookupService,
-                new EsPhysicalOperationProviders(contexts)
+                new EsPhysicalOperationProviders(contexts),
+                spillDirectory
             );
 
             LOGGER.debug("Received physical plan:\n{}", plan);
@@ -641,6 +652,7 @@ public class ComputeService {
         private final ComputeListener computeListener;
         private final int maxConcurrentShards;
         private final ExchangeSink blockingSink; // block until we have completed on all shards or the coordinator has enough data
+        private final BytesReference cacheablePlan; // null if the results can't be cached
 
         DataNodeRequestExecutor(
             DataNodeRequest request,
@@ -655,6 +667,17 @@ public class ComputeService {
             this.computeListener = computeListener;
             this.maxConcurrentShards = maxConcurrentShards;
             this.blockingSink = exchangeSink.createExchangeSink();
+            this.cacheablePlan = cacheablePlan(request);
+        }
+
+        private BytesReference cacheablePlan(DataNodeRequest request) {
+            try {
+                return shardResultCache.cacheablePlan(request.plan(), request.configuration());
+            } catch (IOException e) {
+                // the plan came over the wire so this shouldn't happen, but we can always run without the cache
+                LOGGER.debug("can't build a shard result cache key", e);
+                return null;
+            }
         }
 
         void start() {
@@ -693,11 +716,109 @@ public class ComputeService {
             };
             acquireSearchContexts(clusterAlias, shardIds, configuration, request.aliasFilters(), ActionListener.wrap(searchContexts -> {
                 assert ThreadPool.assertCurrentThreadPool(ThreadPool.Names.SEARCH, ESQL_WORKER_THREAD_POOL_NAME);
-                var computeContext = new ComputeContext(sessionId, clusterAlias, searchContexts, configuration, null, exchangeSink);
+                if (cacheablePlan != null) {
+                    runBatchWithCache(searchContexts, batchListener);
+                    return;
+                }
+                var computeContext = new ComputeContext(
+                    sessionId,
+                    clusterAlias,
+                    searchContexts,
+                    configuration,
+                    null,
+                    exchangeSink::createExchangeSink
+                );
                 runCompute(parentTask, computeContext, request.plan(), batchListener);
             }, batchListener::onFailure));
         }
 
+        /**
+         * Run a batch of shards, sending the results of shards in the {@link ShardResultCache} straight to the exchange and
+         * running each of the shards that could be cached on its own so we can capture its results. Shards that can't be
+         * cached run together like they would without the cache.
+         */
+        private void runBatchWithCache(List<SearchContext> searchContexts, ActionListener<ComputeResponse> batchListener) {
+            final List<SearchContext> uncacheable = new ArrayList<>();
+            try (var refs = new RefCountingListener(batchListener.map(ignored -> new ComputeResponse(List.of())))) {
+                for (int i = 0; i < searchContexts.size(); i++) {
+                    SearchContext searchContext = searchContexts.get(i);
+                    ShardResultCache.Key key;
+                    List<Page> cached = null;
+                    try {
+                        key = shardResultCache.key(searchContext, searchContext.request().getAliasFilter(), cacheablePlan);
+                        if (key != null) {
+                            cached = shardResultCache.get(key, blockFactory);
+                            if (cached != null) {
+                                Releasables.close(searchContext);
+                                sendCachedPages(cached);
+                                continue;
+                            }
+                        }
+                    } catch (Exception e) {
+                        // a hit has already released its context
+                        Releasables.close(searchContexts.subList(cached == null ? i : i + 1, searchContexts.size()));
+                        Releasables.close(uncacheable);
+                        refs.acquire().onFailure(e);
+                        return;
+                    }
+                    if (key == null) {
+                        uncacheable.add(searchContext);
+                    } else {
+                        runAndCache(searchContext, key, refs.acquire());
+                    }
+                }
+                if (uncacheable.isEmpty() == false) {
+                    var computeContext = new ComputeContext(
+                        request.sessionId(),
+                        request.clusterAlias(),
+                        uncacheable,
+                        request.configuration(),
+                        null,
+                        exchangeSink::createExchangeSink
+                    );
+                    runCompute(parentTask, computeContext, request.plan(), refs.acquire().map(ignored -> null));
+                }
+            }
+        }
+
+        private void sendCachedPages(List<Page> pages) {
+            ExchangeSink sink = exchangeSink.createExchangeSink();
+            for (int p = 0; p < pages.size(); p++) {
+                try {
+                    sink.addPage(pages.get(p));
+                } catch (Exception e) {
+                    for (int r = p + 1; r < pages.size(); r++) {
+                        pages.get(r).releaseBlocks();
+                    }
+                    throw e;
+                }
+            }
+            sink.finish();
+        }
+
+        private void runAndCache(SearchContext searchContext, ShardResultCache.Key key, ActionListener<Void> listener) {
+            final ShardResultCache.Collector collector = shardResultCache.newCollector();
+            final SearchExecutionContext searchExecutionContext = searchContext.getSearchExecutionContext();
+            var computeContext = new ComputeContext(
+                request.sessionId(),
+                request.clusterAlias(),
+                List.of(searchContext),
+                request.configuration(),
+                null,
+                () -> ShardResultCache.collecting(exchangeSink.createExchangeSink(), collector)
+            );
+            runCompute(parentTask, computeContext, request.plan(), listener.delegateFailureAndWrap((l, response) -> {
+                // if the coordinator stopped listening early the drivers may not have sent all of their pages
+                if (searchExecutionContext.isCacheable() && exchangeSink.isFinished() == false) {
+                    BytesReference pages = collector.pages();
+                    if (pages != null) {
+                        shardResultCache.put(key, pages);
+                    }
+                }
+                l.onResponse(null);
+            }));
+        }
+
         private void onBatchCompleted(int lastBatchIndex) {
             if (lastBatchIndex < request.shardIds().size() && exchangeSink.isFinished() == false) {
                 runBatch(lastBatchIndex);
@@ -746,7 +867,7 @@ public class ComputeService {
                     List.of(),
                     request.configuration(),
                     exchangeSource,
-                    externalSink
+                    externalSink::createExchangeSink
                 ),
                 reducePlan,
                 ActionListener.wrap(resp -> {
@@ -887,7 +1008,14 @@ public class ComputeService {
             );
             runCompute(
                 parentTask,
-                new ComputeContext(localSessionId, clusterAlias, List.of(), configuration, exchangeSource, exchangeSink),
+                new ComputeContext(
+                    localSessionId,
+                    clusterAlias,
+                    List.of(),
+                    configuration,
+                    exchangeSource,
+                    exchangeSink::createExchangeSink
+                ),
                 coordinatorPlan,
                 computeListener.acquireCompute(clusterAlias)
             );
@@ -912,7 +1040,7 @@ public class ComputeService {
         List<SearchContext> searchContexts,
         Configuration configuration,
         ExchangeSourceHandler exchangeSource,
-        ExchangeSinkHandler exchangeSink
+        Supplier<ExchangeSink> exchangeSink
     ) {
         public List<SearchExecutionContext> searchExecutionContexts() {
             return searchContexts.stream().map(ctx -> ctx.getSearchExecutionContext()).toList();
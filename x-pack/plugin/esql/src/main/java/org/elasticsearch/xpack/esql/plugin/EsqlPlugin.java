@@ -33,9 +33,11 @@ import org.elasticsearch.compute.operator.DriverStatus;
 import org.elasticsearch.compute.operator.HashAggregationOperator;
 import org.elasticsearch.compute.operator.LimitOperator;
 import org.elasticsearch.compute.operator.MvExpandOperator;
+import org.elasticsearch.compute.operator.SpillingHashAggregationOperator;
 import org.elasticsearch.compute.operator.exchange.ExchangeService;
 import org.elasticsearch.compute.operator.exchange.ExchangeSinkOperator;
 import org.elasticsearch.compute.operator.exchange.ExchangeSourceOperator;
+import org.elasticsearch.compute.operator.join.HashJoinOperator;
 import org.elasticsearch.compute.operator.topn.TopNOperatorStatus;
 import org.elasticsearch.features.NodeFeature;
 import org.elasticsearch.plugins.ActionPlugin;
@@ -118,7 +120,8 @@ public class EsqlPlugin extends Plugin implements ActionPlugin {
         return List.of(
             new PlanExecutor(new IndexResolver(services.client()), services.telemetryProvider().getMeterRegistry()),
             new ExchangeService(services.clusterService().getSettings(), services.threadPool(), ThreadPool.Names.SEARCH, blockFactory),
-            blockFactory
+            blockFactory,
+            new ShardResultCache(settings)
         );
     }
 
@@ -138,7 +141,12 @@ public class EsqlPlugin extends Plugin implements ActionPlugin {
      */
     @Override
     public List<Setting<?>> getSettings() {
-        return List.of(QUERY_RESULT_TRUNCATION_DEFAULT_SIZE, QUERY_RESULT_TRUNCATION_MAX_SIZE);
+        return List.of(
+            QUERY_RESULT_TRUNCATION_DEFAULT_SIZE,
+            QUERY_RESULT_TRUNCATION_MAX_SIZE,
+            ShardResultCache.CACHE_SIZE,
+            ShardResultCache.CACHE_EXPIRE
+        );
     }
 
     @Override
@@ -188,6 +196,8 @@ public class EsqlPlugin extends Plugin implements ActionPlugin {
         entries.add(LuceneOperator.Status.ENTRY);
         entries.add(TopNOperatorStatus.ENTRY);
         entries.add(MvExpandOperator.Status.ENTRY);
+        entries.add(SpillingHashAggregationOperator.Status.ENTRY);
+        entries.add(HashJoinOperator.Status.ENTRY);
         entries.add(ValuesSourceReaderOperator.Status.ENTRY);
         entries.add(SingleValueQuery.ENTRY);
         entries.add(AsyncOperator.Status.ENTRY);
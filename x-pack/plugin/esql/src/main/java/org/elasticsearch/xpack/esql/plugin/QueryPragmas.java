@@ -12,10 +12,15 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.compute.lucene.DataPartitioning;
 import org.elasticsearch.compute.operator.Driver;
 import org.elasticsearch.compute.operator.DriverStatus;
+import org.elasticsearch.compute.operator.SpillingHashAggregationOperator;
+import org.elasticsearch.compute.operator.join.HashJoinOperator;
+import org.elasticsearch.compute.operator.spill.KeyPartitioner;
+import org.elasticsearch.compute.operator.topn.SpillingTopNOperator;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -57,6 +62,21 @@ public final class QueryPragmas implements Writeable {
 
     public static final Setting<Boolean> NODE_LEVEL_REDUCTION = Setting.boolSetting("node_level_reduction", false);
 
+    public static final Setting<Boolean> SHARD_RESULT_CACHE = Setting.boolSetting("shard_result_cache", false);
+
+    public static final Setting<ByteSizeValue> HASH_AGGREGATION_MAX_SIZE_IN_MEMORY = Setting.byteSizeSetting(
+        "hash_aggregation_max_size_in_memory",
+        ByteSizeValue.ZERO,
+        ByteSizeValue.ZERO,
+        ByteSizeValue.ofBytes(Long.MAX_VALUE)
+    );
+
+    public static final Setting<Integer> TOPN_MAX_ROWS_IN_MEMORY = Setting.intSetting("topn_max_rows_in_memory", 0, 0);
+
+    public static final Setting<Boolean> HASH_JOIN = Setting.boolSetting("hash_join", false);
+
+    public static final Setting<Integer> SPILL_PARTITIONS = Setting.intSetting("spill_partitions", 16, 1, KeyPartitioner.MAX_PARTITIONS);
+
     public static final QueryPragmas EMPTY = new QueryPragmas(Settings.EMPTY);
 
     private final Settings settings;
@@ -134,6 +154,48 @@ public final class QueryPragmas implements Writeable {
         return NODE_LEVEL_REDUCTION.get(settings);
     }
 
+    /**
+     * Returns true if data nodes may serve the results of this query for a shard from the {@link ShardResultCache}
+     * and store them there. On a miss each shard that could be cached runs on its own drivers so we can capture its
+     * results, which is slower than running the whole batch together. That's a bad trade for indices that refresh
+     * between queries, so this defaults to false.
+     */
+    public boolean shardResultCache() {
+        return SHARD_RESULT_CACHE.get(settings);
+    }
+
+    /**
+     * The size of the hash and aggregation state a grouping {@code STATS} keeps in memory before it spills its input
+     * to disk with the {@link SpillingHashAggregationOperator}. {@code 0}, the default, never spills.
+     */
+    public ByteSizeValue hashAggregationMaxSizeInMemory() {
+        return HASH_AGGREGATION_MAX_SIZE_IN_MEMORY.get(settings);
+    }
+
+    /**
+     * The number of rows a {@code SORT} with a {@code LIMIT} buffers in memory before it sorts them and spills the
+     * best of them to disk with the {@link SpillingTopNOperator}. {@code 0}, the default, never spills.
+     */
+    public int topNMaxRowsInMemory() {
+        return TOPN_MAX_ROWS_IN_MEMORY.get(settings);
+    }
+
+    /**
+     * Returns true if {@code LOOKUP} should join with the {@link HashJoinOperator} instead of looking up each row
+     * in the table. Both return the same rows, in the same order, and reject tables with duplicate or multivalued
+     * keys. This defaults to false.
+     */
+    public boolean hashJoin() {
+        return HASH_JOIN.get(settings);
+    }
+
+    /**
+     * The number of files operators that spill to disk split their input into. Each partition must fit in memory on its own.
+     */
+    public int spillPartitions() {
+        return SPILL_PARTITIONS.get(settings);
+    }
+
     public boolean isEmpty() {
         return settings.isEmpty();
     }
@@ -0,0 +1,378 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.esql.plugin;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CounterMetric;
+import org.elasticsearch.compute.data.Block;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.BlockStreamInput;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.compute.operator.IsBlockedResult;
+import org.elasticsearch.compute.operator.exchange.ExchangeSink;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.mapper.MappingLookup;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.ESCacheHelper;
+import org.elasticsearch.indices.IndicesRequestCache;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.xpack.core.watcher.common.stats.Counters;
+import org.elasticsearch.xpack.esql.io.stream.PlanStreamOutput;
+import org.elasticsearch.xpack.esql.plan.logical.Enrich;
+import org.elasticsearch.xpack.esql.plan.logical.Lookup;
+import org.elasticsearch.xpack.esql.plan.logical.join.Join;
+import org.elasticsearch.xpack.esql.plan.physical.ExchangeSinkExec;
+import org.elasticsearch.xpack.esql.plan.physical.FragmentExec;
+import org.elasticsearch.xpack.esql.plan.physical.PhysicalPlan;
+import org.elasticsearch.xpack.esql.session.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the pages a data node sends to the coordinator for a single shard so that
+ * running the same query again against a shard that hasn't refreshed skips the work
+ * entirely. This is the ESQL flavor of the {@link IndicesRequestCache}: entries are
+ * keyed on the plan the coordinator sent, the shard's reader and its mapping. When
+ * a reader is closed all of its entries are dropped the next time the cache is used.
+ * <p>
+ *     Cached pages are stored serialized, in the same format they are sent over the
+ *     wire, so the cache doesn't hold on to {@link Block}s tracked by a
+ *     {@link BlockFactory}. They are deserialized with the {@link BlockFactory} of the
+ *     query that hits the cache.
+ * </p>
+ */
+public final class ShardResultCache {
+    public static final Setting<ByteSizeValue> CACHE_SIZE = Setting.memorySizeSetting(
+        "esql.shard_result_cache.size",
+        "1%",
+        Property.NodeScope
+    );
+    public static final Setting<TimeValue> CACHE_EXPIRE = Setting.positiveTimeSetting(
+        "esql.shard_result_cache.expire",
+        TimeValue.ZERO,
+        Property.NodeScope
+    );
+
+    /**
+     * Results for a single shard that are larger than this fraction of the cache aren't cached.
+     */
+    static final int MAX_ENTRY_FRACTION = 10;
+
+    private static final NamedWriteableRegistry REGISTRY = new NamedWriteableRegistry(Block.getNamedWriteables());
+
+    private final ConcurrentMap<Object, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    private final Set<Object> closedReaders = ConcurrentCollections.newConcurrentSet();
+    private final Cache<Key, BytesReference> cache;
+    private final long maxEntryBytes;
+    private final CounterMetric skipped = new CounterMetric();
+
+    public ShardResultCache(Settings settings) {
+        long size = CACHE_SIZE.get(settings).getBytes();
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
+            .setMaximumWeight(size)
+            .weigher((k, v) -> k.ramBytesUsed() + v.length());
+        if (CACHE_EXPIRE.exists(settings)) {
+            cacheBuilder.setExpireAfterAccess(CACHE_EXPIRE.get(settings));
+        }
+        this.cache = cacheBuilder.build();
+        this.maxEntryBytes = size / MAX_ENTRY_FRACTION;
+    }
+
+    /**
+     * Is the cache turned on at all?
+     */
+    public boolean enabled() {
+        return maxEntryBytes > 0;
+    }
+
+    /**
+     * Serialize the plan sent to the data node into the part of the key shared by all of its
+     * shards. Returns {@code null} if the results of this plan can't be cached. We only cache
+     * the intermediate results of aggregations because those are small and always complete.
+     * Anything that reads from somewhere other than the shard, like {@code ENRICH} or
+     * {@code LOOKUP}, can't be cached because we don't know when its results change.
+     */
+    @Nullable
+    BytesReference cacheablePlan(PhysicalPlan plan, Configuration configuration) throws IOException {
+        if (enabled() == false || configuration.pragmas().shardResultCache() == false) {
+            return null;
+        }
+        if (configuration.profile() || configuration.tables().isEmpty() == false) {
+            return null;
+        }
+        if ((plan instanceof ExchangeSinkExec sink && sink.isIntermediateAgg()) == false) {
+            return null;
+        }
+        boolean readsElsewhere = plan.anyMatch(
+            p -> p instanceof FragmentExec f && f.fragment().anyMatch(l -> l instanceof Enrich || l instanceof Lookup || l instanceof Join)
+        );
+        if (readsElsewhere) {
+            return null;
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            PlanStreamOutput planOut = PlanStreamOutput.normalizingNameIds(out, configuration);
+            planOut.writeNamedWriteable(plan);
+            planOut.writeZoneId(configuration.zoneId());
+            planOut.writeString(configuration.locale().toLanguageTag());
+            return out.copyBytes();
+        }
+    }
+
+    /**
+     * Build the key for a shard. Returns {@code null} if the results for this shard can't be cached,
+     * either because caching is disabled for its index or because the reader has been wrapped, say
+     * by document or field level security, so its cache key doesn't identify what the query can see.
+     */
+    @Nullable
+    Key key(SearchContext searchContext, AliasFilter aliasFilter, BytesReference plan) {
+        IndexSettings indexSettings = searchContext.indexShard().indexSettings();
+        if (IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.get(indexSettings.getSettings()) == false) {
+            return null;
+        }
+        return key(
+            searchContext.shardTarget().getShardId(),
+            searchContext.getSearchExecutionContext().mappingCacheKey(),
+            searchContext.searcher().getDirectoryReader(),
+            aliasFilter,
+            plan
+        );
+    }
+
+    @Nullable
+    Key key(
+        ShardId shardId,
+        MappingLookup.CacheKey mappingCacheKey,
+        DirectoryReader reader,
+        AliasFilter aliasFilter,
+        BytesReference plan
+    ) {
+        if (reader instanceof ElasticsearchDirectoryReader == false) {
+            return null;
+        }
+        ESCacheHelper cacheHelper = ElasticsearchDirectoryReader.getESReaderCacheHelper(reader);
+        if (cacheHelper == null) {
+            return null;
+        }
+        Key key = new Key(shardId, mappingCacheKey, cacheHelper.getKey(), aliasFilter, plan);
+        if (registeredClosedListeners.putIfAbsent(key.readerCacheKey, Boolean.TRUE) == null) {
+            cacheHelper.addClosedListener(readerCacheKey -> {
+                registeredClosedListeners.remove(readerCacheKey);
+                closedReaders.add(readerCacheKey);
+            });
+        }
+        return key;
+    }
+
+    /**
+     * Fetch the cached pages for a shard, or {@code null} if there aren't any.
+     */
+    @Nullable
+    List<Page> get(Key key, BlockFactory blockFactory) {
+        cleanCache();
+        BytesReference cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        try {
+            return readPages(cached, blockFactory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void put(Key key, BytesReference pages) {
+        if (registeredClosedListeners.containsKey(key.readerCacheKey) == false) {
+            /*
+             * The reader has been closed while we ran the query, no one can hit this entry. If it
+             * closes after this check then its entries are dropped the next time we clean.
+             */
+            return;
+        }
+        cache.put(key, pages);
+    }
+
+    /**
+     * Build an {@link ExchangeSink} that sends pages to {@code delegate} and keeps a serialized
+     * copy of each of them in {@code collector}.
+     */
+    static ExchangeSink collecting(ExchangeSink delegate, Collector collector) {
+        return new ExchangeSink() {
+            @Override
+            public void addPage(Page page) {
+                collector.collect(page);
+                delegate.addPage(page);
+            }
+
+            @Override
+            public void finish() {
+                delegate.finish();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return delegate.isFinished();
+            }
+
+            @Override
+            public IsBlockedResult waitForWriting() {
+                return delegate.waitForWriting();
+            }
+        };
+    }
+
+    /**
+     * Make a {@link Collector} for the results of a single shard.
+     */
+    Collector newCollector() {
+        return new Collector(maxEntryBytes);
+    }
+
+    /**
+     * Collects serialized copies of the pages a shard sends to the exchange. Each shard may
+     * run on many drivers at once so this is thread safe.
+     */
+    final class Collector {
+        private final long maxBytes;
+        private BytesStreamOutput out = new BytesStreamOutput();
+        private int pageCount;
+
+        private Collector(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void collect(Page page) {
+            if (out == null) {
+                return;
+            }
+            try {
+                page.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pageCount++;
+            if (out.size() > maxBytes) {
+                // too big to be worth caching, stop copying
+                out = null;
+                skipped.inc();
+            }
+        }
+
+        /**
+         * The collected pages, or {@code null} if there were too many of them to cache.
+         */
+        @Nullable
+        synchronized BytesReference pages() throws IOException {
+            if (out == null) {
+                return null;
+            }
+            try (BytesStreamOutput result = new BytesStreamOutput(out.size() + 5)) {
+                result.writeVInt(pageCount);
+                out.bytes().writeTo(result);
+                return result.copyBytes();
+            }
+        }
+    }
+
+    private static List<Page> readPages(BytesReference cached, BlockFactory blockFactory) throws IOException {
+        try (
+            StreamInput in = new BlockStreamInput(new NamedWriteableAwareStreamInput(cached.streamInput(), REGISTRY), blockFactory)
+        ) {
+            int count = in.readVInt();
+            List<Page> pages = new ArrayList<>(count);
+            boolean success = false;
+            try {
+                for (int i = 0; i < count; i++) {
+                    pages.add(new Page(in));
+                }
+                success = true;
+                return pages;
+            } finally {
+                if (success == false) {
+                    Releasables.closeExpectNoException(Releasables.wrap(pages.stream().map(p -> (Releasable) p::releaseBlocks).toList()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the entries for all readers that have been closed since the last time we cleaned.
+     */
+    void cleanCache() {
+        if (closedReaders.isEmpty()) {
+            return;
+        }
+        Set<Object> toClean = ConcurrentCollections.newConcurrentSet();
+        for (Iterator<Object> itr = closedReaders.iterator(); itr.hasNext();) {
+            toClean.add(itr.next());
+            itr.remove();
+        }
+        for (Iterator<Key> itr = cache.keys().iterator(); itr.hasNext();) {
+            if (toClean.contains(itr.next().readerCacheKey)) {
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * Add the stats for this cache to {@code counters}.
+     */
+    void stats(Counters counters) {
+        Cache.CacheStats stats = cache.stats();
+        counters.inc("shard_result_cache.hits", stats.getHits());
+        counters.inc("shard_result_cache.misses", stats.getMisses());
+        counters.inc("shard_result_cache.evictions", stats.getEvictions());
+        counters.inc("shard_result_cache.skipped", skipped.count());
+        counters.inc("shard_result_cache.count", cache.count());
+        counters.inc("shard_result_cache.memory_size_in_bytes", cache.weight());
+    }
+
+    int count() {
+        return cache.count();
+    }
+
+    record Key(
+        ShardId shardId,
+        MappingLookup.CacheKey mappingCacheKey,
+        Object readerCacheKey,
+        AliasFilter aliasFilter,
+        BytesReference plan
+    ) implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + plan.length();
+        }
+    }
+}
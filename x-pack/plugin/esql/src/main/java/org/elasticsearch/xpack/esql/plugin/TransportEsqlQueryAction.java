@@ -19,6 +19,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.compute.data.BlockFactory;
 import org.elasticsearch.compute.operator.exchange.ExchangeService;
+import org.elasticsearch.env.Environment;
 import org.elasticsearch.injection.guice.Inject;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.tasks.CancellableTask;
@@ -80,6 +81,8 @@ public class TransportEsqlQueryAction extends HandledTransportAction<EsqlQueryRe
         ThreadPool threadPool,
         BigArrays bigArrays,
         BlockFactory blockFactory,
+        ShardResultCache shardResultCache,
+        Environment environment,
         Client client,
         NamedWriteableRegistry registry
 
@@ -102,7 +105,9 @@ public class TransportEsqlQueryAction extends HandledTransportAction<EsqlQueryRe
             clusterService,
             threadPool,
             bigArrays,
-            blockFactory
+            blockFactory,
+            shardResultCache,
+            environment.tmpFile()
         );
         this.asyncTaskManagementService = new AsyncTaskManagementService<>(
             XPackPlugin.ASYNC_RESULTS_INDEX,
@@ -19,6 +19,7 @@ import org.elasticsearch.injection.guice.Inject;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
+import org.elasticsearch.xpack.core.watcher.common.stats.Counters;
 import org.elasticsearch.xpack.esql.execution.PlanExecutor;
 
 import java.io.IOException;
@@ -39,6 +40,7 @@ public class TransportEsqlStatsAction extends TransportNodesAction<
     // the plan executor holds the metrics
     private final FeatureService featureService;
     private final PlanExecutor planExecutor;
+    private final ShardResultCache shardResultCache;
 
     @Inject
     public TransportEsqlStatsAction(
@@ -47,7 +49,8 @@ public class TransportEsqlStatsAction extends TransportNodesAction<
         FeatureService featureService,
         ThreadPool threadPool,
         ActionFilters actionFilters,
-        PlanExecutor planExecutor
+        PlanExecutor planExecutor,
+        ShardResultCache shardResultCache
     ) {
         super(
             EsqlStatsAction.NAME,
@@ -59,6 +62,7 @@ public class TransportEsqlStatsAction extends TransportNodesAction<
         );
         this.featureService = featureService;
         this.planExecutor = planExecutor;
+        this.shardResultCache = shardResultCache;
     }
 
     @Override
@@ -94,7 +98,9 @@ public class TransportEsqlStatsAction extends TransportNodesAction<
     @Override
     protected EsqlStatsResponse.NodeStatsResponse nodeOperation(EsqlStatsRequest.NodeStatsRequest request, Task task) {
         EsqlStatsResponse.NodeStatsResponse statsResponse = new EsqlStatsResponse.NodeStatsResponse(clusterService.localNode());
-        statsResponse.setStats(planExecutor.metrics().stats());
+        Counters stats = planExecutor.metrics().stats();
+        shardResultCache.stats(stats);
+        statsResponse.setStats(stats);
         return statsResponse;
     }
 }
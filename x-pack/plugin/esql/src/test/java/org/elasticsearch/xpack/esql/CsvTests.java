@@ -539,9 +539,10 @@ public class CsvTests extends ESTestCase {
             randomNodeSettings(),
             configuration,
             exchangeSource,
-            exchangeSink,
+            exchangeSink::createExchangeSink,
             Mockito.mock(EnrichLookupService.class),
-            physicalOperationProviders
+            physicalOperationProviders,
+            createTempDir()
         );
 
         List<Page> collectedPages = Collections.synchronizedList(new ArrayList<>());
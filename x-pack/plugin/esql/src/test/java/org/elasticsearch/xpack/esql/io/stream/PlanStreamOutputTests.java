@@ -9,6 +9,7 @@ package org.elasticsearch.xpack.esql.io.stream;
 
 import org.elasticsearch.TransportVersion;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.util.BigArrays;
@@ -231,6 +232,44 @@ public class PlanStreamOutputTests extends ESTestCase {
         }
     }
 
+    public void testNormalizingNameIds() throws IOException {
+        Configuration configuration = randomConfiguration();
+        Attribute one = randomAttribute();
+        Attribute other = randomAttribute();
+        Attribute oneCopy = one.withId(new NameId());
+        Attribute otherCopy = other.withId(new NameId());
+
+        BytesReference original = writeNormalizing(configuration, one, other, one);
+        assertThat(writeNormalizing(configuration, oneCopy, otherCopy, oneCopy), equalTo(original));
+        // same attributes in a different order refer to each other differently
+        assertThat(writeNormalizing(configuration, oneCopy, otherCopy, otherCopy), not(equalTo(original)));
+
+        try (BytesStreamOutput out = new BytesStreamOutput(); PlanStreamOutput planStream = new PlanStreamOutput(out, configuration)) {
+            planStream.writeNamedWriteable(one);
+            planStream.writeNamedWriteable(other);
+            planStream.writeNamedWriteable(one);
+            try (
+                BytesStreamOutput copyOut = new BytesStreamOutput();
+                PlanStreamOutput copyStream = new PlanStreamOutput(copyOut, configuration)
+            ) {
+                copyStream.writeNamedWriteable(oneCopy);
+                copyStream.writeNamedWriteable(otherCopy);
+                copyStream.writeNamedWriteable(oneCopy);
+                assertThat(copyOut.bytes(), not(equalTo(out.bytes())));
+            }
+        }
+    }
+
+    private static BytesReference writeNormalizing(Configuration configuration, Attribute... attributes) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            PlanStreamOutput planStream = PlanStreamOutput.normalizingNameIds(out, configuration);
+            for (Attribute attribute : attributes) {
+                planStream.writeNamedWriteable(attribute);
+            }
+            return out.copyBytes();
+        }
+    }
+
     public void testWriteMultipleEsFields() throws IOException {
         Configuration configuration = randomConfiguration();
         try (BytesStreamOutput out = new BytesStreamOutput(); PlanStreamOutput planStream = new PlanStreamOutput(out, configuration)) {
@@ -0,0 +1,197 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.esql.plugin;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.compute.data.BlockFactory;
+import org.elasticsearch.compute.data.Page;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.core.watcher.common.stats.Counters;
+import org.elasticsearch.xpack.esql.TestBlockFactory;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardResultCacheTests extends ESTestCase {
+    private final BlockFactory blockFactory = TestBlockFactory.getNonBreakingInstance();
+    private Directory dir;
+    private IndexWriter writer;
+    private DirectoryReader reader;
+
+    @Before
+    public void openReader() throws IOException {
+        dir = newDirectory();
+        writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(new Document());
+        reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("test", "_na_", 0));
+    }
+
+    @After
+    public void closeReader() throws IOException {
+        IOUtils.close(reader, writer, dir);
+    }
+
+    public void testRoundTrip() throws IOException {
+        ShardResultCache cache = new ShardResultCache(Settings.EMPTY);
+        assertTrue(cache.enabled());
+        ShardResultCache.Key key = randomKey(cache);
+        assertThat(cache.get(key, blockFactory), nullValue());
+
+        List<Page> expected = new ArrayList<>();
+        ShardResultCache.Collector collector = cache.newCollector();
+        int pageCount = between(1, 10);
+        for (int p = 0; p < pageCount; p++) {
+            Page page = randomPage(between(1, 100));
+            collector.collect(page);
+            expected.add(page);
+        }
+        cache.put(key, collector.pages());
+
+        List<Page> actual = cache.get(key, blockFactory);
+        try {
+            assertThat(actual, equalTo(expected));
+        } finally {
+            expected.forEach(Page::releaseBlocks);
+            actual.forEach(Page::releaseBlocks);
+        }
+
+        Counters stats = new Counters();
+        cache.stats(stats);
+        assertThat(stats.get("shard_result_cache.hits"), equalTo(1L));
+        assertThat(stats.get("shard_result_cache.misses"), equalTo(1L));
+        assertThat(stats.get("shard_result_cache.count"), equalTo(1L));
+        assertThat(stats.get("shard_result_cache.memory_size_in_bytes"), greaterThan(0L));
+    }
+
+    public void testEvictsBySize() throws IOException {
+        ShardResultCache cache = new ShardResultCache(Settings.builder().put(ShardResultCache.CACHE_SIZE.getKey(), "10kb").build());
+        int entries = between(100, 200);
+        for (int i = 0; i < entries; i++) {
+            ShardResultCache.Collector collector = cache.newCollector();
+            Page page = randomPage(10);
+            try {
+                collector.collect(page);
+            } finally {
+                page.releaseBlocks();
+            }
+            cache.put(randomKey(cache), collector.pages());
+        }
+        Counters stats = new Counters();
+        cache.stats(stats);
+        assertThat(stats.get("shard_result_cache.evictions"), greaterThan(0L));
+        assertThat(stats.get("shard_result_cache.count"), equalTo(entries - stats.get("shard_result_cache.evictions")));
+        assertThat(stats.get("shard_result_cache.memory_size_in_bytes"), lessThanOrEqualTo(10L * 1024));
+    }
+
+    public void testSkipsLargeResults() throws IOException {
+        ShardResultCache cache = new ShardResultCache(Settings.builder().put(ShardResultCache.CACHE_SIZE.getKey(), "1kb").build());
+        ShardResultCache.Collector collector = cache.newCollector();
+        int pageCount = between(1, 5);
+        for (int p = 0; p < pageCount; p++) {
+            Page page = randomPage(1000);
+            try {
+                collector.collect(page);
+            } finally {
+                page.releaseBlocks();
+            }
+        }
+        assertThat(collector.pages(), nullValue());
+
+        Counters stats = new Counters();
+        cache.stats(stats);
+        assertThat(stats.get("shard_result_cache.skipped"), equalTo(1L));
+    }
+
+    public void testInvalidatedWhenReaderCloses() throws IOException {
+        ShardResultCache cache = new ShardResultCache(Settings.EMPTY);
+        ShardId shardId = new ShardId("test", "_na_", 0);
+        DirectoryReader closing = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), shardId);
+        ShardResultCache.Key key;
+        try {
+            key = cache.key(shardId, null, closing, AliasFilter.EMPTY, new BytesArray(randomByteArrayOfLength(10)));
+            assertThat(key, notNullValue());
+            cache.put(key, collectRandomPage(cache));
+            List<Page> cached = cache.get(key, blockFactory);
+            assertThat(cached, notNullValue());
+            cached.forEach(Page::releaseBlocks);
+            assertThat(cache.count(), equalTo(1));
+        } finally {
+            closing.close();
+        }
+        assertThat(cache.get(key, blockFactory), nullValue());
+        assertThat(cache.count(), equalTo(0));
+
+        // a query that was running when the reader closed doesn't get to add to the cache
+        cache.put(key, collectRandomPage(cache));
+        assertThat(cache.count(), equalTo(0));
+    }
+
+    public void testKeyRequiresElasticsearchReader() throws IOException {
+        ShardResultCache cache = new ShardResultCache(Settings.EMPTY);
+        try (DirectoryReader plain = DirectoryReader.open(writer)) {
+            ShardId shardId = new ShardId("test", "_na_", 0);
+            assertThat(cache.key(shardId, null, plain, AliasFilter.EMPTY, new BytesArray(new byte[] { 1 })), nullValue());
+        }
+    }
+
+    public void testDisabled() {
+        ShardResultCache cache = new ShardResultCache(Settings.builder().put(ShardResultCache.CACHE_SIZE.getKey(), "0b").build());
+        assertFalse(cache.enabled());
+    }
+
+    private BytesReference collectRandomPage(ShardResultCache cache) throws IOException {
+        ShardResultCache.Collector collector = cache.newCollector();
+        Page page = randomPage(10);
+        try {
+            collector.collect(page);
+        } finally {
+            page.releaseBlocks();
+        }
+        return collector.pages();
+    }
+
+    private Page randomPage(int positions) {
+        int[] values = new int[positions];
+        for (int i = 0; i < positions; i++) {
+            values[i] = randomInt();
+        }
+        return new Page(
+            blockFactory.newIntArrayVector(values, positions).asBlock(),
+            blockFactory.newConstantLongBlockWith(randomLong(), positions)
+        );
+    }
+
+    private ShardResultCache.Key randomKey(ShardResultCache cache) {
+        return cache.key(
+            new ShardId(randomAlphaOfLength(5), "_na_", between(0, 5)),
+            null,
+            reader,
+            AliasFilter.EMPTY,
+            new BytesArray(randomByteArrayOfLength(between(1, 100)))
+        );
+    }
+}
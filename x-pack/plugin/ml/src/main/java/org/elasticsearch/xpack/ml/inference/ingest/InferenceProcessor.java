@@ -70,6 +70,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import static org.elasticsearch.core.Strings.format;
 import static org.elasticsearch.ingest.ConfigurationUtils.newConfigurationException;
 import static org.elasticsearch.ingest.IngestDocument.INGEST_KEY;
 import static org.elasticsearch.xpack.core.ClientHelper.ML_ORIGIN;
@@ -77,6 +78,8 @@ import static org.elasticsearch.xpack.core.ClientHelper.executeAsyncWithOrigin;
 
 public class InferenceProcessor extends AbstractProcessor {
 
+    private static final Logger logger = LogManager.getLogger(InferenceProcessor.class);
+
     // How many total inference processors are allowed to be used in the cluster.
     public static final Setting<Integer> MAX_INFERENCE_PROCESSORS = Setting.intSetting(
         "xpack.ml.max_inference_processors",
@@ -86,6 +89,9 @@ public class InferenceProcessor extends AbstractProcessor {
         Setting.Property.NodeScope
     );
 
+    // The most documents whose inputs are sent in a single inference request, so each request fits the ingest inference timeout.
+    static final int MAX_BATCH_SIZE = 32;
+
     public static final String TYPE = InferenceProcessorConstants.TYPE;
     public static final String MODEL_ID = "model_id";
     public static final String INFERENCE_CONFIG = InferenceProcessorConstants.INFERENCE_CONFIG;
@@ -213,13 +219,114 @@ public class InferenceProcessor extends AbstractProcessor {
         );
     }
 
-    void handleResponse(InferModelAction.Response response, IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
-        if (previouslyLicensed == false) {
-            previouslyLicensed = true;
+    @Override
+    public boolean supportsBatchExecution() {
+        return true;
+    }
+
+    /**
+     * Sends an inference request per chunk of at most {@link #MAX_BATCH_SIZE} documents with the inputs of all of the documents in the
+     * chunk, rather than a request per document. Inference fails the whole request if any of its inputs fails, so the documents of a
+     * chunk that fails are retried one at a time, see {@link #execute}, and only the documents that fail on their own fail.
+     */
+    @Override
+    public void executeBatch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        List<IngestDocument> batch = new ArrayList<>(documents.size());
+        List<BiConsumer<IngestDocument, Exception>> batchHandlers = new ArrayList<>(documents.size());
+        List<String> textInputs = new ArrayList<>();
+        List<Map<String, Object>> objectInputs = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            IngestDocument ingestDocument = documents.get(i);
+            try {
+                if (configuredWithInputsFields) {
+                    List<String> documentInputs = buildTextInputs(ingestDocument);
+                    if (documentInputs == null) {
+                        handlers.get(i).accept(ingestDocument, null);
+                        continue;
+                    }
+                    textInputs.addAll(documentInputs);
+                } else {
+                    objectInputs.add(buildObjectInput(ingestDocument));
+                }
+            } catch (Exception e) {
+                handlers.get(i).accept(ingestDocument, e);
+                continue;
+            }
+            batch.add(ingestDocument);
+            batchHandlers.add(handlers.get(i));
         }
-        if (response.isLicensed() == false) {
-            auditWarningAboutLicenseIfNecessary();
+
+        int inputsPerDocument = configuredWithInputsFields ? inputs.size() : 1;
+        for (int from = 0; from < batch.size(); from += MAX_BATCH_SIZE) {
+            int to = Math.min(from + MAX_BATCH_SIZE, batch.size());
+            executeChunk(
+                batch.subList(from, to),
+                batchHandlers.subList(from, to),
+                configuredWithInputsFields
+                    ? buildTextRequest(textInputs.subList(from * inputsPerDocument, to * inputsPerDocument))
+                    : buildObjectRequest(objectInputs.subList(from, to))
+            );
         }
+    }
+
+    private void executeChunk(
+        List<IngestDocument> chunk,
+        List<BiConsumer<IngestDocument, Exception>> chunkHandlers,
+        CoordinatedInferenceAction.Request request
+    ) {
+        executeAsyncWithOrigin(
+            client,
+            ML_ORIGIN,
+            CoordinatedInferenceAction.INSTANCE,
+            request,
+            ActionListener.wrap(r -> handleBatchResponse(r, chunk, chunkHandlers), e -> {
+                if (chunk.size() == 1) {
+                    chunkHandlers.get(0).accept(chunk.get(0), e);
+                    return;
+                }
+                logger.debug(() -> format("[%s] batch inference failed, retrying [%s] documents one at a time", modelId, chunk.size()), e);
+                for (int i = 0; i < chunk.size(); i++) {
+                    execute(chunk.get(i), chunkHandlers.get(i));
+                }
+            })
+        );
+    }
+
+    void handleBatchResponse(
+        InferModelAction.Response response,
+        List<IngestDocument> ingestDocuments,
+        List<BiConsumer<IngestDocument, Exception>> handlers
+    ) {
+        checkLicense(response);
+        List<InferenceResults> results = response.getInferenceResults();
+        int resultsPerDocument = configuredWithInputsFields ? inputs.size() : 1;
+        if (results.size() != ingestDocuments.size() * resultsPerDocument) {
+            ElasticsearchStatusException e = new ElasticsearchStatusException(
+                "number of results [{}] does not match the number of inputs [{}]",
+                RestStatus.INTERNAL_SERVER_ERROR,
+                results.size(),
+                ingestDocuments.size() * resultsPerDocument
+            );
+            for (int i = 0; i < ingestDocuments.size(); i++) {
+                handlers.get(i).accept(ingestDocuments.get(i), e);
+            }
+            return;
+        }
+        String resultsModelId = response.getId() != null ? response.getId() : modelId;
+        for (int i = 0; i < ingestDocuments.size(); i++) {
+            IngestDocument ingestDocument = ingestDocuments.get(i);
+            try {
+                mutateDocument(results.subList(i * resultsPerDocument, (i + 1) * resultsPerDocument), resultsModelId, ingestDocument);
+            } catch (ElasticsearchException ex) {
+                handlers.get(i).accept(ingestDocument, ex);
+                continue;
+            }
+            handlers.get(i).accept(ingestDocument, null);
+        }
+    }
+
+    void handleResponse(InferModelAction.Response response, IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
+        checkLicense(response);
         try {
             mutateDocument(response, ingestDocument);
             handler.accept(ingestDocument, null);
@@ -238,61 +345,92 @@ public class InferenceProcessor extends AbstractProcessor {
      */
     CoordinatedInferenceAction.Request buildRequest(IngestDocument ingestDocument) {
         if (configuredWithInputsFields) {
-            // ignore missing only applies when using an input field list
-            List<String> requestInputs = new ArrayList<>();
-            boolean anyFieldsPresent = false;
-            for (var inputFields : inputs) {
-                try {
-                    var inputText = ingestDocument.getFieldValue(inputFields.inputField, String.class, ignoreMissing);
-                    // field is missing and ignoreMissing == true then a null value is returned.
-                    anyFieldsPresent = anyFieldsPresent || inputText != null;
-                    if (inputText == null) {
-                        inputText = "";  // need to send a non-null request to the same number of results back
-                    }
-                    requestInputs.add(inputText);
-                } catch (IllegalArgumentException e) {
-                    if (ingestDocument.hasField(inputFields.inputField())) {
-                        // field is present but of the wrong type, translate to a more meaningful message
-                        throw new IllegalArgumentException(
-                            "input field [" + inputFields.inputField + "] cannot be processed because it is not a text field"
-                        );
-                    } else {
-                        throw e;
-                    }
-                }
+            List<String> requestInputs = buildTextInputs(ingestDocument);
+            return requestInputs == null ? null : buildTextRequest(requestInputs);
+        } else {
+            return buildObjectRequest(List.of(buildObjectInput(ingestDocument)));
+        }
+    }
+
+    private void checkLicense(InferModelAction.Response response) {
+        if (previouslyLicensed == false) {
+            previouslyLicensed = true;
+        }
+        if (response.isLicensed() == false) {
+            auditWarningAboutLicenseIfNecessary();
+        }
+    }
 
-                if (anyFieldsPresent == false) {
-                    return null;
+    /**
+     * The text inputs of a document, for processors configured with input/output fields.
+     *
+     * @return null if none of the input fields are present in the document
+     */
+    private List<String> buildTextInputs(IngestDocument ingestDocument) {
+        // ignore missing only applies when using an input field list
+        List<String> requestInputs = new ArrayList<>();
+        boolean anyFieldsPresent = false;
+        for (var inputFields : inputs) {
+            try {
+                var inputText = ingestDocument.getFieldValue(inputFields.inputField, String.class, ignoreMissing);
+                // field is missing and ignoreMissing == true then a null value is returned.
+                anyFieldsPresent = anyFieldsPresent || inputText != null;
+                if (inputText == null) {
+                    inputText = "";  // need to send a non-null request to the same number of results back
+                }
+                requestInputs.add(inputText);
+            } catch (IllegalArgumentException e) {
+                if (ingestDocument.hasField(inputFields.inputField())) {
+                    // field is present but of the wrong type, translate to a more meaningful message
+                    throw new IllegalArgumentException(
+                        "input field [" + inputFields.inputField + "] cannot be processed because it is not a text field"
+                    );
+                } else {
+                    throw e;
                 }
             }
-            var request = CoordinatedInferenceAction.Request.forTextInput(
-                modelId,
-                requestInputs,
-                inferenceConfig,
-                previouslyLicensed,
-                InferModelAction.Request.DEFAULT_TIMEOUT_FOR_INGEST
-            );
-            request.setPrefixType(TrainedModelPrefixStrings.PrefixType.INGEST);
-            return request;
-        } else {
-            Map<String, Object> fields = new HashMap<>(ingestDocument.getSourceAndMetadata());
-            // Add ingestMetadata as previous processors might have added metadata from which we are predicting (see: foreach processor)
-            if (ingestDocument.getIngestMetadata().isEmpty() == false) {
-                fields.put(INGEST_KEY, ingestDocument.getIngestMetadata());
+
+            if (anyFieldsPresent == false) {
+                return null;
             }
+        }
+        return requestInputs;
+    }
 
-            LocalModel.mapFieldsIfNecessary(fields, fieldMap);
-            var request = CoordinatedInferenceAction.Request.forMapInput(
-                modelId,
-                List.of(fields),
-                inferenceConfig,
-                previouslyLicensed,
-                InferModelAction.Request.DEFAULT_TIMEOUT_FOR_INGEST,
-                CoordinatedInferenceAction.Request.RequestModelType.UNKNOWN
-            );
-            request.setPrefixType(TrainedModelPrefixStrings.PrefixType.INGEST);
-            return request;
+    private CoordinatedInferenceAction.Request buildTextRequest(List<String> requestInputs) {
+        var request = CoordinatedInferenceAction.Request.forTextInput(
+            modelId,
+            requestInputs,
+            inferenceConfig,
+            previouslyLicensed,
+            InferModelAction.Request.DEFAULT_TIMEOUT_FOR_INGEST
+        );
+        request.setPrefixType(TrainedModelPrefixStrings.PrefixType.INGEST);
+        return request;
+    }
+
+    private Map<String, Object> buildObjectInput(IngestDocument ingestDocument) {
+        Map<String, Object> fields = new HashMap<>(ingestDocument.getSourceAndMetadata());
+        // Add ingestMetadata as previous processors might have added metadata from which we are predicting (see: foreach processor)
+        if (ingestDocument.getIngestMetadata().isEmpty() == false) {
+            fields.put(INGEST_KEY, ingestDocument.getIngestMetadata());
         }
+
+        LocalModel.mapFieldsIfNecessary(fields, fieldMap);
+        return fields;
+    }
+
+    private CoordinatedInferenceAction.Request buildObjectRequest(List<Map<String, Object>> objectInputs) {
+        var request = CoordinatedInferenceAction.Request.forMapInput(
+            modelId,
+            objectInputs,
+            inferenceConfig,
+            previouslyLicensed,
+            InferModelAction.Request.DEFAULT_TIMEOUT_FOR_INGEST,
+            CoordinatedInferenceAction.Request.RequestModelType.UNKNOWN
+        );
+        request.setPrefixType(TrainedModelPrefixStrings.PrefixType.INGEST);
+        return request;
     }
 
     void auditWarningAboutLicenseIfNecessary() {
@@ -306,7 +444,11 @@ public class InferenceProcessor extends AbstractProcessor {
     }
 
     void mutateDocument(InferModelAction.Response response, IngestDocument ingestDocument) {
-        if (response.getInferenceResults().isEmpty()) {
+        mutateDocument(response.getInferenceResults(), response.getId() != null ? response.getId() : modelId, ingestDocument);
+    }
+
+    private void mutateDocument(List<InferenceResults> results, String resultsModelId, IngestDocument ingestDocument) {
+        if (results.isEmpty()) {
             throw new ElasticsearchStatusException("Unexpected empty inference response", RestStatus.INTERNAL_SERVER_ERROR);
         }
 
@@ -317,33 +459,28 @@ public class InferenceProcessor extends AbstractProcessor {
         // String modelIdField = tag == null ? MODEL_ID_RESULTS_FIELD : MODEL_ID_RESULTS_FIELD + "." + tag;
 
         if (configuredWithInputsFields) {
-            if (response.getInferenceResults().size() != inputs.size()) {
+            if (results.size() != inputs.size()) {
                 throw new ElasticsearchStatusException(
                     "number of results [{}] does not match the number of inputs [{}]",
                     RestStatus.INTERNAL_SERVER_ERROR,
-                    response.getInferenceResults().size(),
+                    results.size(),
                     inputs.size()
                 );
             }
 
             for (int i = 0; i < inputs.size(); i++) {
                 InferenceResults.writeResultToField(
-                    response.getInferenceResults().get(i),
+                    results.get(i),
                     ingestDocument,
                     inputs.get(i).outputBasePath(),
                     inputs.get(i).outputField,
-                    response.getId() != null ? response.getId() : modelId,
+                    resultsModelId,
                     i == 0
                 );
             }
         } else {
-            assert response.getInferenceResults().size() == 1;
-            InferenceResults.writeResult(
-                response.getInferenceResults().get(0),
-                ingestDocument,
-                targetField,
-                response.getId() != null ? response.getId() : modelId
-            );
+            assert results.size() == 1;
+            InferenceResults.writeResult(results.get(0), ingestDocument, targetField, resultsModelId);
         }
     }
 
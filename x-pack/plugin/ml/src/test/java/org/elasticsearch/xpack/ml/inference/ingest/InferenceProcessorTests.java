@@ -6,11 +6,19 @@
  */
 package org.elasticsearch.xpack.ml.inference.ingest;
 
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.Maps;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.inference.InferenceResults;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.TestIngestDocument;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.xpack.core.ml.action.CoordinatedInferenceAction;
 import org.elasticsearch.xpack.core.ml.action.InferModelAction;
 import org.elasticsearch.xpack.core.ml.inference.TrainedModelPrefixStrings;
 import org.elasticsearch.xpack.core.ml.inference.results.ClassificationFeatureImportance;
@@ -35,18 +43,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class InferenceProcessorTests extends ESTestCase {
 
@@ -736,4 +749,124 @@ public class InferenceProcessorTests extends ESTestCase {
         assertSame(document, capturedDoc.get());
         assertNull(capturedError.get());
     }
+
+    public void testHandleBatchResponseWithInputFields() {
+        String modelId = "regression-123";
+        List<InferenceProcessor.Factory.InputConfig> inputs = new ArrayList<>();
+        inputs.add(new InferenceProcessor.Factory.InputConfig("body", null, "body_result", Map.of()));
+        inputs.add(new InferenceProcessor.Factory.InputConfig("content", null, "content_result", Map.of()));
+
+        InferenceProcessor inferenceProcessor = InferenceProcessor.fromInputFieldConfiguration(
+            client,
+            auditor,
+            "my_processor_tag",
+            "description",
+            modelId,
+            new RegressionConfigUpdate("foo", null),
+            inputs,
+            randomBoolean()
+        );
+        assertTrue(inferenceProcessor.supportsBatchExecution());
+
+        List<IngestDocument> documents = List.of(TestIngestDocument.emptyIngestDocument(), TestIngestDocument.emptyIngestDocument());
+        List<Exception> failures = new ArrayList<>();
+        List<BiConsumer<IngestDocument, Exception>> handlers = List.of((d, e) -> failures.add(e), (d, e) -> failures.add(e));
+        InferModelAction.Response response = new InferModelAction.Response(
+            List.of(
+                new RegressionInferenceResults(0.1, "ignore"),
+                new RegressionInferenceResults(0.2, "ignore"),
+                new RegressionInferenceResults(0.3, "ignore"),
+                new RegressionInferenceResults(0.4, "ignore")
+            ),
+            modelId,
+            true
+        );
+        inferenceProcessor.handleBatchResponse(response, documents, handlers);
+
+        assertThat(failures, contains(nullValue(), nullValue()));
+        assertThat(documents.get(0).getFieldValue("body_result", Double.class), equalTo(0.1));
+        assertThat(documents.get(0).getFieldValue("content_result", Double.class), equalTo(0.2));
+        assertThat(documents.get(1).getFieldValue("body_result", Double.class), equalTo(0.3));
+        assertThat(documents.get(1).getFieldValue("content_result", Double.class), equalTo(0.4));
+
+        // every document fails if the results don't line up with the inputs
+        failures.clear();
+        response = new InferModelAction.Response(List.of(new RegressionInferenceResults(0.1, "ignore")), modelId, true);
+        inferenceProcessor.handleBatchResponse(response, documents, handlers);
+        assertThat(failures.size(), equalTo(2));
+        assertThat(failures.get(0).getMessage(), containsString("number of results [1] does not match the number of inputs [4]"));
+        assertThat(failures.get(1), sameInstance(failures.get(0)));
+    }
+
+    public void testExecuteBatchRetriesFailedBatchOneDocumentAtATime() {
+        String modelId = "regression-123";
+        ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.getThreadContext()).thenReturn(new ThreadContext(Settings.EMPTY));
+        when(client.threadPool()).thenReturn(threadPool);
+        List<List<String>> requests = new ArrayList<>();
+        doAnswer(invocation -> {
+            CoordinatedInferenceAction.Request request = invocation.getArgument(1);
+            ActionListener<InferModelAction.Response> listener = invocation.getArgument(2);
+            requests.add(request.getInputs());
+            if (request.getInputs().contains("bad")) {
+                // like inference does, one failed input fails the whole request
+                listener.onFailure(new ElasticsearchStatusException("cannot infer [bad]", RestStatus.BAD_REQUEST));
+            } else {
+                List<InferenceResults> results = new ArrayList<>();
+                for (String input : request.getInputs()) {
+                    results.add(new RegressionInferenceResults(input.length(), "ignore"));
+                }
+                listener.onResponse(new InferModelAction.Response(results, modelId, true));
+            }
+            return null;
+        }).when(client).execute(eq(CoordinatedInferenceAction.INSTANCE), any(), any());
+
+        InferenceProcessor inferenceProcessor = InferenceProcessor.fromInputFieldConfiguration(
+            client,
+            auditor,
+            "my_processor_tag",
+            "description",
+            modelId,
+            new RegressionConfigUpdate("foo", null),
+            List.of(new InferenceProcessor.Factory.InputConfig("body", null, "body_result", Map.of())),
+            false
+        );
+
+        int count = between(2, 3 * InferenceProcessor.MAX_BATCH_SIZE);
+        int bad = between(0, count - 1);
+        List<IngestDocument> documents = new ArrayList<>();
+        List<BiConsumer<IngestDocument, Exception>> handlers = new ArrayList<>();
+        Exception[] failures = new Exception[count];
+        boolean[] completed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            String body = i == bad ? "bad" : randomAlphaOfLength(between(1, 10));
+            documents.add(TestIngestDocument.withDefaultVersion(new HashMap<>(Map.of("body", body))));
+            int document = i;
+            handlers.add((d, e) -> {
+                assertFalse("document [" + document + "] completed twice", completed[document]);
+                completed[document] = true;
+                failures[document] = e;
+            });
+        }
+        inferenceProcessor.executeBatch(documents, handlers);
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(completed[i]);
+            if (i == bad) {
+                assertThat(failures[i].getMessage(), equalTo("cannot infer [bad]"));
+            } else {
+                assertNull(failures[i]);
+                String body = documents.get(i).getFieldValue("body", String.class);
+                assertThat(documents.get(i).getFieldValue("body_result", Double.class), equalTo((double) body.length()));
+            }
+        }
+        int batches = (count + InferenceProcessor.MAX_BATCH_SIZE - 1) / InferenceProcessor.MAX_BATCH_SIZE;
+        int failedBatchStart = bad / InferenceProcessor.MAX_BATCH_SIZE * InferenceProcessor.MAX_BATCH_SIZE;
+        int failedBatchSize = Math.min(InferenceProcessor.MAX_BATCH_SIZE, count - failedBatchStart);
+        // every batch is sent once and the documents of the failed batch are then retried one by one
+        assertThat(requests.size(), equalTo(batches + (failedBatchSize > 1 ? failedBatchSize : 0)));
+        for (List<String> request : requests) {
+            assertThat(request.size(), lessThanOrEqualTo(InferenceProcessor.MAX_BATCH_SIZE));
+        }
+    }
 }
@@ -64,6 +64,11 @@ public class HasFrozenCacheAllocationDecider extends AllocationDecider {
         return canAllocateToNode(indexMetadata, node.node());
     }
 
+    @Override
+    public boolean canRemainIsThreadSafe() {
+        return true;
+    }
+
     @Override
     public Decision canAllocate(IndexMetadata indexMetadata, RoutingNode node, RoutingAllocation allocation) {
         return canAllocateToNode(indexMetadata, node.node());